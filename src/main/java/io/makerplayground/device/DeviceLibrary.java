@@ -21,10 +21,10 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.makerplayground.device.actual.*;
 import io.makerplayground.device.generic.GenericDevice;
+import io.makerplayground.util.JacksonMappers;
 import io.makerplayground.util.PathUtility;
 import io.makerplayground.version.DeviceLibraryVersion;
 import org.apache.commons.io.FilenameUtils;
@@ -36,6 +36,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,6 +55,15 @@ public enum DeviceLibrary {
     private List<ActualDevice> actualDevice;
     private List<ActualDevice> actualAndIntegratedDevice;
 
+    /* immutable indexes of the library which are rebuilt every time the library is loaded */
+    private Map<String, GenericDevice> genericDeviceByName;
+    private Map<String, ActualDevice> actualDeviceById;
+    private Map<Platform, List<ActualDevice>> actualDeviceByPlatform;
+    private Map<DeviceType, List<ActualDevice>> actualDeviceByType;
+    private Map<GenericDevice, List<ActualDevice>> actualDeviceByGenericDevice;
+    private Map<GenericDevice, List<ActualDevice>> actualAndIntegratedDeviceByGenericDevice;
+    private Map<Platform, Map<GenericDevice, List<ActualDevice>>> actualDeviceByPlatformAndGenericDevice;
+
     private String currentLibraryPath;
     private DeviceLibraryVersion currentVersion;
 
@@ -61,6 +71,21 @@ public enum DeviceLibrary {
 
     public Map<Path, String> loadDeviceLibrary() {
         reloadLibraryPath();
+        return loadLibraryAtCurrentPath();
+    }
+
+    /**
+     * Load the library at the given directory instead of the newest library found in the default locations
+     * @param libraryPath directory that contains the version file, the schemas, the pin templates and the devices
+     * @return the error of each device definition that can't be loaded
+     */
+    public Map<Path, String> loadDeviceLibrary(Path libraryPath) {
+        setLibraryPath(libraryPath.toString());
+        return loadLibraryAtCurrentPath();
+    }
+
+    private Map<Path, String> loadLibraryAtCurrentPath() {
+        this.genericDeviceByName = null;
         Map<Path, String> errors = new HashMap<>();
         this.genericSensorDevice = loadGenericDeviceFromFile("genericsensordevice.yaml", GenericDeviceType.SENSOR);
         this.genericActuatorDevice = loadGenericDeviceFromFile("genericactuatordevice.yaml", GenericDeviceType.ACTUATOR);
@@ -78,9 +103,63 @@ public enum DeviceLibrary {
         this.actualAndIntegratedDevice = Stream.concat(actualDevice.stream(), actualDevice.stream()
                 .flatMap(actualDevice1 -> actualDevice1.getIntegratedDevices().stream()))
                 .collect(Collectors.toList());
+        buildIndex();
         return errors;
     }
 
+    private void buildIndex() {
+        Map<String, GenericDevice> genericByName = new HashMap<>();
+        for (GenericDevice genericDevice : allGenericDevice) {
+            genericByName.putIfAbsent(genericDevice.getName(), genericDevice);
+        }
+        this.genericDeviceByName = Collections.unmodifiableMap(genericByName);
+
+        Map<String, ActualDevice> byId = new HashMap<>();
+        Map<Platform, List<ActualDevice>> byPlatform = new EnumMap<>(Platform.class);
+        Map<DeviceType, List<ActualDevice>> byType = new EnumMap<>(DeviceType.class);
+        // GenericDevice and ActualDevice's equals and hashCode compare every field so we index them by their identity instead
+        Map<GenericDevice, List<ActualDevice>> byGenericDevice = new IdentityHashMap<>();
+        Map<Platform, Map<GenericDevice, List<ActualDevice>>> byPlatformAndGenericDevice = new EnumMap<>(Platform.class);
+        for (ActualDevice device : actualDevice) {
+            byId.putIfAbsent(device.getId(), device);
+            if (device.getDeviceType() != null) {
+                byType.computeIfAbsent(device.getDeviceType(), t -> new ArrayList<>()).add(device);
+            }
+            for (Platform platform : device.getPlatformSourceCodeLibrary().keySet()) {
+                byPlatform.computeIfAbsent(platform, p -> new ArrayList<>()).add(device);
+                for (GenericDevice genericDevice : device.getCompatibilityMap().keySet()) {
+                    byPlatformAndGenericDevice.computeIfAbsent(platform, p -> new IdentityHashMap<>())
+                            .computeIfAbsent(genericDevice, g -> new ArrayList<>()).add(device);
+                }
+            }
+            for (GenericDevice genericDevice : device.getCompatibilityMap().keySet()) {
+                byGenericDevice.computeIfAbsent(genericDevice, g -> new ArrayList<>()).add(device);
+            }
+        }
+        Map<GenericDevice, List<ActualDevice>> actualAndIntegratedByGenericDevice = new IdentityHashMap<>();
+        for (ActualDevice device : actualAndIntegratedDevice) {
+            for (GenericDevice genericDevice : device.getCompatibilityMap().keySet()) {
+                actualAndIntegratedByGenericDevice.computeIfAbsent(genericDevice, g -> new ArrayList<>()).add(device);
+            }
+        }
+
+        this.actualDeviceById = Collections.unmodifiableMap(byId);
+        this.actualDeviceByPlatform = toSortedUnmodifiableListMap(byPlatform);
+        this.actualDeviceByType = toSortedUnmodifiableListMap(byType);
+        this.actualDeviceByGenericDevice = toSortedUnmodifiableListMap(byGenericDevice);
+        this.actualAndIntegratedDeviceByGenericDevice = toSortedUnmodifiableListMap(actualAndIntegratedByGenericDevice);
+        byPlatformAndGenericDevice.replaceAll((platform, map) -> toSortedUnmodifiableListMap(map));
+        this.actualDeviceByPlatformAndGenericDevice = Collections.unmodifiableMap(byPlatformAndGenericDevice);
+    }
+
+    private static <K> Map<K, List<ActualDevice>> toSortedUnmodifiableListMap(Map<K, List<ActualDevice>> map) {
+        map.replaceAll((key, list) -> {
+            list.sort(ActualDevice.NAME_COMPARATOR);
+            return Collections.unmodifiableList(list);
+        });
+        return Collections.unmodifiableMap(map);
+    }
+
     private static final List<String> libraryPaths = List.of(
             "library",   // default path when running from the IDE which should override installer path to aid in development
             PathUtility.getUserLibraryPath(),  // updated library for each user in user's machine
@@ -90,16 +169,18 @@ public enum DeviceLibrary {
     );
 
     private void reloadLibraryPath() {
-        currentLibraryPath = libraryPaths.stream()
+        setLibraryPath(libraryPaths.stream()
                 .filter(s -> Files.exists(Path.of(s, "lib")) && Files.exists(Path.of(s, "lib_ext"))
                         && Files.exists(Path.of(s, "pin_templates")) && DeviceLibraryUpdateHelper.getVersionOfLibraryAtPath(s).isPresent())
                 .max(Comparator.comparing(o -> DeviceLibraryUpdateHelper.getVersionOfLibraryAtPath(o).get().getReleaseDate()))
-                .orElse(null);
+                .orElse(null));
+    }
 
+    private void setLibraryPath(String libraryPath) {
+        currentLibraryPath = libraryPath;
         if (currentLibraryPath != null) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                currentVersion = mapper.readValue(new File(currentLibraryPath + File.separator + "version.json"), DeviceLibraryVersion.class);
+                currentVersion = JacksonMappers.JSON.readValue(new File(currentLibraryPath + File.separator + "version.json"), DeviceLibraryVersion.class);
             } catch (Exception e) {
                 System.err.println("Can't open version file at " + currentLibraryPath + File.separator + "version.json");
             }
@@ -117,46 +198,56 @@ public enum DeviceLibrary {
     }
 
     private Map<String, Map<String, PinTemplate>> loadPinTemplateList() {
-        YAMLMapper mapper = new YAMLMapper();
+        ObjectMapper mapper = JacksonMappers.YAML;
         Optional<String> libraryPath = getLibraryPath();
-        Map<String, Map<String, PinTemplate>> pinTemplateMap = new HashMap<>();
+        Map<String, Map<String, PinTemplate>> pinTemplateMap = new ConcurrentHashMap<>();
         if (libraryPath.isPresent()) {
+            List<Path> pinTemplatePaths = new ArrayList<>();
             try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(libraryPath.get(), "pin_templates"))) {
                 for (Path pinTemplatePath : directoryStream) {
                     if (Files.exists(pinTemplatePath)) {
-                        try {
-                            JsonNode rootNode = mapper.readValue(pinTemplatePath.toFile(), JsonNode.class);
-                            String filename = FilenameUtils.removeExtension(pinTemplatePath.getFileName().toString());
-                            if (!rootNode.has("pins") && !rootNode.get("pins").isArray()) {
-                                throw new IllegalStateException("pin template file must has 'pins' and it must be an array");
-                            }
-                            pinTemplateMap.put(filename, new HashMap<>());
-                            List<PinTemplate> pinTemplateList = mapper.readValue(rootNode.get("pins").traverse(), new TypeReference<List<PinTemplate>>() {});
-                            pinTemplateList.forEach(pinTemplate -> pinTemplateMap.get(filename).put(pinTemplate.getName(), pinTemplate));
-                        } catch (JsonParseException e) {
-                            System.err.println("Found some errors when reading pin_template at " + pinTemplatePath.toAbsolutePath());
-                        } catch (NullPointerException e) {
-                            System.err.println("Found some errors when reading pin_template at " + pinTemplatePath.toAbsolutePath());
-                            throw new IllegalStateException(e);
-                        }
+                        pinTemplatePaths.add(pinTemplatePath);
                     }
                 }
-                return Collections.unmodifiableMap(pinTemplateMap);
             } catch (IOException e) {
                 e.printStackTrace();
+                return Collections.emptyMap();
             }
+
+            // the shared mapper is thread-safe as it is never reconfigured
+            pinTemplatePaths.parallelStream().forEach(pinTemplatePath -> {
+                try {
+                    JsonNode rootNode = mapper.readValue(pinTemplatePath.toFile(), JsonNode.class);
+                    String filename = FilenameUtils.removeExtension(pinTemplatePath.getFileName().toString());
+                    if (!rootNode.has("pins") && !rootNode.get("pins").isArray()) {
+                        throw new IllegalStateException("pin template file must has 'pins' and it must be an array");
+                    }
+                    Map<String, PinTemplate> templateMap = new HashMap<>();
+                    List<PinTemplate> pinTemplateList = mapper.readValue(rootNode.get("pins").traverse(), new TypeReference<List<PinTemplate>>() {});
+                    pinTemplateList.forEach(pinTemplate -> templateMap.put(pinTemplate.getName(), pinTemplate));
+                    pinTemplateMap.put(filename, templateMap);
+                } catch (JsonParseException e) {
+                    System.err.println("Found some errors when reading pin_template at " + pinTemplatePath.toAbsolutePath());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } catch (NullPointerException e) {
+                    System.err.println("Found some errors when reading pin_template at " + pinTemplatePath.toAbsolutePath());
+                    throw new IllegalStateException(e);
+                }
+            });
+            return Collections.unmodifiableMap(new HashMap<>(pinTemplateMap));
         }
         return Collections.emptyMap();
     }
 
     private List<GenericDevice> loadGenericDeviceFromFile(String filename, GenericDeviceType type){
-        ObjectMapper mapper = new YAMLMapper();
-        mapper.setInjectableValues(new InjectableValues.Std().addValue(GenericDeviceType.class, type));
+        ObjectReader reader = JacksonMappers.YAML.readerFor(new TypeReference<List<GenericDevice>>() {})
+                .with(new InjectableValues.Std().addValue(GenericDeviceType.class, type));
         Optional<String> libraryPath = getLibraryPath();
         if (libraryPath.isPresent()) {
             Path path = Path.of(libraryPath.get(), "schemas", filename);
             try{
-                List<GenericDevice> temp = mapper.readValue(path.toFile(), new TypeReference<List<GenericDevice>>() {});
+                List<GenericDevice> temp = reader.readValue(path.toFile());
                 temp.sort((device1, device2) -> device1.getName().compareToIgnoreCase(device2.getName()));
                 return temp;
             } catch (IOException e) {
@@ -169,31 +260,40 @@ public enum DeviceLibrary {
     }
 
     private List<ActualDevice> loadActualDeviceList(Map<String, Map<String, PinTemplate>> pinTemplate, Map<Path, String> errors){
-        List<ActualDevice> temp = new ArrayList<>();
-        YAMLMapper mapper = new YAMLMapper();
-        SimpleModule simpleModule = new SimpleModule();
-        simpleModule.addDeserializer(ActualDevice.class, new ActualDeviceDeserializer(pinTemplate));
-        mapper.registerModule(simpleModule);
+        // ObjectReader is immutable so a single reader can be shared by every worker thread
+        ObjectReader reader = JacksonMappers.ACTUAL_DEVICE_READER.withAttribute(ActualDeviceDeserializer.PIN_TEMPLATE_ATTRIBUTE, pinTemplate);
         Optional<String> libraryPath = getLibraryPath();
         if (libraryPath.isPresent()) {
+            List<Path> deviceDefinitionPaths = new ArrayList<>();
             try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(libraryPath.get(), "devices"))) {
                 for (Path deviceDirectory : directoryStream) {
                     Path deviceDefinitionPath = deviceDirectory.resolve("device.yaml");
                     if (Files.exists(deviceDefinitionPath)) {
-                        try {
-                            ActualDevice actualDevice = mapper.readValue(deviceDefinitionPath.toFile(), ActualDevice.class);
-                            temp.add(actualDevice);
-                        } catch (Exception e) {
-                            errors.put(deviceDefinitionPath, e.getMessage());
-                            System.err.println(deviceDefinitionPath.toAbsolutePath());
-                            e.printStackTrace();
-                        }
+                        deviceDefinitionPaths.add(deviceDefinitionPath);
                     }
                 }
-                return Collections.unmodifiableList(temp);
             } catch (IOException e) {
                 e.printStackTrace();
+                return Collections.emptyList();
             }
+
+            // each device directory is independent from each other so we parse them in parallel using the common ForkJoinPool
+            Map<Path, String> loadErrors = new ConcurrentHashMap<>();
+            List<ActualDevice> temp = deviceDefinitionPaths.parallelStream()
+                    .map(deviceDefinitionPath -> {
+                        try {
+                            return reader.<ActualDevice>readValue(deviceDefinitionPath.toFile());
+                        } catch (Exception e) {
+                            loadErrors.put(deviceDefinitionPath, String.valueOf(e.getMessage()));
+                            System.err.println(deviceDefinitionPath.toAbsolutePath());
+                            e.printStackTrace();
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            errors.putAll(loadErrors);
+            return Collections.unmodifiableList(temp);
         }
         return Collections.emptyList();
     }
@@ -203,10 +303,15 @@ public enum DeviceLibrary {
     }
 
     public GenericDevice getGenericDevice(String name) {
-        for (GenericDevice genericDevice : allGenericDevice) {
-            if (genericDevice.getName().equals(name)) {
-                return genericDevice;
+        // the index is not available while the actual devices, which refer to the generic devices, are being loaded
+        if (genericDeviceByName == null) {
+            for (GenericDevice genericDevice : allGenericDevice) {
+                if (genericDevice.getName().equals(name)) {
+                    return genericDevice;
+                }
             }
+        } else if (genericDeviceByName.containsKey(name)) {
+            return genericDeviceByName.get(name);
         }
         throw new IllegalArgumentException("No generic device named " + name);
     }
@@ -236,27 +341,30 @@ public enum DeviceLibrary {
     }
 
     public List<ActualDevice> getActualDevice(Platform platform) {
-        return actualDevice.stream().filter(device -> device.getPlatformSourceCodeLibrary().keySet().contains(platform))
-                .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+        return actualDeviceByPlatform.getOrDefault(platform, Collections.emptyList());
     }
 
     public ActualDevice getActualDevice(String id) {
-        for (ActualDevice device : actualDevice) {
-            if (device.getId().equals(id)) {
-                return device;
-            }
-        }
-        return null;
+        return actualDeviceById.get(id);
     }
 
     public List<ActualDevice> getActualDevice(DeviceType deviceType) {
-        return actualDevice.stream().filter(device -> device.getDeviceType() == deviceType)
-                .collect(Collectors.toUnmodifiableList());
+        return actualDeviceByType.getOrDefault(deviceType, Collections.emptyList());
     }
 
     public List<ActualDevice> getActualDevice(GenericDevice genericDevice) {
-        return actualDevice.stream().filter(device -> device.getCompatibilityMap().containsKey(genericDevice))
-                .collect(Collectors.toUnmodifiableList());
+        return actualDeviceByGenericDevice.getOrDefault(genericDevice, Collections.emptyList());
+    }
+
+    /**
+     * Get every actual device which supports the given platform and is compatible with the given generic device
+     * @param platform the platform
+     * @param genericDevice the generic device
+     * @return a shared unmodifiable list sorted by {@link ActualDevice#NAME_COMPARATOR}
+     */
+    public List<ActualDevice> getActualDevice(Platform platform, GenericDevice genericDevice) {
+        return actualDeviceByPlatformAndGenericDevice.getOrDefault(platform, Collections.emptyMap())
+                .getOrDefault(genericDevice, Collections.emptyList());
     }
 
     public List<ActualDevice> getActualAndIntegratedDevice() {
@@ -264,7 +372,6 @@ public enum DeviceLibrary {
     }
 
     public List<ActualDevice> getActualAndIntegratedDevice(GenericDevice genericDevice) {
-        return actualAndIntegratedDevice.stream().filter(device -> device.getCompatibilityMap().containsKey(genericDevice))
-                .collect(Collectors.toUnmodifiableList());
+        return actualAndIntegratedDeviceByGenericDevice.getOrDefault(genericDevice, Collections.emptyList());
     }
 }
@@ -2,6 +2,7 @@ package io.makerplayground.device;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.makerplayground.util.JacksonMappers;
 import io.makerplayground.util.PathUtility;
 import io.makerplayground.version.ComparableVersion;
 import io.makerplayground.version.DeviceLibraryVersion;
@@ -25,7 +26,7 @@ public class DeviceLibraryUpdateHelper {
     private static DeviceLibraryVersion lastestCompatibleVersion;
 
     public static Optional<DeviceLibraryVersion> getVersionOfLibraryAtPath(String path) {
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = JacksonMappers.JSON;
         try {
             DeviceLibraryVersion version = mapper.readValue(new File(path + "/version.json"), DeviceLibraryVersion.class);
             return Optional.of(version);
@@ -37,7 +38,7 @@ public class DeviceLibraryUpdateHelper {
     public static void fetchLatestCompatibleVersion(Runnable runnable) {
         new Thread(() -> {
             List<DeviceLibraryVersion> libraryVersions = null;
-            ObjectMapper mapper = new ObjectMapper();
+            ObjectMapper mapper = JacksonMappers.JSON;
             try {
                 libraryVersions = mapper.readValue(new URL(VERSION_CHECKING_URL), new TypeReference<List<DeviceLibraryVersion>>(){});
             } catch (UnknownHostException | SSLException | SocketException e) {
@@ -21,8 +21,6 @@ import io.makerplayground.project.ProjectDevice;
 import lombok.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Data @Builder
 public class ActualDevice implements Comparable<ActualDevice> {
@@ -107,44 +105,82 @@ public class ActualDevice implements Comparable<ActualDevice> {
         throw new IllegalStateException("The actual device [" + String.join(", ", List.of(id, brand, model)) + "] not support for cloudplatform [" + cloudPlatform.getDisplayName() + "]");
     }
 
-    private Stream<Connection> queryConnection(List<Connection> connectionList, ProjectDevice projectDevice, String portName) {
-        List<Connection> retVal = connectionList.stream()
-                                    .map(port -> {
-                                        Connection conn = new Connection(port.getName(), port.getType(), port.getPins(), projectDevice);
-                                        conn.setFriendConnections(port.getFriendConnections());
-                                        return conn;
-                                    })
-                                    .collect(Collectors.toList());
+    /**
+     * Bind every connection of this device to the given project device. The result is not cached by this class as the
+     * device library is shared by every project; the caller (e.g. {@link io.makerplayground.project.ProjectConfiguration})
+     * should keep it for as long as the project device is assigned to this device.
+     * @param projectDevice the project device
+     * @return the connections bound to the project device
+     */
+    public BoundConnection bindConnection(ProjectDevice projectDevice) {
+        return new BoundConnection(this, bindConnection(connectionProvide, projectDevice), bindConnection(connectionConsume, projectDevice));
+    }
+
+    private static List<Connection> bindConnection(List<Connection> connectionList, ProjectDevice projectDevice) {
+        List<Connection> retVal = new ArrayList<>(connectionList.size());
+        Map<Connection, Connection> connectionByNameType = new TreeMap<>(Connection.NAME_TYPE_COMPARATOR);
+        for (Connection port : connectionList) {
+            Connection conn = new Connection(port.getName(), port.getType(), port.getPins(), projectDevice);
+            conn.setFriendConnections(port.getFriendConnections());
+            retVal.add(conn);
+            connectionByNameType.putIfAbsent(conn, conn);
+        }
         for (Connection conn: retVal) {
-            List<Connection> newFriendConnection = conn.getFriendConnections().stream()
-                .map(connection -> {
-                    Optional<Connection> foundConnection = retVal.stream().filter(connection1 -> Connection.NAME_TYPE_COMPARATOR.compare(connection, connection1) == 0).findFirst();
-                    if (foundConnection.isEmpty()) {
-                        throw new IllegalStateException("");
-                    } else {
-                        return foundConnection.get();
-                    }
-                })
-                .collect(Collectors.toUnmodifiableList());
-            conn.setFriendConnections(newFriendConnection);
+            List<Connection> newFriendConnection = new ArrayList<>(conn.getFriendConnections().size());
+            for (Connection connection : conn.getFriendConnections()) {
+                Connection foundConnection = connectionByNameType.get(connection);
+                if (foundConnection == null) {
+                    throw new IllegalStateException("");
+                }
+                newFriendConnection.add(foundConnection);
+            }
+            conn.setFriendConnections(Collections.unmodifiableList(newFriendConnection));
         }
-        return retVal.stream().filter(port -> portName == null || port.getName().equals(portName));
+        return Collections.unmodifiableList(retVal);
     }
 
     public List<Connection> getConnectionProvideByOwnerDevice(ProjectDevice projectDevice) {
-        return queryConnection(connectionProvide, projectDevice, null).collect(Collectors.toList());
+        return bindConnection(connectionProvide, projectDevice);
     }
 
     public Optional<Connection> getConnectionProvideByOwnerDevice(ProjectDevice projectDevice, String portName) {
-        return queryConnection(connectionProvide, projectDevice, portName).findFirst();
+        return getConnectionProvideByOwnerDevice(projectDevice).stream().filter(connection -> connection.getName().equals(portName)).findFirst();
     }
 
     public List<Connection> getConnectionConsumeByOwnerDevice(ProjectDevice projectDevice) {
-        return queryConnection(connectionConsume, projectDevice, null).collect(Collectors.toList());
+        return bindConnection(connectionConsume, projectDevice);
     }
 
     public Optional<Connection> getConnectionConsumeByOwnerDevice(ProjectDevice projectDevice, String portName) {
-        return queryConnection(connectionConsume, projectDevice, portName).findFirst();
+        return getConnectionConsumeByOwnerDevice(projectDevice).stream().filter(connection -> connection.getName().equals(portName)).findFirst();
+    }
+
+    /**
+     * Connections of an actual device bound to a project device. Every list and map is unmodifiable.
+     */
+    @Getter
+    public static class BoundConnection {
+        private final ActualDevice actualDevice;
+        private final List<Connection> connectionProvide;
+        private final List<Connection> connectionConsume;
+        private final Map<String, Connection> connectionProvideByName;
+        private final Map<String, Connection> connectionConsumeByName;
+
+        private BoundConnection(ActualDevice actualDevice, List<Connection> connectionProvide, List<Connection> connectionConsume) {
+            this.actualDevice = actualDevice;
+            this.connectionProvide = connectionProvide;
+            this.connectionConsume = connectionConsume;
+            this.connectionProvideByName = indexByName(connectionProvide);
+            this.connectionConsumeByName = indexByName(connectionConsume);
+        }
+
+        private static Map<String, Connection> indexByName(List<Connection> connectionList) {
+            Map<String, Connection> map = new HashMap<>();
+            for (Connection connection : connectionList) {
+                map.putIfAbsent(connection.getName(), connection);
+            }
+            return Collections.unmodifiableMap(map);
+        }
     }
 
     @Override
@@ -21,13 +21,12 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.generic.GenericDevice;
 import io.makerplayground.device.shared.*;
 import io.makerplayground.device.shared.constraint.Constraint;
-import io.makerplayground.device.shared.constraint.ConstraintDeserializer;
+import io.makerplayground.util.JacksonMappers;
 
 import java.io.IOException;
 import java.util.*;
@@ -38,22 +37,26 @@ import static io.makerplayground.util.DeserializerHelper.*;
 
 public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
 
-    private YAMLMapper mapper = new YAMLMapper();
-    private String id;
-    private Map<String, Map<String, PinTemplate>> allPinTemplateMap;
-
-    public ActualDeviceDeserializer(Map<String, Map<String, PinTemplate>> allPinTemplateMap) {
-        this.allPinTemplateMap = allPinTemplateMap;
-    }
+    /* name of the DeserializationContext attribute that holds the pin templates of the library (Map<String, Map<String, PinTemplate>>) */
+    public static final String PIN_TEMPLATE_ATTRIBUTE = "io.makerplayground.actualDevice.pinTemplate";
 
+    // this deserializer is registered to the shared mappers and is used by many threads at the same time so every state
+    // of the device being deserialized must be kept in local variables
     @Override
     public ActualDevice deserialize(JsonParser jsonParser, DeserializationContext ctxt) throws IOException {
-        JsonNode node = mapper.readTree(jsonParser);
+        ObjectMapper mapper = JacksonMappers.YAML;
+        JsonNode node = ctxt.readTree(jsonParser);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, PinTemplate>> allPinTemplateMap = (Map<String, Map<String, PinTemplate>>) ctxt.getAttribute(PIN_TEMPLATE_ATTRIBUTE);
+        if (allPinTemplateMap == null) {
+            allPinTemplateMap = Collections.emptyMap();
+        }
 
         throwIfMissingField(node, "id", "device must have id");
 
         /* id */
-        id = node.get("id").asText();
+        String id = node.get("id").asText();
 
         throwIfMissingField(node, "type", id);
         throwIfMissingField(node, "brand", id);
@@ -133,24 +136,24 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
         List<IntegratedActualDevice> integratedDevices = new ArrayList<>();
         if (deviceType != DeviceType.CONTROLLER) {
             if (node.has("connection_provide")) {
-                connectionProvide = loadConnectionProvide(node.get("connection_provide"), Collections.emptyMap());
+                connectionProvide = loadConnectionProvide(id, node.get("connection_provide"), Collections.emptyMap());
             }
             if (node.has("connection_consume")) {
-                connectionConsume = loadConnectionConsume(node.get("connection_consume"), Collections.emptyMap());
+                connectionConsume = loadConnectionConsume(id, node.get("connection_consume"), Collections.emptyMap());
             }
             expandConnectionProvide = expandConnection(connectionProvide);
         } else {
             throwIfMissingField(node, "pin_template", id);
             String templateName = node.get("pin_template").asText();
-            if (!this.allPinTemplateMap.containsKey(templateName)) {
+            if (!allPinTemplateMap.containsKey(templateName)) {
                 throw new IllegalStateException("There is no pin_template named " + templateName);
             }
-            Map<String, PinTemplate> devicePinTemplate = this.allPinTemplateMap.get(templateName);
+            Map<String, PinTemplate> devicePinTemplate = allPinTemplateMap.get(templateName);
             if (node.has("connection_provide")) {
-                connectionProvide = loadConnectionProvide(node.get("connection_provide"), devicePinTemplate);
+                connectionProvide = loadConnectionProvide(id, node.get("connection_provide"), devicePinTemplate);
             }
             if (node.has("connection_consume")) {
-                connectionConsume = loadConnectionConsume(node.get("connection_consume"), devicePinTemplate);
+                connectionConsume = loadConnectionConsume(id, node.get("connection_consume"), devicePinTemplate);
             }
             expandConnectionProvide = expandConnection(connectionProvide);
 
@@ -208,7 +211,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                 if (inProperty.isEmpty()) { inProperty = Collections.emptyList(); }
 
                 /* Compatibility */
-                Map<GenericDevice, Compatibility> inCompatibilityMap = loadCompatibility(inNode);
+                Map<GenericDevice, Compatibility> inCompatibilityMap = loadCompatibility(id, inNode);
 
                 IntegratedActualDevice inDevice = new IntegratedActualDevice(inDeviceName,
                         inProperty,
@@ -232,7 +235,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
         List<Property> property = mapper.readValue(node.get("property").traverse(), new TypeReference<List<Property>>() {});
 
         /* Compatibility */
-        Map<GenericDevice, Compatibility> compatibilityMap = loadCompatibility(node);
+        Map<GenericDevice, Compatibility> compatibilityMap = loadCompatibility(id, node);
 
         List<String> allConnectionName = Stream.of(connectionProvide.stream(), connectionConsume.stream())
                 .reduce(Stream::concat)
@@ -298,7 +301,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
         return retVal;
     }
 
-    private Map<GenericDevice, Compatibility> loadCompatibility(JsonNode node) throws IOException {
+    private Map<GenericDevice, Compatibility> loadCompatibility(String id, JsonNode node) throws IOException {
         Map<GenericDevice, Compatibility> compatibilityMap = new HashMap<>();
         for (JsonNode compatibilityNode : node.get("compatibility")) {
 
@@ -341,15 +344,11 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                     }
 
                     DataType dataType = parameter.get().getDataType();
-                    SimpleModule module = new SimpleModule();
-                    module.addDeserializer(Constraint.class, new ConstraintDeserializer(dataType));
-                    YAMLMapper mapper = new YAMLMapper();
-                    mapper.registerModule(module);
 
                     /* Extract Constraint */
                     Constraint constraint = parameter.get().getConstraint();
                     if (parameterNode.has("constraint")) {
-                        constraint = constraint.intersect(mapper.readValue(parameterNode.get("constraint").traverse(), Constraint.class));
+                        constraint = constraint.intersect(JacksonMappers.constraintReader(dataType).readValue(parameterNode.get("constraint")));
                     }
 
                     /* Put parameter and constraint into Map */
@@ -390,15 +389,11 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                     }
 
                     DataType dataType = parameter.get().getDataType();
-                    SimpleModule module = new SimpleModule();
-                    module.addDeserializer(Constraint.class, new ConstraintDeserializer(dataType));
-                    YAMLMapper mapper = new YAMLMapper();
-                    mapper.registerModule(module);
 
                     /* Extract Constraint */
                     Constraint constraint = parameter.get().getConstraint();
                     if (parameterNode.has("constraint")) {
-                        constraint = constraint.intersect(mapper.treeToValue(parameterNode.get("constraint"), Constraint.class));
+                        constraint = constraint.intersect(JacksonMappers.constraintReader(dataType).readValue(parameterNode.get("constraint")));
                     }
 
                     /* Put parameter and constraint into Map */
@@ -423,12 +418,9 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                 }
 
                 DataType dataType = value.get().getType();
-                SimpleModule module = new SimpleModule();
-                module.addDeserializer(Constraint.class, new ConstraintDeserializer(dataType));
-                mapper.registerModule(module);
 
                 /* Extract Constraint */
-                Constraint constraint = valueNode.has("constraint") ? mapper.treeToValue(valueNode.get("constraint"), Constraint.class) : Constraint.NONE;
+                Constraint constraint = valueNode.has("constraint") ? JacksonMappers.constraintReader(dataType).readValue(valueNode.get("constraint")) : Constraint.NONE;
 
                 /* Put value and constraint into map */
                 deviceValue.put(value.get(), constraint);
@@ -440,7 +432,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
         return compatibilityMap;
     }
 
-    private List<Connection> loadConnectionProvide(JsonNode connectionProvideNode, Map<String, PinTemplate> pinTemplateMap) throws IOException {
+    private List<Connection> loadConnectionProvide(String id, JsonNode connectionProvideNode, Map<String, PinTemplate> pinTemplateMap) throws IOException {
         throwIfMissingField(connectionProvideNode, "voltage_level", id, "connection_provide");
         throwIfMissingField(connectionProvideNode, "items", id, "connection_provide");
         VoltageLevel connectionVoltageLevel = VoltageLevel.valueOf(connectionProvideNode.get("voltage_level").asText());
@@ -493,7 +485,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                 List<PinFunction> function = pinTemplate.getFunction();
                 if (pinNode.has("function")) {
                     if (pinNode.get("function").isArray()) {
-                        function = mapper.readValue(pinNode.get("function").traverse(), new TypeReference<List<PinFunction>>() {});
+                        function = JacksonMappers.YAML.readValue(pinNode.get("function").traverse(), new TypeReference<List<PinFunction>>() {});
                     } else {
                         function = List.of(PinFunction.valueOf(pinNode.get("function").asText()));
                     }
@@ -514,7 +506,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
         return connectionList;
     }
 
-    private List<Connection> loadConnectionConsume(JsonNode connectionConsumeNode, Map<String, PinTemplate> pinTemplateMap) throws IOException {
+    private List<Connection> loadConnectionConsume(String id, JsonNode connectionConsumeNode, Map<String, PinTemplate> pinTemplateMap) throws IOException {
         throwIfMissingField(connectionConsumeNode, "min_voltage", id, "connection_consume", "");
         throwIfMissingField(connectionConsumeNode, "max_voltage", id, "connection_consume", "");
         throwIfMissingField(connectionConsumeNode, "items", id, "connection_consume", "");
@@ -560,7 +552,7 @@ public class ActualDeviceDeserializer extends JsonDeserializer<ActualDevice> {
                 }
                 List<PinFunction> function;
                 if (pinNode.get("pin_function").isArray()) {
-                    function = mapper.readValue(pinNode.get("pin_function").traverse(), new TypeReference<List<PinFunction>>() {});
+                    function = JacksonMappers.YAML.readValue(pinNode.get("pin_function").traverse(), new TypeReference<List<PinFunction>>() {});
                 } else {
                     function = List.of(PinFunction.valueOf(pinNode.get("pin_function").asText()));
                 }
@@ -18,8 +18,10 @@ package io.makerplayground.device.actual;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.makerplayground.project.ProjectDevice;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 import lombok.ToString;
 
 import java.util.Collections;
@@ -51,6 +53,7 @@ public class Connection implements Comparable<Connection> {
 
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
+    @Setter(AccessLevel.PACKAGE)
     private List<Connection> friendConnections = Collections.emptyList(); // This connection list will contain the connections that use the same hardware (normally for connections of the split port)
 
     @Override
@@ -22,7 +22,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.makerplayground.util.JacksonMappers;
 
 import java.io.IOException;
 import java.util.List;
@@ -33,8 +33,7 @@ import static io.makerplayground.util.DeserializerHelper.throwIfMissingField;
 public class PinTemplateDeserializer extends JsonDeserializer<PinTemplate> {
     @Override
     public PinTemplate deserialize(JsonParser jsonParser, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        YAMLMapper mapper = new YAMLMapper();
-        JsonNode node = mapper.readTree(jsonParser);
+        JsonNode node = ctxt.readTree(jsonParser);
 
         throwIfMissingField(node, "pin_name", "pin");
 
@@ -46,7 +45,7 @@ public class PinTemplateDeserializer extends JsonDeserializer<PinTemplate> {
         createArrayNodeIfMissing(node, "pin_function");
         List<PinFunction> functions;
         if (node.get("pin_function").isArray()) {
-            functions = mapper.readValue(node.get("pin_function").traverse(), new TypeReference<List<PinFunction>>() {});
+            functions = JacksonMappers.YAML.readValue(node.get("pin_function").traverse(), new TypeReference<List<PinFunction>>() {});
         } else {
             functions = List.of(PinFunction.valueOf(node.get("pin_function").asText()));
         }
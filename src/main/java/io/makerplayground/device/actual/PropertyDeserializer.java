@@ -21,16 +21,15 @@ import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import io.makerplayground.device.generic.ControlType;
 import io.makerplayground.device.shared.DataType;
 import io.makerplayground.device.shared.NumberWithUnit;
 import io.makerplayground.device.shared.Unit;
 import io.makerplayground.device.shared.constraint.Constraint;
-import io.makerplayground.device.shared.constraint.ConstraintDeserializer;
 import io.makerplayground.device.shared.constraint.StringIntegerCategoricalConstraint;
 import io.makerplayground.project.ProjectConfiguration;
 import io.makerplayground.project.ProjectConfigurationDeserializer;
+import io.makerplayground.util.JacksonMappers;
 
 import java.io.IOException;
 
@@ -38,7 +37,7 @@ public class PropertyDeserializer extends JsonDeserializer<Property> {
 
     @Override
     public Property deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = JacksonMappers.JSON;
 
         JsonNode node = deserializationContext.readValue(jsonParser, JsonNode.class);
 
@@ -50,10 +49,7 @@ public class PropertyDeserializer extends JsonDeserializer<Property> {
         }
 
 
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(Constraint.class, new ConstraintDeserializer(dataType));
-        mapper.registerModule(module);
-        Constraint constraint = mapper.readValue(node.get("constraint").traverse(), Constraint.class);
+        Constraint constraint = JacksonMappers.constraintReader(dataType).readValue(node.get("constraint"));
 //        Constraint constraint = mapper.treeToValue(node.get("constraint"), Constraint.class);
         ControlType controlType = mapper.treeToValue(node.get("controltype"), ControlType.class);
 
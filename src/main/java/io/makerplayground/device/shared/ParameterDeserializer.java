@@ -21,10 +21,9 @@ import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import io.makerplayground.device.generic.ControlType;
 import io.makerplayground.device.shared.constraint.Constraint;
-import io.makerplayground.device.shared.constraint.ConstraintDeserializer;
+import io.makerplayground.util.JacksonMappers;
 
 import java.io.IOException;
 
@@ -36,16 +35,13 @@ public class ParameterDeserializer extends JsonDeserializer<Parameter> {
 
     @Override
     public Parameter deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = JacksonMappers.JSON;
         JsonNode node = jsonParser.getCodec().readTree(jsonParser);
 
         String name = node.get("name").asText();
         DataType dataType = mapper.treeToValue(node.get("datatype"), DataType.class);
 
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(Constraint.class, new ConstraintDeserializer(dataType));
-        mapper.registerModule(module);
-        Constraint constraint = mapper.readValue(node.get("constraint").traverse(), Constraint.class);
+        Constraint constraint = JacksonMappers.constraintReader(dataType).readValue(node.get("constraint"));
         ControlType controlType = mapper.treeToValue(node.get("controltype"), ControlType.class);
 
         Object defaultValue = null;
@@ -20,14 +20,12 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 
 public class RGBDotMatrixDeserializer extends JsonDeserializer<RGBDotMatrix> {
     @Override
     public RGBDotMatrix deserialize(JsonParser jsonParser, DeserializationContext ctxt) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
         JsonNode node = jsonParser.getCodec().readTree(jsonParser);
         int row = node.get("row").asInt();
         int column = node.get("column").asInt();
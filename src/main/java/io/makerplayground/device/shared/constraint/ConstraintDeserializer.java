@@ -29,18 +29,17 @@ import java.util.*;
 
 /**
  * A helper class used by jackson's {@link ObjectMapper} to deserialize a {@link Constraint}
- * from a json file
+ * from a json file. Use {@link io.makerplayground.util.JacksonMappers#constraintReader(DataType)} to read a constraint
+ * as the data type is needed to interpret the constraint.
  */
 public class ConstraintDeserializer extends JsonDeserializer<Constraint> {
 
-    private DataType dataType;
-
-    public ConstraintDeserializer(DataType type) {
-        dataType = type;
-    }
+    /* name of the DeserializationContext attribute that holds the DataType of the constraint being deserialized */
+    public static final String DATA_TYPE_ATTRIBUTE = "io.makerplayground.constraint.dataType";
 
     @Override
     public Constraint deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
+        DataType dataType = (DataType) deserializationContext.getAttribute(DATA_TYPE_ATTRIBUTE);
 
         JsonNode node = deserializationContext.readValue(jsonParser, JsonNode.class);
 
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class StringIntegerCategoricalConstraint implements Constraint {
 
@@ -94,4 +95,17 @@ public class StringIntegerCategoricalConstraint implements Constraint {
         });
         return new StringIntegerCategoricalConstraint(newMap);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StringIntegerCategoricalConstraint that = (StringIntegerCategoricalConstraint) o;
+        return Objects.equals(map, that.map);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(map);
+    }
 }
@@ -26,109 +26,185 @@ import java.util.stream.Collectors;
 
 public class DeviceConnectionLogic {
 
-    private static boolean[][] getConnectionMatchingArray(List<Connection> allConnectionConsume,
-                                                          List<Connection> remainingConnectionProvide,
-                                                          Map<ProjectDevice, Set<String>> usedRefPin,
-                                                          VoltageLevel operatingVoltageLevel) {
-        boolean[][] connectionMatching = new boolean[allConnectionConsume.size()][];
-        for (int i=0; i<connectionMatching.length; i++) {
-            connectionMatching[i] = new boolean[remainingConnectionProvide.size()];
-            for (int j = 0; j< remainingConnectionProvide.size(); j++) {
-                // Initially set to true
-                connectionMatching[i][j] = true;
-                Connection connectionConsumer = allConnectionConsume.get(i);
-                Connection connectionProvider = remainingConnectionProvide.get(j);
-
-                // Check Connection Type
-                if (!connectionConsumer.getType().canConsume(connectionProvider.getType())) {
-                    connectionMatching[i][j] = false;
-                    continue;
-                }
+    /* bitmask of the pin functions that can be consumed by each pin function indexed by its ordinal */
+    private static final long[] POSSIBLE_CONSUME_MASK = new long[PinFunction.values().length];
+    /* marker (the highest bit which isn't used by any pin function) of the pin functions that can't be used by a consumer */
+    private static final long UNDEFINED_CONSUME_MASK = Long.MIN_VALUE;
 
-                // Check name of the connection consume of the integrated device
-                if (connectionConsumer.getType() == ConnectionType.INTEGRATED) {
-                    if (!connectionConsumer.getName().equals(connectionProvider.getName())) {
-                        connectionMatching[i][j] = false;
-                        continue;
-                    }
-                }
+    static {
+        if (PinFunction.values().length >= Long.SIZE) {
+            throw new IllegalStateException("PinFunction can't be encoded as a bitmask");
+        }
+        for (PinFunction pinFunction : PinFunction.values()) {
+            try {
+                POSSIBLE_CONSUME_MASK[pinFunction.ordinal()] = toMask(pinFunction.getPossibleConsume());
+            } catch (IllegalStateException e) {
+                // e.g. HW_SERIAL_RX1 which is only found in the provider. The error is raised by isMatch when it is used.
+                POSSIBLE_CONSUME_MASK[pinFunction.ordinal()] = UNDEFINED_CONSUME_MASK;
+            }
+        }
+    }
+
+    private static long toMask(List<PinFunction> pinFunctions) {
+        long mask = 0;
+        for (PinFunction pinFunction : pinFunctions) {
+            mask |= 1L << pinFunction.ordinal();
+        }
+        return mask;
+    }
 
-                // Check the number of pins of the connection.
-                if (connectionProvider.getPins().size() != connectionConsumer.getPins().size()) {
-                    connectionMatching[i][j] = false;
-                    continue;
+    /**
+     * A connection with the data needed by {@link #isMatch(CompiledConnection, CompiledConnection, Map, VoltageLevel)}
+     * precomputed once so that it can be matched against many other connections cheaply
+     */
+    private static class CompiledConnection {
+        private final Connection connection;
+        private final String[] refTo;
+        /* bitmask of the functions of each pin (provider side) */
+        private final long[] functionMask;
+        /* bitmask of the provider's functions that can satisfy each function of each pin (consumer side) */
+        private final long[][] requiredMask;
+        private final boolean[] noFunction;
+        private final boolean[] gnd;
+        private final double[] voltage;
+        private final VoltageLevel[] voltageLevel;
+        private final double[] minVoltage;
+        private final double[] maxVoltage;
+
+        CompiledConnection(Connection connection) {
+            this.connection = connection;
+            List<Pin> pins = connection.getPins();
+            int size = pins.size();
+            refTo = new String[size];
+            functionMask = new long[size];
+            requiredMask = new long[size][];
+            noFunction = new boolean[size];
+            gnd = new boolean[size];
+            voltage = new double[size];
+            voltageLevel = new VoltageLevel[size];
+            minVoltage = new double[size];
+            maxVoltage = new double[size];
+            for (int k=0; k<size; k++) {
+                Pin pin = pins.get(k);
+                List<PinFunction> functions = pin.getFunction();
+                refTo[k] = pin.getRefTo();
+                functionMask[k] = toMask(functions);
+                requiredMask[k] = new long[functions.size()];
+                for (int l=0; l<functions.size(); l++) {
+                    requiredMask[k][l] = POSSIBLE_CONSUME_MASK[functions.get(l).ordinal()];
                 }
+                noFunction[k] = functions.contains(PinFunction.NO_FUNCTION);
+                gnd[k] = functions.contains(PinFunction.GND);
+                voltageLevel[k] = pin.getVoltageLevel();
+                // the missing voltage level is reported by isMatch only when it is needed as a GND pin doesn't need one
+                voltage[k] = pin.getVoltageLevel() == null ? Double.NaN : pin.getVoltageLevel().getVoltage();
+                minVoltage[k] = pin.getMinVoltage();
+                maxVoltage[k] = pin.getMaxVoltage();
+            }
+        }
+    }
 
-                ProjectDevice providerProjectDevice = connectionProvider.getOwnerProjectDevice();
-                for (int k = 0; k< connectionProvider.getPins().size(); k++) {
-                    Pin pin = connectionProvider.getPins().get(k);
-                    // Check whether the provider already used that pin refto
-                    if (usedRefPin.containsKey(providerProjectDevice)
-                            && usedRefPin.get(providerProjectDevice).contains(pin.getRefTo())
-                            && !connectionConsumer.getPins().get(k).getFunction().contains(PinFunction.NO_FUNCTION))
-                    {
-                        connectionMatching[i][j] = false;
-                        break;
-                    }
+    private static boolean isMatch(CompiledConnection consumer,
+                                   CompiledConnection provider,
+                                   Map<ProjectDevice, Set<String>> usedRefPin,
+                                   VoltageLevel operatingVoltageLevel) {
+        Connection connectionConsumer = consumer.connection;
+        Connection connectionProvider = provider.connection;
 
-                    if (connectionConsumer.getType() == ConnectionType.INTEGRATED) {
-                        continue;
-                    }
+        // Check Connection Type
+        if (!connectionConsumer.getType().canConsume(connectionProvider.getType())) {
+            return false;
+        }
 
-                    // Check whether the provider can provide the function for consumer
-                    List<PinFunction> provideFunctions = pin.getFunction();
-                    boolean flag = false;
-                    for (PinFunction consumerFunction: connectionConsumer.getPins().get(k).getFunction()) {
-                        if (consumerFunction.getPossibleConsume().stream().noneMatch(provideFunctions::contains)) {
-                            connectionMatching[i][j] = false;
-                            flag = true;
-                            break;
-                        }
-                    }
-                    if (flag) break;
-
-                    Pin consumerPin = connectionConsumer.getPins().get(k);
-                    if (!consumerPin.getFunction().contains(PinFunction.GND)) {
-                        // Check whether the operating voltage of consumer is compatible to the voltage level of provider.
-                        VoltageLevel providerVoltageLevel = connectionProvider.getPins().get(k).getVoltageLevel();
-                        double providerPinVoltage = connectionProvider.getPins().get(k).getVoltageLevel().getVoltage();
-                        double minConsumerVoltage = consumerPin.getMinVoltage();
-                        double maxConsumerVoltage = consumerPin.getMaxVoltage();
-                        if (minConsumerVoltage > providerPinVoltage
-                                || maxConsumerVoltage < providerPinVoltage
-                                || (operatingVoltageLevel != VoltageLevel.NOT_SPECIFIED && providerVoltageLevel != operatingVoltageLevel)) {
-                            connectionMatching[i][j] = false;
-                            break;
-                        }
-                    }
+        // Check name of the connection consume of the integrated device
+        boolean integrated = connectionConsumer.getType() == ConnectionType.INTEGRATED;
+        if (integrated && !connectionConsumer.getName().equals(connectionProvider.getName())) {
+            return false;
+        }
+
+        // Check the number of pins of the connection.
+        int size = provider.refTo.length;
+        if (size != consumer.refTo.length) {
+            return false;
+        }
+
+        Set<String> providerUsedRefPin = usedRefPin.get(connectionProvider.getOwnerProjectDevice());
+        for (int k = 0; k<size; k++) {
+            // Check whether the provider already used that pin refto
+            if (providerUsedRefPin != null && !consumer.noFunction[k] && providerUsedRefPin.contains(provider.refTo[k])) {
+                return false;
+            }
+
+            if (integrated) {
+                continue;
+            }
+
+            // Check whether the provider can provide the function for consumer
+            for (long requiredMask : consumer.requiredMask[k]) {
+                if (requiredMask == UNDEFINED_CONSUME_MASK) {
+                    throw new IllegalStateException("Pin " + consumer.refTo[k] + " of connection " + connectionConsumer.getName()
+                            + " has a function that can't be consumed");
+                }
+                if ((requiredMask & provider.functionMask[k]) == 0) {
+                    return false;
                 }
             }
+
+            if (!consumer.gnd[k]) {
+                // Check whether the operating voltage of consumer is compatible to the voltage level of provider.
+                if (provider.voltageLevel[k] == null) {
+                    throw new NullPointerException("Voltage level of pin " + provider.refTo[k] + " of connection "
+                            + connectionProvider.getName() + " is not specified");
+                }
+                double providerPinVoltage = provider.voltage[k];
+                if (consumer.minVoltage[k] > providerPinVoltage
+                        || consumer.maxVoltage[k] < providerPinVoltage
+                        || (operatingVoltageLevel != VoltageLevel.NOT_SPECIFIED && provider.voltageLevel[k] != operatingVoltageLevel)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /* match every connection consume against every connection provide (used by the tests and benchmarks) */
+    static boolean[][] getConnectionMatchingArray(List<Connection> allConnectionConsume,
+                                                  List<Connection> allConnectionProvide,
+                                                  Map<ProjectDevice, Set<String>> usedRefPin,
+                                                  VoltageLevel operatingVoltageLevel) {
+        List<CompiledConnection> compiledConnectionProvide = new ArrayList<>(allConnectionProvide.size());
+        for (Connection connectionProvide : allConnectionProvide) {
+            compiledConnectionProvide.add(new CompiledConnection(connectionProvide));
+        }
+        boolean[][] connectionMatching = new boolean[allConnectionConsume.size()][allConnectionProvide.size()];
+        for (int i=0; i<allConnectionConsume.size(); i++) {
+            CompiledConnection compiledConnectionConsume = new CompiledConnection(allConnectionConsume.get(i));
+            for (int j=0; j<compiledConnectionProvide.size(); j++) {
+                connectionMatching[i][j] = isMatch(compiledConnectionConsume, compiledConnectionProvide.get(j), usedRefPin, operatingVoltageLevel);
+            }
         }
-//        for (int j = 0; j<remainingConnectionProvide.size(); j++) {
-//            Connection connectionProvide = remainingConnectionProvide.get(j);
-//            ProjectDevice providerProjectDevice = connectionProvide.getOwnerProjectDevice();
-//            if (connectionProvide.getPins().stream().anyMatch(pin -> usedRefPin.containsKey(providerProjectDevice) && usedRefPin.get(providerProjectDevice).contains(pin.getRefTo())))
-//            {
-//                for (int i=0; i<connectionMatching.length; i++) {
-//                    connectionMatching[i][j] = false;
-//                }
-//            }
-//        }
         return connectionMatching;
     }
 
+    /**
+     * Find the connections provided by the remaining connections that can be connected to each connection consumed by
+     * the device. The connections of the actual device must already be bound to the project device (see
+     * {@link ActualDevice#bindConnection(ProjectDevice)}) and should be reused between calls as binding them is costly.
+     */
     public static DeviceConnectionResult generatePossibleDeviceConnection(Set<Connection> remainingConnectionProvide,
                                                                           Map<ProjectDevice, Set<String>> usedRefPin,
                                                                           ProjectDevice projectDevice,
-                                                                          ActualDevice actualDevice,
+                                                                          List<Connection> allConnectionsConsume,
                                                                           DeviceConnection currentConnection,
                                                                           boolean stopOnFirstUnmatched) {
         DeviceConnectionResultStatus resultStatus = DeviceConnectionResultStatus.OK;
         List<Connection> allConnectionsProvide = new ArrayList<>(remainingConnectionProvide);
-        List<Connection> allConnectionsConsume = actualDevice.getConnectionConsumeByOwnerDevice(projectDevice);
         SortedMap<Connection, List<Connection>> possibleConnections = new TreeMap<>(Connection.NAME_TYPE_COMPARATOR);
+        // connections are compiled once per call and reused by every consumer connection
+        Map<Connection, CompiledConnection> compiledConnectionProvide = new IdentityHashMap<>();
         for (int i=0; i<allConnectionsConsume.size(); i++) {
             Connection connectionConsume = allConnectionsConsume.get(i);
+            CompiledConnection compiledConnectionConsume = new CompiledConnection(connectionConsume);
             /* In order to check the compatible connection, the assigned connection must be temporary deallocated from the remaining connection. */
             Queue<Connection> deallocatingConnections = new ArrayDeque<>();
             Map<ProjectDevice, Set<String>> deallocatingRefTo = new HashMap<>();
@@ -160,14 +236,11 @@ public class DeviceConnectionLogic {
             }
             VoltageLevel consumerOperatingVoltageLevel = deallocatingDeviceConnection.getOperatingVoltageLevel();
 
-            // Try matching the connection consume and provide.
-            boolean[][] connectionMatching = getConnectionMatchingArray(allConnectionsConsume, allConnectionsProvide, usedRefPin, consumerOperatingVoltageLevel);
-
-            // Create list of matched connection provide.
+            // Try matching the connection consume and provide and create list of matched connection provide.
             List<Connection> connectionProvideList = new ArrayList<>();
-            for (int j=0; j<allConnectionsProvide.size(); j++) {
-                if (connectionMatching[i][j]) {
-                    Connection connectionProvide = allConnectionsProvide.get(j);
+            for (Connection connectionProvide : allConnectionsProvide) {
+                CompiledConnection compiledProvide = compiledConnectionProvide.computeIfAbsent(connectionProvide, CompiledConnection::new);
+                if (isMatch(compiledConnectionConsume, compiledProvide, usedRefPin, consumerOperatingVoltageLevel)) {
                     connectionProvideList.add(connectionProvide);
                 }
             }
@@ -19,12 +19,18 @@ package io.makerplayground.generator.source;
 import io.makerplayground.device.actual.ActualDevice;
 import io.makerplayground.device.actual.CloudPlatform;
 import io.makerplayground.device.actual.Compatibility;
+import io.makerplayground.device.shared.Action;
+import io.makerplayground.device.shared.Condition;
 import io.makerplayground.device.shared.DataType;
 import io.makerplayground.device.shared.Parameter;
+import io.makerplayground.device.shared.Value;
 import io.makerplayground.device.shared.constraint.IntegerCategoricalConstraint;
 import io.makerplayground.device.shared.constraint.StringIntegerCategoricalConstraint;
 import io.makerplayground.generator.devicemapping.ProjectLogic;
 import io.makerplayground.generator.devicemapping.ProjectMappingResult;
+import io.makerplayground.project.InteractiveBinaryProtocol;
+import io.makerplayground.project.InteractiveBinaryProtocol.DeviceEntry;
+import io.makerplayground.project.InteractiveProtocol;
 import io.makerplayground.project.Project;
 import io.makerplayground.project.ProjectConfiguration;
 import io.makerplayground.project.ProjectDevice;
@@ -46,11 +52,15 @@ public class ArduinoInteractiveCode {
     final ProjectConfiguration configuration;
     final StringBuilder builder = new StringBuilder();
     private final List<List<ProjectDevice>> projectDeviceGroups;
+    private final InteractiveProtocol protocol;
+    private final List<DeviceEntry> deviceEntries;
 
     private ArduinoInteractiveCode(Project project) {
         this.project = project;
         this.configuration = project.getProjectConfiguration();
         this.projectDeviceGroups = project.getProjectDevicesGroupByActualDevice();
+        this.protocol = project.getInteractiveModel().getProtocol();
+        this.deviceEntries = (protocol == InteractiveProtocol.BINARY) ? InteractiveBinaryProtocol.getDeviceEntries(project) : List.of();
     }
 
     public static SourceCodeResult generateCode(Project project) {
@@ -69,7 +79,12 @@ public class ArduinoInteractiveCode {
         generator.appendGlobalVariable();
         generator.builder.append(getInstanceVariablesCode(project, generator.projectDeviceGroups, true));
         generator.builder.append(getSetupFunctionCode(project, generator.projectDeviceGroups, false, true));
-        generator.appendProcessCommand();
+        if (generator.protocol == InteractiveProtocol.BINARY) {
+            generator.appendFrameFunction();
+            generator.appendProcessFrame();
+        } else {
+            generator.appendProcessCommand();
+        }
         generator.appendLoopFunction();
 //        System.out.println(generator.builder.toString());
         return new SourceCodeResult(generator.builder.toString());
@@ -94,9 +109,16 @@ public class ArduinoInteractiveCode {
         builder.append("unsigned long lastSendTime = 0;").append(NEW_LINE);
 //        builder.append("unsigned long currentTime = 0;").append(NEW_LINE);
 //        builder.append("const int SEND_INTERVAL = 100;").append(NEW_LINE);
-        builder.append("char serialBuffer[256];").append(NEW_LINE);
-        builder.append("uint8_t serialBufferIndex = 0;").append(NEW_LINE);
-        builder.append("char* commandArgs[10];").append(NEW_LINE);
+        if (protocol == InteractiveProtocol.BINARY) {
+            builder.append("uint8_t rxBuffer[").append(InteractiveBinaryProtocol.MAX_PAYLOAD_SIZE + 1).append("];").append(NEW_LINE);
+            builder.append("uint8_t rxState = 0, rxLength = 0, rxIndex = 0, rxCrc = 0;").append(NEW_LINE);
+            builder.append("uint8_t txBuffer[").append(InteractiveBinaryProtocol.MAX_PAYLOAD_SIZE).append("];").append(NEW_LINE);
+            builder.append("uint8_t txLength = 0;").append(NEW_LINE);
+        } else {
+            builder.append("char serialBuffer[256];").append(NEW_LINE);
+            builder.append("uint8_t serialBufferIndex = 0;").append(NEW_LINE);
+            builder.append("char* commandArgs[10];").append(NEW_LINE);
+        }
         builder.append(NEW_LINE);
 
         for (List<ProjectDevice> projectDeviceList: projectDeviceGroups) {
@@ -293,6 +315,181 @@ public class ArduinoInteractiveCode {
         builder.append(NEW_LINE);
     }
 
+    private void appendFrameFunction() {
+        int maxPayloadSize = InteractiveBinaryProtocol.MAX_PAYLOAD_SIZE;
+        builder.append("uint8_t mpFrameCrc8(uint8_t crc, uint8_t data) {").append(NEW_LINE);
+        builder.append(INDENT).append("crc ^= data;").append(NEW_LINE);
+        builder.append(INDENT).append("for (uint8_t i = 0; i < 8; i++) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("crc = (crc & 0x80) ? ((crc << 1) ^ 0x07) : (crc << 1);").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append("return crc;").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("float mpFrameNextFloat(uint8_t &i) {").append(NEW_LINE);
+        builder.append(INDENT).append("float value;").append(NEW_LINE);
+        builder.append(INDENT).append("memcpy(&value, &rxBuffer[i], 4);").append(NEW_LINE);
+        builder.append(INDENT).append("i += 4;").append(NEW_LINE);
+        builder.append(INDENT).append("return value;").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("int32_t mpFrameNextInt(uint8_t &i) {").append(NEW_LINE);
+        builder.append(INDENT).append("int32_t value;").append(NEW_LINE);
+        builder.append(INDENT).append("memcpy(&value, &rxBuffer[i], 4);").append(NEW_LINE);
+        builder.append(INDENT).append("i += 4;").append(NEW_LINE);
+        builder.append(INDENT).append("return value;").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("char* mpFrameNextString(uint8_t &i) {").append(NEW_LINE);
+        builder.append(INDENT).append("char* value = (char*) &rxBuffer[i];").append(NEW_LINE);
+        builder.append(INDENT).append("i += strlen(value) + 1;").append(NEW_LINE);
+        builder.append(INDENT).append("return value;").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        // values of other types are printed into the frame so that any type supported by Print can be sent
+        builder.append("class MPFrameWriter : public Print {").append(NEW_LINE);
+        builder.append("public:").append(NEW_LINE);
+        builder.append(INDENT).append("size_t write(uint8_t c) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("if (txLength >= ").append(maxPayloadSize).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("return 0;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("txBuffer[txLength++] = c;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("return 1;").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append("using Print::write;").append(NEW_LINE);
+        builder.append("};").append(NEW_LINE);
+        builder.append("MPFrameWriter mpFrameWriter;").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("void mpFramePutFloat(float value) {").append(NEW_LINE);
+        builder.append(INDENT).append("if (txLength + 4 <= ").append(maxPayloadSize).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("memcpy(&txBuffer[txLength], &value, 4);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("txLength += 4;").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("void mpFramePutInt(int32_t value) {").append(NEW_LINE);
+        builder.append(INDENT).append("if (txLength + 4 <= ").append(maxPayloadSize).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("memcpy(&txBuffer[txLength], &value, 4);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("txLength += 4;").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+
+        builder.append("void mpFrameSend() {").append(NEW_LINE);
+        builder.append(INDENT).append("uint8_t crc = mpFrameCrc8(0, txLength);").append(NEW_LINE);
+        builder.append(INDENT).append("for (uint8_t i = 0; i < txLength; i++) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("crc = mpFrameCrc8(crc, txBuffer[i]);").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append("MPSerial.write((uint8_t) ").append(InteractiveBinaryProtocol.SYNC_1).append(");").append(NEW_LINE);
+        builder.append(INDENT).append("MPSerial.write((uint8_t) ").append(InteractiveBinaryProtocol.SYNC_2).append(");").append(NEW_LINE);
+        builder.append(INDENT).append("MPSerial.write(txLength);").append(NEW_LINE);
+        builder.append(INDENT).append("MPSerial.write(txBuffer, txLength);").append(NEW_LINE);
+        builder.append(INDENT).append("MPSerial.write(crc);").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+    }
+
+    private void appendProcessFrame() {
+        builder.append("void processFrame() {").append(NEW_LINE);
+        builder.append(INDENT).append("uint8_t i = 2;").append(NEW_LINE);
+        builder.append(INDENT).append("rxBuffer[rxLength] = '\\0';").append(NEW_LINE);
+        builder.append(INDENT).append("switch (rxBuffer[0]) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("case ").append(InteractiveBinaryProtocol.SYSTEM_DEVICE_INDEX).append(":").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("if (rxBuffer[1] == ").append(InteractiveBinaryProtocol.FREEZE_SENSOR_COMMAND).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("MPInteractive.setFreezeSensor(true);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("} else if (rxBuffer[1] == ").append(InteractiveBinaryProtocol.UNFREEZE_SENSOR_COMMAND).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("MPInteractive.setFreezeSensor(false);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("} else if (rxBuffer[1] == ").append(InteractiveBinaryProtocol.SET_SENSOR_RATE_COMMAND).append(") {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("MPInteractive.setSensorRate(mpFrameNextInt(i));").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+
+        for (DeviceEntry entry : deviceEntries) {
+            if (!entry.hasCommand()) {
+                continue;
+            }
+            ProjectDevice projectDevice = entry.getProjectDevice();
+            String variableName = ArduinoCodeUtility.parseDeviceVariableName(searchGroup(projectDevice));
+            String indent = INDENT + INDENT + INDENT + INDENT;
+            builder.append(INDENT).append(INDENT).append("case ").append(entry.getIndex()).append(":    // ").append(projectDevice.getName()).append(NEW_LINE);
+            builder.append(INDENT).append(INDENT).append(INDENT).append("switch (rxBuffer[1]) {").append(NEW_LINE);
+            for (Action action : entry.getActions()) {
+                builder.append(indent).append("case ").append(entry.getCommandIndex(action)).append(": {    // ").append(action.getName()).append(NEW_LINE);
+                if (action.getParameter().size() == 1 && action.getParameter().get(0).getDataType() == DataType.RECORD) {
+                    builder.append(indent).append(INDENT).append("Record rec;").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append("uint8_t entryCount = rxBuffer[i++];").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append("for (uint8_t j = 0; j < entryCount; j++) {").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append(INDENT).append("char* key = mpFrameNextString(i);").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append(INDENT).append("rec.put(key, mpFrameNextFloat(i));").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append("}").append(NEW_LINE);
+                    builder.append(indent).append(INDENT).append(variableName).append(".").append(action.getFunctionName()).append("(rec);").append(NEW_LINE);
+                } else {
+                    // parameters are decoded into local variables as the evaluation order of function arguments is unspecified
+                    List<String> taskParameter = new ArrayList<>();
+                    for (int i = 0; i < action.getParameter().size(); i++) {
+                        Parameter parameter = action.getParameter().get(i);
+                        switch (parameter.getDataType()) {
+                            case DOUBLE:
+                                builder.append(indent).append(INDENT).append("float p").append(i).append(" = mpFrameNextFloat(i);").append(NEW_LINE);
+                                break;
+                            case INTEGER:
+                            case INTEGER_ENUM:
+                            case STRING_INT_ENUM:
+                                builder.append(indent).append(INDENT).append("int p").append(i).append(" = mpFrameNextInt(i);").append(NEW_LINE);
+                                break;
+                            case STRING:
+                            case DATETIME:
+                            case DOT_MATRIX_DATA:
+                            case RGB_DOT_MATRIX_DATA:
+                                builder.append(indent).append(INDENT).append("char* p").append(i).append(" = mpFrameNextString(i);").append(NEW_LINE);
+                                break;
+                            default:
+                                throw new IllegalStateException();
+                        }
+                        taskParameter.add("p" + i);
+                    }
+                    builder.append(indent).append(INDENT).append(variableName).append(".").append(action.getFunctionName())
+                            .append("(").append(String.join(", ", taskParameter)).append(");").append(NEW_LINE);
+                }
+                builder.append(indent).append(INDENT).append("break;").append(NEW_LINE);
+                builder.append(indent).append("}").append(NEW_LINE);
+            }
+            for (Condition condition : entry.getParameterizedConditions()) {
+                builder.append(indent).append("case ").append(entry.getCommandIndex(condition)).append(":    // ").append(condition.getName()).append(NEW_LINE);
+                for (int i = 0; i < condition.getParameter().size(); i++) {
+                    String paramName = "_" + projectDevice.getName() + "_" + condition.getFunctionName() + "_param" + i;
+                    switch (condition.getParameter().get(i).getDataType()) {
+                        case DOUBLE:
+                            builder.append(indent).append(INDENT).append(paramName).append(" = mpFrameNextFloat(i);").append(NEW_LINE);
+                            break;
+                        case INTEGER:
+                        case INTEGER_ENUM:
+                        case STRING_INT_ENUM:
+                            builder.append(indent).append(INDENT).append(paramName).append(" = mpFrameNextInt(i);").append(NEW_LINE);
+                            break;
+                        case STRING:
+                        case STRING_ENUM:
+                            builder.append(indent).append(INDENT).append("strcpy(").append(paramName).append(", mpFrameNextString(i));").append(NEW_LINE);
+                            break;
+                        default:
+                            throw new IllegalStateException("");
+                    }
+                }
+                builder.append(indent).append(INDENT).append("break;").append(NEW_LINE);
+            }
+            builder.append(INDENT).append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+            builder.append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        }
+        builder.append(INDENT).append("}").append(NEW_LINE);
+        builder.append("}").append(NEW_LINE);
+        builder.append(NEW_LINE);
+    }
+
     private void appendLoopFunction() {
         builder.append("void loop() {").append(NEW_LINE);
 
@@ -310,7 +507,12 @@ public class ArduinoInteractiveCode {
         }
         builder.append(NEW_LINE);
 
-        if (!projectDeviceGroups.isEmpty()) {
+        if (!projectDeviceGroups.isEmpty() && protocol == InteractiveProtocol.BINARY) {
+            builder.append(INDENT).append("if (currentTime - lastSendTime >= MPInteractive.getSensorRate() && !MPInteractive.isFreezeSensor()) {").append(NEW_LINE);
+            appendSendSensorFrame();
+            builder.append(INDENT).append(INDENT).append("lastSendTime = millis();").append(NEW_LINE);
+            builder.append(INDENT).append("}").append(NEW_LINE);
+        } else if (!projectDeviceGroups.isEmpty()) {
             builder.append(INDENT).append("if (currentTime - lastSendTime >= MPInteractive.getSensorRate() && !MPInteractive.isFreezeSensor()) {").append(NEW_LINE);
             for (List<ProjectDevice> group: projectDeviceGroups) {
                 for (ProjectDevice projectDevice: group) {
@@ -349,6 +551,88 @@ public class ArduinoInteractiveCode {
             builder.append(INDENT).append("}").append(NEW_LINE);
         }
 
+        if (protocol == InteractiveProtocol.BINARY) {
+            appendReceiveFrame();
+        } else {
+            appendReceiveCommand();
+        }
+
+        builder.append("}").append(NEW_LINE);
+    }
+
+    private void appendSendSensorFrame() {
+        for (DeviceEntry entry : deviceEntries) {
+            if (!entry.hasSensorData()) {
+                continue;
+            }
+            ProjectDevice projectDevice = entry.getProjectDevice();
+            String variableName = parseDeviceVariableName(searchGroup(projectDevice));
+            builder.append(INDENT).append(INDENT).append("txLength = 0;    // ").append(projectDevice.getName()).append(NEW_LINE);
+            builder.append(INDENT).append(INDENT).append("txBuffer[txLength++] = ").append(entry.getIndex()).append(";").append(NEW_LINE);
+            for (Condition condition : entry.getSensorConditions()) {
+                String params = IntStream.range(0, condition.getParameter().size()).boxed()
+                        .map(integer -> "_" + projectDevice.getName() + "_" + condition.getFunctionName() + "_param" + integer)
+                        .collect(Collectors.joining(", "));
+                builder.append(INDENT).append(INDENT).append("txBuffer[txLength++] = ").append(variableName).append(".")
+                        .append(condition.getFunctionName()).append("(").append(params).append(") ? 1 : 0;").append(NEW_LINE);
+            }
+            for (Value value : entry.getSensorValues()) {
+                String getter = variableName + ".get" + value.getName().replace(" ", "_").replace(".", "_") + "()";
+                switch (value.getType()) {
+                    case DOUBLE:
+                        builder.append(INDENT).append(INDENT).append("mpFramePutFloat(").append(getter).append(");").append(NEW_LINE);
+                        break;
+                    case INTEGER:
+                    case INTEGER_ENUM:
+                    case STRING_INT_ENUM:
+                        builder.append(INDENT).append(INDENT).append("mpFramePutInt(").append(getter).append(");").append(NEW_LINE);
+                        break;
+                    default:
+                        builder.append(INDENT).append(INDENT).append("mpFrameWriter.print(").append(getter).append(");").append(NEW_LINE);
+                        builder.append(INDENT).append(INDENT).append("mpFrameWriter.write((uint8_t) 0);").append(NEW_LINE);
+                        break;
+                }
+            }
+            builder.append(INDENT).append(INDENT).append("mpFrameSend();").append(NEW_LINE);
+            builder.append(NEW_LINE);
+        }
+    }
+
+    private void appendReceiveFrame() {
+        builder.append(INDENT).append("while (MPSerial.available() > 0) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("uint8_t c = MPSerial.read();").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("switch (rxState) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("case 0:").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxState = (c == ").append(InteractiveBinaryProtocol.SYNC_1).append(") ? 1 : 0;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("case 1:").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxState = (c == ").append(InteractiveBinaryProtocol.SYNC_2).append(") ? 2 : ((c == ")
+                .append(InteractiveBinaryProtocol.SYNC_1).append(") ? 1 : 0);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("case 2:").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxLength = c;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxIndex = 0;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxCrc = mpFrameCrc8(0, c);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxState = (c == 0 || c > ").append(InteractiveBinaryProtocol.MAX_PAYLOAD_SIZE).append(") ? 0 : 3;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("case 3:").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxBuffer[rxIndex++] = c;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxCrc = mpFrameCrc8(rxCrc, c);").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("if (rxIndex == rxLength) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxState = 4;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append("case 4:").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("if (c == rxCrc) {").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("processFrame();").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("rxState = 0;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append(INDENT).append(INDENT).append("break;").append(NEW_LINE);
+        builder.append(INDENT).append(INDENT).append("}").append(NEW_LINE);
+        builder.append(INDENT).append("}").append(NEW_LINE);
+    }
+
+    private void appendReceiveCommand() {
         builder.append(INDENT).append("while (MPSerial.available() > 0) {").append(NEW_LINE);
         builder.append(INDENT).append(INDENT).append("serialBuffer[serialBufferIndex] = MPSerial.read();").append(NEW_LINE);
         builder.append(INDENT).append(INDENT).append("if (serialBuffer[serialBufferIndex] == '\\r' || serialBuffer[serialBufferIndex] == '\\n') {").append(NEW_LINE);
@@ -359,8 +643,6 @@ public class ArduinoInteractiveCode {
         builder.append(INDENT).append(INDENT).append("}").append(NEW_LINE);
         builder.append(INDENT).append(INDENT).append("serialBufferIndex++;").append(NEW_LINE);
         builder.append(INDENT).append("}").append(NEW_LINE);
-
-        builder.append("}").append(NEW_LINE);
     }
 
     private List<ProjectDevice> searchGroup(ProjectDevice projectDevice) {
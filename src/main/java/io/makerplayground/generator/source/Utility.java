@@ -34,8 +34,7 @@ class Utility {
     }
 
     static List<NodeElement> findAdjacentNodes(Project project, NodeElement source) {
-        return project.getUnmodifiableLine().stream().filter(line -> line.getSource() == source)
-                .map(Line::getDestination).collect(Collectors.toList());
+        return project.getNextNodeElements(source);
     }
 
     static List<Scene> takeScene(Collection<NodeElement> nodeList) {
@@ -54,21 +53,11 @@ class Utility {
     }
 
     static List<Condition> findAdjacentConditions(Project project, NodeElement source) {
-        return project.getUnmodifiableLine().stream()
-                .filter(line -> line.getSource() == source)
-                .map(Line::getDestination)
-                .filter(nodeElement -> nodeElement instanceof Condition)
-                .map(nodeElement -> (Condition) nodeElement)
-                .collect(Collectors.toList());
+        return project.getNextNodeElements(source, Condition.class);
     }
 
     static List<Delay> findAdjacentDelays(Project project, NodeElement source) {
-        return project.getUnmodifiableLine().stream()
-                .filter(line -> line.getSource() == source)
-                .map(Line::getDestination)
-                .filter(nodeElement -> nodeElement instanceof Delay)
-                .map(nodeElement -> (Delay) nodeElement)
-                .collect(Collectors.toList());
+        return project.getNextNodeElements(source, Delay.class);
     }
 
     static Set<NodeElement> getAllUsedNodes(Project project) {
@@ -79,11 +68,15 @@ class Utility {
         NodeElement current;
         while (!nodeToTraverse.isEmpty()) {
             current = nodeToTraverse.remove();
-            visitedNodes.add(current);
-            List<NodeElement> adjacentNodes = findAdjacentNodes(project, current);
-            nodeToTraverse.addAll(takeScene(adjacentNodes).stream().filter(scene -> !visitedNodes.contains(scene)).collect(Collectors.toList()));
-            nodeToTraverse.addAll(takeCondition(adjacentNodes).stream().filter(condition -> !visitedNodes.contains(condition)).collect(Collectors.toList()));
-            nodeToTraverse.addAll(takeDelay(adjacentNodes).stream().filter(delay -> !visitedNodes.contains(delay)).collect(Collectors.toList()));
+            if (!visitedNodes.add(current)) {
+                continue;
+            }
+            for (NodeElement adjacentNode : findAdjacentNodes(project, current)) {
+                if ((adjacentNode instanceof Scene || adjacentNode instanceof Condition || adjacentNode instanceof Delay)
+                        && !visitedNodes.contains(adjacentNode)) {
+                    nodeToTraverse.add(adjacentNode);
+                }
+            }
         }
         return visitedNodes;
     }
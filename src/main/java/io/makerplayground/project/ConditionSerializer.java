@@ -18,7 +18,6 @@ package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
 
 import java.io.IOException;
@@ -29,17 +28,16 @@ import java.io.IOException;
 public class ConditionSerializer extends JsonSerializer<Condition> {
     @Override
     public void serialize(Condition condition, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
         jsonGenerator.writeStartObject();
 
         jsonGenerator.writeStringField("name", condition.getName());
 
         jsonGenerator.writeArrayFieldStart("setting");
         for (UserSetting setting : condition.getVirtualDeviceSetting()) {
-            mapper.writeValue(jsonGenerator, setting);
+            serializerProvider.defaultSerializeValue(setting, jsonGenerator);
         }
         for (UserSetting setting : condition.getSetting()) {
-            mapper.writeValue(jsonGenerator,setting);
+            serializerProvider.defaultSerializeValue(setting, jsonGenerator);
         }
         jsonGenerator.writeEndArray();
 
@@ -29,6 +29,7 @@ public class Delay extends NodeElement {
     Delay(Project project) {
         super(20,20,118,75, project);
         this.name = "";
+        trackModification(this.delayValue, this.delayUnit);
     }
 
     public Delay(double top, double left, double width, double height
@@ -38,6 +39,7 @@ public class Delay extends NodeElement {
         this.name = name;
         this.delayValue.set(delayValue);
         this.delayUnit.set(delayUnit);
+        trackModification(this.delayValue, this.delayUnit);
     }
 
     public Delay(Delay c, String name, Project project) {
@@ -45,6 +47,7 @@ public class Delay extends NodeElement {
         this.name = name;
         this.delayValue.set(c.delayValue.get());
         this.delayUnit.set(c.delayUnit.get());
+        trackModification(this.delayValue, this.delayUnit);
     }
 
     public String getName() {
@@ -20,22 +20,15 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.makerplayground.device.shared.DelayUnit;
 
 import java.io.IOException;
 
 public class DelayDeserializer extends JsonDeserializer<Delay> {
-    private final Project project;
-    private ObjectMapper mapper = new ObjectMapper();
-
-    DelayDeserializer(Project project) {
-        this.project = project;
-    }
-
     @Override
     public Delay deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        JsonNode node = mapper.readTree(jsonParser);
+        Project project = ProjectDeserializer.getProject(deserializationContext);
+        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
         String name = node.get("name").asText();
 
         double delay = node.get("delay").asDouble();
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2019. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.actual.*;
+import io.makerplayground.device.shared.Action;
+import io.makerplayground.device.shared.Condition;
+import io.makerplayground.device.shared.Parameter;
+import io.makerplayground.device.shared.Value;
+import io.makerplayground.device.shared.constraint.Constraint;
+import io.makerplayground.generator.devicemapping.DeviceMappingResult;
+import io.makerplayground.generator.devicemapping.ProjectMappingResult;
+import io.makerplayground.ui.devicetab.CompatibleDevice;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static io.makerplayground.project.ProjectDevice.CONTROLLER;
+
+/**
+ * Search for the actual device and the port of every unassigned project device at the same time using a depth-first
+ * backtracking search with forward checking and branch and bound on the cost of the assignment. The search runs on a
+ * private copy of the configuration so {@link #solve()} can be called from a background thread while the result is
+ * applied to the original configuration by calling {@link #apply()} from the JavaFX application thread.
+ */
+public class DeviceAssignmentSolver {
+
+    public static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(2);
+
+    /* cost of an assignment: the number of devices that need a breadboard is more important than the voltage level */
+    private static final long BREADBOARD_COST = 1_000_000L;
+    private static final long VOLTAGE_LEVEL_COST = 1L;
+
+    /* snapshot of the configuration taken when the solver is created */
+    private final ProjectConfiguration source;
+    private final ProjectConfiguration snapshot;
+    private final List<ProjectDevice> devices;
+    private final Map<ProjectDevice, Map<Action, Map<Parameter, Constraint>>> actionCompatibility;
+    private final Map<ProjectDevice, Map<Condition, Map<Parameter, Constraint>>> conditionCompatibility;
+    private final Map<ProjectDevice, Set<Value>> valueCompatibility;
+    private final Duration timeBudget;
+
+    private volatile boolean cancelled;
+    private ProjectConfiguration working;
+    private VoltageLevel preferredVoltageLevel;
+    private long deadline;
+
+    /* the best complete assignment found so far or the assignment that leaves the least device unassigned */
+    private Assignment bestAssignment;
+    private long bestCost;
+    private Assignment bestPartialAssignment;
+    private int bestPartialRemaining;
+    private ProjectMappingResult bestPartialResult;
+
+    DeviceAssignmentSolver(ProjectConfiguration source, Duration timeBudget) {
+        this.source = source;
+        this.snapshot = new ProjectConfiguration(source);
+        this.devices = List.copyOf(source.getNonControllerDevices());
+        this.actionCompatibility = source.getActionCompatibility();
+        this.conditionCompatibility = source.getConditionCompatibility();
+        this.valueCompatibility = source.getValueCompatibility();
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Stop the search as soon as possible. The result of a cancelled search won't be applied.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Search for an assignment of the unassigned devices. This method doesn't modify the source configuration and can be
+     * called from any thread.
+     * @return {@link ProjectMappingResult#OK} when every device can be assigned or the reason of the failure otherwise
+     */
+    public ProjectMappingResult solve() {
+        if (snapshot.getDeviceMap().get(CONTROLLER) == null) {
+            return ProjectMappingResult.NO_MCU_SELECTED;
+        }
+
+        working = createWorkingConfiguration();
+        // the working configuration has its own bound connection cache so the backtracking never touches the cache of the project
+        preferredVoltageLevel = working.getBoundConnection(CONTROLLER, working.getController()).getConnectionProvide().stream()
+                .flatMap(connection -> connection.getPins().stream())
+                .map(Pin::getVoltageLevel)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .entrySet()
+                .stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        deadline = System.nanoTime() + timeBudget.toNanos();
+        bestAssignment = null;
+        bestCost = Long.MAX_VALUE;
+        bestPartialAssignment = null;
+        bestPartialRemaining = Integer.MAX_VALUE;
+        bestPartialResult = ProjectMappingResult.CANT_ASSIGN_PORT;
+
+        assignDevice(0);
+
+        if (bestAssignment != null) {
+            return ProjectMappingResult.OK;
+        }
+        return bestPartialResult;
+    }
+
+    /**
+     * Apply the best assignment found by {@link #solve()} to the source configuration. This method must be called from
+     * the JavaFX application thread.
+     * @return false if the search was cancelled or the configuration has been modified since this solver was created
+     */
+    public boolean apply() {
+        Assignment assignment = bestAssignment != null ? bestAssignment : bestPartialAssignment;
+        if (cancelled || assignment == null || !isSourceUnchanged()) {
+            return false;
+        }
+        assignment.deviceMap.forEach((projectDevice, actualDevice) -> {
+            if (source.getActualDevice(projectDevice).orElse(null) != actualDevice) {
+                source.setActualDevice(projectDevice, actualDevice);
+            }
+        });
+        assignment.identicalDeviceMap.forEach((projectDevice, parentDevice) -> {
+            if (source.getIdenticalDevice(projectDevice).orElse(null) != parentDevice) {
+                source.setIdenticalDevice(projectDevice, parentDevice);
+            }
+        });
+        assignment.connectionMap.forEach((projectDevice, connections) -> connections.forEach((connectionConsume, connectionProvide) -> {
+            if (!connectionProvide.equals(source.getDeviceConnection(projectDevice).getConsumerProviderConnections().get(connectionConsume))) {
+                source.setConnection(projectDevice, connectionConsume, connectionProvide);
+            }
+        }));
+        return true;
+    }
+
+    private boolean isSourceUnchanged() {
+        return source.getPlatform() == snapshot.getPlatform()
+                && devices.equals(source.getNonControllerDevices())
+                && source.getDeviceMap().equals(snapshot.getDeviceMap())
+                && source.getIdenticalDeviceMap().equals(snapshot.getIdenticalDeviceMap())
+                && source.getDeviceConnections().equals(snapshot.getDeviceConnections());
+    }
+
+    private ProjectConfiguration createWorkingConfiguration() {
+        ProjectConfiguration configuration = new ProjectConfiguration(snapshot.getPlatform());
+        configuration.updateCompatibility(actionCompatibility, conditionCompatibility, valueCompatibility, devices);
+        configuration.setController(snapshot.getDeviceMap().get(CONTROLLER));
+        snapshot.getDeviceMap().forEach((projectDevice, actualDevice) -> {
+            if (projectDevice != CONTROLLER) {
+                configuration.setActualDevice(projectDevice, actualDevice);
+            }
+        });
+        snapshot.getIdenticalDeviceMap().forEach(configuration::setIdenticalDevice);
+        snapshot.getDeviceConnections().forEach((projectDevice, deviceConnection) -> {
+            if (deviceConnection != DeviceConnection.NOT_CONNECTED) {
+                configuration.setDeviceConnection(projectDevice, new DeviceConnection(deviceConnection));
+            }
+        });
+        return configuration;
+    }
+
+    private boolean shouldStop() {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            cancelled = true;
+            return true;
+        }
+        return System.nanoTime() > deadline;
+    }
+
+    private List<ProjectDevice> getPendingDevices() {
+        List<ProjectDevice> pendingDevices = new ArrayList<>();
+        for (ProjectDevice projectDevice : devices) {
+            if (working.getIdenticalDeviceMap().containsKey(projectDevice)) {
+                continue;
+            }
+            ActualDevice actualDevice = working.getDeviceMap().get(projectDevice);
+            if (actualDevice == null || !getUnassignedConnectionConsume(projectDevice, actualDevice).isEmpty()) {
+                pendingDevices.add(projectDevice);
+            }
+        }
+        return pendingDevices;
+    }
+
+    private List<Connection> getUnassignedConnectionConsume(ProjectDevice projectDevice, ActualDevice actualDevice) {
+        Map<Connection, Connection> consumerProviderConnections = working.getDeviceConnection(projectDevice).getConsumerProviderConnections();
+        return working.getBoundConnection(projectDevice, actualDevice).getConnectionConsume().stream()
+                .filter(connection -> consumerProviderConnections.get(connection) == null)
+                .collect(Collectors.toList());
+    }
+
+    private int countSelectableChoice(ProjectDevice projectDevice) {
+        SortedMap<CompatibleDevice, DeviceMappingResult> possibleChoice = working.getCompatibleDevicesSelectableMap().get(projectDevice);
+        int count = 0;
+        for (Map.Entry<CompatibleDevice, DeviceMappingResult> entry : possibleChoice.entrySet()) {
+            if (entry.getValue() == DeviceMappingResult.OK) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void assignDevice(long breadboardCost) {
+        if (shouldStop()) {
+            return;
+        }
+
+        List<ProjectDevice> pendingDevices = getPendingDevices();
+        if (pendingDevices.isEmpty()) {
+            long cost = breadboardCost + getVoltageLevelCost();
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestAssignment = new Assignment(working);
+            }
+            return;
+        }
+
+        // complete the connection of the device that has been selected by the user before choosing any new device
+        for (ProjectDevice projectDevice : pendingDevices) {
+            ActualDevice actualDevice = working.getDeviceMap().get(projectDevice);
+            if (actualDevice != null) {
+                assignConnection(projectDevice, actualDevice, breadboardCost, pendingDevices.size());
+                return;
+            }
+        }
+
+        // forward checking: stop when any pending device has no choice left otherwise pick the device that has the
+        // minimum remaining values
+        ProjectDevice mrvProjectDevice = null;
+        int mrvChoiceCount = Integer.MAX_VALUE;
+        for (ProjectDevice projectDevice : pendingDevices) {
+            int choiceCount = countSelectableChoice(projectDevice);
+            if (choiceCount == 0) {
+                boolean portUnavailable = working.getCompatibleDevicesSelectableMap().get(projectDevice).containsValue(DeviceMappingResult.NO_AVAILABLE_PIN_PORT);
+                recordFailure(pendingDevices.size(), portUnavailable ? ProjectMappingResult.CANT_ASSIGN_PORT : ProjectMappingResult.NO_SUPPORT_DEVICE);
+                return;
+            }
+            if (choiceCount < mrvChoiceCount) {
+                mrvProjectDevice = projectDevice;
+                mrvChoiceCount = choiceCount;
+            }
+        }
+
+        // try the identical devices first as they don't consume any port and then the device that doesn't need a breadboard
+        List<CompatibleDevice> choices = working.getCompatibleDevicesSelectableMap().get(mrvProjectDevice).entrySet().stream()
+                .filter(entry -> entry.getValue() == DeviceMappingResult.OK)
+                .map(Map.Entry::getKey)
+                .sorted(Comparator.comparingInt(this::getChoiceOrder))
+                .collect(Collectors.toList());
+        for (CompatibleDevice choice : choices) {
+            if (choice.getProjectDevice().isPresent()) {
+                working.setIdenticalDevice(mrvProjectDevice, choice.getProjectDevice().get());
+                assignDevice(breadboardCost);
+            } else {
+                ActualDevice actualDevice = choice.getActualDevice().orElseThrow();
+                long cost = breadboardCost + (actualDevice.isNeedBreadboard() ? BREADBOARD_COST : 0);
+                if (cost >= bestCost) {
+                    continue;
+                }
+                working.setActualDevice(mrvProjectDevice, actualDevice);
+                assignConnection(mrvProjectDevice, actualDevice, cost, pendingDevices.size());
+            }
+            working.unsetDevice(mrvProjectDevice);
+            if (shouldStop()) {
+                return;
+            }
+        }
+    }
+
+    private int getChoiceOrder(CompatibleDevice compatibleDevice) {
+        if (compatibleDevice.getProjectDevice().isPresent()) {
+            return 0;
+        }
+        return compatibleDevice.getActualDevice().orElseThrow().isNeedBreadboard() ? 2 : 1;
+    }
+
+    private void assignConnection(ProjectDevice projectDevice, ActualDevice actualDevice, long breadboardCost, int remainingDevice) {
+        if (shouldStop()) {
+            return;
+        }
+
+        List<Connection> unassignedConnectionConsume = getUnassignedConnectionConsume(projectDevice, actualDevice);
+        if (unassignedConnectionConsume.isEmpty()) {
+            assignDevice(breadboardCost);
+            return;
+        }
+
+        Map<ActualDevice, SortedMap<Connection, List<Connection>>> actualDeviceListMap = working.getCompatibleConnectionMap().get(projectDevice);
+        if (actualDeviceListMap == null || !actualDeviceListMap.containsKey(actualDevice)) {
+            recordFailure(remainingDevice, ProjectMappingResult.NO_CONNECTION_FOR_DEVICE);
+            return;
+        }
+        Map<Connection, List<Connection>> possibleDeviceConnection = actualDeviceListMap.get(actualDevice);
+
+        // assign the connection that has the least choice first
+        Connection connectionConsume = unassignedConnectionConsume.stream()
+                .min(Comparator.comparingInt((Connection connection) -> possibleDeviceConnection.get(connection).size())
+                        .thenComparing(Connection::getName))
+                .orElseThrow();
+        List<Connection> connectionProvideList = new ArrayList<>(possibleDeviceConnection.get(connectionConsume));
+        if (connectionProvideList.isEmpty()) {
+            recordFailure(remainingDevice, ProjectMappingResult.CANT_ASSIGN_PORT);
+            return;
+        }
+        connectionProvideList.sort(Comparator.comparingLong(this::getVoltageLevelCost));
+        for (Connection connectionProvide : connectionProvideList) {
+            working.setConnection(projectDevice, connectionConsume, connectionProvide);
+            assignConnection(projectDevice, actualDevice, breadboardCost, remainingDevice);
+            working.unsetConnection(projectDevice, connectionConsume);
+            if (shouldStop()) {
+                return;
+            }
+        }
+    }
+
+    private long getVoltageLevelCost(Connection connectionProvide) {
+        return connectionProvide.getPins().stream().filter(pin -> pin.getVoltageLevel() != preferredVoltageLevel).count() * VOLTAGE_LEVEL_COST;
+    }
+
+    private long getVoltageLevelCost() {
+        long cost = 0;
+        for (ProjectDevice projectDevice : devices) {
+            for (Connection connectionProvide : working.getDeviceConnection(projectDevice).getConsumerProviderConnections().values()) {
+                if (connectionProvide != null) {
+                    cost += getVoltageLevelCost(connectionProvide);
+                }
+            }
+        }
+        return cost;
+    }
+
+    private void recordFailure(int remainingDevice, ProjectMappingResult result) {
+        if (remainingDevice < bestPartialRemaining) {
+            bestPartialRemaining = remainingDevice;
+            bestPartialResult = result;
+            bestPartialAssignment = new Assignment(working);
+        }
+    }
+
+    private static class Assignment {
+        private final Map<ProjectDevice, ProjectDevice> identicalDeviceMap;
+        private final Map<ProjectDevice, ActualDevice> deviceMap;
+        private final Map<ProjectDevice, Map<Connection, Connection>> connectionMap;
+
+        Assignment(ProjectConfiguration configuration) {
+            identicalDeviceMap = new HashMap<>(configuration.getIdenticalDeviceMap());
+            deviceMap = new HashMap<>(configuration.getDeviceMap());
+            deviceMap.remove(CONTROLLER);
+            connectionMap = new HashMap<>();
+            configuration.getDeviceConnections().forEach((projectDevice, deviceConnection) -> {
+                Map<Connection, Connection> connections = new TreeMap<>();
+                deviceConnection.getConsumerProviderConnections().forEach((connectionConsume, connectionProvide) -> {
+                    if (connectionProvide != null) {
+                        connections.put(connectionConsume, connectionProvide);
+                    }
+                });
+                connectionMap.put(projectDevice, connections);
+            });
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.actual.ActualDevice;
+import io.makerplayground.device.actual.Compatibility;
+import io.makerplayground.device.shared.Action;
+import io.makerplayground.device.shared.Condition;
+import io.makerplayground.device.shared.Value;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Binary wire format of the interactive mode. Every message is sent as a frame
+ *
+ *     SYNC_1 SYNC_2 length payload[length] crc8(length, payload)
+ *
+ * The payload of a command frame (sent to the board) starts with the device index and the command index followed by the
+ * parameters. The payload of a sensor frame (sent by the board) starts with the device index which is followed directly by
+ * the data of that device (there is no command index) i.e. the results of {@link DeviceEntry#getSensorConditions()} and
+ * then the values of {@link DeviceEntry#getSensorValues()}. The device index is assigned to every device in the order
+ * returned by {@link #getDeviceEntries(Project)} starting from 1 (0 is reserved for the system commands) and the command
+ * index is the index of the action or the parameterized condition of that device. Parameters and sensor data are
+ * encoded in little-endian i.e. 4 bytes float for {@link io.makerplayground.device.shared.DataType#DOUBLE}, 4 bytes
+ * signed integer for integer types, a single byte for condition results and a null-terminated string for the others.
+ * The same layout is used by the code generator and {@link InteractiveModel} so both sides must be created from the same
+ * project configuration.
+ */
+public class InteractiveBinaryProtocol {
+
+    public static final int SYNC_1 = 0xA5;
+    public static final int SYNC_2 = 0x5A;
+    public static final int MAX_PAYLOAD_SIZE = 250;
+
+    public static final int SYSTEM_DEVICE_INDEX = 0;
+    public static final int FREEZE_SENSOR_COMMAND = 0;
+    public static final int UNFREEZE_SENSOR_COMMAND = 1;
+    public static final int SET_SENSOR_RATE_COMMAND = 2;
+
+    private static final int CRC8_POLYNOMIAL = 0x07;
+
+    private InteractiveBinaryProtocol() {
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class DeviceEntry {
+        private final int index;
+        private final ProjectDevice projectDevice;
+        private final List<Action> actions;
+        private final List<Condition> parameterizedConditions;
+        /* conditions and values are sent in this order in every sensor frame of this device */
+        private final List<Condition> sensorConditions;
+        private final List<Value> sensorValues;
+
+        public int getCommandIndex(Action action) {
+            return actions.indexOf(action);
+        }
+
+        public int getCommandIndex(Condition condition) {
+            int index = parameterizedConditions.indexOf(condition);
+            return index == -1 ? -1 : actions.size() + index;
+        }
+
+        public boolean hasCommand() {
+            return !actions.isEmpty() || !parameterizedConditions.isEmpty();
+        }
+
+        public boolean hasSensorData() {
+            return !sensorConditions.isEmpty() || !sensorValues.isEmpty();
+        }
+    }
+
+    /**
+     * Assign the device index, command index and sensor data layout to every device that has an actual device selected
+     * @param project the project
+     * @return list of the devices ordered by their index
+     */
+    public static List<DeviceEntry> getDeviceEntries(Project project) {
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+        List<DeviceEntry> entries = new ArrayList<>();
+        int index = SYSTEM_DEVICE_INDEX + 1;
+        for (List<ProjectDevice> group : project.getProjectDevicesGroupByActualDevice()) {
+            for (ProjectDevice projectDevice : group) {
+                Optional<ActualDevice> actualDevice = configuration.getActualDeviceOrActualDeviceOfIdenticalDevice(projectDevice);
+                if (actualDevice.isEmpty()) {
+                    continue;
+                }
+                Compatibility compatibility = actualDevice.get().getCompatibilityMap().get(projectDevice.getGenericDevice());
+                List<Condition> parameterizedConditions = new ArrayList<>();
+                List<Condition> sensorConditions = new ArrayList<>();
+                compatibility.getDeviceCondition().forEach((condition, parameterConstraintMap) -> {
+                    if (!parameterConstraintMap.isEmpty()) {
+                        parameterizedConditions.add(condition);
+                    }
+                    if (!condition.getName().equals("Compare")) {    // TODO: compare with name is dangerous
+                        sensorConditions.add(condition);
+                    }
+                });
+                entries.add(new DeviceEntry(index, projectDevice, List.copyOf(compatibility.getDeviceAction().keySet()),
+                        List.copyOf(parameterizedConditions), List.copyOf(sensorConditions), List.copyOf(compatibility.getDeviceValue().keySet())));
+                index++;
+            }
+        }
+        if (index > 256) {
+            throw new IllegalStateException("Binary interactive protocol supports at most 255 devices");
+        }
+        return entries;
+    }
+
+    static int crc8(int crc, int data) {
+        crc = (crc ^ data) & 0xFF;
+        for (int i=0; i<8; i++) {
+            crc = ((crc & 0x80) != 0) ? ((crc << 1) ^ CRC8_POLYNOMIAL) & 0xFF : (crc << 1) & 0xFF;
+        }
+        return crc;
+    }
+
+    /**
+     * Build a frame to be sent to the board. An encoder reuses its buffers so a frame must be sent before the next one is started.
+     */
+    public static class FrameEncoder {
+        private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final byte[] frame = new byte[MAX_PAYLOAD_SIZE + 4];
+
+        public FrameEncoder begin(int deviceIndex, int commandIndex) {
+            payload.clear();
+            payload.put((byte) deviceIndex);
+            payload.put((byte) commandIndex);
+            return this;
+        }
+
+        public FrameEncoder putByte(int value) {
+            payload.put((byte) value);
+            return this;
+        }
+
+        public FrameEncoder putInt(int value) {
+            payload.putInt(value);
+            return this;
+        }
+
+        public FrameEncoder putFloat(float value) {
+            payload.putFloat(value);
+            return this;
+        }
+
+        public FrameEncoder putString(String value) {
+            payload.put(value.getBytes(StandardCharsets.UTF_8));
+            payload.put((byte) 0);
+            return this;
+        }
+
+        /**
+         * Complete the frame
+         * @return length of the frame returned by {@link #getFrame()}
+         */
+        public int finish() {
+            int length = payload.position();
+            frame[0] = (byte) SYNC_1;
+            frame[1] = (byte) SYNC_2;
+            frame[2] = (byte) length;
+            int crc = crc8(0, length);
+            byte[] data = payload.array();
+            for (int i=0; i<length; i++) {
+                frame[3 + i] = data[i];
+                crc = crc8(crc, data[i] & 0xFF);
+            }
+            frame[3 + length] = (byte) crc;
+            return length + 4;
+        }
+
+        public byte[] getFrame() {
+            return frame;
+        }
+    }
+
+    public interface FrameHandler {
+        /**
+         * Called for every valid frame received. The payload buffer is reused for the next frame so it shouldn't be kept.
+         * @param payload buffer positioned at the beginning of the payload in little-endian order
+         * @param length length of the payload
+         */
+        void onFrame(ByteBuffer payload, int length);
+    }
+
+    /**
+     * Find the frames in the incoming byte stream. Bytes outside of a frame (e.g. text printed by the device library)
+     * and frames with invalid CRC are skipped. This class doesn't allocate any memory after it has been constructed.
+     */
+    public static class FrameDecoder {
+        private enum State {SYNC_1, SYNC_2, LENGTH, PAYLOAD, CRC}
+
+        private final byte[] buffer = new byte[MAX_PAYLOAD_SIZE + 1];
+        private final ByteBuffer payload = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        private final FrameHandler handler;
+        private State state = State.SYNC_1;
+        private int length;
+        private int index;
+        private int crc;
+        @Getter private long frameCount;
+        @Getter private long errorCount;
+
+        public FrameDecoder(FrameHandler handler) {
+            this.handler = handler;
+        }
+
+        public void feed(byte[] data, int dataLength) {
+            for (int i=0; i<dataLength; i++) {
+                int b = data[i] & 0xFF;
+                switch (state) {
+                    case SYNC_1:
+                        if (b == SYNC_1) {
+                            state = State.SYNC_2;
+                        }
+                        break;
+                    case SYNC_2:
+                        state = (b == SYNC_2) ? State.LENGTH : (b == SYNC_1 ? State.SYNC_2 : State.SYNC_1);
+                        break;
+                    case LENGTH:
+                        if (b < 1 || b > MAX_PAYLOAD_SIZE) {
+                            errorCount++;
+                            state = State.SYNC_1;
+                        } else {
+                            length = b;
+                            index = 0;
+                            crc = crc8(0, b);
+                            state = State.PAYLOAD;
+                        }
+                        break;
+                    case PAYLOAD:
+                        buffer[index++] = (byte) b;
+                        crc = crc8(crc, b);
+                        if (index == length) {
+                            state = State.CRC;
+                        }
+                        break;
+                    case CRC:
+                        if (b == crc) {
+                            frameCount++;
+                            // terminate the payload so that a string at the end of the frame is always null-terminated
+                            buffer[length] = 0;
+                            payload.clear();
+                            handler.onFrame(payload, length);
+                        } else {
+                            errorCount++;
+                        }
+                        state = State.SYNC_1;
+                        break;
+                }
+            }
+        }
+    }
+}
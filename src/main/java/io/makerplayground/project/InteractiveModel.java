@@ -1,6 +1,7 @@
 package io.makerplayground.project;
 
 import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
 import com.fazecast.jSerialComm.SerialPortEvent;
 import com.fazecast.jSerialComm.SerialPortMessageListener;
 import io.makerplayground.device.actual.ActualDevice;
@@ -10,11 +11,13 @@ import io.makerplayground.device.shared.Condition;
 import io.makerplayground.device.shared.*;
 import io.makerplayground.generator.devicemapping.ProjectLogic;
 import io.makerplayground.generator.devicemapping.ProjectMappingResult;
+import io.makerplayground.project.InteractiveBinaryProtocol.DeviceEntry;
 import io.makerplayground.upload.UploadMode;
 import io.makerplayground.upload.UploadTarget;
 import io.makerplayground.project.VirtualProjectDevice.Memory;
 import io.makerplayground.project.expression.*;
 import io.makerplayground.project.term.*;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.beans.value.ObservableValue;
@@ -23,9 +26,14 @@ import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class InteractiveModel {
@@ -50,6 +58,24 @@ public class InteractiveModel {
     private final IntegerProperty sensorReadingRate = new SimpleIntegerProperty(100);
     private final Map<ProjectDevice, Boolean> deviceValid = new HashMap<>();
 
+    /* Binary protocol state. The device entries are assigned when interactive mode is initialized and must match the firmware */
+    private InteractiveProtocol protocol = InteractiveProtocol.BINARY;
+    private InteractiveProtocol activeProtocol = InteractiveProtocol.TEXT;
+    private final Map<ProjectDevice, DeviceEntry> deviceEntryMap = new HashMap<>();
+    private volatile DeviceSensorState[] deviceSensorStates = new DeviceSensorState[0];
+    private volatile Map<ProjectDevice, DeviceSensorState> deviceSensorStateMap = Collections.emptyMap();
+    private final InteractiveBinaryProtocol.FrameEncoder frameEncoder = new InteractiveBinaryProtocol.FrameEncoder();
+    private InteractiveBinaryProtocol.FrameDecoder frameDecoder;
+    private final byte[] serialReadBuffer = new byte[4096];
+    private final LongAdder coalescedUpdateCount = new LongAdder();
+    private final LongAdder droppedMessageCount = new LongAdder();
+    private final AnimationTimer sensorUpdateTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            publishSensorUpdate();
+        }
+    };
+
     InteractiveModel(Project project) {
         this.project = project;
         this.reinitializeCheckRunnable = () -> {
@@ -179,6 +205,22 @@ public class InteractiveModel {
         return sensorReadingRate;
     }
 
+    /**
+     * Get the protocol used by the firmware generated for the boards connected over a serial port. Raspberry Pi always
+     * use the text protocol over its websocket connection.
+     */
+    public InteractiveProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Set the protocol used by the firmware generated for the boards connected over a serial port. The new protocol
+     * takes effect after the interactive firmware has been regenerated and uploaded.
+     */
+    public void setProtocol(InteractiveProtocol protocol) {
+        this.protocol = protocol;
+    }
+
     /**
      * This method must be called to initialize internal state.
      */
@@ -261,6 +303,22 @@ public class InteractiveModel {
         conditionMap.get(Memory.projectDevice).put(Memory.compare, new ReadOnlyBooleanWrapper(false));
         valueMap.put(Memory.projectDevice, new LinkedHashMap<>());
         project.getUnmodifiableVariable().forEach(projectValue -> valueMap.get(Memory.projectDevice).put(projectValue.getValue(), new ReadOnlyStringWrapper("")));
+
+        deviceEntryMap.clear();
+        List<DeviceEntry> deviceEntries = InteractiveBinaryProtocol.getDeviceEntries(project);
+        DeviceSensorState[] states = new DeviceSensorState[deviceEntries.size() + 1];
+        Map<ProjectDevice, DeviceSensorState> stateMap = new HashMap<>();
+        for (DeviceEntry entry : deviceEntries) {
+            deviceEntryMap.put(entry.getProjectDevice(), entry);
+            if (entry.hasSensorData()) {
+                states[entry.getIndex()] = new DeviceSensorState(entry);
+                stateMap.put(entry.getProjectDevice(), states[entry.getIndex()]);
+            }
+        }
+        deviceSensorStates = states;
+        deviceSensorStateMap = stateMap;
+        coalescedUpdateCount.reset();
+        droppedMessageCount.reset();
     }
 
     /*
@@ -273,12 +331,19 @@ public class InteractiveModel {
         initialize();
         sensorReading.addListener(this::onSensorReadingChanged);
         sensorReadingRate.addListener(this::onSensorReadingRateChanged);
+        sensorUpdateTimer.start();
         UploadMode uploadMode = uploadTarget.getUploadMode();
         switch (uploadMode) {
             case SERIAL_PORT:
-                startOnSerialPort(uploadTarget.getSerialPort());
+                activeProtocol = protocol;
+                if (activeProtocol == InteractiveProtocol.BINARY) {
+                    startOnSerialPortBinary(uploadTarget.getSerialPort());
+                } else {
+                    startOnSerialPort(uploadTarget.getSerialPort());
+                }
                 break;
             case RPI_ON_NETWORK:
+                activeProtocol = InteractiveProtocol.TEXT;
                 startOnRpiSocket(uploadTarget.getRpiHostName());
                 break;
             default:
@@ -324,6 +389,36 @@ public class InteractiveModel {
         }
     }
 
+    private void startOnSerialPortBinary(SerialPort serialPort) {
+        frameDecoder = new InteractiveBinaryProtocol.FrameDecoder(this::processInFrame);
+        serialPort.setComPortParameters(115200, 8, SerialPort.ONE_STOP_BIT, SerialPort.NO_PARITY);
+        serialPort.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+            }
+
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                try {
+                    int available;
+                    while ((available = serialPort.bytesAvailable()) > 0) {
+                        int length = serialPort.readBytes(serialReadBuffer, Math.min(available, serialReadBuffer.length));
+                        if (length <= 0) {
+                            break;
+                        }
+                        frameDecoder.feed(serialReadBuffer, length);
+                    }
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        if (serialPort.openPort()) {
+            interactiveModeStarted.set(true);
+        }
+    }
+
     private WebSocketClient webSocketClient;
     private void startOnRpiSocket(String rpiHostName) {
         try {
@@ -379,6 +474,11 @@ public class InteractiveModel {
         sensorReading.removeListener(this::onSensorReadingChanged);
         sensorReadingRate.removeListener(this::onSensorReadingRateChanged);
         project.getProjectConfiguration().removeConfigurationChangedCallback(reinitializeCheckRunnable);
+        sensorUpdateTimer.stop();
+        if (interactiveModeStarted.get()) {
+            System.out.println("Interactive mode stopped: " + getCoalescedUpdateCount() + " sensor updates were coalesced and "
+                    + getDroppedMessageCount() + " messages were dropped");
+        }
         interactiveModeStarted.set(false);
     }
 
@@ -389,6 +489,24 @@ public class InteractiveModel {
         }
         setting.getParameterMap().put(parameter, expression);
 
+        if (activeProtocol == InteractiveProtocol.BINARY) {
+            DeviceEntry entry = deviceEntryMap.get(projectDevice);
+            if (entry == null || entry.getCommandIndex(condition) == -1) {
+                return;
+            }
+            try {
+                frameEncoder.begin(entry.getIndex(), entry.getCommandIndex(condition));
+                for (Parameter param : condition.getParameter()) {
+                    encodeParameter(param, setting.getParameterMap().get(param));
+                }
+            } catch (BufferOverflowException e) {
+                System.err.println("Warning: parameters of the interactive command are too long");
+                return;
+            }
+            sendFrame();
+            return;
+        }
+
         List<String> args = new ArrayList<>();
         args.add("\"" + deviceNameMap.get(projectDevice) + "\"");
         args.add("\"" + condition.getName() + "\"");
@@ -404,7 +522,11 @@ public class InteractiveModel {
     }
 
     private void sendFreezeSensorCommand(boolean sensorReading) {
-        if (sensorReading) {
+        if (activeProtocol == InteractiveProtocol.BINARY) {
+            frameEncoder.begin(InteractiveBinaryProtocol.SYSTEM_DEVICE_INDEX, sensorReading ? InteractiveBinaryProtocol.UNFREEZE_SENSOR_COMMAND
+                    : InteractiveBinaryProtocol.FREEZE_SENSOR_COMMAND);
+            sendFrame();
+        } else if (sensorReading) {
             sendCommand("\"$\" \"Sensor\" \"Unfreeze\"\r");
         } else {
             sendCommand("\"$\" \"Sensor\" \"Freeze\"\r");
@@ -416,7 +538,12 @@ public class InteractiveModel {
     }
 
     private void sendReadingRateCommand(int rate) {
-        sendCommand("\"$\" \"SensorRate\" \"" + rate + "\"\r");
+        if (activeProtocol == InteractiveProtocol.BINARY) {
+            frameEncoder.begin(InteractiveBinaryProtocol.SYSTEM_DEVICE_INDEX, InteractiveBinaryProtocol.SET_SENSOR_RATE_COMMAND).putInt(rate);
+            sendFrame();
+        } else {
+            sendCommand("\"$\" \"SensorRate\" \"" + rate + "\"\r");
+        }
     }
 
     public void sendActionCommand(UserSetting userSetting) {
@@ -431,6 +558,24 @@ public class InteractiveModel {
             return;
         }
 
+        if (activeProtocol == InteractiveProtocol.BINARY) {
+            DeviceEntry entry = deviceEntryMap.get(userSetting.getDevice());
+            if (entry == null || entry.getCommandIndex(userSetting.getAction()) == -1) {
+                return;
+            }
+            try {
+                frameEncoder.begin(entry.getIndex(), entry.getCommandIndex(userSetting.getAction()));
+                for (Parameter parameter : userSetting.getAction().getParameter()) {
+                    encodeParameter(parameter, userSetting.getParameterMap().get(parameter));
+                }
+            } catch (BufferOverflowException e) {
+                System.err.println("Warning: parameters of the interactive command are too long");
+                return;
+            }
+            sendFrame();
+            return;
+        }
+
         List<String> args = new ArrayList<>();
         args.add("\"" + deviceNameMap.get(userSetting.getDevice()) + "\"");
         args.add("\"" + userSetting.getAction().getName() + "\"");
@@ -452,6 +597,49 @@ public class InteractiveModel {
         }
     }
 
+    private void encodeParameter(Parameter parameter, Expression expression) {
+        switch (parameter.getDataType()) {
+            case DOUBLE:
+                frameEncoder.putFloat((float) Double.parseDouble(evaluateExpression(expression)));
+                break;
+            case INTEGER:
+            case INTEGER_ENUM:
+            case STRING_INT_ENUM:
+                frameEncoder.putInt((int) Double.parseDouble(evaluateExpression(expression)));
+                break;
+            case RECORD:
+                List<RecordEntry> entryList = ((RecordExpression) expression).getRecord().getEntryList();
+                frameEncoder.putByte(entryList.size());
+                for (RecordEntry recordEntry : entryList) {
+                    frameEncoder.putString(recordEntry.getField());
+                    if (recordEntry.getValue() instanceof CustomNumberExpression) {
+                        frameEncoder.putFloat((float) evaluateCustomNumberExpression((CustomNumberExpression) recordEntry.getValue()));
+                    } else if (recordEntry.getValue() instanceof NumberWithUnitExpression) {
+                        frameEncoder.putFloat((float) ((NumberWithUnitExpression) recordEntry.getValue()).getNumberWithUnit().getValue());
+                    } else if (recordEntry.getValue() instanceof ProjectValueExpression) {
+                        ProjectValue projectValue = ((ProjectValueExpression) recordEntry.getValue()).getProjectValue();
+                        frameEncoder.putFloat(Float.parseFloat(valueMap.get(projectValue.getDevice()).get(projectValue.getValue()).get()));
+                    } else {
+                        throw new IllegalStateException();
+                    }
+                }
+                break;
+            default:
+                frameEncoder.putString(evaluateExpression(expression));
+                break;
+        }
+    }
+
+    private void sendFrame() {
+        int length = frameEncoder.finish();
+        if (UploadMode.SERIAL_PORT.equals(this.uploadTarget.getUploadMode())) {
+            SerialPort serialPort = this.uploadTarget.getSerialPort();
+            if (isStarted() && serialPort != null && serialPort.isOpen()) {
+                serialPort.writeBytes(frameEncoder.getFrame(), length);
+            }
+        }
+    }
+
     private String evaluateExpression(Expression expression) {
         if (expression instanceof CustomNumberExpression) {
             return String.valueOf(evaluateCustomNumberExpression((CustomNumberExpression) expression));
@@ -579,34 +767,168 @@ public class InteractiveModel {
         }
     }
 
+    /* Called by the serial port or websocket thread for every sensor line. The fields are separated by '\0' and the
+       device name is quoted. */
     void processInMessage(String message) {
-        System.out.println(message);
         if (!sensorReading.get()) {
             return;
         }
-        List<String> args = Arrays.stream(message.split("[\\u0000\"]")).filter(s->!s.isBlank()).collect(Collectors.toList());
-        ProjectDevice projectDevice = nameDeviceMap.get(args.get(0));
-        if (projectDevice == null) {
-            System.err.println("Unknown message : " + args);
+        int length = message.length();
+        int position = nextFieldStart(message, 0);
+        int end = nextFieldEnd(message, position);
+        ProjectDevice projectDevice = position < length ? nameDeviceMap.get(message.substring(position, end)) : null;
+        DeviceSensorState state = projectDevice != null ? deviceSensorStateMap.get(projectDevice) : null;
+        if (state == null) {
+            droppedMessageCount.increment();
             return;
         }
-        Platform.runLater(() -> {
-            int argsIndex = 1;
-            if (conditionMap.containsKey(projectDevice)) {
-                for (Condition condition : conditionMap.get(projectDevice).keySet()) {
-                    if (condition.getName().equals("Compare")) {
-                        continue;
-                    }
-                    conditionMap.get(projectDevice).get(condition).set(!args.get(argsIndex).equals("0"));
-                    argsIndex++;
+        int conditionCount = state.entry.getSensorConditions().size();
+        for (int slot=0; slot<state.lastWritten.length; slot++) {
+            position = nextFieldStart(message, end);
+            if (position >= length) {
+                droppedMessageCount.increment();
+                return;
+            }
+            end = nextFieldEnd(message, position);
+            if (slot < conditionCount) {
+                // compare in place to avoid creating a substring for the condition result
+                boolean value = !(end - position == 1 && message.charAt(position) == '0');
+                state.write(slot, Boolean.valueOf(value), coalescedUpdateCount);
+            } else {
+                state.write(slot, message.substring(position, end), coalescedUpdateCount);
+            }
+        }
+    }
+
+    private static boolean isFieldSeparator(char c) {
+        return c == '\0' || c == '"' || Character.isWhitespace(c);
+    }
+
+    private static int nextFieldStart(String message, int position) {
+        while (position < message.length() && isFieldSeparator(message.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int nextFieldEnd(String message, int position) {
+        // device name may contain spaces so only '\0' and '"' terminate a field
+        while (position < message.length() && message.charAt(position) != '\0' && message.charAt(position) != '"') {
+            position++;
+        }
+        return position;
+    }
+
+    /* Called by the serial port thread for every valid frame of the binary protocol */
+    private void processInFrame(ByteBuffer payload, int length) {
+        if (!sensorReading.get()) {
+            return;
+        }
+        DeviceSensorState[] states = deviceSensorStates;
+        int deviceIndex = payload.get(0) & 0xFF;
+        if (deviceIndex >= states.length || states[deviceIndex] == null) {
+            droppedMessageCount.increment();
+            return;
+        }
+        DeviceSensorState state = states[deviceIndex];
+        DeviceEntry entry = state.entry;
+        int conditionCount = entry.getSensorConditions().size();
+        int position = 1;
+        for (int slot=0; slot<conditionCount; slot++) {
+            if (position >= length) {
+                droppedMessageCount.increment();
+                return;
+            }
+            state.write(slot, Boolean.valueOf(payload.get(position++) != 0), coalescedUpdateCount);
+        }
+        for (int i=0; i<entry.getSensorValues().size(); i++) {
+            int slot = conditionCount + i;
+            DataType dataType = entry.getSensorValues().get(i).getType();
+            if (dataType == DataType.DOUBLE || dataType == DataType.INTEGER || dataType == DataType.INTEGER_ENUM
+                    || dataType == DataType.STRING_INT_ENUM) {
+                if (position + 4 > length) {
+                    droppedMessageCount.increment();
+                    return;
+                }
+                int bits = payload.getInt(position);
+                position += 4;
+                // only format the value when its raw bits have been changed
+                if (state.lastWritten[slot] == null || state.valueBits[i] != bits) {
+                    state.valueBits[i] = bits;
+                    state.write(slot, (dataType == DataType.DOUBLE) ? String.format(Locale.ROOT, "%.2f", Float.intBitsToFloat(bits))
+                            : Integer.toString(bits), coalescedUpdateCount);
+                }
+            } else {
+                int end = position;
+                while (end < length && payload.get(end) != 0) {
+                    end++;
                 }
+                state.write(slot, new String(payload.array(), position, end - position, StandardCharsets.UTF_8), coalescedUpdateCount);
+                position = end + 1;
             }
-            if (valueMap.containsKey(projectDevice)) {
-                for (Value value : valueMap.get(projectDevice).keySet()) {
-                    valueMap.get(projectDevice).get(value).set(args.get(argsIndex));
-                    argsIndex++;
+        }
+    }
+
+    /* Publish the latest data of every device to the properties once per frame */
+    private void publishSensorUpdate() {
+        for (DeviceSensorState state : deviceSensorStateMap.values()) {
+            ProjectDevice projectDevice = state.entry.getProjectDevice();
+            List<Condition> conditions = state.entry.getSensorConditions();
+            List<Value> values = state.entry.getSensorValues();
+            for (int slot=0; slot<state.lastWritten.length; slot++) {
+                Object data = state.pending.getAndSet(slot, null);
+                if (data == null) {
+                    continue;
+                }
+                if (slot < conditions.size()) {
+                    conditionMap.get(projectDevice).get(conditions.get(slot)).set((Boolean) data);
+                } else {
+                    valueMap.get(projectDevice).get(values.get(slot - conditions.size())).set((String) data);
                 }
             }
-        });
+        }
+    }
+
+    /**
+     * @return number of sensor updates that were replaced by a newer update before they were shown
+     */
+    public long getCoalescedUpdateCount() {
+        return coalescedUpdateCount.sum();
+    }
+
+    /**
+     * @return number of incoming messages that were discarded because they were corrupted or sent from an unknown device
+     */
+    public long getDroppedMessageCount() {
+        InteractiveBinaryProtocol.FrameDecoder decoder = frameDecoder;
+        return droppedMessageCount.sum() + (decoder != null ? decoder.getErrorCount() : 0);
+    }
+
+    /* Latest-value-wins slots of a device. Condition results come first followed by the values in the order they are
+       sent by the firmware. Each slot is written by the reader thread and cleared when it is published. */
+    private static class DeviceSensorState {
+        private final DeviceEntry entry;
+        private final AtomicReferenceArray<Object> pending;
+        /* only accessed by the reader thread */
+        private final Object[] lastWritten;
+        private final int[] valueBits;
+
+        DeviceSensorState(DeviceEntry entry) {
+            this.entry = entry;
+            int slotCount = entry.getSensorConditions().size() + entry.getSensorValues().size();
+            this.pending = new AtomicReferenceArray<>(slotCount);
+            this.lastWritten = new Object[slotCount];
+            this.valueBits = new int[entry.getSensorValues().size()];
+        }
+
+        void write(int slot, Object data, LongAdder coalescedUpdateCount) {
+            if (data.equals(lastWritten[slot])) {
+                return;
+            }
+            lastWritten[slot] = data;
+            if (pending.getAndSet(slot, data) != null) {
+                coalescedUpdateCount.increment();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+/**
+ * Wire format used to communicate with the interactive firmware
+ */
+public enum InteractiveProtocol {
+    /* quoted ASCII commands and '\0' separated sensor lines */
+    TEXT,
+    /* length-prefixed frames with CRC, see {@link InteractiveBinaryProtocol} */
+    BINARY
+}
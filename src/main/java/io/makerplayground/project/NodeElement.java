@@ -18,6 +18,7 @@ package io.makerplayground.project;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import javafx.beans.value.ObservableValue;
 import javafx.beans.property.*;
 
 @JsonSerialize(using = NodeElementSerializer.class)
@@ -53,6 +54,17 @@ public abstract class NodeElement {
         this.destPortY = new SimpleDoubleProperty();
 
         this.error = new ReadOnlyObjectWrapper<>(DiagramError.NONE);
+
+        trackModification(this.top, this.left, this.width, this.height);
+    }
+
+    /**
+     * Increase the revision of the project whenever any of the observables is changed
+     */
+    protected final void trackModification(ObservableValue<?>... observables) {
+        for (ObservableValue<?> observable : observables) {
+            observable.addListener((o, oldValue, newValue) -> project.markModified());
+        }
     }
 
     public String getName() {
@@ -61,6 +73,7 @@ public abstract class NodeElement {
 
     public void setName(String name) {
         this.name = name;
+        project.markModified();
     }
 
     public final double getTop() {
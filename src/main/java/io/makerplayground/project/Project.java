@@ -17,7 +17,6 @@
 package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.makerplayground.device.GenericDeviceType;
@@ -27,7 +26,7 @@ import io.makerplayground.device.actual.Platform;
 import io.makerplayground.device.generic.GenericDevice;
 import io.makerplayground.device.shared.*;
 import io.makerplayground.device.shared.constraint.Constraint;
-import io.makerplayground.generator.devicemapping.ProjectLogic;
+import io.makerplayground.util.JacksonMappers;
 import io.makerplayground.version.ProjectVersionControl;
 import javafx.beans.binding.ListBinding;
 import javafx.beans.property.*;
@@ -38,7 +37,7 @@ import javafx.collections.transformation.FilteredList;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -54,16 +53,26 @@ import java.util.stream.Collectors;
 @JsonSerialize(using = ProjectSerializer.class)
 @JsonDeserialize(using = ProjectDeserializer.class)
 public class Project {
-    @Getter @Setter private String projectName;
+    @Getter private String projectName;
     private final StringProperty filePath;
     private final ObservableList<ProjectDevice> devices;
     private final ObservableList<Scene> scenes;
     private final ObservableList<Condition> conditions;
     private final ObservableList<Delay> delays;
     private final ObservableList<Line> lines;
+    private final Map<NodeElement, List<Line>> lineFromSource;  // index of the lines list by their source node (updated by the list's listener)
+    private final Map<NodeElement, List<Line>> lineToDestination;   // index of the lines list by their destination node
     private final ObservableList<Begin> begins;
     private final ReadOnlyBooleanWrapper diagramError;
     private Map<Line, DiagramError> lineErrorMap;
+    private int batchDepth;                     // number of nested batch that hasn't been ended
+    private boolean diagramInvalidated;         // the diagram need to be checked when the outermost batch ended
+    private boolean compatibilityInvalidated;   // the compatibility need to be recalculated when the outermost batch ended
+    private long revision;                      // incremented every time the project is modified
+    private long savedRevision;                 // revision of the project when it was last saved or loaded
+    private byte[] savedContentHash;            // SHA-256 of the content of the file when it was last saved or loaded
+    private final Runnable configurationChangedCallback = this::markModified;
+    @Getter private final UUID instanceId = UUID.randomUUID();   // identify the project in memory e.g. the build workspace of an unsaved project
 
     @Getter private final FilteredList<ProjectDevice> sensorDevice;
     @Getter private final FilteredList<ProjectDevice> actuatorDevice;
@@ -89,7 +98,7 @@ public class Project {
     private static final Pattern delayNameRegex = Pattern.compile("Delay\\d+");
     private static final Pattern variableNameRegex = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
 
-    @Getter @Setter private ProjectConfiguration projectConfiguration;
+    @Getter private ProjectConfiguration projectConfiguration;
     @Getter private InteractiveModel interactiveModel;
 
     public Project() {
@@ -117,6 +126,15 @@ public class Project {
         this.unmodifiableDelay = FXCollections.unmodifiableObservableList(delays);
         this.unmodifiableLine = FXCollections.unmodifiableObservableList(lines);
 
+        this.lineFromSource = new HashMap<>();
+        this.lineToDestination = new HashMap<>();
+        this.lines.addListener((ListChangeListener<? super Line>) c -> {
+            while (c.next()) {
+                c.getRemoved().forEach(this::removeLineFromIndex);
+                c.getAddedSubList().forEach(this::addLineToIndex);
+            }
+        });
+
         this.diagramError = new ReadOnlyBooleanWrapper();
         this.lineErrorMap = Collections.emptyMap();
 
@@ -125,7 +143,7 @@ public class Project {
 
         this.availableValue = new HashMap<>();
 
-        this.projectConfiguration = new ProjectConfiguration(Platform.ARDUINO_AVR8);
+        this.setProjectConfiguration(new ProjectConfiguration(Platform.ARDUINO_AVR8));
         this.interactiveModel = new InteractiveModel(this);
         this.newBegin();
         this.calculateCompatibility();
@@ -134,16 +152,66 @@ public class Project {
     // it is very difficult to directly clone an instance of the project class for many reasons e.g. UserSetting hold a
     // reference to ProjectDevice which need to be updated to the cloned ProjectDevice (complex mapping and searching)
     public static Project newInstance(Project project) {
-        ObjectMapper mapper = new ObjectMapper();
         Project newProject = null;
         try {
-            newProject = mapper.treeToValue(mapper.valueToTree(project), Project.class);
+            newProject = JacksonMappers.JSON.treeToValue(JacksonMappers.JSON.valueToTree(project), Project.class);
         } catch (JsonProcessingException e) {
             e.printStackTrace();    // this should not happen as we're parsing an in-memory stream
         }
         return newProject;
     }
 
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+        markModified();
+    }
+
+    public void setProjectConfiguration(ProjectConfiguration projectConfiguration) {
+        if (this.projectConfiguration != null) {
+            this.projectConfiguration.removeConfigurationChangedCallback(configurationChangedCallback);
+        }
+        this.projectConfiguration = projectConfiguration;
+        projectConfiguration.addConfigurationChangedCallback(configurationChangedCallback);
+        markModified();
+    }
+
+    /**
+     * Get the revision of the project which is incremented every time the project is modified. It can be used as a key
+     * to cache the result of an expensive computation derived from the project.
+     * @return the current revision number
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    void markModified() {
+        revision++;
+    }
+
+    /**
+     * Record the content of the project file which has just been saved or loaded so that {@link #hasUnsavedModification()}
+     * can return without serializing the project until it is modified again
+     * @param content content of the project file
+     */
+    public void markSaved(byte[] content) {
+        markSaved(revision, content);
+    }
+
+    /* the content may be saved in background so the revision of the snapshot is passed in explicitly */
+    void markSaved(long revision, byte[] content) {
+        savedRevision = revision;
+        savedContentHash = DigestUtils.sha256(content);
+    }
+
+    /**
+     * Forget the content of the autosave journal that the project has been loaded from so that {@link #hasUnsavedModification()}
+     * compares the project with its original file (or reports it as modified if the file can't be read)
+     */
+    void markRecovered() {
+        revision++;
+        savedContentHash = null;
+    }
+
     public ReadOnlyBooleanProperty diagramErrorProperty() {
         return diagramError.getReadOnlyProperty();
     }
@@ -196,12 +264,17 @@ public class Project {
     }
 
     public void removeDevice(ProjectDevice genericDevice) {
-        scenes.forEach(s->s.removeDevice(genericDevice));
-        conditions.forEach(c->c.removeDevice(genericDevice));
-        if (!devices.remove(genericDevice)) {
-            throw new IllegalStateException("");
+        beginBatch();
+        try {
+            scenes.forEach(s->s.removeDevice(genericDevice));
+            conditions.forEach(c->c.removeDevice(genericDevice));
+            if (!devices.remove(genericDevice)) {
+                throw new IllegalStateException("");
+            }
+            this.calculateCompatibility();
+        } finally {
+            endBatch();
         }
-        this.calculateCompatibility();
     }
 
     public void setPlatform(Platform platform) {
@@ -242,16 +315,12 @@ public class Project {
 
     void addScene(Scene s) {
         scenes.add(s);
+        markModified();
     }
 
     public void removeScene(Scene s) {
         scenes.remove(s);
-        for (int i = lines.size()-1; i>=0; i--) {
-            Line l = lines.get(i);
-            if (l.getSource() == s || l.getDestination() == s) {
-                lines.remove(l);
-            }
-        }
+        removeLinesConnectedTo(s);
         checkAndInvalidateDiagram();
         this.calculateCompatibility();
     }
@@ -288,16 +357,12 @@ public class Project {
 
     void addCondition(Condition c) {
         conditions.add(c);
+        markModified();
     }
 
     public void removeCondition(Condition c) {
         conditions.remove(c);
-        for (int i = lines.size()-1; i>=0; i--) {
-            Line l = lines.get(i);
-            if (l.getSource() == c || l.getDestination() == c) {
-                lines.remove(l);
-            }
-        }
+        removeLinesConnectedTo(c);
         checkAndInvalidateDiagram();
         this.calculateCompatibility();
     }
@@ -335,23 +400,19 @@ public class Project {
 
     void addDelay(Delay d) {
         delays.add(d);
+        markModified();
     }
 
     public void removeDelay(Delay d) {
         delays.remove(d);
-        for (int i = lines.size()-1; i>=0; i--) {
-            Line l = lines.get(i);
-            if (l.getSource() == d || l.getDestination() == d) {
-                lines.remove(l);
-            }
-        }
+        removeLinesConnectedTo(d);
         checkAndInvalidateDiagram();
         this.calculateCompatibility();
     }
 
     public void addLine(NodeElement source, NodeElement destination) {
         // do not create new line if there existed a line with identical source and destination
-        if (lines.stream().noneMatch(line1 -> (line1.getSource() == source) && (line1.getDestination() == destination))) {
+        if (!hasLine(source, destination)) {
             Line l = new Line(source, destination, this);
             lines.add(l);
         }
@@ -366,11 +427,75 @@ public class Project {
     }
 
     public boolean hasLine(NodeElement source, NodeElement destination) {
-        return lines.stream().anyMatch(line1 -> (line1.getSource() == source) && (line1.getDestination() == destination));
+        for (Line line : lineFromSource.getOrDefault(source, Collections.emptyList())) {
+            if (line.getDestination() == destination) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public List<Line> getLinesFromSource(NodeElement source) {
-        return lines.stream().filter(line -> line.getSource() == source).collect(Collectors.toUnmodifiableList());
+        return List.copyOf(lineFromSource.getOrDefault(source, Collections.emptyList()));
+    }
+
+    public List<Line> getLinesToDestination(NodeElement destination) {
+        return List.copyOf(lineToDestination.getOrDefault(destination, Collections.emptyList()));
+    }
+
+    /**
+     * Get the destination of every line started from the source node in the order that the lines were added to the project
+     * @param source the source node
+     * @return a new list of the adjacent nodes
+     */
+    public List<NodeElement> getNextNodeElements(NodeElement source) {
+        List<Line> lineList = lineFromSource.getOrDefault(source, Collections.emptyList());
+        List<NodeElement> result = new ArrayList<>(lineList.size());
+        for (Line line : lineList) {
+            result.add(line.getDestination());
+        }
+        return result;
+    }
+
+    /**
+     * Get the destination of every line started from the source node which is an instance of the given type e.g. only
+     * the {@link Condition} connected to a scene
+     * @param source the source node
+     * @param type class of the node to be returned
+     * @return a new list of the adjacent nodes of the given type
+     */
+    public <T extends NodeElement> List<T> getNextNodeElements(NodeElement source, Class<T> type) {
+        List<T> result = new ArrayList<>();
+        for (Line line : lineFromSource.getOrDefault(source, Collections.emptyList())) {
+            if (type.isInstance(line.getDestination())) {
+                result.add(type.cast(line.getDestination()));
+            }
+        }
+        return result;
+    }
+
+    private void addLineToIndex(Line line) {
+        lineFromSource.computeIfAbsent(line.getSource(), node -> new ArrayList<>()).add(line);
+        lineToDestination.computeIfAbsent(line.getDestination(), node -> new ArrayList<>()).add(line);
+    }
+
+    private void removeLineFromIndex(Line line) {
+        List<Line> fromSource = lineFromSource.get(line.getSource());
+        if (fromSource != null && fromSource.remove(line) && fromSource.isEmpty()) {
+            lineFromSource.remove(line.getSource());
+        }
+        List<Line> toDestination = lineToDestination.get(line.getDestination());
+        if (toDestination != null && toDestination.remove(line) && toDestination.isEmpty()) {
+            lineToDestination.remove(line.getDestination());
+        }
+    }
+
+    private void removeLinesConnectedTo(NodeElement node) {
+        Set<Line> connectedLines = new HashSet<>(lineFromSource.getOrDefault(node, Collections.emptyList()));
+        connectedLines.addAll(lineToDestination.getOrDefault(node, Collections.emptyList()));
+        if (!connectedLines.isEmpty()) {
+            lines.removeAll(connectedLines);
+        }
     }
 
     // TODO: need to get again after set
@@ -385,6 +510,7 @@ public class Project {
 
     public void setCloudPlatformParameter(CloudPlatform cloudPlatform, String parameterName, String value) {
         projectConfiguration.setCloudPlatformParameter(cloudPlatform, parameterName, value);
+        markModified();
     }
 
     public Set<CloudPlatform> getAllCloudPlatforms() {
@@ -503,6 +629,9 @@ public class Project {
         Deque<NodeElement> queue = new ArrayDeque<>(this.begins);
         while(!queue.isEmpty()) {
             NodeElement current = queue.remove();
+            if (visited.contains(current)) {
+                continue;
+            }
             if (current instanceof Begin) {
                 // No device in Begin Scene
             } else if (current instanceof Scene) {
@@ -523,12 +652,11 @@ public class Project {
                 });
             }
             visited.add(current);
-            Set<NodeElement> unvisitedAdj = lines.stream()
-                    .filter(l->l.getSource() == current)
-                    .map(Line::getDestination)
-                    .dropWhile(visited::contains)
-                    .collect(Collectors.toSet());
-            queue.addAll(unvisitedAdj);
+            for (NodeElement next : getNextNodeElements(current)) {
+                if (!visited.contains(next)) {
+                    queue.add(next);
+                }
+            }
         }
         return deviceUsed;
     }
@@ -545,6 +673,9 @@ public class Project {
         Queue<NodeElement> queue = new LinkedList<>(this.begins);
         while(!queue.isEmpty()) {
             NodeElement current = queue.remove();
+            if (visited.contains(current)) {
+                continue;
+            }
             if (current instanceof Begin) {
                 // No Value in Begin Scene
             } else if (current instanceof Scene) {
@@ -561,12 +692,11 @@ public class Project {
                 }));
             }
             visited.add(current);
-            Set<NodeElement> unvisitedAdj = lines.stream()
-                    .filter(l->l.getSource() == current)
-                    .map(Line::getDestination)
-                    .dropWhile(visited::contains)
-                    .collect(Collectors.toSet());
-            queue.addAll(unvisitedAdj);
+            for (NodeElement next : getNextNodeElements(current)) {
+                if (!visited.contains(next)) {
+                    queue.add(next);
+                }
+            }
         }
         return allValueUsed;
     }
@@ -584,34 +714,42 @@ public class Project {
                     && begins.size() == 1
                     && begins.get(0).getTop() == 200
                     && begins.get(0).getLeft() == 20); // begin hasn't been moved
+        } else if (revision == savedRevision) {
+            return false;
         } else {
-            ObjectMapper mapper = new ObjectMapper();
-            String newContent;
+            // the project may have been modified and then changed back so we compare the content as a last resort
+            byte[] newContent;
             try {
-                newContent = mapper.writeValueAsString(this);
+                newContent = JacksonMappers.PROJECT_WRITER.writeValueAsBytes(this);
             } catch (JsonProcessingException e) {
                 return true;
             }
 
-            String oldContent;
-            try {
-                oldContent = new String(Files.readAllBytes(Path.of(filePath.get())));
-            } catch (IOException e) {
-                return true;
+            if (savedContentHash == null) {
+                try {
+                    savedContentHash = DigestUtils.sha256(Files.readAllBytes(Path.of(filePath.get())));
+                } catch (IOException e) {
+                    return true;
+                }
             }
 
-            return !oldContent.equals(newContent);
+            if (!Arrays.equals(savedContentHash, DigestUtils.sha256(newContent))) {
+                return true;
+            }
+            savedRevision = revision;
+            return false;
         }
     }
 
     public static Optional<Project> loadProject(File f) {
         if (f.exists()) {
-            ObjectMapper mapper = new ObjectMapper();
             try {
-                String projectVersion = ProjectVersionControl.readProjectVersion(f);
+                byte[] content = Files.readAllBytes(f.toPath());
+                String projectVersion = ProjectVersionControl.readProjectVersion(content);
                 if (ProjectVersionControl.canOpen(projectVersion)) {
-                    Project project = mapper.readValue(f, Project.class);
+                    Project project = JacksonMappers.PROJECT_READER.readValue(content);
                     project.setFilePath(f.getAbsolutePath());
+                    project.markSaved(content);
                     return Optional.of(project);
                 }
             } catch (Exception e) {
@@ -635,7 +773,57 @@ public class Project {
         calculateCompatibility();
     }
 
+    /**
+     * Apply multiple modifications to the project as a single batch. The diagram checking and the compatibility calculation
+     * requested by each modification are deferred and performed at most once after the mutation has finished. Batches can
+     * be nested in which case the deferred work is performed when the outermost batch ended.
+     * @param mutation code that modifies the project
+     */
+    public void batch(Runnable mutation) {
+        beginBatch();
+        try {
+            mutation.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Start a batch of modifications. Every call must be paired with a call to {@link #endBatch()} in a finally block.
+     * Use {@link #batch(Runnable)} when the modification doesn't throw checked exceptions.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * End the batch started by {@link #beginBatch()} and perform the pending work if this is the outermost batch
+     */
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("endBatch() is called without a matching beginBatch()");
+        }
+        batchDepth--;
+        if (batchDepth == 0) {
+            if (diagramInvalidated) {
+                diagramInvalidated = false;
+                checkAndInvalidateDiagram();
+            }
+            if (compatibilityInvalidated) {
+                compatibilityInvalidated = false;
+                calculateCompatibility();
+            }
+        }
+    }
+
     private void checkAndInvalidateDiagram() {
+        // the diagram is only invalidated after it has been modified
+        markModified();
+        if (batchDepth > 0) {
+            diagramInvalidated = true;
+            return;
+        }
+
         // reassign root to all scene and conditions
         getUnmodifiableScene().forEach(scene -> scene.setRoot(null));
         getUnmodifiableCondition().forEach(condition -> condition.setRoot(null));
@@ -645,7 +833,6 @@ public class Project {
 
         // update line's error map
         Map<Line, DiagramError> error = new HashMap<>();
-        Map<NodeElement, List<Line>> lineFromSource = this.lines.stream().collect(Collectors.groupingBy(Line::getSource));
         for (NodeElement nodeElement : lineFromSource.keySet()) {
             List<Line> lines = lineFromSource.get(nodeElement);
 
@@ -699,25 +886,22 @@ public class Project {
                 || lines.stream().anyMatch(node -> node.getError() != DiagramError.NONE));
     }
 
-    private Set<NodeElement> getNextNodeElements(NodeElement from) {
-        return getUnmodifiableLine().stream().filter(line1 -> line1.getSource() == from).map(Line::getDestination).collect(Collectors.toSet());
-    }
-
     private void traverseAndSetRoot(Begin from) {
         Set<NodeElement> visited = new HashSet<>();
         Deque<NodeElement> remainingNodes = new ArrayDeque<>(getNextNodeElements(from));
         while(!remainingNodes.isEmpty()) {
             NodeElement node = remainingNodes.removeFirst();
-            if (visited.contains(node)) {
+            if (!visited.add(node)) {
                 continue;
             }
-            visited.add(node);
 
             node.setRoot(from);
 
-            Set<NodeElement> nextNodes = getNextNodeElements(node);
-            nextNodes.removeAll(visited);
-            remainingNodes.addAll(nextNodes);
+            for (NodeElement nextNode : getNextNodeElements(node)) {
+                if (!visited.contains(nextNode)) {
+                    remainingNodes.add(nextNode);
+                }
+            }
         }
     }
 
@@ -728,12 +912,7 @@ public class Project {
     public void removeBegin(Begin begin) {
         if (begins.size() > 1) {
             begins.remove(begin);
-            for (int i = lines.size()-1; i>=0; i--) {
-                Line l = lines.get(i);
-                if (l.getSource() == begin || l.getDestination() == begin) {
-                    lines.remove(l);
-                }
-            }
+            removeLinesConnectedTo(begin);
             checkAndInvalidateDiagram();
             this.calculateCompatibility();
         }
@@ -759,9 +938,16 @@ public class Project {
 
     public void addBegin(Begin begin) {
         begins.add(begin);
+        markModified();
     }
 
     public void calculateCompatibility() {
+        markModified();
+        if (batchDepth > 0) {
+            compatibilityInvalidated = true;
+            return;
+        }
+
         Map<ProjectDevice, Map<Action, Map<Parameter, Constraint>>> actionCompatibility = new HashMap<>();
         Map<ProjectDevice, Map<io.makerplayground.device.shared.Condition, Map<Parameter, Constraint>>> conditionCompatibility = new HashMap<>();
         Map<ProjectDevice, Set<Value>> valueCompatibility = new HashMap<>();
@@ -769,6 +955,9 @@ public class Project {
         Deque<NodeElement> queue = new ArrayDeque<>(this.begins);
         while(!queue.isEmpty()) {
             NodeElement current = queue.remove();
+            if (visited.contains(current)) {
+                continue;
+            }
             if (current instanceof Scene) {
                 Scene temp = (Scene) current;
                 temp.getSetting().forEach(s->{
@@ -777,16 +966,16 @@ public class Project {
                         Map<Action, Map<Parameter, Constraint>> actionParameterMap = new TreeMap<>(Comparator.comparing(Action::getName));
                         actionCompatibility.put(projectDevice, actionParameterMap);
                     }
-                    s.getParameterMap().forEach((parameter, expression) -> {
+                    s.getParameterConstraint().forEach((parameter, constraint) -> {
                         Action action = s.getAction();
                         if (!actionCompatibility.get(projectDevice).containsKey(action)){
                             actionCompatibility.get(projectDevice).put(action, new TreeMap<>(Comparator.comparing(Parameter::getName)));
                         }
                         if (!actionCompatibility.get(projectDevice).get(action).containsKey(parameter)) {
-                            actionCompatibility.get(projectDevice).get(action).put(parameter, ProjectLogic.extractConstraint(parameter, expression));
+                            actionCompatibility.get(projectDevice).get(action).put(parameter, constraint);
                         } else {
                             Constraint oldConstraint = actionCompatibility.get(projectDevice).get(action).get(parameter);
-                            Constraint newConstraint = oldConstraint.union(ProjectLogic.extractConstraint(parameter, expression));
+                            Constraint newConstraint = oldConstraint.union(constraint);
                             actionCompatibility.get(projectDevice).get(action).put(parameter, newConstraint);
                         }
                     });
@@ -807,16 +996,16 @@ public class Project {
                         Map<io.makerplayground.device.shared.Condition, Map<Parameter, Constraint>> conditionParameterMap = new TreeMap<>(Comparator.comparing(io.makerplayground.device.shared.Condition::getName));
                         conditionCompatibility.put(projectDevice, conditionParameterMap);
                     }
-                    s.getParameterMap().forEach((parameter, expression) -> {
+                    s.getParameterConstraint().forEach((parameter, constraint) -> {
                         var condition = s.getCondition();
                         if (!conditionCompatibility.get(projectDevice).containsKey(condition)){
                             conditionCompatibility.get(projectDevice).put(condition, new TreeMap<>(Comparator.comparing(Parameter::getName)));
                         }
                         if (!conditionCompatibility.get(projectDevice).get(condition).containsKey(parameter)) {
-                            conditionCompatibility.get(projectDevice).get(condition).put(parameter, ProjectLogic.extractConstraint(parameter, expression));
+                            conditionCompatibility.get(projectDevice).get(condition).put(parameter, constraint);
                         } else {
                             Constraint oldConstraint = conditionCompatibility.get(projectDevice).get(condition).get(parameter);
-                            Constraint newConstraint = oldConstraint.union(ProjectLogic.extractConstraint(parameter, expression));
+                            Constraint newConstraint = oldConstraint.union(constraint);
                             conditionCompatibility.get(projectDevice).get(condition).put(parameter, newConstraint);
                         }
                     });
@@ -831,12 +1020,11 @@ public class Project {
                 });
             }
             visited.add(current);
-            Set<NodeElement> unvisitedAdj = lines.stream()
-                    .filter(l->l.getSource() == current)
-                    .map(Line::getDestination)
-                    .dropWhile(visited::contains)
-                    .collect(Collectors.toSet());
-            queue.addAll(unvisitedAdj);
+            for (NodeElement next : getNextNodeElements(current)) {
+                if (!visited.contains(next)) {
+                    queue.add(next);
+                }
+            }
         }
 
         projectConfiguration.updateCompatibility(actionCompatibility, conditionCompatibility, valueCompatibility, this.devices);
@@ -851,6 +1039,7 @@ public class Project {
         }
         ProjectValue projectValue = new ProjectValue(VirtualProjectDevice.Memory.projectDevice, new Value(varName, DataType.DOUBLE, Constraint.createNumericConstraint(-Double.MAX_VALUE, Double.MAX_VALUE, Unit.NOT_SPECIFIED)));
         variables.add(projectValue);
+        markModified();
         return new VariableAddResult(projectValue, VariableError.OK);
     }
 
@@ -873,6 +1062,7 @@ public class Project {
             return VariableError.DUPLICATE_NAME;
         }
         variables.stream().filter(projectValue -> projectValue.getValue().getName().equals(varNameOld)).findFirst().ifPresent(projectValue -> projectValue.getValue().setName(varNameNew));
+        markModified();
         return VariableError.OK;
     }
 
@@ -881,6 +1071,7 @@ public class Project {
             return VariableError.VARIABLE_NOT_EXIST;
         }
         variables.removeIf(projectValue -> projectValue.getValue().getName().equals(varName));
+        markModified();
         return VariableError.OK;
     }
 
@@ -37,8 +37,8 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -52,17 +52,24 @@ public final class ProjectConfiguration {
     @JsonIgnore private List<Runnable> configurationChangedCallback = new ArrayList<>();
 
     /* input variables: the compatibilities data from the project instance. These variables must be set before calculation */
-    @JsonIgnore private Map<ProjectDevice, Map<Action, Map<Parameter, Constraint>>> actionCompatibility;
-    @JsonIgnore private Map<ProjectDevice, Map<Condition, Map<Parameter, Constraint>>> conditionCompatibility;
-    @JsonIgnore private Map<ProjectDevice, Set<Value>> valueCompatibility;
+    @JsonIgnore @Getter(AccessLevel.PACKAGE) private Map<ProjectDevice, Map<Action, Map<Parameter, Constraint>>> actionCompatibility;
+    @JsonIgnore @Getter(AccessLevel.PACKAGE) private Map<ProjectDevice, Map<Condition, Map<Parameter, Constraint>>> conditionCompatibility;
+    @JsonIgnore @Getter(AccessLevel.PACKAGE) private Map<ProjectDevice, Set<Value>> valueCompatibility;
 
     /* state variables: the variable used in calculation and cached the sub-solution */
     @JsonIgnore private ObservableList<ProjectDevice> devices = FXCollections.observableArrayList();
-    @JsonIgnore private FilteredList<ProjectDevice> nonControllerDevices = new FilteredList<>(devices, projectDevice -> projectDevice != CONTROLLER);
+    @JsonIgnore @Getter(AccessLevel.PACKAGE) private FilteredList<ProjectDevice> nonControllerDevices = new FilteredList<>(devices, projectDevice -> projectDevice != CONTROLLER);
     @JsonIgnore private Set<Connection> remainingConnectionProvide = new HashSet<>();
     @JsonIgnore private Map<ProjectDevice, Set<String>> usedRefPin = new HashMap<>();
     @JsonIgnore private List<CloudPlatform> remainingCloudPlatform = new ArrayList<>();
 
+    /* cache variables: the platform used in the last calculation and the per-device result of the action/condition/value checking */
+    @JsonIgnore private Platform compatibilityPlatform;
+    @JsonIgnore private final Map<ProjectDevice, DeviceCompatibilityCache> deviceCompatibilityCache = new HashMap<>();
+    /* connections of each candidate actual device bound to a project device. The entries are kept by this configuration
+       (not the shared device library) until the project device is removed so they are released with the project */
+    @JsonIgnore private final Map<ProjectDevice, Map<ActualDevice, ActualDevice.BoundConnection>> boundConnectionMap = new HashMap<>();
+
     /* output variables: compatible devices and pin/port connections */
     @JsonIgnore @Getter private Map<ProjectDevice, SortedMap<CompatibleDevice, DeviceMappingResult>> compatibleDevicesSelectableMap;
     @JsonIgnore @Getter private Map<ProjectDevice, Map<ActualDevice, SortedMap<Connection, List<Connection>>>> compatibleConnectionMap;
@@ -108,6 +115,10 @@ public final class ProjectConfiguration {
         }
         deviceMap = new HashMap<>(oldConfiguration.deviceMap);
         identicalDeviceMap = new HashMap<>(oldConfiguration.identicalDeviceMap);
+        // the bound connections are immutable so they can be shared with the old configuration
+        for (var entry : oldConfiguration.boundConnectionMap.entrySet()) {
+            boundConnectionMap.put(entry.getKey(), new IdentityHashMap<>(entry.getValue()));
+        }
         deviceConnections = new HashMap<>();
         for (var entry : oldConfiguration.deviceConnections.entrySet()) {
             deviceConnections.put(entry.getKey(), new DeviceConnection(entry.getValue()));
@@ -128,6 +139,18 @@ public final class ProjectConfiguration {
         // TODO: should we copy or recalculate other fields
     }
 
+    /**
+     * Get the connections of the actual device bound to the project device. The result is cached until the project
+     * device is removed from the project.
+     * @param projectDevice the project device
+     * @param actualDevice the actual device which is (or is a candidate to be) assigned to the project device
+     * @return the bound connections
+     */
+    ActualDevice.BoundConnection getBoundConnection(ProjectDevice projectDevice, ActualDevice actualDevice) {
+        return boundConnectionMap.computeIfAbsent(projectDevice, device -> new IdentityHashMap<>())
+                .computeIfAbsent(actualDevice, device -> device.bindConnection(projectDevice));
+    }
+
     public ProjectConfigurationStatus getStatus() {
         return status.get();
     }
@@ -195,7 +218,7 @@ public final class ProjectConfiguration {
                 }
 
                 // chosen device has no connection
-                if (actualDevice.getConnectionConsumeByOwnerDevice(projectDevice).isEmpty()) {
+                if (getBoundConnection(projectDevice, actualDevice).getConnectionConsume().isEmpty()) {
                     continue;
                 }
 
@@ -242,15 +265,27 @@ public final class ProjectConfiguration {
                              Map<ProjectDevice, Map<Condition, Map<Parameter, Constraint>>> conditionCompatibility,
                              Map<ProjectDevice, Set<Value>> valueCompatibility,
                              List<ProjectDevice> allDevices) {
+        List<ProjectDevice> newDevices = new ArrayList<>(allDevices);
+        newDevices.add(CONTROLLER);
+
+        // skip the recalculation when none of its inputs has changed since the last update e.g. the user rename a scene
+        // or edit a parameter without changing the constraint of the device
+        if (compatibleDevicesSelectableMap != null && compatibilityPlatform == getPlatform() && this.devices.equals(newDevices)
+                && Objects.equals(this.actionCompatibility, actionCompatibility)
+                && Objects.equals(this.conditionCompatibility, conditionCompatibility)
+                && Objects.equals(this.valueCompatibility, valueCompatibility)) {
+            return;
+        }
+
         this.actionCompatibility = actionCompatibility;
         this.conditionCompatibility = conditionCompatibility;
         this.valueCompatibility = valueCompatibility;
 
-        this.devices.clear();
-        this.devices.addAll(allDevices);
-        this.devices.add(CONTROLLER);
+        this.devices.setAll(newDevices);
 
         this.identicalDeviceMap.entrySet().removeIf(entry -> !this.devices.contains(entry.getKey()));
+        this.deviceCompatibilityCache.keySet().retainAll(this.devices);
+        this.boundConnectionMap.keySet().retainAll(this.devices);
 
         generateDeviceSelectableMapAndConnection();
         updateStatusProperty();
@@ -268,14 +303,14 @@ public final class ProjectConfiguration {
 
         Map<ProjectDevice, SortedMap<CompatibleDevice, DeviceMappingResult>> deviceSelectableMap = new HashMap<>();
         Map<ProjectDevice, Map<ActualDevice, SortedMap<Connection, List<Connection>>>> deviceConnectionMap = new HashMap<>();
+        compatibilityPlatform = getPlatform();
 
         /* add all device that is the same generic with "OK" mapping result */
         for (ProjectDevice device: nonControllerDevices) {
             SortedMap<CompatibleDevice, DeviceMappingResult> selectable;
             if (getController() != null) {
-                selectable = DeviceLibrary.INSTANCE.getActualDevice(getPlatform())
+                selectable = DeviceLibrary.INSTANCE.getActualDevice(getPlatform(), device.getGenericDevice())
                         .stream()
-                        .filter(actualDevice -> actualDevice.getCompatibilityMap().containsKey(device.getGenericDevice()))
                         .collect(Collectors.toMap(CompatibleDevice::new, o->DeviceMappingResult.OK, (o1, o2)->{throw new IllegalStateException("");}, TreeMap::new));
                 getController().getIntegratedDevices().forEach(integratedActualDevice -> {
                     if (integratedActualDevice.getCompatibilityMap().containsKey(device.getGenericDevice())) {
@@ -387,7 +422,8 @@ public final class ProjectConfiguration {
                     if (deviceMap.containsKey(projectDevice) && deviceMap.get(projectDevice) == actualDevice) {
                         currentConnection = deviceConnections.getOrDefault(projectDevice, DeviceConnection.NOT_CONNECTED);
                     }
-                    DeviceConnectionResult result = DeviceConnectionLogic.generatePossibleDeviceConnection(remainingConnectionProvide, usedRefPin, projectDevice, actualDevice, currentConnection, false);
+                    DeviceConnectionResult result = DeviceConnectionLogic.generatePossibleDeviceConnection(remainingConnectionProvide, usedRefPin, projectDevice,
+                            getBoundConnection(projectDevice, actualDevice).getConnectionConsume(), currentConnection, false);
                     if (result.getStatus() == DeviceConnectionResultStatus.ERROR) {
                         selectable.replace(compatibleDevice, DeviceMappingResult.NO_AVAILABLE_PIN_PORT);
                     }
@@ -462,34 +498,51 @@ public final class ProjectConfiguration {
         return DeviceMappingResult.OK;
     }
 
+    private DeviceMappingResult checkActionConditionValueCompatibility(ProjectDevice device, ActualDevice actualDevice) {
+        DeviceMappingResult result = checkActionCompatibility(device, actualDevice);
+        if (result == DeviceMappingResult.OK) {
+            result = checkConditionCompatibility(device, actualDevice);
+        }
+        if (result == DeviceMappingResult.OK) {
+            result = checkValueCompatibility(device, actualDevice);
+        }
+        return result;
+    }
+
     private void setFlagToDeviceIfActionConditionValueIsIncompatible(Map<ProjectDevice, SortedMap<CompatibleDevice, DeviceMappingResult>> deviceSelectableMap) {
         /* set reason for incompatible actual device */
-        for (ProjectDevice device: this.actionCompatibility.keySet()) {
-            var selectable = deviceSelectableMap.get(device);
-            for (CompatibleDevice compatibleDevice: selectable.keySet()) {
-                if (selectable.get(compatibleDevice) == DeviceMappingResult.OK && compatibleDevice.getActualDevice().isPresent()) {
-                    ActualDevice actualDevice = compatibleDevice.getActualDevice().get();
-                    selectable.put(compatibleDevice, checkActionCompatibility(device, actualDevice));
-                }
+        for (ProjectDevice device: this.nonControllerDevices) {
+            // reuse result from the previous calculation if the action, condition and value used by this device haven't changed
+            DeviceCompatibilityCache cache = deviceCompatibilityCache.get(device);
+            if (cache == null || !cache.isValid(actionCompatibility.get(device), conditionCompatibility.get(device), valueCompatibility.get(device))) {
+                cache = new DeviceCompatibilityCache(actionCompatibility.get(device), conditionCompatibility.get(device), valueCompatibility.get(device));
+                deviceCompatibilityCache.put(device, cache);
             }
-        }
-        for (ProjectDevice device: this.conditionCompatibility.keySet()) {
             var selectable = deviceSelectableMap.get(device);
             for (CompatibleDevice compatibleDevice: selectable.keySet()) {
                 if (selectable.get(compatibleDevice) == DeviceMappingResult.OK && compatibleDevice.getActualDevice().isPresent()) {
                     ActualDevice actualDevice = compatibleDevice.getActualDevice().get();
-                    selectable.put(compatibleDevice, checkConditionCompatibility(device, actualDevice));
+                    selectable.put(compatibleDevice, cache.getResult().computeIfAbsent(actualDevice, a -> checkActionConditionValueCompatibility(device, a)));
                 }
             }
         }
-        for (ProjectDevice device: this.valueCompatibility.keySet()) {
-            var selectable = deviceSelectableMap.get(device);
-            for (CompatibleDevice compatibleDevice: selectable.keySet()) {
-                if (selectable.get(compatibleDevice) == DeviceMappingResult.OK && compatibleDevice.getActualDevice().isPresent()) {
-                    ActualDevice actualDevice = compatibleDevice.getActualDevice().get();
-                    selectable.put(compatibleDevice, checkValueCompatibility(device, actualDevice));
-                }
-            }
+    }
+
+    private static class DeviceCompatibilityCache {
+        private final Map<Action, Map<Parameter, Constraint>> actionCompatibility;
+        private final Map<Condition, Map<Parameter, Constraint>> conditionCompatibility;
+        private final Set<Value> valueCompatibility;
+        @Getter private final Map<ActualDevice, DeviceMappingResult> result = new IdentityHashMap<>();
+
+        DeviceCompatibilityCache(Map<Action, Map<Parameter, Constraint>> actionCompatibility, Map<Condition, Map<Parameter, Constraint>> conditionCompatibility, Set<Value> valueCompatibility) {
+            this.actionCompatibility = actionCompatibility;
+            this.conditionCompatibility = conditionCompatibility;
+            this.valueCompatibility = valueCompatibility;
+        }
+
+        boolean isValid(Map<Action, Map<Parameter, Constraint>> actionCompatibility, Map<Condition, Map<Parameter, Constraint>> conditionCompatibility, Set<Value> valueCompatibility) {
+            return Objects.equals(this.actionCompatibility, actionCompatibility) && Objects.equals(this.conditionCompatibility, conditionCompatibility)
+                    && Objects.equals(this.valueCompatibility, valueCompatibility);
         }
     }
 
@@ -501,7 +554,7 @@ public final class ProjectConfiguration {
             deviceMap.put(CONTROLLER, controller);
             remainingConnectionProvide.clear();
             remainingCloudPlatform.clear();
-            remainingConnectionProvide.addAll(controller.getConnectionProvideByOwnerDevice(CONTROLLER));
+            remainingConnectionProvide.addAll(getBoundConnection(CONTROLLER, controller).getConnectionProvide());
             remainingCloudPlatform.addAll(controller.getCloudPlatformSourceCodeLibrary().keySet());
             usedRefPin.clear();
 
@@ -582,7 +635,7 @@ public final class ProjectConfiguration {
 
             if (actualDevice instanceof IntegratedActualDevice) {
                 // assign if possible
-                List<Connection> allConnectionConsume = new ArrayList<>(actualDevice.getConnectionConsumeByOwnerDevice(projectDevice));
+                List<Connection> allConnectionConsume = new ArrayList<>(getBoundConnection(projectDevice, actualDevice).getConnectionConsume());
                 for (Connection connectionConsume: allConnectionConsume) {
                     Map<ActualDevice, SortedMap<Connection, List<Connection>>> actualDeviceListMap = compatibleConnectionMap.get(projectDevice);
                     if (!actualDeviceListMap.containsKey(actualDevice)) {
@@ -655,7 +708,7 @@ public final class ProjectConfiguration {
 
         if (deviceMap.get(CONTROLLER) != null) {
             ActualDevice controller = deviceMap.get(CONTROLLER);
-            remainingConnectionProvide.addAll(controller.getConnectionProvideByOwnerDevice(CONTROLLER));
+            remainingConnectionProvide.addAll(getBoundConnection(CONTROLLER, controller).getConnectionProvide());
         }
         generateDeviceSelectableMapAndConnection();
         updateStatusProperty();
@@ -682,7 +735,7 @@ public final class ProjectConfiguration {
             SortedMap<Connection, Connection> consumerProviderConnectionMap = new TreeMap<>();
             SortedMap<Connection, List<PinFunction>> providerFunctionUsed = new TreeMap<>();
             ActualDevice actualDevice = deviceMap.get(projectDevice);
-            for (Connection connectionConsume: actualDevice.getConnectionConsumeByOwnerDevice(projectDevice)) {
+            for (Connection connectionConsume: getBoundConnection(projectDevice, actualDevice).getConnectionConsume()) {
                 consumerProviderConnectionMap.put(connectionConsume, null);
                 providerFunctionUsed.put(providerConnection, new ArrayList<>());
             }
@@ -867,133 +920,21 @@ public final class ProjectConfiguration {
         return useHwSerial;
     }
 
-    private Comparator<Connection> getLessChoiceOfConnectionComparator(ProjectDevice projectDevice) {
-        return Comparator.comparingInt((Connection connection) -> {
-                    if (getConnection(projectDevice, connection) != null) {
-                        return 0;
-                    } else {
-                        ActualDevice actualDevice = deviceMap.get(projectDevice);
-                        Map<ActualDevice, SortedMap<Connection, List<Connection>>> actualDeviceListMap = compatibleConnectionMap.get(projectDevice);
-                        if (!actualDeviceListMap.containsKey(actualDevice)) {
-                            return 0;
-                        }
-                        Map<Connection, List<Connection>> possibleDeviceConnection = actualDeviceListMap.get(actualDevice);
-                        return possibleDeviceConnection.get(connection).size();
-                    }
-                }).thenComparing(Connection::getName);
+    /**
+     * Create a solver to assign the actual device and the port of every unassigned device. The solver must be created
+     * on the JavaFX application thread but {@link DeviceAssignmentSolver#solve()} can be called from any thread.
+     * @param timeBudget the maximum time spent searching for the best assignment
+     * @return the solver
+     */
+    public DeviceAssignmentSolver createDeviceAssignmentSolver(Duration timeBudget) {
+        return new DeviceAssignmentSolver(this, timeBudget);
     }
 
-
     public ProjectMappingResult autoAssignDevices() {
-        if (getController() == null) {
-            return ProjectMappingResult.NO_MCU_SELECTED;
-        }
-
-        List<ProjectDevice> unassignedDevices = new ArrayList<>(devices);
-        unassignedDevices.remove(CONTROLLER);
-        unassignedDevices.removeAll(identicalDeviceMap.keySet());
-        deviceConnections.forEach((projectDevice, deviceConnection) -> {
-            if (deviceConnection != DeviceConnection.NOT_CONNECTED &&
-                    deviceConnection.getConsumerProviderConnections().values().stream().noneMatch(Objects::isNull)) {
-                unassignedDevices.remove(projectDevice);
-            }
-        });
-        while (!unassignedDevices.isEmpty()) {
-            // assign the identical device if possible.
-            Map<ProjectDevice, List<ProjectDevice>> identicalDeviceMap = compatibleDevicesSelectableMap.entrySet().stream()
-                    .filter(entry -> unassignedDevices.contains(entry.getKey()))    // unassigned device only
-                    .filter(entry -> !deviceMap.containsKey(entry.getKey()) || deviceMap.get(entry.getKey()) == null)
-                    .collect(Collectors.toMap(Map.Entry::getKey,
-                            entry -> entry.getValue().keySet().stream()
-                                    .filter(compatibleDevice -> compatibleDevice.getProjectDevice().isPresent())
-                                    .map(compatibleDevice -> compatibleDevice.getProjectDevice().get())
-                                    .collect(Collectors.toList())));
-            identicalDeviceMap.forEach((projectDevice, projectDevices) -> {
-                if (!projectDevices.isEmpty()) {
-                    setIdenticalDevice(projectDevice, projectDevices.get(0));
-                    unassignedDevices.remove(projectDevice);
-                }
-            });
-
-            // assign the connection to the selected actual device.
-            List<ProjectDevice> tempMap = new ArrayList<>(unassignedDevices);
-            for (ProjectDevice projectDevice: tempMap) {
-                if (deviceMap.containsKey(projectDevice) && deviceMap.get(projectDevice) != null) {
-                    if (deviceConnections.containsKey(projectDevice) && deviceConnections.get(projectDevice) != DeviceConnection.NOT_CONNECTED && deviceConnections.get(projectDevice).getConsumerProviderConnections().values().stream().allMatch(Objects::nonNull)) {
-                        unassignedDevices.remove(projectDevice);
-                        continue;
-                    }
-                    if (!compatibleDevicesSelectableMap.containsKey(projectDevice)) {
-                        throw new IllegalStateException("Cannot have project device that is not in the compatibility map");
-                    }
-                    ActualDevice actualDevice = deviceMap.get(projectDevice);
-                    List<Connection> allConnectionConsume = new ArrayList<>(actualDevice.getConnectionConsumeByOwnerDevice(projectDevice));
-                    while (!allConnectionConsume.isEmpty()) {
-                        Connection connectionConsume = allConnectionConsume.stream().min(getLessChoiceOfConnectionComparator(projectDevice)).orElse(null);
-                        // Do not replace the connection that is already assigned by user.
-                        if (getConnection(projectDevice, connectionConsume) != null) {
-                            allConnectionConsume.remove(connectionConsume);
-                            continue;
-                        }
-                        Map<ActualDevice, SortedMap<Connection, List<Connection>>> actualDeviceListMap = compatibleConnectionMap.get(projectDevice);
-                        if (!actualDeviceListMap.containsKey(actualDevice)) {
-                            return ProjectMappingResult.NO_CONNECTION_FOR_DEVICE;
-                        }
-                        Map<Connection, List<Connection>> possibleDeviceConnection = actualDeviceListMap.get(actualDevice);
-                        if (possibleDeviceConnection.get(connectionConsume).isEmpty()) {
-                            return ProjectMappingResult.CANT_ASSIGN_PORT;
-                        } else {
-                            VoltageLevel operatingVoltage = possibleDeviceConnection.get(connectionConsume).stream()
-                                    .flatMap(connection -> connection.getPins().stream())
-                                    .map(Pin::getVoltageLevel)
-                                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
-                                    .entrySet()
-                                    .stream()
-                                    .max(Map.Entry.comparingByValue())
-                                    .map(Map.Entry::getKey)
-                                    .orElse(null);
-                            possibleDeviceConnection.get(connectionConsume).sort((connection1, connection2) -> {
-                                long countCorrect1 = connection1.getPins().stream().filter(pin -> pin.getVoltageLevel() == operatingVoltage).count();
-                                long countCorrect2 = connection2.getPins().stream().filter(pin -> pin.getVoltageLevel() == operatingVoltage).count();
-                                return (int) (countCorrect2 - countCorrect1);
-                            });
-                            setConnection(projectDevice, connectionConsume, possibleDeviceConnection.get(connectionConsume).get(0));
-                            allConnectionConsume.remove(connectionConsume);
-                        }
-                    }
-                    unassignedDevices.remove(projectDevice);
-                }
-            }
-
-            // get the unassigned device that has minimum remaining value.
-            Optional<ProjectDevice> mrvProjectDevice = unassignedDevices.stream().min((projectDevice1, projectDevice2) -> {
-                SortedMap<CompatibleDevice, DeviceMappingResult> possibleChoice1 = compatibleDevicesSelectableMap.get(projectDevice1);
-                int possibleChoiceCount = 0;
-                for (CompatibleDevice compatibleDevice: possibleChoice1.keySet()) {
-                    if (possibleChoice1.get(compatibleDevice) == DeviceMappingResult.OK && compatibleDevice.getActualDevice().isPresent()) {
-                        possibleChoiceCount += 1;
-                    }
-                }
-                SortedMap<CompatibleDevice, DeviceMappingResult> possibleChoice2 = compatibleDevicesSelectableMap.get(projectDevice2);
-                for (CompatibleDevice compatibleDevice: possibleChoice2.keySet()) {
-                    if (possibleChoice1.get(compatibleDevice) == DeviceMappingResult.OK && compatibleDevice.getActualDevice().isPresent()) {
-                        possibleChoiceCount -= 1;
-                    }
-                }
-                return possibleChoiceCount;
-            });
-            if (mrvProjectDevice.isPresent()) {
-                ProjectDevice projectDevice = mrvProjectDevice.get();
-                SortedMap<CompatibleDevice, DeviceMappingResult> deviceMappingResultSortedMap = compatibleDevicesSelectableMap.get(projectDevice);
-                Optional<CompatibleDevice> compatibleDeviceOptional = deviceMappingResultSortedMap.entrySet().stream().filter(entry -> entry.getValue() == DeviceMappingResult.OK).map(Map.Entry::getKey).findFirst();
-                if (compatibleDeviceOptional.isEmpty()) {
-                    return ProjectMappingResult.NO_SUPPORT_DEVICE;
-                } else {
-                    setActualDevice(projectDevice, compatibleDeviceOptional.get().getActualDevice().orElseThrow());
-                }
-            }
-        }
-        return ProjectMappingResult.OK;
+        DeviceAssignmentSolver solver = createDeviceAssignmentSolver(DeviceAssignmentSolver.DEFAULT_TIME_BUDGET);
+        ProjectMappingResult result = solver.solve();
+        solver.apply();
+        return result;
     }
 
     public Set<CloudPlatform> getCloudPlatformProvide() {
@@ -21,7 +21,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.actual.*;
 import io.makerplayground.device.shared.NumberWithUnit;
@@ -36,16 +35,7 @@ import java.util.*;
 
 public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectConfiguration> {
 
-    private final List<ProjectDevice> deviceList;
-    private final Project project;
-    ObjectMapper mapper = new ObjectMapper();
-
-    public ProjectConfigurationDeserializer(Project project) {
-        this.project = project;
-        this.deviceList = project.getUnmodifiableProjectDevice();
-    }
-
-    private ProjectDevice searchProjectDevice(String name) {
+    private ProjectDevice searchProjectDevice(List<ProjectDevice> deviceList, String name) {
         if (ProjectDevice.CONTROLLER.getName().equals(name)) {
             return ProjectDevice.CONTROLLER;
         }
@@ -58,7 +48,9 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
 
     @Override
     public ProjectConfiguration deserialize(JsonParser jsonParser, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-        JsonNode node = mapper.readTree(jsonParser);
+        Project project = ProjectDeserializer.getProject(ctxt);
+        List<ProjectDevice> deviceList = project.getUnmodifiableProjectDevice();
+        JsonNode node = ctxt.readTree(jsonParser);
         Platform platform = Platform.valueOf(node.get("platform").asText());
 
         Map<ProjectDevice, String> tempIntegratedDeviceMap = new HashMap<>();
@@ -68,7 +60,7 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
         for (JsonNode deviceMapNode: node.get("deviceMap")) {
             String projectDeviceName = deviceMapNode.get("projectDevice").asText();
             String actualDeviceId = deviceMapNode.get("actualDevice").asText();
-            ProjectDevice projectDevice = searchProjectDevice(projectDeviceName);
+            ProjectDevice projectDevice = searchProjectDevice(deviceList, projectDeviceName);
             if (deviceMapNode.get("isIntegrated").asBoolean()) {
                 tempIntegratedDeviceMap.put(projectDevice, actualDeviceId);
             } else {
@@ -92,7 +84,7 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
         JsonNode devicePropertyValueMapNode = node.get("devicePropertyValueMap");
         for (JsonNode devicePropertyValueEntryNode: devicePropertyValueMapNode) {
             String projectDeviceName = devicePropertyValueEntryNode.get("projectDevice").asText();
-            ProjectDevice projectDevice = searchProjectDevice(projectDeviceName);
+            ProjectDevice projectDevice = searchProjectDevice(deviceList, projectDeviceName);
             Map<Property, Object> propertyValueMap = new HashMap<>();
             for (JsonNode propertyValueNode: devicePropertyValueEntryNode.get("propertyValue")) {
                 String propertyName = propertyValueNode.get("property").asText();
@@ -166,38 +158,44 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
         for (JsonNode identicalDeviceMapNode: node.get("identicalDeviceMap")) {
             String projectDeviceName = identicalDeviceMapNode.get("projectDevice").asText();
             String identicalDeviceName = identicalDeviceMapNode.get("identicalDevice").asText();
-            ProjectDevice projectDevice = searchProjectDevice(projectDeviceName);
-            ProjectDevice identicalDevice = searchProjectDevice(identicalDeviceName);
+            ProjectDevice projectDevice = searchProjectDevice(deviceList, projectDeviceName);
+            ProjectDevice identicalDevice = searchProjectDevice(deviceList, identicalDeviceName);
             identicalDeviceMap.put(projectDevice, identicalDevice);
         }
 
+        // the connections are taken from the bound connections cached by the configuration so that the connections in the
+        // loaded device connection are the same instances used by the configuration when it is recalculated
+        ProjectConfiguration configuration = new ProjectConfiguration(platform);
+
         /* devicePinPortConnections */
         Map<ProjectDevice, DeviceConnection> deviceConnectionMap = new HashMap<>();
         for (JsonNode deviceConnectionNode: node.get("deviceConnection")) {
             String projectDeviceName = deviceConnectionNode.get("projectDevice").asText();
-            ProjectDevice projectDevice = searchProjectDevice(projectDeviceName);
+            ProjectDevice projectDevice = searchProjectDevice(deviceList, projectDeviceName);
 
             SortedMap<Connection, Connection> consumerProviderConnection = new TreeMap<>();
             for (JsonNode connectionConsumerProviderNode: deviceConnectionNode.get("consumerProviderConnection")) {
                 String consumerProjectDeviceName = connectionConsumerProviderNode.get("consumeConnectionOwner").asText();
                 String consumePortName = connectionConsumerProviderNode.get("consumeConnectionName").asText();
-                ProjectDevice consumerProjectDevice = searchProjectDevice(consumerProjectDeviceName);
+                ProjectDevice consumerProjectDevice = searchProjectDevice(deviceList, consumerProjectDeviceName);
                 ActualDevice consumerActualDevice = deviceMap.get(consumerProjectDevice);
-                Optional<Connection> connectionConsume = consumerActualDevice.getConnectionConsumeByOwnerDevice(consumerProjectDevice, consumePortName);
+                Connection connectionConsume = configuration.getBoundConnection(consumerProjectDevice, consumerActualDevice).getConnectionConsumeByName().get(consumePortName);
+                if (connectionConsume == null) {
+                    throw new IllegalStateException("The required connection is not in the project");
+                }
 
                 if (connectionConsumerProviderNode.has("provideConnectionOwner") && connectionConsumerProviderNode.has("provideConnectionName")) {
                     String providerProjectDeviceName = connectionConsumerProviderNode.get("provideConnectionOwner").asText();
                     String providerPinName = connectionConsumerProviderNode.get("provideConnectionName").asText();
-                    ProjectDevice providerProjectDevice = searchProjectDevice(providerProjectDeviceName);
+                    ProjectDevice providerProjectDevice = searchProjectDevice(deviceList, providerProjectDeviceName);
                     ActualDevice providerActualDevice = deviceMap.get(providerProjectDevice);
-                    Optional<Connection> connectionProvide = providerActualDevice.getConnectionProvideByOwnerDevice(providerProjectDevice, providerPinName);
-
-                    if (connectionConsume.isEmpty() || connectionProvide.isEmpty()) {
+                    Connection connectionProvide = configuration.getBoundConnection(providerProjectDevice, providerActualDevice).getConnectionProvideByName().get(providerPinName);
+                    if (connectionProvide == null) {
                         throw new IllegalStateException("The required connection is not in the project");
                     }
-                    consumerProviderConnection.put(connectionConsume.get(), connectionProvide.get());
+                    consumerProviderConnection.put(connectionConsume, connectionProvide);
                 } else {
-                    consumerProviderConnection.put(connectionConsume.get(), null);
+                    consumerProviderConnection.put(connectionConsume, null);
                 }
             }
 
@@ -207,16 +205,16 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
 
                 String providerProjectDeviceName = providerFunctionNode.get("provideConnectionOwner").asText();
                 String providerPinName = providerFunctionNode.get("provideConnectionName").asText();
-                ProjectDevice providerProjectDevice = searchProjectDevice(providerProjectDeviceName);
+                ProjectDevice providerProjectDevice = searchProjectDevice(deviceList, providerProjectDeviceName);
                 ActualDevice providerActualDevice = deviceMap.get(providerProjectDevice);
-                Optional<Connection> connectionProvide = providerActualDevice.getConnectionProvideByOwnerDevice(providerProjectDevice, providerPinName);
-                if (connectionProvide.isEmpty()) {
+                Connection connectionProvide = configuration.getBoundConnection(providerProjectDevice, providerActualDevice).getConnectionProvideByName().get(providerPinName);
+                if (connectionProvide == null) {
                     throw new IllegalStateException("The required connection is not in the project");
                 }
                 for (JsonNode pinFunctionNode : providerFunctionNode.get("pinFunctions")) {
                     pinFunctions.add(PinFunction.valueOf(pinFunctionNode.asText()));
                 }
-                providerFunction.put(connectionProvide.get(), pinFunctions);
+                providerFunction.put(connectionProvide, pinFunctions);
             }
             deviceConnectionMap.put(projectDevice, new DeviceConnection(consumerProviderConnection, providerFunction));
         }
@@ -233,7 +231,6 @@ public class ProjectConfigurationDeserializer extends JsonDeserializer<ProjectCo
             cloudParameterMap.put(cloudPlatform, parameterMap);
         }
 
-        ProjectConfiguration configuration = new ProjectConfiguration(platform);
         project.setProjectConfiguration(configuration);
         project.calculateCompatibility();
 
@@ -17,115 +17,224 @@
 package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Created by USER on 14-Jul-17.
  */
 public class ProjectDeserializer extends JsonDeserializer<Project> {
 
-    final ObjectMapper mapper = new ObjectMapper();
+    /* name of the DeserializationContext attribute that holds the project being deserialized */
+    static final String PROJECT_ATTRIBUTE = "io.makerplayground.project";
 
-    @Override
-    public Project deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-
-        Project project = new Project();
-        Begin defaultBegin = project.getBegin().get(0);
-
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(ProjectConfiguration.class, new ProjectConfigurationDeserializer(project));
-        module.addDeserializer(UserSetting.class, new UserSettingDeserializer(project));
-        module.addDeserializer(Scene.class, new SceneDeserializer(project));
-        module.addDeserializer(Condition.class, new ConditionDeserializer(project));
-        module.addDeserializer(Delay.class, new DelayDeserializer(project));
-
-        mapper.registerModule(module);
+    /**
+     * Get the project being deserialized for the deserializers of the objects that belong to the project
+     */
+    static Project getProject(DeserializationContext deserializationContext) {
+        Project project = (Project) deserializationContext.getAttribute(PROJECT_ATTRIBUTE);
+        if (project == null) {
+            throw new IllegalStateException("This object can only be deserialized as a part of the project");
+        }
+        return project;
+    }
 
-        String projectName = node.get("projectName").asText();
-        project.setProjectName(projectName);
+    /* fields in the order they are written by ProjectSerializer which is also the order they must be bound in as the
+       nodes refer to the devices and the variables, the lines refer to the nodes and the configuration to the devices */
+    private static final List<String> FIELD_ORDER = List.of("projectName", "devices", "variables", "begins", "scenes"
+            , "conditions", "delays", "lines", "projectConfiguration");
+    private static final Set<String> OPTIONAL_FIELDS = Set.of("variables");
 
-        List<ProjectDevice> devices = mapper.readValue(node.get("devices").traverse(), new TypeReference<List<ProjectDevice>>() {});
-        if (devices.size() != devices.stream().map(ProjectDevice::getName).distinct().count()) {
-            throw new IllegalStateException("Cannot parse mp file because multiple devices share the same name.");
-        }
-        devices.forEach(project::addDevice);
-
-        for (JsonNode beginNode: node.get("begins")) {
-            Begin begin = new Begin(project);
-            begin.setName(beginNode.get("name").asText());
-            begin.setLeft(beginNode.get("left").asDouble());
-            begin.setTop(beginNode.get("top").asDouble());
-            project.addBegin(begin);
+    /**
+     * Bind each field of the project as soon as it has been read. A field that comes before a field it depends on is
+     * buffered and bound once its dependencies have been bound so the project is only read as a tree when the fields are
+     * not in the order written by {@link ProjectSerializer}.
+     */
+    @Override
+    public Project deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
+        ProjectReader projectReader = new ProjectReader(deserializationContext);
+        Map<String, TokenBuffer> earlyFields = new HashMap<>();
+        int nextField = 0;
+        try {
+            JsonToken token = jsonParser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                token = jsonParser.nextToken();
+            }
+            for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+                String fieldName = jsonParser.currentName();
+                jsonParser.nextToken();
+                int index = FIELD_ORDER.indexOf(fieldName);
+                if (index < nextField) {
+                    jsonParser.skipChildren();  // e.g. the project version which has been checked before
+                } else if (index > nextField) {
+                    TokenBuffer buffer = new TokenBuffer(jsonParser, deserializationContext);
+                    buffer.copyCurrentStructure(jsonParser);
+                    earlyFields.put(fieldName, buffer);
+                } else {
+                    projectReader.readField(fieldName, jsonParser);
+                    nextField++;
+                    // bind the fields that came too early once their dependencies are known
+                    while (nextField < FIELD_ORDER.size() && earlyFields.containsKey(FIELD_ORDER.get(nextField))) {
+                        readBufferedField(projectReader, FIELD_ORDER.get(nextField), earlyFields, jsonParser);
+                        nextField++;
+                    }
+                }
+            }
+            for (; nextField < FIELD_ORDER.size(); nextField++) {
+                String fieldName = FIELD_ORDER.get(nextField);
+                if (earlyFields.containsKey(fieldName)) {
+                    readBufferedField(projectReader, fieldName, earlyFields, jsonParser);
+                } else if (!OPTIONAL_FIELDS.contains(fieldName)) {
+                    throw new IllegalStateException("Cannot parse mp file because the field " + fieldName + " is missing.");
+                }
+            }
+        } finally {
+            projectReader.endBatch();
         }
-        project.removeBegin(defaultBegin);
+        return projectReader.project;
+    }
 
-        if (node.has("variables")) {
-            List<String> variableNames = mapper.readValue(node.get("variables").traverse(), new TypeReference<List<String>>() {});
-            variableNames.forEach(project::addVariable);
+    private static void readBufferedField(ProjectReader projectReader, String fieldName, Map<String, TokenBuffer> earlyFields
+            , JsonParser jsonParser) throws IOException {
+        try (JsonParser bufferParser = earlyFields.remove(fieldName).asParser(jsonParser.getCodec())) {
+            bufferParser.nextToken();
+            projectReader.readField(fieldName, bufferParser);
         }
+    }
 
-        List<Scene> scenes = mapper.readValue(node.get("scenes").traverse(), new TypeReference<List<Scene>>() {});
-        scenes.forEach(project::addScene);
+    /* state of a project being deserialized */
+    private static class ProjectReader {
+        private final DeserializationContext context;
+        private final Project project = new Project();
+        private final Begin defaultBegin = project.getBegin().get(0);
+        private final Set<String> deviceNames = new HashSet<>();
+        private boolean batchEnded;
 
-        List<Condition> conditions = mapper.readValue(node.get("conditions").traverse(), new TypeReference<List<Condition>>() {});
-        conditions.forEach(project::addCondition);
+        private ProjectReader(DeserializationContext context) {
+            this.context = context;
+            // the deserializers of the objects that belong to the project get the project from the context
+            context.setAttribute(PROJECT_ATTRIBUTE, project);
+            // defer the diagram checking and the compatibility calculation until every node and line has been added
+            project.beginBatch();
+        }
 
-        List<Delay> delays = mapper.readValue(node.get("delays").traverse(), new TypeReference<List<Delay>>() {});
-        delays.forEach(project::addDelay);
+        /**
+         * Bind the value at the current token of the parser to the project
+         */
+        private void readField(String fieldName, JsonParser parser) throws IOException {
+            switch (fieldName) {
+                case "projectName":
+                    project.setProjectName(parser.getValueAsString());
+                    break;
+                case "devices":
+                    readArray(parser, () -> {
+                        ProjectDevice device = context.readValue(parser, ProjectDevice.class);
+                        if (!deviceNames.add(device.getName())) {
+                            throw new IllegalStateException("Cannot parse mp file because multiple devices share the same name.");
+                        }
+                        project.addDevice(device);
+                    });
+                    break;
+                case "variables":
+                    readArray(parser, () -> project.addVariable(parser.getValueAsString()));
+                    break;
+                case "begins":
+                    readArray(parser, () -> {
+                        JsonNode beginNode = context.readTree(parser);
+                        Begin begin = new Begin(project);
+                        begin.setName(beginNode.get("name").asText());
+                        begin.setLeft(beginNode.get("left").asDouble());
+                        begin.setTop(beginNode.get("top").asDouble());
+                        project.addBegin(begin);
+                    });
+                    project.removeBegin(defaultBegin);
+                    break;
+                case "scenes":
+                    readArray(parser, () -> project.addScene(context.readValue(parser, Scene.class)));
+                    break;
+                case "conditions":
+                    readArray(parser, () -> project.addCondition(context.readValue(parser, Condition.class)));
+                    break;
+                case "delays":
+                    readArray(parser, () -> project.addDelay(context.readValue(parser, Delay.class)));
+                    break;
+                case "lines":
+                    readLines(parser);
+                    break;
+                case "projectConfiguration":
+                    // the configuration is set after the pending work of the batch has been performed
+                    endBatch();
+                    project.setProjectConfiguration(context.readValue(parser, ProjectConfiguration.class));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown field " + fieldName);
+            }
+        }
 
+        private void readLines(JsonParser parser) throws IOException {
+            // index the nodes by name once instead of searching every list for both ends of every line. A line can start
+            // from any node but can't end at a begin. When nodes of different types share the same name, the node of the
+            // type added later wins and the first node wins among nodes of the same type.
+            Map<String, NodeElement> destinationMap = new HashMap<>();
+            putNodesByName(destinationMap, project.getUnmodifiableScene());
+            putNodesByName(destinationMap, project.getUnmodifiableCondition());
+            putNodesByName(destinationMap, project.getUnmodifiableDelay());
+            Map<String, NodeElement> sourceMap = new HashMap<>();
+            putNodesByName(sourceMap, project.getBegin());
+            sourceMap.putAll(destinationMap);
 
-        for (JsonNode lineNode : node.get("lines")) {
-            NodeElement source = null;
-//            if (lineNode.get("source").asText().equals("begin")) {  // TODO: hard code
-//                source = begin;
-//            } else {
-            Optional<Begin> begin = project.getBegin(lineNode.get("source").asText());
-            if (begin.isPresent()) {
-                source = begin.get();
-            }
-            Optional<Scene> scene = project.getUnmodifiableScene(lineNode.get("source").asText());
-            if (scene.isPresent()) {
-                source = scene.get();
-            }
-            Optional<Condition> condition = project.getUnmodifiableCondition(lineNode.get("source").asText());
-            if (condition.isPresent()) {
-                source = condition.get();
-            }
-            Optional<Delay> delay = project.getUnmodifiableDelay(lineNode.get("source").asText());
-            if (delay.isPresent()) {
-                source = delay.get();
-            }
+            readArray(parser, () -> {
+                String source = null;
+                String destination = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.currentName();
+                    parser.nextToken();
+                    if (fieldName.equals("source")) {
+                        source = parser.getValueAsString();
+                    } else if (fieldName.equals("destination")) {
+                        destination = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                project.addLine(sourceMap.get(source), destinationMap.get(destination));
+            });
+        }
 
-            NodeElement destination = null;
-            Optional<Scene> s = project.getUnmodifiableScene(lineNode.get("destination").asText());
-            if (s.isPresent()) {
-                destination = s.get();
-            }
-            Optional<Condition> c = project.getUnmodifiableCondition(lineNode.get("destination").asText());
-            if (c.isPresent()) {
-                destination = c.get();
-            }
-            Optional<Delay> d = project.getUnmodifiableDelay(lineNode.get("destination").asText());
-            if (d.isPresent()) {
-                destination = d.get();
+        private void endBatch() {
+            if (!batchEnded) {
+                batchEnded = true;
+                project.endBatch();
             }
-            project.addLine(source, destination);
         }
+    }
 
-        ProjectConfiguration config = mapper.readValue(node.get("projectConfiguration").traverse(), ProjectConfiguration.class);
-        project.setProjectConfiguration(config);
+    private interface ElementReader {
+        void read() throws IOException;
+    }
 
-        return project;
+    /* call the element reader with the parser at the first token of each element of the array at the current token */
+    private static void readArray(JsonParser parser, ElementReader elementReader) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IllegalStateException("Cannot parse mp file because an array is expected at " + parser.currentName());
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            elementReader.read();
+        }
+    }
+
+    private static void putNodesByName(Map<String, NodeElement> map, List<? extends NodeElement> nodes) {
+        Map<String, NodeElement> nodesByName = new HashMap<>();
+        for (NodeElement nodeElement : nodes) {
+            nodesByName.putIfAbsent(nodeElement.getName(), nodeElement);
+        }
+        map.putAll(nodesByName);
     }
 
 //    public ProjectDevice deserializeProjectDevice(ObjectMapper mapper, JsonNode node) throws IOException {
@@ -21,7 +21,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.generic.GenericDevice;
 
@@ -30,8 +29,7 @@ import java.io.IOException;
 public class ProjectDeviceDeserializer extends JsonDeserializer<ProjectDevice> {
     @Override
     public ProjectDevice deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode node = mapper.readTree(jsonParser);
+        JsonNode node = deserializationContext.readTree(jsonParser);
 
         String name = node.get("name").asText();
         if (ProjectDevice.CONTROLLER.getName().equals(name)) {
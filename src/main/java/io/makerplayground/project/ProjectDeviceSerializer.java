@@ -18,7 +18,6 @@ package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
 
 import java.io.IOException;
@@ -27,7 +26,6 @@ public class ProjectDeviceSerializer extends JsonSerializer<ProjectDevice> {
 
     @Override
     public void serialize(ProjectDevice projectDevice, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
         jsonGenerator.writeStartObject();
 
         jsonGenerator.writeStringField("name", projectDevice.getName());
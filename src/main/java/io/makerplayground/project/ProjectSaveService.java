@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.makerplayground.util.JacksonMappers;
+import io.makerplayground.util.PathUtility;
+import javafx.application.Platform;
+import lombok.Data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Save the project without blocking the FX thread. The project is captured into an in-memory token buffer on the FX
+ * thread and the buffer is then serialized and written on a background thread to a temporary file which is flushed to
+ * the disk and renamed over the target file so the project file is never left half written.
+ *
+ * The service also writes the current project to a journal in the autosave directory periodically (only when the project
+ * has been modified since the last write) so that the unsaved work can be recovered after the program has crashed. Each
+ * running instance owns its own journal which is locked until the instance has been closed normally.
+ */
+public class ProjectSaveService {
+
+    private static final Path AUTOSAVE_DIRECTORY = Path.of(PathUtility.MP_WORKSPACE, "autosave");
+    private static final String JOURNAL_EXTENSION = ".mp";
+    private static final String PATH_EXTENSION = ".path";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final long AUTOSAVE_INTERVAL_SECONDS = 60;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Journal left by an instance of the program which wasn't closed normally
+     */
+    @Data
+    public static class RecoverableProject {
+        private final Path journalPath;
+        private final String originalFilePath;  // empty string if the project has never been saved
+        private final long lastModified;
+    }
+
+    private final Supplier<Project> projectSupplier;
+    private final Path autosaveDirectory;
+    private final ScheduledExecutorService executor;
+    private final String sessionId;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private Project lastJournalProject;
+    private long lastJournalRevision;
+    private boolean journalExisted;
+
+    /**
+     * @param projectSupplier supplier of the project currently opened which will be called on the FX thread
+     */
+    public ProjectSaveService(Supplier<Project> projectSupplier) {
+        this(projectSupplier, AUTOSAVE_DIRECTORY);
+    }
+
+    ProjectSaveService(Supplier<Project> projectSupplier, Path autosaveDirectory) {
+        this.projectSupplier = projectSupplier;
+        this.autosaveDirectory = autosaveDirectory;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ProjectSaveService");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sessionId = System.currentTimeMillis() + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Save the project to the file. This method must be called on the FX thread.
+     * @return future that is completed on the background thread after the file has been written
+     */
+    public CompletableFuture<Void> save(Project project, File file) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        long revision = project.getRevision();
+        TokenBuffer snapshot;
+        try {
+            snapshot = takeSnapshot(project);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        executor.execute(() -> {
+            try {
+                byte[] content = toBytes(snapshot);
+                writeAtomically(file.toPath(), content);
+                Platform.runLater(() -> project.markSaved(revision, content));
+                future.complete(null);
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public void startAutosave() {
+        try {
+            Files.createDirectories(autosaveDirectory);
+            // hold the lock until the program is closed so that other instances know that this journal is still in used
+            lockChannel = FileChannel.open(getSessionPath(LOCK_EXTENSION), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.tryLock();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        executor.scheduleWithFixedDelay(() -> Platform.runLater(this::autosave), AUTOSAVE_INTERVAL_SECONDS
+                , AUTOSAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /* called on the FX thread */
+    private void autosave() {
+        Project project = projectSupplier.get();
+        if (project == lastJournalProject && project.getRevision() == lastJournalRevision) {
+            return;
+        }
+        lastJournalProject = project;
+        lastJournalRevision = project.getRevision();
+
+        // the journal only needs to contain work that hasn't been saved to the project file
+        if (!project.hasUnsavedModification()) {
+            if (journalExisted) {
+                journalExisted = false;
+                executor.execute(this::deleteJournal);
+            }
+            return;
+        }
+
+        String filePath = project.getFilePath();
+        TokenBuffer snapshot;
+        try {
+            snapshot = takeSnapshot(project);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        journalExisted = true;
+        executor.execute(() -> {
+            try {
+                writeAtomically(getSessionPath(PATH_EXTENSION), filePath.getBytes(StandardCharsets.UTF_8));
+                writeAtomically(getSessionPath(JOURNAL_EXTENSION), toBytes(snapshot));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Stop the autosave and wait for every pending save to finish. This method should be called before the program exits.
+     * @param keepJournal true to keep the journal for recovery e.g. when the user wants to save the project but it
+     *                    couldn't be saved
+     */
+    public void shutdown(boolean keepJournal) {
+        executor.execute(() -> {
+            if (!keepJournal) {
+                deleteJournal();
+            }
+            try {
+                if (lock != null) {
+                    lock.release();
+                }
+                if (lockChannel != null) {
+                    lockChannel.close();
+                    Files.deleteIfExists(getSessionPath(LOCK_EXTENSION));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Warning: pending saves haven't finished");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Find the journals left by the instances of the program which weren't closed normally
+     * @return list of the journals sorted by the last modified time (latest first)
+     */
+    public static List<RecoverableProject> findRecoverableProjects() {
+        return findRecoverableProjects(AUTOSAVE_DIRECTORY);
+    }
+
+    static List<RecoverableProject> findRecoverableProjects(Path autosaveDirectory) {
+        if (!Files.isDirectory(autosaveDirectory)) {
+            return List.of();
+        }
+        List<RecoverableProject> result = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(autosaveDirectory)) {
+            for (Path journalPath : stream.filter(path -> path.toString().endsWith(JOURNAL_EXTENSION)).collect(Collectors.toList())) {
+                String id = getSessionId(journalPath);
+                if (isLocked(autosaveDirectory.resolve(id + LOCK_EXTENSION))) {
+                    continue;   // another instance is still running
+                }
+                Path path = autosaveDirectory.resolve(id + PATH_EXTENSION);
+                String originalFilePath = Files.exists(path) ? Files.readString(path) : "";
+                result.add(new RecoverableProject(journalPath, originalFilePath, Files.getLastModifiedTime(journalPath).toMillis()));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        result.sort(Comparator.comparingLong(RecoverableProject::getLastModified).reversed());
+        return result;
+    }
+
+    /**
+     * Load the project from the journal. The recovered project is compared with the original file instead of the journal
+     * so it is reported as modified until it has been saved.
+     */
+    public static Optional<Project> recover(RecoverableProject recoverableProject) {
+        Optional<Project> project = Project.loadProject(recoverableProject.getJournalPath().toFile());
+        project.ifPresent(p -> {
+            p.setFilePath(recoverableProject.getOriginalFilePath());
+            p.markRecovered();
+        });
+        return project;
+    }
+
+    public static void discard(RecoverableProject recoverableProject) {
+        Path journalPath = recoverableProject.getJournalPath();
+        String id = getSessionId(journalPath);
+        try {
+            Files.deleteIfExists(journalPath);
+            Files.deleteIfExists(journalPath.resolveSibling(id + PATH_EXTENSION));
+            Files.deleteIfExists(journalPath.resolveSibling(id + LOCK_EXTENSION));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteJournal() {
+        try {
+            Files.deleteIfExists(getSessionPath(JOURNAL_EXTENSION));
+            Files.deleteIfExists(getSessionPath(PATH_EXTENSION));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path getSessionPath(String extension) {
+        return autosaveDirectory.resolve(sessionId + extension);
+    }
+
+    private static String getSessionId(Path journalPath) {
+        String fileName = journalPath.getFileName().toString();
+        return fileName.substring(0, fileName.length() - JOURNAL_EXTENSION.length());
+    }
+
+    private static boolean isLocked(Path lockPath) {
+        if (!Files.exists(lockPath)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.WRITE)) {
+            FileLock fileLock = channel.tryLock();
+            if (fileLock == null) {
+                return true;
+            }
+            fileLock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true;    // locked by this instance
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /* must be called on the FX thread as the project is only modified on the FX thread */
+    static TokenBuffer takeSnapshot(Project project) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(JacksonMappers.JSON, false);
+        JacksonMappers.PROJECT_WRITER.writeValue(buffer, project);
+        return buffer;
+    }
+
+    /* the output is identical to ObjectMapper.writeValueAsBytes(project) so that the hash can be compared with the content
+       generated by Project.hasUnsavedModification() */
+    static byte[] toBytes(TokenBuffer snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JacksonMappers.JSON.getFactory().createGenerator(out)) {
+            snapshot.serialize(generator);
+        }
+        return out.toByteArray();
+    }
+
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path tempFile = directory.resolve("." + target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE
+                    , StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        // flush the directory entry so that the rename survives a power loss (not supported on Windows)
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
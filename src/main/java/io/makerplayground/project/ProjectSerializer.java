@@ -18,7 +18,6 @@ package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import io.makerplayground.version.ProjectVersionControl;
 
@@ -33,8 +32,6 @@ public class ProjectSerializer extends JsonSerializer<Project> {
 
     @Override
     public void serialize(Project project, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-
         jsonGenerator.writeStartObject();
 
         jsonGenerator.writeStringField("projectVersion", ProjectVersionControl.CURRENT_VERSION);
@@ -67,7 +64,7 @@ public class ProjectSerializer extends JsonSerializer<Project> {
 
         jsonGenerator.writeArrayFieldStart("devices");
         for(ProjectDevice device : project.getUnmodifiableProjectDevice()) {
-            mapper.writeValue(jsonGenerator, device);
+            serializerProvider.defaultSerializeValue(device, jsonGenerator);
         }
         jsonGenerator.writeEndArray();
 
@@ -89,19 +86,19 @@ public class ProjectSerializer extends JsonSerializer<Project> {
 
         jsonGenerator.writeArrayFieldStart("scenes");
         for(Scene scene : project.getUnmodifiableScene()) {
-            mapper.writeValue(jsonGenerator, scene);
+            serializerProvider.defaultSerializeValue(scene, jsonGenerator);
         }
         jsonGenerator.writeEndArray();
 
         jsonGenerator.writeArrayFieldStart("conditions");
         for(Condition condition : project.getUnmodifiableCondition()) {
-            mapper.writeValue(jsonGenerator, condition);
+            serializerProvider.defaultSerializeValue(condition, jsonGenerator);
         }
         jsonGenerator.writeEndArray();
 
         jsonGenerator.writeArrayFieldStart("delays");
         for(Delay delay : project.getUnmodifiableDelay()) {
-            mapper.writeValue(jsonGenerator, delay);
+            serializerProvider.defaultSerializeValue(delay, jsonGenerator);
         }
         jsonGenerator.writeEndArray();
 
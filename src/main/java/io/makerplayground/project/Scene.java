@@ -85,6 +85,7 @@ public class Scene extends NodeElement {
             throw new IllegalStateException("Device to be added is not a virtual device");
         }
         allSettings.add(new UserSetting(project, device, device.getGenericDevice().getAction().get(0)));
+        project.invalidateDiagram();
     }
 
     public void removeDevice(ProjectDevice device) {
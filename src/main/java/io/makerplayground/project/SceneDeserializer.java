@@ -17,33 +17,20 @@
 package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import java.io.IOException;
 import java.util.List;
 
 public class SceneDeserializer extends JsonDeserializer<Scene> {
-    private ObjectMapper mapper = new ObjectMapper();
-    private Project project;
-
-    SceneDeserializer(Project project) {
-        this.project = project;
-
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(UserSetting.class, new UserSettingDeserializer(project));
-        mapper.registerModule(module);
-    }
-
     @Override
     public Scene deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
-        JsonNode node = mapper.readTree(jsonParser);
+        Project project = ProjectDeserializer.getProject(deserializationContext);
+        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
         String name = node.get("name").asText();
-        List<UserSetting> settings = mapper.readValue(node.get("setting").traverse(), new TypeReference<List<UserSetting>>() {});
+        List<UserSetting> settings = UserSettingDeserializer.readUserSettings(node.get("setting"), jsonParser, deserializationContext);
 
         JsonNode positionNode = node.get("position");
         double top = positionNode.get("top").asDouble();
@@ -18,7 +18,6 @@ package io.makerplayground.project;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializerProvider;
 
 import java.io.IOException;
@@ -30,15 +29,13 @@ public class SceneSerializer extends JsonSerializer<Scene> {
 
     @Override
     public void serialize(Scene scene, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException {
-       ObjectMapper mapper = new ObjectMapper();
-
        jsonGenerator.writeStartObject();
 
        jsonGenerator.writeStringField("name",scene.getName());
 
        jsonGenerator.writeArrayFieldStart("setting");
        for (UserSetting setting : scene.getAllSettings()) {
-          mapper.writeValue(jsonGenerator, setting);
+          serializerProvider.defaultSerializeValue(setting, jsonGenerator);
        }
        jsonGenerator.writeEndArray();
 
@@ -19,7 +19,9 @@ package io.makerplayground.project;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.makerplayground.device.shared.Condition;
 import io.makerplayground.device.shared.*;
+import io.makerplayground.device.shared.constraint.Constraint;
 import io.makerplayground.device.shared.constraint.NumericConstraint;
+import io.makerplayground.generator.devicemapping.ProjectLogic;
 import io.makerplayground.project.VirtualProjectDevice.Memory;
 import io.makerplayground.project.expression.ConditionalExpression;
 import io.makerplayground.project.expression.Expression;
@@ -57,6 +59,8 @@ public class UserSetting {
     // TODO: previous implementation of allValueUsed ignore value from Memory device which is confusing and incorrect when the caller expect all values so we create a new property and retain old one for compatibility before refactoring in the future
     private ReadOnlyObjectWrapper<Map<ProjectDevice, Set<Value>>> allNonVirtualProjectDeviceValueUsed = new ReadOnlyObjectWrapper<>(Collections.emptyMap());
     private ReadOnlyObjectWrapper<Map<ProjectDevice, Set<Value>>> allValueUsed = new ReadOnlyObjectWrapper<>(Collections.emptyMap());
+    // constraint of each parameter which is lazily recalculated only after the parameter map has been changed
+    private Map<Parameter, Constraint> parameterConstraint;
 
     public UserSetting(Project project, ProjectDevice device, Action supportingAction) {
         this.project = project;
@@ -179,10 +183,21 @@ public class UserSetting {
             });
         }
 
-        parameterMap.addListener((InvalidationListener) observable -> updateAllValueUsed());
+        parameterMap.addListener((InvalidationListener) observable -> {
+            parameterConstraint = null;
+            updateAllValueUsed();
+        });
         expression.addListener((InvalidationListener) observable -> updateAllValueUsed());
         expressionEnable.addListener((InvalidationListener) observable -> updateAllValueUsed());
         updateAllValueUsed();
+
+        // notify the project after the listeners above have updated every derived value
+        InvalidationListener modificationListener = observable -> project.markModified();
+        this.action.addListener(modificationListener);
+        this.condition.addListener(modificationListener);
+        parameterMap.addListener(modificationListener);
+        expression.addListener(modificationListener);
+        expressionEnable.addListener(modificationListener);
     }
 
     private void updateAllValueUsed() {
@@ -204,6 +219,20 @@ public class UserSetting {
         }
     }
 
+    /**
+     * Get the constraint of every parameter in the parameter map. The result is cached and will only be recalculated
+     * after the parameter map has been modified so that the caller can compare the result by reference to detect changes.
+     * @return the unmodifiable map from each parameter to the constraint extracted from its expression
+     */
+    public Map<Parameter, Constraint> getParameterConstraint() {
+        if (parameterConstraint == null) {
+            Map<Parameter, Constraint> result = new HashMap<>();
+            parameterMap.forEach((parameter, expression) -> result.put(parameter, ProjectLogic.extractConstraint(parameter, expression)));
+            parameterConstraint = Collections.unmodifiableMap(result);
+        }
+        return parameterConstraint;
+    }
+
     public Action getAction() {
         return action.get();
     }
@@ -20,14 +20,17 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import io.makerplayground.device.shared.*;
 import io.makerplayground.device.shared.Record;
 import io.makerplayground.device.shared.constraint.StringIntegerCategoricalConstraint;
 import io.makerplayground.project.expression.*;
 import io.makerplayground.project.term.*;
+import io.makerplayground.util.JacksonMappers;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -35,16 +38,24 @@ import java.util.*;
 
 public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
 
-    private final Project project;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final JavaType USER_SETTING_LIST_TYPE = TypeFactory.defaultInstance().constructCollectionType(List.class, UserSetting.class);
 
-    UserSettingDeserializer(Project project) {
-        this.project = project;
+    /**
+     * Read a list of {@link UserSetting} through the context of the enclosing deserializer so that the settings are
+     * deserialized for the same project
+     */
+    static List<UserSetting> readUserSettings(JsonNode node, JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException {
+        try (JsonParser parser = node.traverse(jsonParser.getCodec())) {
+            parser.nextToken();
+            return deserializationContext.readValue(parser, USER_SETTING_LIST_TYPE);
+        }
     }
 
     @Override
     public UserSetting deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JsonProcessingException {
-        JsonNode node = mapper.readTree(jsonParser);
+        Project project = ProjectDeserializer.getProject(deserializationContext);
+        ObjectMapper mapper = JacksonMappers.JSON;
+        JsonNode node = deserializationContext.readTree(jsonParser);
 
         String deviceName = node.get("device").asText();
         ProjectDevice projectDevice = null;
@@ -91,7 +102,7 @@ public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
             JsonNode valueNode = parameterNode.get("value");
             List<Term> terms = new ArrayList<>();
             for (JsonNode term_node : valueNode.get("terms")) {
-                terms.add(deserializeTerm(mapper, parameter, term_node, project.getUnmodifiableProjectDevice()));
+                terms.add(deserializeTerm(mapper, project, parameter, term_node, project.getUnmodifiableProjectDevice()));
             }
             if (ProjectValueExpression.class.getSimpleName().equals(expressionType)) {
                 expression = new ProjectValueExpression(((ValueTerm) terms.get(0)).getValue());
@@ -154,7 +165,7 @@ public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
             String type = valueNode.get("type").asText();
             List<Term> terms = new ArrayList<>();
             for (JsonNode term_node : valueNode.get("expression")) {
-                terms.add(deserializeTerm(mapper, null, term_node, project.getUnmodifiableProjectDevice()));
+                terms.add(deserializeTerm(mapper, project, null, term_node, project.getUnmodifiableProjectDevice()));
             }
             Expression expression;
             if (NumberInRangeExpression.class.getName().contains(type)) {
@@ -200,7 +211,7 @@ public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
         }
     }
 
-    private Term deserializeTerm(ObjectMapper mapper, Parameter parameter, JsonNode term_node, Collection<ProjectDevice> allProjectDevices) throws IOException {
+    private Term deserializeTerm(ObjectMapper mapper, Project project, Parameter parameter, JsonNode term_node, Collection<ProjectDevice> allProjectDevices) throws IOException {
         String term_type = term_node.get("type").asText();
         Term term;
         if (Term.Type.NUMBER.name().equals(term_type)) {
@@ -258,7 +269,7 @@ public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
             List<RecordEntry> recordEntryList = new ArrayList<>();
             for (JsonNode entryNode : term_node.get("value").get("entryList")) {
                 String fieldName = entryNode.get("field").asText();
-                Expression expression = deserializeExpression(mapper, parameter, entryNode, allProjectDevices);
+                Expression expression = deserializeExpression(mapper, project, parameter, entryNode, allProjectDevices);
                 recordEntryList.add(new RecordEntry(fieldName, expression));
             }
             term = new RecordTerm(new Record(recordEntryList));
@@ -285,14 +296,14 @@ public class UserSettingDeserializer extends JsonDeserializer<UserSetting> {
         return term;
     }
 
-    private Expression deserializeExpression(ObjectMapper mapper, Parameter parameter, JsonNode parameterNode
+    private Expression deserializeExpression(ObjectMapper mapper, Project project, Parameter parameter, JsonNode parameterNode
             , Collection<ProjectDevice> allProjectDevices) throws IOException {
         Expression expression;
         String expressionType = parameterNode.get("type").asText();
         JsonNode valueNode = parameterNode.get("value");
         List<Term> terms = new ArrayList<>();
         for (JsonNode term_node : valueNode.get("terms")) {
-            terms.add(deserializeTerm(mapper, parameter, term_node, allProjectDevices));
+            terms.add(deserializeTerm(mapper, project, parameter, term_node, allProjectDevices));
         }
         if (ProjectValueExpression.class.getSimpleName().equals(expressionType)) {
             expression = new ProjectValueExpression(((ValueTerm) terms.get(0)).getValue());
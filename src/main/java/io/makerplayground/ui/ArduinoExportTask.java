@@ -10,6 +10,7 @@ import io.makerplayground.upload.UploadResult;
 import io.makerplayground.project.Project;
 import io.makerplayground.util.OSInfo;
 import io.makerplayground.util.PathUtility;
+import io.makerplayground.util.ToolResolver;
 import io.makerplayground.util.ZipArchiver;
 import io.makerplayground.util.ZipResourceExtractor;
 import org.apache.commons.io.FileUtils;
@@ -186,7 +187,7 @@ public class ArduinoExportTask extends ProjectExportTask {
             builder.directory(new File(projectPath).getAbsoluteFile()); // this is where you set the root folder for the executable to run with
             pioHomeDirPath.ifPresent(s -> builder.environment().put("PLATFORMIO_HOME_DIR", s));
             builder.redirectErrorStream(true);
-            p = builder.start();
+            p = ToolResolver.start(builder);
             try (Scanner s = new Scanner(p.getInputStream())) {
                 while (s.hasNextLine()) {
                     if (isCancelled()) {
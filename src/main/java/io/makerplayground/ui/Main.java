@@ -16,16 +16,17 @@
 
 package io.makerplayground.ui;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.DeviceLibraryUpdateHelper;
 import io.makerplayground.generator.source.SourceCode;
 import io.makerplayground.generator.source.SourceCodeResult;
 import io.makerplayground.project.Project;
+import io.makerplayground.project.ProjectSaveService;
 import io.makerplayground.ui.dialog.DeviceLibraryErrorDialogView;
 import io.makerplayground.ui.dialog.TaskDialogView;
 import io.makerplayground.ui.dialog.UnsavedDialog;
 import io.makerplayground.util.PathUtility;
+import io.makerplayground.util.ToolResolver;
 import io.makerplayground.util.ZipResourceExtractor;
 import io.makerplayground.version.SoftwareVersion;
 import javafx.application.Application;
@@ -49,6 +50,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static javafx.concurrent.WorkerStateEvent.WORKER_STATE_SUCCEEDED;
 
@@ -57,11 +59,17 @@ public class Main extends Application {
     private Toolbar toolbar;
     private ObjectProperty<Project> project;
     private File latestProjectDirectory;
+    private ProjectSaveService saveService;
 
     @Override
     public void start(Stage primaryStage) {
         // TODO: show progress indicator while loading if need
 
+        // find the external tools in background so that they are ready before the first upload
+        Thread toolResolverThread = new Thread(ToolResolver::getResolvedTools);
+        toolResolverThread.setDaemon(true);
+        toolResolverThread.start();
+
         Map<Path, String> errors = DeviceLibrary.INSTANCE.loadDeviceLibrary();
         if (!errors.isEmpty()) {
             primaryStage.addEventHandler(WindowEvent.WINDOW_SHOWN, event -> {
@@ -80,8 +88,10 @@ public class Main extends Application {
             File f = new File(filesToBeOpened.get(0));
             project = new SimpleObjectProperty<>(Project.loadProject(f).orElseGet(Project::new));
         } else {
-            project = new SimpleObjectProperty<>(new Project());
+            project = new SimpleObjectProperty<>(recoverProject().orElseGet(Project::new));
         }
+        saveService = new ProjectSaveService(project::get);
+        saveService.startAutosave();
 
         FileOpenHelper.getInstance().setCallback(() -> {
             List<String> files = FileOpenHelper.getInstance().getAndClearFiles();
@@ -134,13 +144,15 @@ public class Main extends Application {
                     event.consume();
                     return;
                 } else if (retVal == UnsavedDialog.Response.SAVE) {
-                    saveProject(scene.getWindow());
+                    // keep the window open until the project has been written and keep the autosave journal if it
+                    // can't be saved
+                    event.consume();
+                    saveProject(scene.getWindow()).exceptionally(throwable -> false)
+                            .thenAcceptAsync(saved -> exit(primaryStage, !saved), Platform::runLater);
+                    return;
                 }
             }
-
-            primaryStage.close();
-            Platform.exit();
-            System.exit(0);
+            exit(primaryStage, false);
         });
 
         primaryStage.getIcons().addAll(new Image(Main.class.getResourceAsStream("/icons/taskbar/logo_taskbar_16.png"))
@@ -158,6 +170,14 @@ public class Main extends Application {
         new UpdateNotifier(scene.getWindow(), getHostServices()).start();
     }
 
+    private void exit(Stage stage, boolean keepJournal) {
+        saveService.shutdown(keepJournal);
+
+        stage.close();
+        Platform.exit();
+        System.exit(0);
+    }
+
     private void updatePath(Stage stage, String path) {
         if (path.isEmpty()) {
             stage.setTitle(SoftwareVersion.getCurrentVersion().getBuildName() + " - Untitled Project");
@@ -224,62 +244,59 @@ public class Main extends Application {
         }
     }
 
-    public void saveProject(Window window) {
-        toolbar.setStatusMessage("Saving...");
-        try {
-            File selectedFile;
-            if (project.get().getFilePath().isEmpty()) {
-                FileChooser fileChooser = new FileChooser();
-                fileChooser.setTitle("Save File");
-                if (latestProjectDirectory != null) {
-                    fileChooser.setInitialDirectory(latestProjectDirectory);
-                }
-                fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("MakerPlayground Projects", "*.mp"));
-                fileChooser.setInitialFileName("*.mp");
-                selectedFile = fileChooser.showSaveDialog(window);
-            } else {
-                selectedFile = new File(project.get().getFilePath());
-            }
-
-            if (selectedFile != null) {
-                latestProjectDirectory = selectedFile.getParentFile();
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.writeValue(selectedFile, project.get());
-                project.get().setFilePath(selectedFile.getAbsolutePath());
-                toolbar.setStatusMessage("Saved");
-                new Timer().schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        Platform.runLater(() -> toolbar.setStatusMessage(""));
-                    }
-                }, 3000);
-            } else {
-                toolbar.setStatusMessage("");
-            }
-        } catch (Exception e) {
-            toolbar.setStatusMessage("");
-            e.printStackTrace();
-        }
-    }
-
-    public void saveProjectAs(Window window) {
-        toolbar.setStatusMessage("Saving...");
-        try {
-            File selectedFile;
+    /**
+     * Save the project in background
+     * @return future that is completed with true after the project has been saved or false if the user cancels the
+     * operation. The future is completed on a background thread so it must not be joined on the FX thread. Use
+     * {@link CompletableFuture#thenAcceptAsync(java.util.function.Consumer, java.util.concurrent.Executor)} with
+     * {@code Platform::runLater} to continue on the FX thread after the file path has been updated.
+     */
+    public CompletableFuture<Boolean> saveProject(Window window) {
+        File selectedFile;
+        if (project.get().getFilePath().isEmpty()) {
             FileChooser fileChooser = new FileChooser();
-            fileChooser.setTitle("Save File As");
+            fileChooser.setTitle("Save File");
             if (latestProjectDirectory != null) {
                 fileChooser.setInitialDirectory(latestProjectDirectory);
             }
             fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("MakerPlayground Projects", "*.mp"));
             fileChooser.setInitialFileName("*.mp");
             selectedFile = fileChooser.showSaveDialog(window);
+        } else {
+            selectedFile = new File(project.get().getFilePath());
+        }
+        return saveProjectToFile(selectedFile);
+    }
 
-            if (selectedFile != null) {
-                latestProjectDirectory = selectedFile.getParentFile();
-                ObjectMapper mapper = new ObjectMapper();
-                mapper.writeValue(selectedFile, project.get());
-                project.get().setFilePath(selectedFile.getAbsolutePath());
+    public CompletableFuture<Boolean> saveProjectAs(Window window) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save File As");
+        if (latestProjectDirectory != null) {
+            fileChooser.setInitialDirectory(latestProjectDirectory);
+        }
+        fileChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("MakerPlayground Projects", "*.mp"));
+        fileChooser.setInitialFileName("*.mp");
+        File selectedFile = fileChooser.showSaveDialog(window);
+        return saveProjectToFile(selectedFile);
+    }
+
+    private CompletableFuture<Boolean> saveProjectToFile(File selectedFile) {
+        if (selectedFile == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        toolbar.setStatusMessage("Saving...");
+        latestProjectDirectory = selectedFile.getParentFile();
+        Project currentProject = project.get();
+        return saveService.save(currentProject, selectedFile).handle((result, throwable) -> {
+            Platform.runLater(() -> {
+                if (throwable != null) {
+                    throwable.printStackTrace();
+                    toolbar.setStatusMessage("");
+                    Alert alert = new Alert(Alert.AlertType.ERROR, "The project can't be saved to " + selectedFile.getAbsolutePath(), ButtonType.OK);
+                    alert.show();
+                    return;
+                }
+                currentProject.setFilePath(selectedFile.getAbsolutePath());
                 toolbar.setStatusMessage("Saved");
                 new Timer().schedule(new TimerTask() {
                     @Override
@@ -287,13 +304,32 @@ public class Main extends Application {
                         Platform.runLater(() -> toolbar.setStatusMessage(""));
                     }
                 }, 3000);
-            } else {
-                toolbar.setStatusMessage("");
+            });
+            return throwable == null;
+        });
+    }
+
+    /* ask the user whether to recover the project from the autosave journal left after the program crashed */
+    private Optional<Project> recoverProject() {
+        List<ProjectSaveService.RecoverableProject> recoverableProjects = ProjectSaveService.findRecoverableProjects();
+        if (recoverableProjects.isEmpty()) {
+            return Optional.empty();
+        }
+        // only the latest journal is offered as only one project can be opened at a time
+        ProjectSaveService.RecoverableProject latest = recoverableProjects.get(0);
+        String projectName = latest.getOriginalFilePath().isEmpty() ? "Untitled Project" : latest.getOriginalFilePath();
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "The program wasn't closed properly. Do you want to recover unsaved changes of "
+                + projectName + " from " + new Date(latest.getLastModified()) + "?", ButtonType.YES, ButtonType.NO);
+        Optional<ButtonType> response = alert.showAndWait();
+        Optional<Project> result = Optional.empty();
+        if (response.isPresent() && response.get() == ButtonType.YES) {
+            result = ProjectSaveService.recover(latest);
+            if (result.isEmpty()) {
+                new Alert(Alert.AlertType.ERROR, "The project can't be recovered.", ButtonType.OK).showAndWait();
             }
-        } catch (Exception e) {
-            toolbar.setStatusMessage("");
-            e.printStackTrace();
         }
+        recoverableProjects.forEach(ProjectSaveService::discard);
+        return result;
     }
 
     private void exportProject(Window window) {
@@ -347,10 +383,15 @@ public class Main extends Application {
             if (retVal == UnsavedDialog.Response.CANCEL) {
                 return;
             } else if (retVal == UnsavedDialog.Response.SAVE) {
-                saveProject(window);
+                saveProject(window).exceptionally(throwable -> false)
+                        .thenAcceptAsync(saved -> installDeviceLibraryUpdate(window), Platform::runLater);
+                return;
             }
         }
+        installDeviceLibraryUpdate(window);
+    }
 
+    private void installDeviceLibraryUpdate(Window window) {
         // delete old library
         File oldLibraryDirectory = new File(PathUtility.getUserLibraryPath());
         if (oldLibraryDirectory.isDirectory()) {
@@ -256,62 +256,67 @@ public class CanvasView extends AnchorPane {
 
         Map<NodeElement, NodeElement> elementsMap = new HashMap<>();
 
-        // add elements in clipboard to the canvas
-        for (NodeElement element : elements) {
-            // new x,y is the current mouse position plus the offset (old x,y - group minimum x,y)
-            double newX = element.getLeft() - minX + mainPane.getMouseX();
-            double newY = element.getTop() - minY + mainPane.getMouseY();
-            if (element instanceof Scene) {
-                Scene newScene = canvasViewModel.project.newScene((Scene) element);
-                newScene.setLeft(newX);
-                newScene.setTop(newY);
-                elementsMap.put(element,newScene);
-            } else if (element instanceof Condition) {
-                Condition newCondition = canvasViewModel.project.newCondition((Condition) element);
-                newCondition.setLeft(newX);
-                newCondition.setTop(newY);
-                elementsMap.put(element,newCondition);
-            } else if (element instanceof Delay) {
-                Delay newDelay = canvasViewModel.project.newDelay((Delay) element);
-                newDelay.setLeft(newX);
-                newDelay.setTop(newY);
-                elementsMap.put(element,newDelay);
+        // add every element and line as a single batch so that the diagram is checked only once
+        canvasViewModel.project.batch(() -> {
+            // add elements in clipboard to the canvas
+            for (NodeElement element : elements) {
+                // new x,y is the current mouse position plus the offset (old x,y - group minimum x,y)
+                double newX = element.getLeft() - minX + mainPane.getMouseX();
+                double newY = element.getTop() - minY + mainPane.getMouseY();
+                if (element instanceof Scene) {
+                    Scene newScene = canvasViewModel.project.newScene((Scene) element);
+                    newScene.setLeft(newX);
+                    newScene.setTop(newY);
+                    elementsMap.put(element,newScene);
+                } else if (element instanceof Condition) {
+                    Condition newCondition = canvasViewModel.project.newCondition((Condition) element);
+                    newCondition.setLeft(newX);
+                    newCondition.setTop(newY);
+                    elementsMap.put(element,newCondition);
+                } else if (element instanceof Delay) {
+                    Delay newDelay = canvasViewModel.project.newDelay((Delay) element);
+                    newDelay.setLeft(newX);
+                    newDelay.setTop(newY);
+                    elementsMap.put(element,newDelay);
+                }
             }
-        }
 
-        for (InteractiveNode node : clipboard) {
-            if (node instanceof LineView) {
-                Line line = ((LineView) node).getLineViewModel().getLine();
-                if (elements.contains(line.getSource()) && elements.contains(line.getDestination())){
-                    canvasViewModel.project.addLine(elementsMap.get(line.getSource()), elementsMap.get(line.getDestination()));
-                } else if (elements.contains(line.getSource())){
-                    canvasViewModel.project.addLine(elementsMap.get(line.getSource()), line.getDestination());
-                } else if (elements.contains(line.getDestination())){
-                    canvasViewModel.project.addLine(line.getSource(), elementsMap.get(line.getDestination()));
+            for (InteractiveNode node : clipboard) {
+                if (node instanceof LineView) {
+                    Line line = ((LineView) node).getLineViewModel().getLine();
+                    if (elements.contains(line.getSource()) && elements.contains(line.getDestination())){
+                        canvasViewModel.project.addLine(elementsMap.get(line.getSource()), elementsMap.get(line.getDestination()));
+                    } else if (elements.contains(line.getSource())){
+                        canvasViewModel.project.addLine(elementsMap.get(line.getSource()), line.getDestination());
+                    } else if (elements.contains(line.getDestination())){
+                        canvasViewModel.project.addLine(line.getSource(), elementsMap.get(line.getDestination()));
+                    }
                 }
             }
-        }
+        });
     }
 
     @FXML
     private void deleteHandler() {
         // clone the list as the selected list will changed in the loop which will cause NoSuchElementException to be thrown
         List<InteractiveNode> removeList = new ArrayList<>(mainPane.getSelectionGroup().getSelected());
-        for (InteractiveNode interactiveNode : removeList) {
-            if (interactiveNode instanceof SceneView) {
-                canvasViewModel.project.removeScene(((SceneView) interactiveNode).getSceneViewModel().getScene());
-            } else if (interactiveNode instanceof ConditionView) {
-                canvasViewModel.project.removeCondition(((ConditionView) interactiveNode).getConditionViewModel().getCondition());
-            } else if (interactiveNode instanceof DelayView) {
-                canvasViewModel.project.removeDelay(((DelayView) interactiveNode).getDelayViewModel().getDelay());
-            } else if (interactiveNode instanceof LineView) {
-                canvasViewModel.project.removeLine(((LineView) interactiveNode).getLineViewModel().getLine());
-            } else if (interactiveNode instanceof BeginView) {
-                // we shouldn't delete begin from the canvas
-            } else {
-                throw new IllegalStateException("Found invalid object in the canvas!!!");
+        canvasViewModel.project.batch(() -> {
+            for (InteractiveNode interactiveNode : removeList) {
+                if (interactiveNode instanceof SceneView) {
+                    canvasViewModel.project.removeScene(((SceneView) interactiveNode).getSceneViewModel().getScene());
+                } else if (interactiveNode instanceof ConditionView) {
+                    canvasViewModel.project.removeCondition(((ConditionView) interactiveNode).getConditionViewModel().getCondition());
+                } else if (interactiveNode instanceof DelayView) {
+                    canvasViewModel.project.removeDelay(((DelayView) interactiveNode).getDelayViewModel().getDelay());
+                } else if (interactiveNode instanceof LineView) {
+                    canvasViewModel.project.removeLine(((LineView) interactiveNode).getLineViewModel().getLine());
+                } else if (interactiveNode instanceof BeginView) {
+                    // we shouldn't delete begin from the canvas
+                } else {
+                    throw new IllegalStateException("Found invalid object in the canvas!!!");
+                }
             }
-        }
+        });
     }
 
     @FXML
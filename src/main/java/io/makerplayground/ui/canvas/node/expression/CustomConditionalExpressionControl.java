@@ -45,6 +45,9 @@ import java.util.List;
 public class CustomConditionalExpressionControl extends VBox {
 
     private final ReadOnlyObjectWrapper<ConditionalExpression> expression = new ReadOnlyObjectWrapper<>();
+    // the entries are edited on this copy and a new copy of it is set to the expression property after every change
+    // so that the change is propagated to the user setting and the project is marked as modified
+    private final ConditionalExpression editingExpression;
     private final ObservableList<ProjectValue> projectValues;
     private final List<EntryView> entryViewList;
     private final ImageView addImageView;
@@ -52,6 +55,7 @@ public class CustomConditionalExpressionControl extends VBox {
 
     public CustomConditionalExpressionControl(ConditionalExpression expression, ObservableList<ProjectValue> projectValues, Unit unit) {
         this.expression.set(expression);
+        this.editingExpression = expression.deepCopy();
         this.projectValues = projectValues;
         this.entryViewList = new ArrayList<>();
         this.unit = unit;
@@ -62,11 +66,12 @@ public class CustomConditionalExpressionControl extends VBox {
         addImageView.setPreserveRatio(true);
         addImageView.setOnMousePressed(event -> {
             ConditionalExpression.Entry entry = new ConditionalExpression.Entry(Operator.GREATER_THAN, new CustomNumberExpression());
-            expression.getEntries().add(entry);
+            editingExpression.getEntries().add(entry);
             createExpressionRowControl(entry);
+            updateExpression();
         });
 
-        for (ConditionalExpression.Entry entry : expression.getEntries()) {
+        for (ConditionalExpression.Entry entry : editingExpression.getEntries()) {
             createExpressionRowControl(entry);
         }
 
@@ -75,12 +80,13 @@ public class CustomConditionalExpressionControl extends VBox {
     }
 
     private void createExpressionRowControl(ConditionalExpression.Entry entry) {
-        EntryView entryView = new EntryView(entry, projectValues, expression.getValue().getValue(), unit);
+        EntryView entryView = new EntryView(entry, projectValues, editingExpression.getValue(), unit, this::updateExpression);
         entryView.setOnRemoveButtonPressed(event -> {
-            expression.get().getEntries().remove(entry);
+            editingExpression.getEntries().remove(entry);
             getChildren().remove(entryView);
             entryViewList.remove(entryView);
             invalidateView();
+            updateExpression();
         });
         getChildren().add(getChildren().size(), entryView);
         entryViewList.add(entryView);
@@ -103,6 +109,10 @@ public class CustomConditionalExpressionControl extends VBox {
         entryViewList.get(entryViewList.size() - 1).getChildren().add(addImageView);
     }
 
+    private void updateExpression() {
+        expression.set(editingExpression.deepCopy());
+    }
+
     public ConditionalExpression getExpression() {
         return expression.get();
     }
@@ -116,15 +126,21 @@ public class CustomConditionalExpressionControl extends VBox {
         private ImageView removeImageView;
         private Label operatorLabel;
 
-        public EntryView(ConditionalExpression.Entry entry, ObservableList<ProjectValue> projectValues, Value value, Unit unit) {
+        public EntryView(ConditionalExpression.Entry entry, ObservableList<ProjectValue> projectValues, Value value, Unit unit, Runnable onEntryChanged) {
             ComboBox<Operator> operatorComboBox = new ComboBox<>(FXCollections.observableArrayList(Operator.getComparisonOperator()));
             if (entry.getOperator() != null) {
                 operatorComboBox.setValue(entry.getOperator());
             }
-            operatorComboBox.valueProperty().addListener((observable, oldValue, newValue) -> entry.setOperator(newValue));
+            operatorComboBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+                entry.setOperator(newValue);
+                onEntryChanged.run();
+            });
 
             NumericChipField chipField = new NumericChipField(entry.getExpression(), projectValues);
-            chipField.expressionProperty().addListener((observable, oldValue, newValue) -> entry.setExpression(newValue));
+            chipField.expressionProperty().addListener((observable, oldValue, newValue) -> {
+                entry.setExpression(newValue);
+                onEntryChanged.run();
+            });
 
             NumericConstraint constraint = (NumericConstraint) value.getConstraint();
             String minValue;
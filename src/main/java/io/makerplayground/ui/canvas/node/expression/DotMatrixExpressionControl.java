@@ -80,6 +80,7 @@ public class DotMatrixExpressionControl extends VBox {
                     } else {
                         ((RGBDotMatrix) dotMatrix).set(finalI, finalJ, event.isSecondaryButtonDown() ? Color.BLACK : colorPicker.getValue());
                     }
+                    updateExpression(dotMatrix);
                 });
                 rectangle.setOnMouseReleased(event -> getScene().setCursor(Cursor.DEFAULT));
                 rectangle.setOnDragDetected(event -> {
@@ -93,6 +94,7 @@ public class DotMatrixExpressionControl extends VBox {
                     } else {
                         ((RGBDotMatrix) dotMatrix).set(finalI, finalJ, erasing ? Color.BLACK : colorPicker.getValue());
                     }
+                    updateExpression(dotMatrix);
                 });
                 rectangle.setOnMouseDragReleased(event -> {
                     getScene().setCursor(Cursor.DEFAULT);
@@ -116,6 +118,7 @@ public class DotMatrixExpressionControl extends VBox {
         addColumnButton.setPreserveRatio(true);
         addColumnButton.setOnMouseClicked(event -> {
             dotMatrix.resize(dotMatrix.getRow(), dotMatrix.getColumn() + 1);
+            updateExpression(dotMatrix);
             initControl();
         });
         gridPaneControl.add(addColumnButton, 2, 0);
@@ -127,6 +130,7 @@ public class DotMatrixExpressionControl extends VBox {
             removeColumnButton.setPreserveRatio(true);
             removeColumnButton.setOnMouseClicked(event -> {
                 dotMatrix.resize(dotMatrix.getRow(), dotMatrix.getColumn() - 1);
+                updateExpression(dotMatrix);
                 initControl();
             });
             gridPaneControl.add(removeColumnButton, 3, 0);
@@ -140,6 +144,7 @@ public class DotMatrixExpressionControl extends VBox {
         addRowButton.setPreserveRatio(true);
         addRowButton.setOnMouseClicked(event -> {
             dotMatrix.resize(dotMatrix.getRow() + 1, dotMatrix.getColumn());
+            updateExpression(dotMatrix);
             initControl();
         });
         gridPaneControl.add(addRowButton, 2, 1);
@@ -151,6 +156,7 @@ public class DotMatrixExpressionControl extends VBox {
             removeRowButton.setPreserveRatio(true);
             removeRowButton.setOnMouseClicked(event -> {
                 dotMatrix.resize(dotMatrix.getRow() - 1, dotMatrix.getColumn());
+                updateExpression(dotMatrix);
                 initControl();
             });
             gridPaneControl.add(removeRowButton, 3, 1);
@@ -159,6 +165,12 @@ public class DotMatrixExpressionControl extends VBox {
         this.getChildren().add(gridPaneControl);
     }
 
+    // the dot matrix is edited in place so a new expression is set after every change to propagate the change to the
+    // user setting and mark the project as modified
+    private void updateExpression(DotMatrix dotMatrix) {
+        expression.set(new DotMatrixExpression(dotMatrix));
+    }
+
     public ReadOnlyObjectWrapper<DotMatrixExpression> expressionProperty() {
         return expression;
     }
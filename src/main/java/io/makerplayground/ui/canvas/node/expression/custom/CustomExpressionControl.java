@@ -48,7 +48,13 @@ public class CustomExpressionControl extends GridPane {
         GridPane.setConstraints(fromLabel, 0, 0, 1, 1, HPos.LEFT, VPos.TOP);
 
         NumericChipField chipField = new NumericChipField(expression, projectValues);
-        chipField.expressionProperty().addListener((observable, oldValue, newValue) -> this.expression.set(newValue));
+        chipField.expressionProperty().addListener((observable, oldValue, newValue) -> {
+            // the chip field creates a new expression with the default refresh interval so we copy the current one over
+            CustomNumberExpression newExpression = newValue.deepCopy();
+            newExpression.setRefreshInterval(getExpression().getRefreshInterval());
+            newExpression.setUserDefinedInterval(getExpression().getUserDefinedInterval());
+            this.expression.set(newExpression);
+        });
         GridPane.setConstraints(chipField, 1, 0);
 
         Label updateLabel = new Label("update");
@@ -57,12 +63,18 @@ public class CustomExpressionControl extends GridPane {
         ComboBox<Expression.RefreshInterval> refreshIntervalComboBox = new ComboBox<>(FXCollections.observableArrayList(Expression.RefreshInterval.values()));
         refreshIntervalComboBox.getSelectionModel().select(getExpression().getRefreshInterval());
         refreshIntervalComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
-            getExpression().setRefreshInterval(newValue);
+            // a modified copy is set instead of changing the expression in place so that the change is propagated to
+            // the user setting and the project is marked as modified
+            CustomNumberExpression newExpression = getExpression().deepCopy();
+            newExpression.setRefreshInterval(newValue);
+            this.expression.set(newExpression);
         });
 
         SpinnerWithUnit customIntervalSpinner = new SpinnerWithUnit(0, Double.MAX_VALUE, List.of(Unit.SECOND, Unit.MILLISECOND), getExpression().getUserDefinedInterval());
         customIntervalSpinner.valueProperty().addListener((observable, oldValue, newValue) -> {
-            getExpression().setUserDefinedInterval(newValue);
+            CustomNumberExpression newExpression = getExpression().deepCopy();
+            newExpression.setUserDefinedInterval(newValue);
+            this.expression.set(newExpression);
         });
         customIntervalSpinner.visibleProperty().bind(refreshIntervalComboBox.getSelectionModel().selectedItemProperty().isEqualTo(Expression.RefreshInterval.USER_DEFINED));
         customIntervalSpinner.managedProperty().bind(customIntervalSpinner.visibleProperty());
@@ -88,11 +88,11 @@ public class ValueLinkingControl extends GridPane {
 
         ComboBox<Expression.RefreshInterval> refreshIntervalComboBox = new ComboBox<>(FXCollections.observableArrayList(Expression.RefreshInterval.values()));
         refreshIntervalComboBox.getSelectionModel().select(getExpression().getRefreshInterval());
-        refreshIntervalComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> getExpression().setRefreshInterval(newValue));
+        refreshIntervalComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> setRefreshInterval(newValue));
 
         SpinnerWithUnit customIntervalSpinner = new SpinnerWithUnit(0, Double.MAX_VALUE, List.of(Unit.SECOND, Unit.MILLISECOND), getExpression().getUserDefinedInterval());
         customIntervalSpinner.valueProperty().addListener((observable, oldValue, newValue) ->
-                getExpression().setUserDefinedInterval(newValue));
+                setUserDefinedInterval(newValue));
         customIntervalSpinner.visibleProperty().bind(refreshIntervalComboBox.getSelectionModel().selectedItemProperty().isEqualTo(Expression.RefreshInterval.USER_DEFINED));
         customIntervalSpinner.managedProperty().bind(customIntervalSpinner.visibleProperty());
 
@@ -153,11 +153,11 @@ public class ValueLinkingControl extends GridPane {
         ComboBox<Expression.RefreshInterval> refreshIntervalComboBox = new ComboBox<>(FXCollections.observableArrayList(Expression.RefreshInterval.values()));
         refreshIntervalComboBox.getSelectionModel().select(getExpression().getRefreshInterval());
         refreshIntervalComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) ->
-                getExpression().setRefreshInterval(newValue));
+                setRefreshInterval(newValue));
 
         SpinnerWithUnit customIntervalSpinner = new SpinnerWithUnit(0, Double.MAX_VALUE, List.of(Unit.SECOND, Unit.MILLISECOND), getExpression().getUserDefinedInterval());
         customIntervalSpinner.valueProperty().addListener((observable, oldValue, newValue) ->
-                getExpression().setUserDefinedInterval(newValue));
+                setUserDefinedInterval(newValue));
         customIntervalSpinner.visibleProperty().bind(refreshIntervalComboBox.getSelectionModel().selectedItemProperty().isEqualTo(Expression.RefreshInterval.USER_DEFINED));
         customIntervalSpinner.managedProperty().bind(customIntervalSpinner.visibleProperty());
 
@@ -261,6 +261,20 @@ public class ValueLinkingControl extends GridPane {
         getChildren().addAll(fromLabel, valueSelectionHBox, fromRangeLabel, sourceRange, toLabel, destRange, refreshIntervalHBox, updateLabel);
     }
 
+    // a modified copy is set instead of changing the expression in place so that the change is propagated to the user
+    // setting and the project is marked as modified
+    private void setRefreshInterval(Expression.RefreshInterval interval) {
+        Expression newExpression = getExpression().deepCopy();
+        newExpression.setRefreshInterval(interval);
+        expression.set(newExpression);
+    }
+
+    private void setUserDefinedInterval(NumberWithUnit interval) {
+        Expression newExpression = getExpression().deepCopy();
+        newExpression.setUserDefinedInterval(interval);
+        expression.set(newExpression);
+    }
+
     public Expression getExpression() {
         return expression.get();
     }
@@ -72,7 +72,7 @@ public class K210ModelSelector extends VBox {
             UploadDialogView uploadDialogView = new UploadDialogView(getScene().getWindow(), flashTask, false);
             uploadDialogView.progressProperty().bind(flashTask.progressProperty());
             uploadDialogView.descriptionProperty().bind(flashTask.messageProperty());
-            uploadDialogView.logProperty().bind(flashTask.fullLogProperty());
+            uploadDialogView.setLog(flashTask.getLog());
             uploadDialogView.show();
             new Thread(flashTask).start();
         });
@@ -21,32 +21,35 @@ import com.fazecast.jSerialComm.SerialPortEvent;
 import com.fazecast.jSerialComm.SerialPortMessageListener;
 import io.makerplayground.upload.UploadTarget;
 import io.makerplayground.upload.UploadMode;
+import io.makerplayground.util.PathUtility;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import org.controlsfx.control.CheckComboBox;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -54,13 +57,43 @@ import java.util.regex.Pattern;
 public class DeviceMonitor extends SplitPane {
 
     private static final Pattern format = Pattern.compile("(\\[\\[I]]|\\[\\[E]]|\\[\\[V]])?\\u0000\"(.*)\"\\u0000(.+)", Pattern.DOTALL); // Regex
-    private static final Pattern numberRegex = Pattern.compile("^(-?\\d+\\.\\d+)$|^(-?\\d+)$");
+
+    private static final int LOG_CAPACITY = 10000;
+    private static final Map<String, Double> REPLAY_SPEEDS = new LinkedHashMap<>();
+    static {
+        REPLAY_SPEEDS.put("0.5x", 0.5);
+        REPLAY_SPEEDS.put("1x", 1.0);
+        REPLAY_SPEEDS.put("2x", 2.0);
+        REPLAY_SPEEDS.put("10x", 10.0);
+        REPLAY_SPEEDS.put("100x", 100.0);
+        REPLAY_SPEEDS.put("Max", 0.0);
+    }
 
     private ReadOnlyBooleanWrapper isRunning = new ReadOnlyBooleanWrapper(false);
 
-    private final ObservableList<LogItem> logData = FXCollections.observableArrayList();
+    /* log items received by the reader thread or the replayer which will be added to the table and charts on the next
+       frame (the replayer checks the size of the queue so it must be a queue with a constant time size) */
+    private final Queue<LogItem> pendingLogItems = new LinkedBlockingQueue<>();
+    private final AnimationTimer updateTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flushPendingLogItems();
+        }
+    };
+
+    private final LogItemRingList logData = new LogItemRingList(LOG_CAPACITY);
     private final FilteredList<LogItem> logDataFilter = new FilteredList<>(logData);
-    private final Map<String, LineChart<Number, Number>> lineChartMap = new HashMap<>();
+    /* samples of every numeric value of every tag (tag -> value name -> samples) */
+    private final Map<String, Map<String, SampleRingBuffer>> sampleMap = new HashMap<>();
+    private final Map<String, SampleChart> chartMap = new HashMap<>();
+    private final Set<SampleChart> dirtyCharts = new HashSet<>();
+    private SampleRetention sampleRetention = SampleRetention.SAMPLES_1000;
+    private long latestTimestamp;
+
+    /* live log items are always recorded but they aren't displayed while a recording is being replayed */
+    private volatile DeviceMonitorRecorder recorder;
+    private volatile DeviceMonitorReplayer replayer;
+    private boolean updatingReplaySlider;
 
     private final ObservableList<String> tagListForTable = FXCollections.observableArrayList();
     private final ObservableList<String> tagListForChart = FXCollections.observableArrayList();
@@ -70,9 +103,21 @@ public class DeviceMonitor extends SplitPane {
     @FXML private CheckComboBox<String> checkTagComboBox;
     @FXML private CheckBox autoScrollCheckbox;
     @FXML private CheckComboBox<String> plotTagComboBox;
+    @FXML private ComboBox<SampleRetention> retentionComboBox;
     @FXML private VBox chartPane;
     @FXML private Button clearTableButton;
     @FXML private Button clearChartButton;
+    @FXML private ToggleButton recordButton;
+    @FXML private Button openRecordingButton;
+    @FXML private Label recordingStatusLabel;
+    @FXML private HBox replayPane;
+    @FXML private Button playButton;
+    @FXML private ComboBox<String> replaySpeedComboBox;
+    @FXML private Slider replaySlider;
+    @FXML private Label replayTimeLabel;
+    @FXML private MenuItem exportLogMenuItem;
+    @FXML private MenuItem exportSampleMenuItem;
+    @FXML private Button closeReplayButton;
 
     private UploadTarget currentUploadTarget;
     private SerialPort serialPort;
@@ -129,13 +174,15 @@ public class DeviceMonitor extends SplitPane {
             tagToBeRemoved.removeAll(tagSelected);
 
             for (String tag : tagToBeRemoved) {
-                if (lineChartMap.containsKey(tag)) {
-                    chartPane.getChildren().remove(lineChartMap.remove(tag));
+                if (chartMap.containsKey(tag)) {
+                    SampleChart chart = chartMap.remove(tag);
+                    dirtyCharts.remove(chart);
+                    chartPane.getChildren().remove(chart);
                 }
             }
 
             for (String tag : tagSelected) {
-                if (!lineChartMap.containsKey(tag)) {
+                if (!chartMap.containsKey(tag)) {
                     createLineChart(tag);
                 }
             }
@@ -144,7 +191,197 @@ public class DeviceMonitor extends SplitPane {
         clearChartButton.setOnAction(event -> {
             plotTagComboBox.getCheckModel().clearChecks();
             tagListForChart.clear();
+            sampleMap.clear();
+        });
+
+        retentionComboBox.getItems().addAll(SampleRetention.values());
+        retentionComboBox.getSelectionModel().select(sampleRetention);
+        retentionComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+            sampleRetention = newValue;
+            for (Map<String, SampleRingBuffer> valueMap : sampleMap.values()) {
+                for (SampleRingBuffer buffer : valueMap.values()) {
+                    buffer.setCapacity(sampleRetention.getMaxSamples());
+                }
+            }
+            dirtyCharts.addAll(chartMap.values());
+            flushPendingLogItems();
+        });
+
+        // initialize recording and replay
+
+        recordButton.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                startRecording();
+            } else {
+                stopRecording();
+            }
+        });
+        openRecordingButton.setOnAction(event -> {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setTitle("Open Recording");
+            File recordingsDirectory = Paths.get(PathUtility.MP_WORKSPACE, "recordings").toFile();
+            if (recordingsDirectory.isDirectory()) {
+                directoryChooser.setInitialDirectory(recordingsDirectory);
+            }
+            File directory = directoryChooser.showDialog(getScene().getWindow());
+            if (directory != null) {
+                openRecording(directory.toPath());
+            }
+        });
+        playButton.setOnAction(event -> {
+            if (replayer.isPaused()) {
+                if (replayer.getCurrentTime() >= replayer.getRecording().getEndTime()) {
+                    seekReplay(replayer.getRecording().getStartTime());
+                }
+                replayer.play();
+            } else {
+                replayer.pause();
+            }
+        });
+        replaySpeedComboBox.getItems().addAll(REPLAY_SPEEDS.keySet());
+        replaySpeedComboBox.getSelectionModel().select("1x");
+        replaySpeedComboBox.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
+            if (replayer != null) {
+                replayer.setSpeed(REPLAY_SPEEDS.get(newValue));
+            }
+        });
+        replaySlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (replayer != null && !updatingReplaySlider) {
+                seekReplay(replayer.getRecording().getStartTime() + newValue.longValue());
+            }
+        });
+        exportLogMenuItem.setOnAction(event -> exportRecording(true));
+        exportSampleMenuItem.setOnAction(event -> exportRecording(false));
+        closeReplayButton.setOnAction(event -> closeRecording());
+    }
+
+    private void startRecording() {
+        DeviceMonitorRecorder newRecorder = new DeviceMonitorRecorder(DeviceMonitorRecorder.createRecordingDirectory());
+        try {
+            newRecorder.start();
+            recorder = newRecorder;
+        } catch (IOException e) {
+            e.printStackTrace();
+            recordingStatusLabel.setText("Can't create recording");
+            recordButton.setSelected(false);
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder != null) {
+            recorder.stop();
+            recordingStatusLabel.setText("Saved to " + recorder.getDirectory());
+            recorder = null;
+        }
+    }
+
+    private void openRecording(Path directory) {
+        DeviceMonitorRecording recording;
+        try {
+            recording = DeviceMonitorRecording.open(directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+            recordingStatusLabel.setText("Can't open recording");
+            return;
+        }
+        if (replayer != null) {
+            replayer.stop();
+        }
+        clearMonitor();
+        replayer = new DeviceMonitorReplayer(recording, pendingLogItems, LOG_CAPACITY);
+        replayer.setSpeed(REPLAY_SPEEDS.get(replaySpeedComboBox.getValue()));
+        replayer.start();
+        updatingReplaySlider = true;
+        replaySlider.setMin(0);
+        replaySlider.setMax(Math.max(1, recording.getEndTime() - recording.getStartTime()));
+        replaySlider.setValue(0);
+        updatingReplaySlider = false;
+        replayPane.setVisible(true);
+        replayPane.setManaged(true);
+        updateTimer.start();
+    }
+
+    private void closeRecording() {
+        replayer.stop();
+        replayer = null;
+        replayPane.setVisible(false);
+        replayPane.setManaged(false);
+        clearMonitor();
+        if (!isRunning.get()) {
+            updateTimer.stop();
+        }
+    }
+
+    private void seekReplay(long time) {
+        replayer.seek(time, this::clearMonitor);
+    }
+
+    private void exportRecording(boolean exportLog) {
+        DeviceMonitorRecording recording = replayer.getRecording();
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(exportLog ? "Export Log" : "Export Values");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        fileChooser.setInitialFileName(recording.getDirectory().getFileName() + (exportLog ? "-log.csv" : "-values.csv"));
+        File file = fileChooser.showSaveDialog(getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Task<Void> exportTask = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                if (exportLog) {
+                    recording.exportCsv(file.toPath());
+                } else {
+                    recording.exportSamplesCsv(file.toPath());
+                }
+                return null;
+            }
+        };
+        exportTask.setOnSucceeded(event -> recordingStatusLabel.setText("Exported to " + file));
+        exportTask.setOnFailed(event -> {
+            exportTask.getException().printStackTrace();
+            recordingStatusLabel.setText("Can't export recording");
         });
+        recordingStatusLabel.setText("Exporting...");
+        new Thread(exportTask).start();
+    }
+
+    /* Remove every log item and sample but keep the tags and the charts */
+    private void clearMonitor() {
+        pendingLogItems.clear();
+        logData.clear();
+        for (Map<String, SampleRingBuffer> valueMap : sampleMap.values()) {
+            for (SampleRingBuffer buffer : valueMap.values()) {
+                buffer.clear();
+            }
+        }
+        dirtyCharts.addAll(chartMap.values());
+        latestTimestamp = 0;
+    }
+
+    private void updateRecordingStatus() {
+        DeviceMonitorRecorder currentRecorder = recorder;
+        if (currentRecorder != null) {
+            recordingStatusLabel.setText("Recorded " + currentRecorder.getRecordedCount() + " messages"
+                    + (currentRecorder.getDroppedCount() > 0 ? " (" + currentRecorder.getDroppedCount() + " dropped)" : ""));
+        }
+        DeviceMonitorReplayer currentReplayer = replayer;
+        if (currentReplayer != null) {
+            long position = currentReplayer.getCurrentTime() - currentReplayer.getRecording().getStartTime();
+            if (!replaySlider.isValueChanging()) {
+                updatingReplaySlider = true;
+                replaySlider.setValue(position);
+                updatingReplaySlider = false;
+            }
+            replayTimeLabel.setText(formatDuration(position) + " / " + formatDuration(
+                    currentReplayer.getRecording().getEndTime() - currentReplayer.getRecording().getStartTime()));
+            playButton.setText(currentReplayer.isPaused() ? "Play" : "Pause");
+        }
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
     }
 
     private void updateLogFilter() {
@@ -155,57 +392,75 @@ public class DeviceMonitor extends SplitPane {
     }
 
     private void createLineChart(String tag) {
-        Map<String, XYChart.Series<Number, Number>> valueSeriesMap = new HashMap<>();
+        SampleChart chart = new SampleChart(tag, sampleMap.computeIfAbsent(tag, k -> new LinkedHashMap<>()));
+        chartMap.put(tag, chart);
+        chartPane.getChildren().add(chart);
+    }
 
-        NumberAxis xAxis = new NumberAxis();
-        xAxis.setLabel("Samples");
-        xAxis.setAutoRanging(true);
+    private void addSamples(LogItem logItem) {
+        String tag = logItem.getDeviceName();
+        logItem.forEachNumericValue((valueName, value) -> {
+            sampleMap.computeIfAbsent(tag, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(valueName, k -> new SampleRingBuffer(sampleRetention.getMaxSamples()))
+                    .add(logItem.getTimestamp(), value);
+            SampleChart chart = chartMap.get(tag);
+            if (chart != null) {
+                dirtyCharts.add(chart);
+            }
+        });
+    }
 
-        NumberAxis yAxis = new NumberAxis();
-        yAxis.setLabel("Value");
+    /* Move the log items received since the last frame to the table and the charts and redraw the charts that have been changed */
+    private void flushPendingLogItems() {
+        List<LogItem> logItems = new ArrayList<>();
+        LogItem logItem;
+        while ((logItem = pendingLogItems.poll()) != null) {
+            logItems.add(logItem);
+        }
 
-        LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
-        lineChart.setTitle(tag);
-        lineChart.setAnimated(false);
+        if (!logItems.isEmpty()) {
+            logData.appendAll(logItems);
+            for (LogItem item : logItems) {
+                latestTimestamp = Math.max(latestTimestamp, item.getTimestamp());
+                String deviceName = item.getDeviceName();
+                if (!tagListForTable.contains(deviceName)) {
+                    tagListForTable.add(deviceName);
+                    // A hack to make the checkbox tick became visible properly
+                    Platform.runLater(() -> checkTagComboBox.getCheckModel().check(deviceName));
+                }
+                if (!tagListForChart.contains(deviceName)) {
+                    tagListForChart.add(deviceName);
+                    // A hack to make the checkbox tick became visible properly
+                    Platform.runLater(() -> plotTagComboBox.getCheckModel().check(deviceName));
+                }
+                addSamples(item);
+            }
+            if (autoScrollCheckbox.isSelected() && !logDataFilter.isEmpty()) {
+                deviceMonitorTable.scrollTo(logDataFilter.size() - 1);
+            }
+        }
 
-        logData.addListener((ListChangeListener<LogItem>) c -> {
-            while (c.next()) {
-                if (c.wasPermutated()) {
-                    throw new UnsupportedOperationException();
-                } else if (c.wasUpdated()) {
-                    throw new UnsupportedOperationException();
-                } else {
-                    for (LogItem removedItem : c.getRemoved()) {
-//                        throw new UnsupportedOperationException();
-                    }
-                    for (LogItem addedItem : c.getAddedSubList()) {
-                        if (addedItem.getDeviceName().equals(tag)) {
-                            // assume that the format is "A=10.5,B=5,C=2.3"
-                            String[] valuePairs = addedItem.getMessage().split(",");
-                            for (String valuePair : valuePairs) {
-                                String[] tokens = valuePair.split("=");
-                                String valueName = tokens[0];
-                                Matcher matcher = numberRegex.matcher(tokens[1]);
-                                if (matcher.matches()) {
-                                    double value = Double.parseDouble(tokens[1]);
-                                    if (!valueSeriesMap.containsKey(valueName)) {
-                                        XYChart.Series<Number, Number> series = new XYChart.Series<>();
-                                        series.setName(valueName);
-                                        valueSeriesMap.put(valueName, series);
-                                        lineChart.getData().add(series);
-                                    }
-                                    XYChart.Series<Number, Number> series = valueSeriesMap.get(valueName);
-                                    series.getData().add(new XYChart.Data<>(series.getData().size(), value));
-                                }
-                            }
-                        }
-                    }
+        if (sampleRetention.getMaxAgeMillis() > 0) {
+            // the age of the replayed samples is relative to the latest replayed sample instead of the current time
+            long currentTime = (replayer != null) ? latestTimestamp : System.currentTimeMillis();
+            long oldestTime = currentTime - sampleRetention.getMaxAgeMillis();
+            for (Map.Entry<String, Map<String, SampleRingBuffer>> entry : sampleMap.entrySet()) {
+                boolean removed = false;
+                for (SampleRingBuffer buffer : entry.getValue().values()) {
+                    removed |= buffer.removeOlderThan(oldestTime);
+                }
+                if (removed && chartMap.containsKey(entry.getKey())) {
+                    dirtyCharts.add(chartMap.get(entry.getKey()));
                 }
             }
-        });
+        }
 
-        lineChartMap.put(tag, lineChart);
-        chartPane.getChildren().add(lineChart);
+        for (SampleChart chart : dirtyCharts) {
+            chart.redraw();
+        }
+        dirtyCharts.clear();
+
+        updateRecordingStatus();
     }
 
     public boolean startMonitor(UploadTarget uploadTarget) {
@@ -223,23 +478,13 @@ public class DeviceMonitor extends SplitPane {
         Matcher log = format.matcher(message);
         if (log.find() && log.groupCount() == 3) {
             LogItem logItem = new LogItem(log.group(1), log.group(2), log.group(3));
-            Platform.runLater(() -> {
-                logData.addAll(logItem);
-                if (!tagListForTable.contains(logItem.getDeviceName())) {
-                    tagListForTable.add(logItem.getDeviceName());
-                    // A hack to make the checkbox tick became visible properly
-                    Platform.runLater(() -> checkTagComboBox.getCheckModel().check(logItem.getDeviceName()));
-                }
-                if (autoScrollCheckbox.isSelected()) {
-                    deviceMonitorTable.scrollTo(logItem);
-                }
-
-                if (!tagListForChart.contains(logItem.getDeviceName())) {
-                    tagListForChart.add(logItem.getDeviceName());
-                    // A hack to make the checkbox tick became visible properly
-                    Platform.runLater(() -> plotTagComboBox.getCheckModel().check(logItem.getDeviceName()));
-                }
-            });
+            DeviceMonitorRecorder currentRecorder = recorder;
+            if (currentRecorder != null) {
+                currentRecorder.record(logItem);
+            }
+            if (replayer == null) {
+                pendingLogItems.add(logItem);
+            }
         }
     }
 
@@ -272,6 +517,7 @@ public class DeviceMonitor extends SplitPane {
         try {
             if (webSocketClient.connectBlocking(5, TimeUnit.SECONDS)) {
                 isRunning.set(true);
+                updateTimer.start();
                 return true;
             } else {
                 return false;
@@ -311,10 +557,12 @@ public class DeviceMonitor extends SplitPane {
             return false;
         }
         isRunning.set(true);
+        updateTimer.start();
         return true;
     }
 
     public void stopMonitor() {
+        recordButton.setSelected(false);
         if (currentUploadTarget == null) {
             return;
         }
@@ -332,6 +580,10 @@ public class DeviceMonitor extends SplitPane {
         } else {
             throw new IllegalStateException("There is no implementation for " + currentUploadTarget);
         }
+        if (replayer == null) {
+            updateTimer.stop();
+        }
+        flushPendingLogItems();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import io.makerplayground.util.PathUtility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record log items to a {@link DeviceMonitorRecording} on a background thread. {@link #record(LogItem)} only puts the item
+ * into a bounded queue so it never blocks the thread that receives data from the device. Items are dropped (and counted)
+ * when the writer thread can't keep up.
+ */
+public class DeviceMonitorRecorder {
+
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final long FILE_SIZE = 64 * 1024 * 1024;
+    private static final long FLUSH_INTERVAL_MS = 500;
+
+    private final Path directory;
+    private final BlockingQueue<LogItem> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder recordedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running;
+
+    private RecordingWriter writer;
+    private int fileCount;
+
+    public DeviceMonitorRecorder(Path directory) {
+        this.directory = directory;
+        this.writerThread = new Thread(this::writeLoop, "DeviceMonitorRecorder");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * @return a new directory in the workspace named after the current time
+     */
+    public static Path createRecordingDirectory() {
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return Paths.get(PathUtility.MP_WORKSPACE, "recordings", name);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        writer = createWriter();
+        running = true;
+        writerThread.start();
+    }
+
+    public void record(LogItem logItem) {
+        if (!running) {
+            return;
+        }
+        if (!queue.offer(logItem)) {
+            droppedCount.increment();
+        }
+    }
+
+    /**
+     * Stop the recorder. Items that have already been queued are written to the file before the file is closed.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public long getRecordedCount() {
+        return recordedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    private RecordingWriter createWriter() throws IOException {
+        Path path = directory.resolve(String.format("part-%04d%s", fileCount, DeviceMonitorRecording.FILE_EXTENSION));
+        fileCount++;
+        return new RecordingWriter(path, FILE_SIZE);
+    }
+
+    private void writeLoop() {
+        List<LogItem> block = new ArrayList<>(DeviceMonitorRecording.BLOCK_SIZE);
+        long lastFlushTime = System.currentTimeMillis();
+        try {
+            while (running || !queue.isEmpty()) {
+                LogItem logItem = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (logItem != null) {
+                    block.add(logItem);
+                    queue.drainTo(block, DeviceMonitorRecording.BLOCK_SIZE - block.size());
+                }
+                // write a partial block periodically so that a recording of a slow device is still readable while recording
+                if (block.size() == DeviceMonitorRecording.BLOCK_SIZE
+                        || (!block.isEmpty() && System.currentTimeMillis() - lastFlushTime >= FLUSH_INTERVAL_MS)) {
+                    writeBlock(block);
+                    block.clear();
+                    lastFlushTime = System.currentTimeMillis();
+                }
+            }
+            writeBlock(block);
+        } catch (InterruptedException | IOException e) {
+            e.printStackTrace();
+            running = false;
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void writeBlock(List<LogItem> block) throws IOException {
+        if (!writer.writeBlock(block)) {
+            // roll over to a new file when the current file is full
+            writer.close();
+            writer = createWriter();
+            if (!writer.writeBlock(block)) {
+                throw new IOException("Log items are too large to be recorded");
+            }
+        }
+        recordedCount.add(block.size());
+    }
+}
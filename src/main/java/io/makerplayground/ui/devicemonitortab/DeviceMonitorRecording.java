@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A recording of the device monitor stored as a directory of part files (part-0000.mpr, part-0001.mpr, ...) written by
+ * {@link DeviceMonitorRecorder}. Every file starts with a 32 bytes header (magic, length of the valid content, offset of
+ * the last index block and number of data blocks) followed by blocks which begin with a type byte and the block length.
+ * A data block stores up to {@link #BLOCK_SIZE} log items column by column (time offsets, levels, tags, messages) followed
+ * by the numeric samples parsed from the messages. An index block containing the offset and time range of the preceding
+ * data blocks is written every {@link #INDEX_INTERVAL} data blocks and when the file is closed so the reader doesn't need
+ * to scan the whole file. Blocks written after the last index block (e.g. when the program was terminated while
+ * recording) are found by scanning the end of the file.
+ */
+public class DeviceMonitorRecording {
+
+    static final byte[] MAGIC = "MPREC001".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_SIZE = 32;
+    static final int VALID_LENGTH_OFFSET = 8;
+    static final int LAST_INDEX_OFFSET = 16;
+    static final int BLOCK_COUNT_OFFSET = 24;
+    static final int BLOCK_HEADER_SIZE = 5;
+    static final byte DATA_BLOCK = 1;
+    static final byte INDEX_BLOCK = 2;
+    static final int INDEX_ENTRY_SIZE = 28;
+    static final int INDEX_INTERVAL = 64;
+    static final int BLOCK_SIZE = 512;
+    static final String FILE_EXTENSION = ".mpr";
+
+    private static final LogLevel[] LOG_LEVELS = LogLevel.values();
+
+    /**
+     * Location and time range of a data block
+     */
+    private static class Block {
+        private final ByteBuffer file;
+        private final int offset;
+        private final long firstTime;
+        private final long lastTime;
+        private final int itemCount;
+
+        private Block(ByteBuffer file, int offset, long firstTime, long lastTime, int itemCount) {
+            this.file = file;
+            this.offset = offset;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+            this.itemCount = itemCount;
+        }
+    }
+
+    /**
+     * A numeric value parsed from the message of a log item
+     */
+    interface SampleConsumer {
+        void accept(long time, String tag, String valueName, double value);
+    }
+
+    private final Path directory;
+    private final List<Block> blocks = new ArrayList<>();
+
+    private DeviceMonitorRecording(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open a recording stored in the given directory
+     * @throws IOException if the directory doesn't contain any recording file or a file is corrupted
+     */
+    public static DeviceMonitorRecording open(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(FILE_EXTENSION)).sorted().collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new IOException("Can't find any recording in " + directory);
+        }
+        DeviceMonitorRecording recording = new DeviceMonitorRecording(directory);
+        for (Path file : files) {
+            recording.readFile(file);
+        }
+        return recording;
+    }
+
+    private void readFile(Path path) throws IOException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Invalid recording file " + path);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            byte[] magic = new byte[MAGIC.length];
+            header.flip();
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Invalid recording file " + path);
+            }
+            long validLength = Math.min(header.getLong(VALID_LENGTH_OFFSET), channel.size());
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, validLength).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // follow the chain of index blocks from the last one
+        List<Block> indexedBlocks = new ArrayList<>();
+        int scanStart = HEADER_SIZE;
+        int indexOffset = (int) file.getLong(LAST_INDEX_OFFSET);
+        if (indexOffset != 0) {
+            scanStart = indexOffset + file.getInt(indexOffset + 1);
+        }
+        while (indexOffset != 0) {
+            int entryCount = file.getInt(indexOffset + BLOCK_HEADER_SIZE + 8);
+            int entryOffset = indexOffset + BLOCK_HEADER_SIZE + 12;
+            List<Block> entries = new ArrayList<>(entryCount);
+            for (int i=0; i<entryCount; i++) {
+                int position = entryOffset + i * INDEX_ENTRY_SIZE;
+                entries.add(new Block(file, (int) file.getLong(position), file.getLong(position + 8), file.getLong(position + 16), file.getInt(position + 24)));
+            }
+            indexedBlocks.addAll(0, entries);
+            indexOffset = (int) file.getLong(indexOffset + BLOCK_HEADER_SIZE);
+        }
+        blocks.addAll(indexedBlocks);
+
+        // scan the data blocks written after the last index block
+        int position = scanStart;
+        while (position + BLOCK_HEADER_SIZE <= file.limit()) {
+            byte type = file.get(position);
+            int length = file.getInt(position + 1);
+            if (length <= BLOCK_HEADER_SIZE || position + length > file.limit()) {
+                break;
+            }
+            if (type == DATA_BLOCK) {
+                blocks.add(new Block(file, position, file.getLong(position + BLOCK_HEADER_SIZE + 4)
+                        , file.getLong(position + BLOCK_HEADER_SIZE + 12), file.getInt(position + BLOCK_HEADER_SIZE)));
+            }
+            position += length;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    public long getItemCount() {
+        return blocks.stream().mapToLong(block -> block.itemCount).sum();
+    }
+
+    public long getStartTime() {
+        return blocks.isEmpty() ? 0 : blocks.get(0).firstTime;
+    }
+
+    public long getEndTime() {
+        return blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).lastTime;
+    }
+
+    int getBlockItemCount(int blockIndex) {
+        return blocks.get(blockIndex).itemCount;
+    }
+
+    /**
+     * @return index of the first block that contains an item at or after the given time or the last block if there isn't any
+     */
+    int findBlock(long time) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).lastTime < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    List<LogItem> readBlock(int blockIndex) {
+        List<LogItem> logItems = new ArrayList<>(blocks.get(blockIndex).itemCount);
+        decodeBlock(blocks.get(blockIndex), logItems, null);
+        return logItems;
+    }
+
+    /**
+     * Write every log item to a csv file one block at a time
+     */
+    public void exportCsv(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("Time,Level,Device Name,Message");
+            writer.newLine();
+            List<LogItem> logItems = new ArrayList<>(BLOCK_SIZE);
+            for (Block block : blocks) {
+                logItems.clear();
+                decodeBlock(block, logItems, null);
+                for (LogItem logItem : logItems) {
+                    writer.write(String.valueOf(logItem.getTimestamp()));
+                    writer.write(',');
+                    writer.write(logItem.getLevel().name());
+                    writer.write(',');
+                    writer.write(escapeCsv(logItem.getDeviceName()));
+                    writer.write(',');
+                    writer.write(escapeCsv(logItem.getMessage()));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write every numeric sample to a csv file one block at a time using the sample columns stored in the recording
+     */
+    public void exportSamplesCsv(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("Time,Device Name,Name,Value");
+            writer.newLine();
+            IOException[] exception = new IOException[1];
+            for (Block block : blocks) {
+                decodeBlock(block, null, (time, tag, valueName, value) -> {
+                    if (exception[0] != null) {
+                        return;
+                    }
+                    try {
+                        writer.write(time + "," + escapeCsv(tag) + "," + escapeCsv(valueName) + "," + value);
+                        writer.newLine();
+                    } catch (IOException e) {
+                        exception[0] = e;
+                    }
+                });
+                if (exception[0] != null) {
+                    throw exception[0];
+                }
+            }
+        }
+    }
+
+    private static String escapeCsv(String s) {
+        if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    /* decode the log items and/or the samples of a data block (either output can be null to skip decoding that part) */
+    private static void decodeBlock(Block block, List<LogItem> logItems, SampleConsumer sampleConsumer) {
+        ByteBuffer buffer = block.file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(block.offset + BLOCK_HEADER_SIZE);
+        int itemCount = buffer.getInt();
+        long firstTime = buffer.getLong();
+        buffer.getLong();   // time of the last item
+
+        long[] times = new long[itemCount];
+        for (int i=0; i<itemCount; i++) {
+            times[i] = firstTime + buffer.getInt();
+        }
+        byte[] levels = new byte[itemCount];
+        buffer.get(levels);
+        String[] tags = getDictionary(buffer);
+        short[] tagIds = new short[itemCount];
+        for (int i=0; i<itemCount; i++) {
+            tagIds[i] = buffer.getShort();
+        }
+        int[] messageLengths = new int[itemCount];
+        for (int i=0; i<itemCount; i++) {
+            messageLengths[i] = buffer.getInt();
+        }
+        if (logItems != null) {
+            for (int i=0; i<itemCount; i++) {
+                byte[] bytes = new byte[messageLengths[i]];
+                buffer.get(bytes);
+                logItems.add(new LogItem(times[i], LOG_LEVELS[levels[i]], tags[tagIds[i]], new String(bytes, StandardCharsets.UTF_8)));
+            }
+        } else {
+            int totalLength = 0;
+            for (int length : messageLengths) {
+                totalLength += length;
+            }
+            buffer.position(buffer.position() + totalLength);
+        }
+
+        if (sampleConsumer != null) {
+            int sampleCount = buffer.getInt();
+            String[] valueNames = getDictionary(buffer);
+            int[] itemIndices = new int[sampleCount];
+            for (int i=0; i<sampleCount; i++) {
+                itemIndices[i] = buffer.getInt();
+            }
+            short[] valueNameIds = new short[sampleCount];
+            for (int i=0; i<sampleCount; i++) {
+                valueNameIds[i] = buffer.getShort();
+            }
+            for (int i=0; i<sampleCount; i++) {
+                int itemIndex = itemIndices[i];
+                sampleConsumer.accept(times[itemIndex], tags[tagIds[itemIndex]], valueNames[valueNameIds[i]], buffer.getDouble());
+            }
+        }
+    }
+
+    private static String[] getDictionary(ByteBuffer buffer) {
+        String[] words = new String[buffer.getShort()];
+        for (int i=0; i<words.length; i++) {
+            byte[] bytes = new byte[buffer.getShort()];
+            buffer.get(bytes);
+            words[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Replay a {@link DeviceMonitorRecording} on a background thread by adding each log item to a queue at the time it
+ * was recorded scaled by the replay speed. Seeking adds the items just before the new position at once so the monitor
+ * shows the same content as it would have at that time. The replay waits whenever the queue holds the maximum number of
+ * pending items so replaying as fast as possible never adds items faster than the monitor can consume them.
+ */
+class DeviceMonitorReplayer {
+
+    /* number of log items before the seek position which are replayed immediately */
+    private static final int SEEK_CONTEXT_ITEMS = 10000;
+    private static final long MAX_WAIT_MS = 50;
+    private static final long BACK_PRESSURE_WAIT_MS = 5;
+
+    private final DeviceMonitorRecording recording;
+    private final Queue<LogItem> queue;
+    private final int maxPendingItems;
+    private final Thread thread;
+
+    /* all the fields below are guarded by lock */
+    private final Object lock = new Object();
+    private double speed = 1;
+    private boolean paused = true;
+    private boolean stopped;
+    private long seekTime;
+    private boolean seekRequested = true;
+
+    private volatile long currentTime;
+
+    /**
+     * @param queue queue consumed by the monitor which must not be modified by other producers during the replay
+     * @param maxPendingItems number of items in the queue above which the replay waits for the monitor
+     */
+    DeviceMonitorReplayer(DeviceMonitorRecording recording, Queue<LogItem> queue, int maxPendingItems) {
+        this.recording = recording;
+        this.queue = queue;
+        this.maxPendingItems = maxPendingItems;
+        this.seekTime = recording.getStartTime();
+        this.currentTime = recording.getStartTime();
+        this.thread = new Thread(this::replayLoop, "DeviceMonitorReplayer");
+        this.thread.setDaemon(true);
+    }
+
+    DeviceMonitorRecording getRecording() {
+        return recording;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    void play() {
+        synchronized (lock) {
+            paused = false;
+            lock.notifyAll();
+        }
+    }
+
+    void pause() {
+        synchronized (lock) {
+            paused = true;
+            lock.notifyAll();
+        }
+    }
+
+    boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    /**
+     * @param speed replay speed relative to the recording speed or 0 to replay as fast as possible
+     */
+    void setSpeed(double speed) {
+        synchronized (lock) {
+            this.speed = speed;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Move the replay position
+     * @param clearAction an action to remove the items that have been added to the queue which is run before any item
+     *                    after the new position is added to the queue
+     */
+    void seek(long time, Runnable clearAction) {
+        synchronized (lock) {
+            clearAction.run();
+            seekTime = time;
+            seekRequested = true;
+            currentTime = time;
+            lock.notifyAll();
+        }
+    }
+
+    long getCurrentTime() {
+        return currentTime;
+    }
+
+    private void replayLoop() {
+        int blockIndex = 0;
+        List<LogItem> logItems = List.of();
+        int itemIndex = 0;
+        long anchorTime = 0;        // recording time of the item replayed at anchorNanoTime
+        long anchorNanoTime = 0;
+        double anchorSpeed = -1;
+        boolean wasPaused = true;
+
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (!stopped && !seekRequested && (paused || blockIndex >= recording.getBlockCount())) {
+                        if (!paused) {
+                            paused = true;  // reach the end of the recording
+                        }
+                        lock.wait();
+                    }
+                    if (stopped) {
+                        return;
+                    }
+                    if (seekRequested) {
+                        seekRequested = false;
+                        if (recording.getBlockCount() == 0) {
+                            continue;
+                        }
+                        blockIndex = recording.findBlock(seekTime);
+                        int contextBlockIndex = blockIndex;
+                        int contextItemCount = 0;
+                        while (contextBlockIndex > 0 && contextItemCount < SEEK_CONTEXT_ITEMS) {
+                            contextBlockIndex--;
+                            contextItemCount += recording.getBlockItemCount(contextBlockIndex);
+                        }
+                        for (int i=contextBlockIndex; i<blockIndex; i++) {
+                            queue.addAll(recording.readBlock(i));
+                        }
+                        logItems = recording.readBlock(blockIndex);
+                        itemIndex = 0;
+                        while (itemIndex < logItems.size() && logItems.get(itemIndex).getTimestamp() < seekTime) {
+                            queue.add(logItems.get(itemIndex));
+                            itemIndex++;
+                        }
+                        wasPaused = true;
+                        continue;
+                    }
+                    // restart the clock when the replay is resumed or the speed is changed
+                    if (wasPaused || anchorSpeed != speed) {
+                        anchorTime = currentTime;
+                        anchorNanoTime = System.nanoTime();
+                        anchorSpeed = speed;
+                        wasPaused = false;
+                    }
+
+                    long now = System.nanoTime();
+                    while (itemIndex < logItems.size()) {
+                        // wait without holding the lock so that the monitor can pause or seek while it is catching up
+                        if (queue.size() >= maxPendingItems) {
+                            lock.wait(BACK_PRESSURE_WAIT_MS);
+                            break;
+                        }
+                        LogItem logItem = logItems.get(itemIndex);
+                        long dueTime = (speed == 0) ? now
+                                : anchorNanoTime + (long) ((logItem.getTimestamp() - anchorTime) * 1000000 / speed);
+                        if (dueTime > now) {
+                            currentTime = anchorTime + (long) ((now - anchorNanoTime) / 1000000 * speed);
+                            long waitMs = Math.max(1, Math.min(MAX_WAIT_MS, (dueTime - now) / 1000000));
+                            lock.wait(waitMs);
+                            break;
+                        }
+                        queue.add(logItem);
+                        currentTime = logItem.getTimestamp();
+                        itemIndex++;
+                    }
+                    if (itemIndex >= logItems.size()) {
+                        blockIndex++;
+                        if (blockIndex < recording.getBlockCount()) {
+                            logItems = recording.readBlock(blockIndex);
+                            itemIndex = 0;
+                        }
+                    }
+                    if (paused) {
+                        wasPaused = true;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
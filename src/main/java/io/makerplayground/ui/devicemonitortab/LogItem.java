@@ -16,18 +16,33 @@
 
 package io.makerplayground.ui.devicemonitortab;
 
+import java.util.function.ObjDoubleConsumer;
+import java.util.regex.Pattern;
+
 public class LogItem {
 
+    private static final Pattern numberRegex = Pattern.compile("^(-?\\d+\\.\\d+)$|^(-?\\d+)$");
+
+    private final long timestamp;
     private final LogLevel level;
     private final String deviceName;
     private final String message;
 
     LogItem(String level, String tag, String message) {
-        this.level = LogLevel.fromString(level);
+        this(System.currentTimeMillis(), LogLevel.fromString(level), tag, message);
+    }
+
+    LogItem(long timestamp, LogLevel level, String tag, String message) {
+        this.timestamp = timestamp;
+        this.level = level;
         this.deviceName = tag;
         this.message = message;
     }
 
+    public long getTimestamp() {
+        return timestamp;
+    }
+
     public LogLevel getLevel() {
         return level;
     }
@@ -39,4 +54,17 @@ public class LogItem {
     public String getMessage() {
         return message;
     }
+
+    /**
+     * Pass every numeric value in the message to the consumer assuming that the message is in the format "A=10.5,B=5,C=2.3"
+     * @param consumer a consumer that accepts the name and the value
+     */
+    void forEachNumericValue(ObjDoubleConsumer<String> consumer) {
+        for (String valuePair : message.split(",")) {
+            String[] tokens = valuePair.split("=");
+            if (tokens.length == 2 && numberRegex.matcher(tokens[1]).matches()) {
+                consumer.accept(tokens[0], Double.parseDouble(tokens[1]));
+            }
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An observable list that keeps only the latest log items. The oldest items are removed from the beginning of the list
+ * when new items are appended to a full list. Items are appended in batch so listeners receive one change per batch.
+ */
+class LogItemRingList extends ObservableListBase<LogItem> {
+
+    private final LogItem[] items;
+    private int head;
+    private int size;
+
+    LogItemRingList(int capacity) {
+        this.items = new LogItem[capacity];
+    }
+
+    @Override
+    public LogItem get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return items[(head + index) % items.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int getCapacity() {
+        return items.length;
+    }
+
+    void appendAll(List<LogItem> newItems) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+        // only the last items can be kept when the batch is larger than the capacity
+        List<LogItem> addedItems = newItems.size() > items.length ? newItems.subList(newItems.size() - items.length, newItems.size()) : newItems;
+        int removeCount = Math.max(0, size + addedItems.size() - items.length);
+        beginChange();
+        if (removeCount > 0) {
+            List<LogItem> removedItems = new ArrayList<>(subList(0, removeCount));
+            for (int i=0; i<removeCount; i++) {
+                items[(head + i) % items.length] = null;
+            }
+            head = (head + removeCount) % items.length;
+            size -= removeCount;
+            nextRemove(0, removedItems);
+        }
+        int from = size;
+        for (LogItem item : addedItems) {
+            items[(head + size) % items.length] = item;
+            size++;
+        }
+        nextAdd(from, size);
+        endChange();
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        beginChange();
+        nextRemove(0, new ArrayList<>(this));
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+        endChange();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static io.makerplayground.ui.devicemonitortab.DeviceMonitorRecording.*;
+
+/**
+ * Write a single file of a recording through a memory-mapped buffer. See {@link DeviceMonitorRecording} for the file format.
+ * This class isn't thread-safe and is used only by the writer thread of {@link DeviceMonitorRecorder}.
+ */
+class RecordingWriter implements AutoCloseable {
+
+    /* space kept at the end of the file for the final index block */
+    private static final int INDEX_RESERVE = BLOCK_HEADER_SIZE + 12 + INDEX_INTERVAL * INDEX_ENTRY_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private ByteBuffer blockBuffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<long[]> pendingIndexEntries = new ArrayList<>();   // offset, first time, last time, item count
+    private long lastIndexOffset = 0;
+    private int blockCount;
+
+    RecordingWriter(Path path, long fileSize) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.position(HEADER_SIZE);
+        updateHeader();
+    }
+
+    /**
+     * Append a data block containing the log items
+     * @return false if the file doesn't have enough space left and the items haven't been written
+     */
+    boolean writeBlock(List<LogItem> logItems) {
+        if (logItems.isEmpty()) {
+            return true;
+        }
+        encodeDataBlock(logItems);
+        if (buffer.remaining() < blockBuffer.remaining() + INDEX_RESERVE) {
+            return false;
+        }
+        long offset = buffer.position();
+        buffer.put(blockBuffer);
+        pendingIndexEntries.add(new long[]{offset, logItems.get(0).getTimestamp(), logItems.get(logItems.size() - 1).getTimestamp(), logItems.size()});
+        blockCount++;
+        if (pendingIndexEntries.size() == INDEX_INTERVAL) {
+            writeIndexBlock();
+        }
+        updateHeader();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!pendingIndexEntries.isEmpty()) {
+            writeIndexBlock();
+            updateHeader();
+        }
+        buffer.force();
+        try {
+            // the file is created with the maximum size so the space after the last block is given back
+            channel.truncate(buffer.position());
+        } catch (IOException e) {
+            // Windows doesn't allow a mapped file to be truncated. The file is still valid as the reader only reads
+            // up to the valid length written in the header.
+        }
+        channel.close();
+    }
+
+    private void updateHeader() {
+        buffer.putLong(VALID_LENGTH_OFFSET, buffer.position());
+        buffer.putLong(LAST_INDEX_OFFSET, lastIndexOffset);
+        buffer.putInt(BLOCK_COUNT_OFFSET, blockCount);
+    }
+
+    private void writeIndexBlock() {
+        long offset = buffer.position();
+        int length = BLOCK_HEADER_SIZE + 12 + pendingIndexEntries.size() * INDEX_ENTRY_SIZE;
+        buffer.put(INDEX_BLOCK);
+        buffer.putInt(length);
+        buffer.putLong(lastIndexOffset);
+        buffer.putInt(pendingIndexEntries.size());
+        for (long[] entry : pendingIndexEntries) {
+            buffer.putLong(entry[0]);
+            buffer.putLong(entry[1]);
+            buffer.putLong(entry[2]);
+            buffer.putInt((int) entry[3]);
+        }
+        pendingIndexEntries.clear();
+        lastIndexOffset = offset;
+    }
+
+    private void encodeDataBlock(List<LogItem> logItems) {
+        Map<String, Integer> tagIds = new LinkedHashMap<>();
+        Map<String, Integer> valueNameIds = new LinkedHashMap<>();
+        List<byte[]> messages = new ArrayList<>(logItems.size());
+        List<int[]> sampleRefs = new ArrayList<>();    // item index, value name id
+        List<Double> sampleValues = new ArrayList<>();
+        int messageLength = 0;
+        for (int i=0; i<logItems.size(); i++) {
+            LogItem logItem = logItems.get(i);
+            tagIds.putIfAbsent(logItem.getDeviceName(), tagIds.size());
+            byte[] message = logItem.getMessage().getBytes(StandardCharsets.UTF_8);
+            messages.add(message);
+            messageLength += message.length;
+            int itemIndex = i;
+            logItem.forEachNumericValue((valueName, value) -> {
+                valueNameIds.putIfAbsent(valueName, valueNameIds.size());
+                sampleRefs.add(new int[]{itemIndex, valueNameIds.get(valueName)});
+                sampleValues.add(value);
+            });
+        }
+
+        int itemCount = logItems.size();
+        int estimatedSize = BLOCK_HEADER_SIZE + 20 + itemCount * 11 + messageLength + sampleRefs.size() * 14
+                + dictionarySize(tagIds.keySet()) + dictionarySize(valueNameIds.keySet()) + 8;
+        if (blockBuffer.capacity() < estimatedSize) {
+            blockBuffer = ByteBuffer.allocate(Integer.highestOneBit(estimatedSize) * 2).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        blockBuffer.clear();
+        blockBuffer.put(DATA_BLOCK);
+        blockBuffer.putInt(0);  // length is filled in after the block has been encoded
+        long firstTime = logItems.get(0).getTimestamp();
+        blockBuffer.putInt(itemCount);
+        blockBuffer.putLong(firstTime);
+        blockBuffer.putLong(logItems.get(itemCount - 1).getTimestamp());
+        // each column is stored contiguously
+        for (LogItem logItem : logItems) {
+            blockBuffer.putInt((int) (logItem.getTimestamp() - firstTime));
+        }
+        for (LogItem logItem : logItems) {
+            blockBuffer.put((byte) logItem.getLevel().ordinal());
+        }
+        putDictionary(tagIds.keySet());
+        for (LogItem logItem : logItems) {
+            blockBuffer.putShort(tagIds.get(logItem.getDeviceName()).shortValue());
+        }
+        for (byte[] message : messages) {
+            blockBuffer.putInt(message.length);
+        }
+        for (byte[] message : messages) {
+            blockBuffer.put(message);
+        }
+        blockBuffer.putInt(sampleRefs.size());
+        putDictionary(valueNameIds.keySet());
+        for (int[] ref : sampleRefs) {
+            blockBuffer.putInt(ref[0]);
+        }
+        for (int[] ref : sampleRefs) {
+            blockBuffer.putShort((short) ref[1]);
+        }
+        for (double value : sampleValues) {
+            blockBuffer.putDouble(value);
+        }
+        blockBuffer.putInt(1, blockBuffer.position());
+        blockBuffer.flip();
+    }
+
+    private void putDictionary(Collection<String> words) {
+        blockBuffer.putShort((short) words.size());
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            blockBuffer.putShort((short) bytes.length);
+            blockBuffer.put(bytes);
+        }
+    }
+
+    private static int dictionarySize(Collection<String> words) {
+        int size = 2;
+        for (String word : words) {
+            size += 2 + word.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A line chart of every value of a tag drawn on a canvas. The samples are decimated to the pixel width of the chart by
+ * drawing the minimum and maximum value of the samples that fall into each pixel column so the time needed to draw the
+ * chart doesn't depend on the number of nodes in the scene graph.
+ */
+class SampleChart extends Region {
+
+    private static final Color[] SERIES_COLORS = {Color.web("#f3622d"), Color.web("#fba71b"), Color.web("#57b757"),
+            Color.web("#41a9c9"), Color.web("#4258c9"), Color.web("#9a42c8"), Color.web("#c84164"), Color.web("#888888")};
+    private static final double CHART_HEIGHT = 250;
+    private static final double LEFT_MARGIN = 60;
+    private static final double RIGHT_MARGIN = 15;
+    private static final double TOP_MARGIN = 30;
+    private static final double BOTTOM_MARGIN = 40;
+    private static final Font TITLE_FONT = Font.font(14);
+    private static final Font LABEL_FONT = Font.font(11);
+
+    private final String title;
+    private final Map<String, SampleRingBuffer> seriesMap;
+    private final Canvas canvas = new Canvas();
+
+    /* per pixel column buffers reused between redraws */
+    private double[] columnMin = new double[0];
+    private double[] columnMax = new double[0];
+    private double[] columnFirst = new double[0];
+    private double[] columnLast = new double[0];
+    private boolean[] columnHasData = new boolean[0];
+
+    SampleChart(String title, Map<String, SampleRingBuffer> seriesMap) {
+        this.title = title;
+        this.seriesMap = seriesMap;
+        getChildren().add(canvas);
+        setMinHeight(CHART_HEIGHT);
+        setPrefHeight(CHART_HEIGHT);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            redraw();
+        }
+    }
+
+    void redraw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, width, height);
+
+        gc.setFill(Color.BLACK);
+        gc.setFont(TITLE_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(title, width / 2, TOP_MARGIN / 2);
+
+        int plotWidth = (int) (width - LEFT_MARGIN - RIGHT_MARGIN);
+        double plotHeight = height - TOP_MARGIN - BOTTOM_MARGIN;
+        if (plotWidth < 2 || plotHeight < 2) {
+            return;
+        }
+
+        // find the range of both axis
+        long minX = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (SampleRingBuffer buffer : seriesMap.values()) {
+            if (buffer.size() == 0) {
+                continue;
+            }
+            minX = Math.min(minX, buffer.getFirstSampleNumber());
+            maxX = Math.max(maxX, buffer.getFirstSampleNumber() + buffer.size() - 1);
+            for (int i=0; i<buffer.size(); i++) {
+                double value = buffer.getValue(i);
+                minY = Math.min(minY, value);
+                maxY = Math.max(maxY, value);
+            }
+        }
+
+        gc.setStroke(Color.gray(0.6));
+        gc.setLineWidth(1);
+        gc.strokeRect(LEFT_MARGIN + 0.5, TOP_MARGIN + 0.5, plotWidth, plotHeight);
+        if (minX > maxX) {
+            return;
+        }
+        if (minY == maxY) {
+            minY -= 1;
+            maxY += 1;
+        }
+
+        gc.setFill(Color.gray(0.3));
+        gc.setFont(LABEL_FONT);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText(formatNumber(maxY), LEFT_MARGIN - 5, TOP_MARGIN);
+        gc.setTextBaseline(VPos.BOTTOM);
+        gc.fillText(formatNumber(minY), LEFT_MARGIN - 5, TOP_MARGIN + plotHeight);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText(String.valueOf(minX), LEFT_MARGIN, TOP_MARGIN + plotHeight + 3);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.fillText(String.valueOf(maxX), LEFT_MARGIN + plotWidth, TOP_MARGIN + plotHeight + 3);
+
+        ensureColumnCapacity(plotWidth);
+        double xRange = Math.max(1, maxX - minX);
+        double yScale = plotHeight / (maxY - minY);
+        double legendX = LEFT_MARGIN;
+        int seriesIndex = 0;
+        for (Map.Entry<String, SampleRingBuffer> entry : seriesMap.entrySet()) {
+            SampleRingBuffer buffer = entry.getValue();
+            Color color = SERIES_COLORS[seriesIndex % SERIES_COLORS.length];
+            seriesIndex++;
+
+            // decimate the samples to the minimum, maximum, first and last value of each pixel column
+            Arrays.fill(columnHasData, 0, plotWidth, false);
+            long firstSampleNumber = buffer.getFirstSampleNumber();
+            for (int i=0; i<buffer.size(); i++) {
+                double value = buffer.getValue(i);
+                int column = (int) ((firstSampleNumber + i - minX) * (plotWidth - 1) / xRange);
+                if (!columnHasData[column]) {
+                    columnHasData[column] = true;
+                    columnMin[column] = value;
+                    columnMax[column] = value;
+                    columnFirst[column] = value;
+                } else {
+                    columnMin[column] = Math.min(columnMin[column], value);
+                    columnMax[column] = Math.max(columnMax[column], value);
+                }
+                columnLast[column] = value;
+            }
+
+            gc.setStroke(color);
+            gc.setLineWidth(1.5);
+            int previousColumn = -1;
+            for (int column=0; column<plotWidth; column++) {
+                if (!columnHasData[column]) {
+                    continue;
+                }
+                double x = LEFT_MARGIN + column + 0.5;
+                if (previousColumn != -1) {
+                    gc.strokeLine(LEFT_MARGIN + previousColumn + 0.5, toY(columnLast[previousColumn], maxY, yScale), x, toY(columnFirst[column], maxY, yScale));
+                }
+                if (columnMin[column] != columnMax[column]) {
+                    gc.strokeLine(x, toY(columnMin[column], maxY, yScale), x, toY(columnMax[column], maxY, yScale));
+                }
+                previousColumn = column;
+            }
+
+            // legend
+            gc.setFill(color);
+            gc.fillRect(legendX, height - 12, 8, 8);
+            gc.setFill(Color.gray(0.3));
+            gc.setTextAlign(TextAlignment.LEFT);
+            gc.setTextBaseline(VPos.CENTER);
+            gc.fillText(entry.getKey(), legendX + 12, height - 8);
+            legendX += 12 + entry.getKey().length() * 7 + 15;
+        }
+    }
+
+    private static double toY(double value, double maxY, double yScale) {
+        return TOP_MARGIN + (maxY - value) * yScale;
+    }
+
+    private static String formatNumber(double value) {
+        return (value == Math.rint(value) && Math.abs(value) < 1e9) ? String.valueOf((long) value) : String.format("%.2f", value);
+    }
+
+    private void ensureColumnCapacity(int width) {
+        if (columnHasData.length < width) {
+            columnMin = new double[width];
+            columnMax = new double[width];
+            columnFirst = new double[width];
+            columnLast = new double[width];
+            columnHasData = new boolean[width];
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+/**
+ * How long the samples of each plotted value are kept. Time based retention is still bounded by {@link #MAX_SAMPLES}
+ * so that a device that logs very fast can't use an unbounded amount of memory.
+ */
+enum SampleRetention {
+    SAMPLES_1000("Last 1,000 samples", 1000, 0),
+    SAMPLES_10000("Last 10,000 samples", 10000, 0),
+    MINUTES_1("Last 1 minute", SampleRetention.MAX_SAMPLES, 60 * 1000),
+    MINUTES_10("Last 10 minutes", SampleRetention.MAX_SAMPLES, 10 * 60 * 1000),
+    MINUTES_60("Last 60 minutes", SampleRetention.MAX_SAMPLES, 60 * 60 * 1000);
+
+    static final int MAX_SAMPLES = 100000;
+
+    private final String displayName;
+    private final int maxSamples;
+    private final long maxAgeMillis;
+
+    SampleRetention(String displayName, int maxSamples, long maxAgeMillis) {
+        this.displayName = displayName;
+        this.maxSamples = maxSamples;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    int getMaxSamples() {
+        return maxSamples;
+    }
+
+    /**
+     * @return maximum age of a sample in milliseconds or 0 if the samples are only limited by their number
+     */
+    long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
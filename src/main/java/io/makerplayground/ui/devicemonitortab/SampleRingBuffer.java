@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+/**
+ * A fixed-capacity ring buffer of numeric samples and their timestamps stored in primitive arrays. The arrays grow on
+ * demand up to the capacity after which the oldest sample is overwritten so the memory used never exceeds the capacity.
+ */
+class SampleRingBuffer {
+
+    private static final int INITIAL_SIZE = 256;
+
+    private long[] times;
+    private double[] values;
+    private int head;       // index of the oldest sample
+    private int size;
+    private int capacity;
+    private long totalCount;
+
+    SampleRingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.times = new long[Math.min(INITIAL_SIZE, capacity)];
+        this.values = new double[times.length];
+    }
+
+    void add(long time, double value) {
+        if (size == times.length && size < capacity) {
+            resize(Math.min(capacity, times.length * 2));
+        }
+        if (size == capacity) {
+            times[head] = time;
+            values[head] = value;
+            head = (head + 1) % times.length;
+        } else {
+            int index = (head + size) % times.length;
+            times[index] = time;
+            values[index] = value;
+            size++;
+        }
+        totalCount++;
+    }
+
+    /**
+     * @return number of samples kept in the buffer
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return sequence number of the oldest sample kept in the buffer counting from the first sample ever added
+     */
+    long getFirstSampleNumber() {
+        return totalCount - size;
+    }
+
+    /**
+     * @param i index of the sample where 0 is the oldest sample
+     */
+    double getValue(int i) {
+        return values[(head + i) % values.length];
+    }
+
+    /**
+     * @param i index of the sample where 0 is the oldest sample
+     */
+    long getTime(int i) {
+        return times[(head + i) % times.length];
+    }
+
+    /**
+     * Change the capacity of the buffer keeping the latest samples
+     */
+    void setCapacity(int capacity) {
+        if (size > capacity) {
+            head = (head + size - capacity) % times.length;
+            size = capacity;
+        }
+        this.capacity = capacity;
+        if (times.length > capacity) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Remove samples older than the given time
+     * @return true if any sample has been removed
+     */
+    boolean removeOlderThan(long time) {
+        boolean removed = false;
+        while (size > 0 && times[head] < time) {
+            head = (head + 1) % times.length;
+            size--;
+            removed = true;
+        }
+        return removed;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void resize(int length) {
+        long[] newTimes = new long[length];
+        double[] newValues = new double[length];
+        for (int i=0; i<size; i++) {
+            newTimes[i] = times[(head + i) % times.length];
+            newValues[i] = values[(head + i) % values.length];
+        }
+        times = newTimes;
+        values = newValues;
+        head = 0;
+    }
+}
@@ -130,6 +130,8 @@ public class ActualDeviceConfigView extends VBox{
         optionalPropertyCheckbox1.selectedProperty().bindBidirectional(showOptionalProperty);
         optionalPropertyCheckbox2.selectedProperty().bindBidirectional(showOptionalProperty);
 
+        autoButton1.disableProperty().bind(viewModel.autoAssignRunningProperty());
+        autoButton2.disableProperty().bind(viewModel.autoAssignRunningProperty());
         autoButton2.visibleProperty().bind(usedDevice.visibleProperty().not());
         autoButton2.managedProperty().bind(usedDevice.visibleProperty().not());
 
@@ -141,11 +143,12 @@ public class ActualDeviceConfigView extends VBox{
     }
 
     private void onAutoAction() {
-        ProjectMappingResult result = viewModel.autoAssignDevice();
-        if (result != ProjectMappingResult.OK) {
-            WarningDialogView warningDialogView = new WarningDialogView(getScene().getWindow(), result.getErrorMessage());
-            warningDialogView.showAndWait();
-        }
+        viewModel.autoAssignDevice(result -> {
+            if (result != ProjectMappingResult.OK) {
+                WarningDialogView warningDialogView = new WarningDialogView(getScene().getWindow(), result.getErrorMessage());
+                warningDialogView.showAndWait();
+            }
+        });
     }
 
     private void initPlatformControl() {
@@ -258,7 +261,7 @@ public class ActualDeviceConfigView extends VBox{
                 UploadDialogView uploadDialogView = new UploadDialogView(getScene().getWindow(), exportTask, false);
                 uploadDialogView.progressProperty().bind(exportTask.progressProperty());
                 uploadDialogView.descriptionProperty().bind(exportTask.messageProperty());
-                uploadDialogView.logProperty().bind(exportTask.fullLogProperty());
+                uploadDialogView.setLog(exportTask.getLog());
                 uploadDialogView.show();
                 new Thread(exportTask).start();
             });
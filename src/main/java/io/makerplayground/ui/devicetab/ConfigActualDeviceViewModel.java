@@ -20,18 +20,23 @@ import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.actual.*;
 import io.makerplayground.generator.devicemapping.DeviceMappingResult;
 import io.makerplayground.generator.devicemapping.ProjectMappingResult;
+import io.makerplayground.project.DeviceAssignmentSolver;
 import io.makerplayground.project.Project;
 import io.makerplayground.project.ProjectConfiguration;
 import io.makerplayground.project.ProjectDevice;
 import io.makerplayground.upload.UploadTarget;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +50,8 @@ public class ConfigActualDeviceViewModel {
     private final ObjectProperty<Map<ProjectDevice, Map<ActualDevice, SortedMap<Connection, List<Connection>>>>> deviceConnectionList;
 
     private ActualDeviceComboItem selectedController;
+    private Task<ProjectMappingResult> autoAssignTask;
+    private final ReadOnlyBooleanWrapper autoAssignRunning = new ReadOnlyBooleanWrapper();
 
     @Setter private Runnable platformChangedCallback;
     @Setter private Runnable controllerChangedCallback;
@@ -69,6 +76,7 @@ public class ConfigActualDeviceViewModel {
     }
 
     void setPlatform(Platform platform) {
+        cancelAutoAssignDevice();
         if (project.getSelectedPlatform() != platform) {
             project.setPlatform(platform);
             project.getProjectConfiguration().unsetDevice(ProjectDevice.CONTROLLER);
@@ -92,6 +100,7 @@ public class ConfigActualDeviceViewModel {
     }
 
     void setController(ActualDeviceComboItem device) {
+        cancelAutoAssignDevice();
         if (selectedController != device) {
             selectedController = device;
             if (selectedController != null) {
@@ -112,6 +121,7 @@ public class ConfigActualDeviceViewModel {
     }
 
     void setDevice(ProjectDevice projectDevice, CompatibleDevice device) {
+        cancelAutoAssignDevice();
         ProjectConfiguration configuration = project.getProjectConfiguration();
         /* same as previous -> do nothing */
         if (device == null) {
@@ -155,6 +165,7 @@ public class ConfigActualDeviceViewModel {
     }
 
     void removeDevice(ProjectDevice projectDevice) {
+        cancelAutoAssignDevice();
         project.removeDevice(projectDevice);
 
         retrieveDeviceMapping();
@@ -167,6 +178,7 @@ public class ConfigActualDeviceViewModel {
     }
 
     void setConnection(ProjectDevice projectDevice, Connection connectionConsume, Connection connectionProvide) {
+        cancelAutoAssignDevice();
         if (project.getProjectConfiguration().getDeviceConnection(projectDevice).getConsumerProviderConnections().get(connectionConsume) != connectionProvide) {
             if (connectionProvide == null) {
                 project.getProjectConfiguration().unsetConnection(projectDevice, connectionConsume);
@@ -253,16 +265,65 @@ public class ConfigActualDeviceViewModel {
         return project.getProjectConfiguration().getDeviceConnection(projectDevice).getConsumerProviderConnections().get(connectionConsume);
     }
 
-    ProjectMappingResult autoAssignDevice() {
-        ProjectMappingResult result = project.getProjectConfiguration().autoAssignDevices();
-        retrieveDeviceMapping();
-        if (deviceConfigChangedCallback != null) {
-            deviceConfigChangedCallback.run();
-        }
-        if (configChangedCallback != null) {
-            configChangedCallback.run();
+    void autoAssignDevice(Consumer<ProjectMappingResult> resultCallback) {
+        cancelAutoAssignDevice();
+
+        // the solver searches on its own copy of the configuration in background and the result is applied in the fx thread
+        DeviceAssignmentSolver solver = project.getProjectConfiguration().createDeviceAssignmentSolver(DeviceAssignmentSolver.DEFAULT_TIME_BUDGET);
+        Task<ProjectMappingResult> task = new Task<>() {
+            @Override
+            protected ProjectMappingResult call() {
+                return solver.solve();
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                solver.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (autoAssignTask != task) {
+                return;
+            }
+            autoAssignTask = null;
+            autoAssignRunning.set(false);
+            if (solver.apply()) {
+                retrieveDeviceMapping();
+                if (deviceConfigChangedCallback != null) {
+                    deviceConfigChangedCallback.run();
+                }
+                if (configChangedCallback != null) {
+                    configChangedCallback.run();
+                }
+                resultCallback.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (autoAssignTask == task) {
+                autoAssignTask = null;
+                autoAssignRunning.set(false);
+            }
+            task.getException().printStackTrace();
+        });
+        autoAssignTask = task;
+        autoAssignRunning.set(true);
+
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void cancelAutoAssignDevice() {
+        if (autoAssignTask != null) {
+            autoAssignTask.cancel();
+            autoAssignTask = null;
+            autoAssignRunning.set(false);
         }
-        return result;
+    }
+
+    ReadOnlyBooleanProperty autoAssignRunningProperty() {
+        return autoAssignRunning.getReadOnlyProperty();
     }
 
     public ObservableList<ProjectDevice> getAllDevices() {
@@ -63,7 +63,10 @@ public class DeviceExplorerView extends VBox {
     private Consumer<ActualDevice> actualDeviceConsumer;
     private Project currentProject;
     private ActualDevice currentController;
+    private ActualDevice.BoundConnection currentControllerConnection;
     private String currentSearchKeyword = "";
+    // connections of each device are bound once instead of every time the filter is applied e.g. on every keystroke
+    private final Map<ActualDevice, ActualDevice.BoundConnection> boundConnections = new IdentityHashMap<>();
 
     private final List<String> allBrands;
     private final List<GenericDevice> allGenericDevices;
@@ -236,9 +239,13 @@ public class DeviceExplorerView extends VBox {
             return false;
         }
 
-        Set<Connection> allConnectionProvide = new HashSet<>(currentController.getConnectionProvideByOwnerDevice(ProjectDevice.CONTROLLER));
+        if (currentControllerConnection == null || currentControllerConnection.getActualDevice() != currentController) {
+            currentControllerConnection = currentController.bindConnection(ProjectDevice.CONTROLLER);
+        }
+        Set<Connection> allConnectionProvide = new HashSet<>(currentControllerConnection.getConnectionProvide());
+        List<Connection> connectionConsume = boundConnections.computeIfAbsent(actualDevice, device -> device.bindConnection(null)).getConnectionConsume();
         DeviceConnectionResult result = DeviceConnectionLogic.generatePossibleDeviceConnection(allConnectionProvide
-                , Collections.emptyMap(), null, actualDevice, DeviceConnection.NOT_CONNECTED, true);
+                , Collections.emptyMap(), null, connectionConsume, DeviceConnection.NOT_CONNECTED, true);
         if (result.getStatus() != DeviceConnectionResultStatus.OK) {
             return false;
         }
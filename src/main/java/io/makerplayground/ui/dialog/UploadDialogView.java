@@ -16,6 +16,7 @@
 
 package io.makerplayground.ui.dialog;
 
+import io.makerplayground.upload.UploadLog;
 import io.makerplayground.upload.UploadResult;
 import io.makerplayground.upload.UploadTask;
 import javafx.animation.Animation;
@@ -23,14 +24,18 @@ import javafx.animation.Interpolator;
 import javafx.animation.RotateTransition;
 import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.StringProperty;
+import javafx.collections.ListChangeListener;
 import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.paint.Color;
 import javafx.stage.Window;
@@ -41,14 +46,14 @@ public class UploadDialogView extends UndecoratedDialog {
     private final AnchorPane anchorPane = new AnchorPane();
     @FXML private Label progress;
     @FXML private ProgressBar progressBar;
-    @FXML private TextArea textArea;
+    @FXML private ListView<String> logListView;
     @FXML private ImageView imgView;
     @FXML private TitledPane detailPane;
 //    @FXML private ImageView closeButton;
 
     private final UploadTask uploadTask;
     private final RotateTransition rt;
-    private final StringProperty logProperty;
+    private final ObjectProperty<UploadLog> logProperty;
 
     public UploadDialogView(Window owner, UploadTask uploadTask, boolean allowBackground) {
         super(owner);
@@ -87,13 +92,39 @@ public class UploadDialogView extends UndecoratedDialog {
             updateUI();
         });
 
-        // update text in the textarea when log is updated
-        logProperty = new SimpleStringProperty();
+        // show the lines of the log in a list view which only creates cells for the visible lines and scroll to the
+        // last line whenever a new batch of lines is appended
+        ListChangeListener<String> logListener = c -> {
+            while (c.next()) {
+                if (c.wasAdded()) {
+                    logListView.scrollTo(c.getList().size() - 1);
+                }
+            }
+        };
+        logProperty = new SimpleObjectProperty<>();
         logProperty.addListener((observable, oldValue, newValue) -> {
-            textArea.setText(newValue);
-            textArea.setScrollTop(Double.MAX_VALUE);
+            if (oldValue != null) {
+                oldValue.getLines().removeListener(logListener);
+            }
+            if (newValue != null) {
+                logListView.setItems(newValue.getLines());
+                newValue.getLines().addListener(logListener);
+                logListView.scrollTo(newValue.getLines().size() - 1);
+            } else {
+                logListView.setItems(null);
+            }
         });
 
+        MenuItem copyMenuItem = new MenuItem("Copy log");
+        copyMenuItem.setOnAction(event -> {
+            if (logProperty.get() != null) {
+                ClipboardContent content = new ClipboardContent();
+                content.putString(logProperty.get().getText());
+                Clipboard.getSystemClipboard().setContent(content);
+            }
+        });
+        logListView.setContextMenu(new ContextMenu(copyMenuItem));
+
         // resize the dialog after the detailPane is expanded or collapsed
         detailPane.expandedProperty().addListener((observable, oldValue, newValue) -> {
             // expandedProperty() changed before the pane is actually expanded or collapsed thus sizeToScene() is executed
@@ -130,8 +161,12 @@ public class UploadDialogView extends UndecoratedDialog {
         return progressBar.progressProperty();
     }
 
-    public StringProperty logProperty() {
+    public ObjectProperty<UploadLog> logProperty() {
         return logProperty;
     }
 
+    public void setLog(UploadLog log) {
+        logProperty.set(log);
+    }
+
 }
@@ -18,7 +18,6 @@ package io.makerplayground.upload;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fazecast.jSerialComm.SerialPort;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.actual.ActualDevice;
@@ -30,15 +29,13 @@ import io.makerplayground.generator.source.ArduinoInteractiveCode;
 import io.makerplayground.generator.source.SourceCodeResult;
 import io.makerplayground.project.Project;
 import io.makerplayground.project.ProjectDevice;
+import io.makerplayground.util.JacksonMappers;
 import io.makerplayground.util.OSInfo;
 import io.makerplayground.util.PathUtility;
-import io.makerplayground.util.ZipResourceExtractor;
+import io.makerplayground.util.ToolResolver;
 import javafx.application.Platform;
-import org.apache.commons.io.FileUtils;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -81,7 +78,7 @@ public class ArduinoUploadTask extends UploadTask {
         updateProgress(0.10, 1);
         updateMessage("Checking required dependencies");
 
-        Platform.runLater(() -> log.set("Workspace is at " + PathUtility.MP_WORKSPACE + "\n"));
+        log.append("Workspace is at " + PathUtility.MP_WORKSPACE + "\n");
 
         // check platformio installation
         Optional<List<String>> pioCommand = PathUtility.getPlatformIOCommand();
@@ -89,14 +86,14 @@ public class ArduinoUploadTask extends UploadTask {
             updateMessage("Error: Can't find valid platformio installation see: http://docs.platformio.org/en/latest/installation.html");
             return UploadResult.CANT_FIND_PIO;
         }
-        Platform.runLater(() -> log.set("Execute platform by " + pioCommand.get() + "\n"));
+        log.append("Execute platform by " + pioCommand.get() + "\n");
 
         // check platformio home directory
         Optional<String> pioHomeDirPath = PathUtility.getIntegratedPIOHomeDirectory();
         if (pioHomeDirPath.isPresent()) {
-            Platform.runLater(() -> log.set("Using integrated platformio dependencies at " + pioHomeDirPath.get() + "\n"));
+            log.append("Using integrated platformio dependencies at " + pioHomeDirPath.get() + "\n");
         } else {
-            Platform.runLater(() -> log.set("Using default platformio dependencies folder (~/.platformio) \n"));
+            log.append("Using default platformio dependencies folder (~/.platformio) \n");
         }
 
         Optional<String> configDirPath = PathUtility.getDeviceLibraryConfigurationPath();
@@ -104,7 +101,7 @@ public class ArduinoUploadTask extends UploadTask {
             updateMessage("Error: Can't locate device library configuration directory");
             return UploadResult.CANT_FIND_LIB_CONFIG_DIR;
         }
-        Platform.runLater(() -> log.set("Using device library configuration directory at " + configDirPath.get() + "\n"));
+        log.append("Using device library configuration directory at " + configDirPath.get() + "\n");
         Map<io.makerplayground.device.actual.Platform, String> pioPlatformName;
         try {
             pioPlatformName = readPioPlatformMap(configDirPath.get() + File.separator + "pio_platform.yaml");
@@ -120,9 +117,9 @@ public class ArduinoUploadTask extends UploadTask {
         Set<ActualDevice> allActualDevices = projectDeviceList.stream()
                 .flatMap(projectDevice -> configuration.getActualDeviceOrActualDeviceOfIdenticalDevice(projectDevice).stream())
                 .collect(Collectors.toSet());
-        Platform.runLater(() -> log.set("List of actual device used \n"));
+        log.append("List of actual device used \n");
         for (ActualDevice actualDevice : allActualDevices) {
-            Platform.runLater(() -> log.set(" - " + actualDevice.getId() + "\n"));
+            log.append(" - " + actualDevice.getId() + "\n");
         }
 
         Set<String> mpLibraries = allActualDevices.stream()
@@ -153,22 +150,22 @@ public class ArduinoUploadTask extends UploadTask {
             externalLibraries.add("SPI");
         }
 
-        Platform.runLater(() -> log.set("List of library used \n"));
+        log.append("List of library used \n");
         for (String libName : mpLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
         for (String libName : externalLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
 
         updateMessage("Generating project");
-        String projectPath = PathUtility.MP_WORKSPACE + File.separator + "upload";
-        String iniFilePath = projectPath + File.separator + "platformio.ini";
-        Platform.runLater(() -> log.set("Generating project at " + projectPath + "\n"));
+        String boardId = project.getSelectedController().getPioBoardId();
+        PlatformIOWorkspace workspace = PlatformIOWorkspace.of(project, boardId);
+        String projectPath = workspace.getPath().toString();
+        log.append("Generating project at " + projectPath + "\n");
+        long phaseStartTime = System.nanoTime();
         try {
-            FileUtils.forceMkdir(new File(projectPath));
-            FileUtils.deleteQuietly(new File(iniFilePath));
-            List<String> options = new ArrayList<>(Arrays.asList("init", "--board", project.getSelectedController().getPioBoardId()
+            List<String> options = new ArrayList<>(Arrays.asList("init", "--board", boardId
                     , "--project-option", "platform=" + pioPlatformName.get(project.getSelectedPlatform())
                     , "--project-option", "framework=arduino"));
             Map<String, String> customConfig = project.getProjectConfiguration().getController().getPioCustomConfig();
@@ -176,30 +173,37 @@ public class ArduinoUploadTask extends UploadTask {
                 options.add("--project-option");
                 options.add(entry.getKey() + "=" + entry.getValue());
             }
-            UploadResult result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, options
-                    , "Error: Can't create project directory (permission denied)", UploadResult.CANT_CREATE_PROJECT);
-            if (result != UploadResult.OK) {
-                return result;
+            // platformio.ini is regenerated only when the board or its custom config has been changed
+            if (workspace.isProjectOutdated(options)) {
+                workspace.prepareProjectGeneration();
+                UploadResult result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, options
+                        , "Error: Can't create project directory (permission denied)", UploadResult.CANT_CREATE_PROJECT);
+                if (result != UploadResult.OK) {
+                    return result;
+                }
+                workspace.saveProjectOptions(options);
+            } else {
+                log.append("Reusing existing platformio.ini\n");
             }
         } catch (IOException e) {
             updateMessage("Error: can't create project directory (permission denied)");
             return UploadResult.CANT_CREATE_PROJECT;
         }
+        logPhaseTime("Generating project", phaseStartTime);
 
         updateProgress(0.4, 1);
         updateMessage("Generating source files and libraries");
+        phaseStartTime = System.nanoTime();
         try {
-            FileUtils.forceMkdir(new File(projectPath + File.separator + "src"));
-            FileUtils.forceMkdir(new File(projectPath + File.separator + "lib"));
-
             // generate source file
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(projectPath + File.separator + "src" + File.separator + "main.cpp", false))){
-                bw.write(sourcecode.getCode());
+            if (!workspace.writeSourceFile("main.cpp", sourcecode.getCode())) {
+                log.append("Source code is unchanged\n");
             }
         } catch (IOException | NullPointerException e) {
             updateMessage("Error: Cannot write code to project directory");
             return UploadResult.CANT_WRITE_CODE;
         }
+        logPhaseTime("Generating source files", phaseStartTime);
 
         // get path to the library directory
         Optional<String> libraryPath = DeviceLibrary.INSTANCE.getLibraryPath();
@@ -207,54 +211,52 @@ public class ArduinoUploadTask extends UploadTask {
             updateMessage("Error: Missing library directory");
             return UploadResult.MISSING_LIBRARY_DIR;
         }
-        Platform.runLater(() -> log.set("Using libraries stored at " + libraryPath.get() + "\n"));
+        log.append("Using libraries stored at " + libraryPath.get() + "\n");
 
-        try {
-            FileUtils.cleanDirectory(Paths.get(projectPath, "lib").toFile());
-        } catch (IOException e) {
-            // Do nothing
-        }
-        // copy mp library
+        // copy mp library and extract external libraries which have been changed since the last upload
+        phaseStartTime = System.nanoTime();
+        Map<String, Path> libraryDirectories = new TreeMap<>();
         for (String libName: mpLibraries) {
-            File source = Paths.get(libraryPath.get(), "lib", project.getSelectedPlatform().getLibFolderName(), libName).toFile();
-            File destination = Paths.get(projectPath, "lib", libName).toFile();
-            try {
-                FileUtils.copyDirectory(source, destination);
-            } catch (IOException e) {
-                Platform.runLater(() -> log.set("Error: Missing some libraries (" + libName + ")\n"));
-                updateMessage("Error: Missing some libraries");
-                return UploadResult.CANT_FIND_LIBRARY;
-            }
+            libraryDirectories.put(libName, Paths.get(libraryPath.get(), "lib", project.getSelectedPlatform().getLibFolderName(), libName));
         }
-
-        //copy and extract external Libraries
+        Map<String, Path> libraryZipFiles = new TreeMap<>();
         for (String libName : externalLibraries) {
-            Path sourcePath = Paths.get(libraryPath.get(),"lib_ext", libName + ".zip");
-            String destinationPath = projectPath + File.separator + "lib";
-            ZipResourceExtractor.ExtractResult extractResult = ZipResourceExtractor.extract(sourcePath, destinationPath);
-            if (extractResult != ZipResourceExtractor.ExtractResult.SUCCESS) {
-                Platform.runLater(() -> log.set("Error: Failed to extract libraries (" + sourcePath + ")\n"));
-                updateMessage("Error: Failed to extract libraries");
-                return UploadResult.CANT_FIND_LIBRARY;
-            }
+            libraryZipFiles.put(libName, Paths.get(libraryPath.get(),"lib_ext", libName + ".zip"));
         }
+        try {
+            int updatedLibraryCount = workspace.syncLibraries(libraryDirectories, libraryZipFiles);
+            log.append("Updated " + updatedLibraryCount + " of " + (libraryDirectories.size() + libraryZipFiles.size()) + " libraries\n");
+        } catch (PlatformIOWorkspace.MissingLibraryException e) {
+            log.append("Error: Missing some libraries (" + e.getLibraryName() + ")\n");
+            updateMessage("Error: Missing some libraries");
+            return UploadResult.CANT_FIND_LIBRARY;
+        } catch (IOException e) {
+            log.append("Error: Failed to copy libraries (" + e.getMessage() + ")\n");
+            updateMessage("Error: Missing some libraries");
+            return UploadResult.CANT_FIND_LIBRARY;
+        }
+        logPhaseTime("Synchronizing libraries", phaseStartTime);
 
         updateProgress(0.6, 1);
         updateMessage("Building project");
-        UploadResult result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, List.of("run", "-e", project.getSelectedController().getPioBoardId()),
+        phaseStartTime = System.nanoTime();
+        UploadResult result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, List.of("run", "-e", boardId),
                 "Error: Can't build the generated sourcecode. Please contact the development team.", UploadResult.CODE_ERROR);
         if (result != UploadResult.OK) {
             return result;
         }
+        logPhaseTime("Building project", phaseStartTime);
 
         updateProgress(0.8, 1);
         updateMessage("Uploading to board");
         String serialPortName = OSInfo.getOs() == OSInfo.OS.WINDOWS ? serialPort.getSystemPortName() : "/dev/" + serialPort.getSystemPortName();
-        result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, List.of("run", "-e", project.getSelectedController().getPioBoardId(), "-t", "upload", "--upload-port", serialPortName),
+        phaseStartTime = System.nanoTime();
+        result = runPlatformIOCommand(pioCommand.get(), projectPath, pioHomeDirPath, List.of("run", "-e", boardId, "-t", "upload", "--upload-port", serialPortName),
                 "Error: Can't find board. Please check connection.", UploadResult.CANT_FIND_BOARD);
         if (result != UploadResult.OK) {
             return result;
         }
+        logPhaseTime("Uploading to board", phaseStartTime);
 
         updateProgress(1, 1);
         updateMessage("Done");
@@ -262,8 +264,13 @@ public class ArduinoUploadTask extends UploadTask {
         return UploadResult.OK;
     }
 
+    private void logPhaseTime(String phase, long startTime) {
+        long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+        log.append("[Timing] " + phase + " took " + elapsedTime + " ms\n");
+    }
+
     private Map<io.makerplayground.device.actual.Platform, String> readPioPlatformMap(String path) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        ObjectMapper mapper = JacksonMappers.YAML;
         return mapper.readValue(new File(path), new TypeReference<HashMap<io.makerplayground.device.actual.Platform, String>>() {});
     }
 
@@ -279,14 +286,14 @@ public class ArduinoUploadTask extends UploadTask {
             builder.directory(new File(projectPath).getAbsoluteFile()); // this is where you set the root folder for the executable to run with
             pioHomeDirPath.ifPresent(s -> builder.environment().put("PLATFORMIO_HOME_DIR", s));
             builder.redirectErrorStream(true);
-            p = builder.start();
+            p = ToolResolver.start(builder);
             try (Scanner s = new Scanner(p.getInputStream())) {
                 while (s.hasNextLine()) {
                     if (isCancelled()) {
                         throw new InterruptedException();
                     }
                     String line = s.nextLine();
-                    Platform.runLater(() -> log.set(line + "\n"));
+                    log.append(line + "\n");
                 }
             }
             int result = p.waitFor();
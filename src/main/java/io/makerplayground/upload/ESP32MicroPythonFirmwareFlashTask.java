@@ -4,7 +4,7 @@ import com.fazecast.jSerialComm.SerialPort;
 import io.makerplayground.project.Project;
 import io.makerplayground.util.OSInfo;
 import io.makerplayground.util.PathUtility;
-import javafx.application.Platform;
+import io.makerplayground.util.ToolResolver;
 
 import java.io.File;
 import java.io.IOException;
@@ -45,7 +45,7 @@ public class ESP32MicroPythonFirmwareFlashTask extends UploadTask {
             updateMessage("Error: Can't find valid esptool installation see: https://github.com/espressif/esptool");
             return UploadResult.CANT_FIND_PIO;
         }
-        Platform.runLater(() -> log.set("Execute esptool.py by " + esptoolCommand.get() + "\n"));
+        log.append("Execute esptool.py by " + esptoolCommand.get() + "\n");
 
         UploadResult result;
 
@@ -84,18 +84,18 @@ public class ESP32MicroPythonFirmwareFlashTask extends UploadTask {
             // create argument list
             List<String> arguments = new ArrayList<>(command);
             arguments.addAll(args);
-            Platform.runLater(() -> log.set("Executing " + arguments + "\n"));
+            log.append("Executing " + arguments + "\n");
             // create process to invoke esptool
             ProcessBuilder builder = new ProcessBuilder(arguments);
             builder.redirectErrorStream(true);
-            p = builder.start();
+            p = ToolResolver.start(builder);
             try (Scanner s = new Scanner(p.getInputStream())) {
                 while (s.hasNextLine()) {
                     if (isCancelled()) {
                         throw new InterruptedException();
                     }
                     String line = s.nextLine();
-                    Platform.runLater(() -> log.set(line + "\n"));
+                    log.append(line + "\n");
                 }
             }
             int result = p.waitFor();
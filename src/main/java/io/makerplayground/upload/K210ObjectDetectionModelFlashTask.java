@@ -6,7 +6,7 @@ import io.makerplayground.project.Project;
 import io.makerplayground.device.shared.K210ObjectDetectionModel;
 import io.makerplayground.util.OSInfo;
 import io.makerplayground.util.PathUtility;
-import javafx.application.Platform;
+import io.makerplayground.util.ToolResolver;
 
 import java.io.File;
 import java.io.IOException;
@@ -54,7 +54,7 @@ public class K210ObjectDetectionModelFlashTask extends UploadTask {
             updateMessage("Error: Can't find valid kflash installation see: https://github.com/sipeed/kflash.py");
             return UploadResult.CANT_FIND_PIO;
         }
-        Platform.runLater(() -> log.set("Execute kflash by " + kflashCommand.get() + "\n"));
+        log.append("Execute kflash by " + kflashCommand.get() + "\n");
 
         UploadResult result;
 
@@ -63,7 +63,7 @@ public class K210ObjectDetectionModelFlashTask extends UploadTask {
 
         String modelPath = PathUtility.getDeviceDirectoryPath() + File.separator + actualDevice.getId() + File.separator + "model"
                 + File.separator + model.getModelFilename() + ".kfpkg";
-        Platform.runLater(() -> log.set("Flash model at " + modelPath + "\n"));
+        log.append("Flash model at " + modelPath + "\n");
         if (!Files.exists(Path.of(modelPath))) {
             updateMessage("Error: Can't locate the model file");
             return UploadResult.CANT_WRITE_CODE;
@@ -86,18 +86,18 @@ public class K210ObjectDetectionModelFlashTask extends UploadTask {
             // create argument list
             List<String> arguments = new ArrayList<>(command);
             arguments.addAll(args);
-            Platform.runLater(() -> log.set("Executing " + arguments + "\n"));
+            log.append("Executing " + arguments + "\n");
             // create process to invoke esptool
             ProcessBuilder builder = new ProcessBuilder(arguments);
             builder.redirectErrorStream(true);
-            p = builder.start();
+            p = ToolResolver.start(builder);
             try (Scanner s = new Scanner(p.getInputStream())) {
                 while (s.hasNextLine()) {
                     if (isCancelled()) {
                         throw new InterruptedException();
                     }
                     String line = s.nextLine();
-                    Platform.runLater(() -> log.set(line + "\n"));
+                    log.append(line + "\n");
                 }
             }
             int result = p.waitFor();
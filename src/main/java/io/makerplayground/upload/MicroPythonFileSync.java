@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Copy a directory to a MicroPython board through a {@link MicroPythonRawRepl} session. The SHA-256 of every file on the
+ * board is calculated by a small helper script so only the files that are missing or have been changed are transferred.
+ */
+class MicroPythonFileSync {
+
+    /* number of bytes of a file sent in each exec (the base64 encoded chunk is 4/3 larger) */
+    private static final int CHUNK_SIZE = 4096;
+    private static final String MISSING_FILE_HASH = "-";
+
+    private static final String HELPER_SCRIPT = String.join("\n"
+            , "import os"
+            , "try:"
+            , "    import uhashlib as _mp_hl"
+            , "except ImportError:"
+            , "    try:"
+            , "        import hashlib as _mp_hl"
+            , "    except ImportError:"
+            , "        _mp_hl = None"
+            , "try:"
+            , "    import ubinascii as _mp_ba"
+            , "except ImportError:"
+            , "    import binascii as _mp_ba"
+            , "def _mp_hash(p):"
+            , "    if _mp_hl is None:"
+            , "        return '" + MISSING_FILE_HASH + "'"
+            , "    try:"
+            , "        h = _mp_hl.sha256()"
+            , "        with open(p, 'rb') as f:"
+            , "            while True:"
+            , "                d = f.read(512)"
+            , "                if not d:"
+            , "                    break"
+            , "                h.update(d)"
+            , "        return _mp_ba.hexlify(h.digest()).decode()"
+            , "    except OSError:"
+            , "        return '" + MISSING_FILE_HASH + "'"
+            , "def _mp_mkdir(p):"
+            , "    try:"
+            , "        os.mkdir(p)"
+            , "    except OSError:"
+            , "        pass"
+            , "");
+
+    interface Listener {
+        /**
+         * Called when a file on the board is identical to the local file
+         */
+        void fileSkipped(String path);
+
+        /**
+         * Called after a file has been transferred to the board
+         */
+        void fileUploaded(String path, long size, long elapsedMillis);
+
+        /**
+         * Called after each chunk of a file has been transferred
+         */
+        void progress(long bytesSent, long totalBytes);
+    }
+
+    private final MicroPythonRawRepl repl;
+
+    MicroPythonFileSync(MicroPythonRawRepl repl) {
+        this.repl = repl;
+    }
+
+    /**
+     * Copy every file in the source directory to the destination directory on the board
+     * @param destination directory on the board without the trailing slash (empty string for the current directory)
+     * @return number of files transferred
+     */
+    int sync(Path source, String destination, Listener listener) throws IOException, InterruptedException {
+        // list the local files and their hash
+        Map<String, Path> localFiles = new TreeMap<>();
+        try (Stream<Path> stream = Files.walk(source)) {
+            for (Path path : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String relativePath = source.relativize(path).toString().replace('\\', '/');
+                localFiles.put(destination.isEmpty() ? relativePath : destination + "/" + relativePath, path);
+            }
+        }
+        Map<String, String> localHashes = new HashMap<>();
+        for (Map.Entry<String, Path> entry : localFiles.entrySet()) {
+            try (var in = Files.newInputStream(entry.getValue())) {
+                localHashes.put(entry.getKey(), DigestUtils.sha256Hex(in));
+            }
+        }
+
+        // find the files that need to be transferred
+        repl.exec(HELPER_SCRIPT);
+        List<String> remotePaths = new ArrayList<>(localFiles.keySet());
+        List<String> remoteHashes = getRemoteHashes(remotePaths);
+        List<String> changedFiles = new ArrayList<>();
+        for (int i=0; i<remotePaths.size(); i++) {
+            String path = remotePaths.get(i);
+            if (localHashes.get(path).equals(remoteHashes.get(i))) {
+                listener.fileSkipped(path);
+            } else {
+                changedFiles.add(path);
+            }
+        }
+        if (changedFiles.isEmpty()) {
+            return 0;
+        }
+
+        // create the parent directories (parents are sorted before their children)
+        Set<String> directories = new TreeSet<>();
+        for (String path : changedFiles) {
+            for (int i = path.indexOf('/', 1); i != -1; i = path.indexOf('/', i + 1)) {
+                directories.add(path.substring(0, i));
+            }
+        }
+        if (!directories.isEmpty()) {
+            StringBuilder script = new StringBuilder();
+            for (String directory : directories) {
+                script.append("_mp_mkdir(").append(toPythonString(directory)).append(")\n");
+            }
+            repl.exec(script.toString());
+        }
+
+        // transfer the files
+        long totalBytes = 0;
+        for (String path : changedFiles) {
+            totalBytes += Files.size(localFiles.get(path));
+        }
+        long bytesSent = 0;
+        for (String path : changedFiles) {
+            long startTime = System.currentTimeMillis();
+            byte[] content = Files.readAllBytes(localFiles.get(path));
+            repl.exec("_mp_f = open(" + toPythonString(path) + ", 'wb')");
+            try {
+                for (int offset=0; offset<content.length; offset+=CHUNK_SIZE) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    int length = Math.min(CHUNK_SIZE, content.length - offset);
+                    String chunk = Base64.getEncoder().encodeToString(Arrays.copyOfRange(content, offset, offset + length));
+                    repl.exec("_mp_f.write(_mp_ba.a2b_base64('" + chunk + "'))");
+                    bytesSent += length;
+                    listener.progress(bytesSent, totalBytes);
+                }
+            } finally {
+                repl.exec("_mp_f.close()");
+            }
+            listener.fileUploaded(path, content.length, System.currentTimeMillis() - startTime);
+        }
+
+        // make sure that the content of the transferred files is correct
+        remoteHashes = getRemoteHashes(changedFiles);
+        for (int i=0; i<changedFiles.size(); i++) {
+            String remoteHash = remoteHashes.get(i);
+            if (!remoteHash.equals(MISSING_FILE_HASH) && !remoteHash.equals(localHashes.get(changedFiles.get(i)))) {
+                throw new IOException("Content of " + changedFiles.get(i) + " on the board is corrupted");
+            }
+        }
+        return changedFiles.size();
+    }
+
+    private List<String> getRemoteHashes(List<String> paths) throws IOException, InterruptedException {
+        StringBuilder script = new StringBuilder("for _mp_p in (");
+        for (String path : paths) {
+            script.append(toPythonString(path)).append(",");
+        }
+        script.append("):\n    print(_mp_hash(_mp_p))\n");
+        List<String> hashes = repl.exec(script.toString()).lines().map(String::strip).collect(Collectors.toList());
+        if (hashes.size() != paths.size()) {
+            throw new IOException("Unexpected response from the board while reading the file list");
+        }
+        return hashes;
+    }
+
+    private static String toPythonString(String s) {
+        return "'" + s.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
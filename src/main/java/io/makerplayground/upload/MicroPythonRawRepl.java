@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A session of the raw REPL of a MicroPython board. The session talks to the board through a pair of streams so it can be
+ * used with a serial port or any stand-in that implements the same protocol. Code is sent using the raw-paste mode, which
+ * has flow control, when the firmware supports it or in small chunks with a short delay between each chunk otherwise.
+ */
+class MicroPythonRawRepl implements AutoCloseable {
+
+    private static final byte CTRL_A = 0x01;
+    private static final byte CTRL_B = 0x02;
+    private static final byte CTRL_C = 0x03;
+    private static final byte CTRL_D = 0x04;
+    private static final byte CTRL_E = 0x05;
+    private static final String RAW_REPL_PROMPT = "raw REPL; CTRL-B to exit\r\n>";
+    private static final int FALLBACK_CHUNK_SIZE = 256;
+    private static final long FALLBACK_CHUNK_DELAY_MS = 10;
+    private static final long DEFAULT_TIMEOUT_MS = 10000;
+
+    /**
+     * Error raised by the code executed on the board
+     */
+    static class RemoteException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RemoteException(String message) {
+            super(message);
+        }
+    }
+
+    private final InputStream in;
+    private final OutputStream out;
+    private boolean rawPasteSupported = true;
+
+    /**
+     * @param in stream of bytes received from the board which should throw an {@link InterruptedIOException} or return 0
+     *           when no data is available after a short period of time
+     * @param out stream of bytes sent to the board
+     */
+    MicroPythonRawRepl(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Interrupt the running program and enter the raw REPL
+     */
+    void enter() throws IOException, InterruptedException {
+        out.write(new byte[]{'\r', CTRL_C, CTRL_C});
+        out.flush();
+        Thread.sleep(100);
+        discardInput();
+        out.write(new byte[]{'\r', CTRL_A});
+        out.flush();
+        readUntil(RAW_REPL_PROMPT, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * Execute the code and wait for it to finish
+     * @return the standard output of the code
+     * @throws RemoteException if the code raised an exception
+     */
+    String exec(String code) throws IOException, InterruptedException {
+        return exec(code, DEFAULT_TIMEOUT_MS);
+    }
+
+    String exec(String code, long timeoutMs) throws IOException, InterruptedException {
+        send(code.getBytes(StandardCharsets.UTF_8));
+        String output = readUntil("\u0004", timeoutMs);
+        String error = readUntil("\u0004>", timeoutMs);
+        output = output.substring(0, output.length() - 1);
+        error = error.substring(0, error.length() - 2);
+        if (!error.isEmpty()) {
+            throw new RemoteException(error.strip());
+        }
+        return output;
+    }
+
+    /**
+     * Execute the code without waiting for the result e.g. to reset the board
+     */
+    void execNoWait(String code) throws IOException, InterruptedException {
+        send(code.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Leave the raw REPL and go back to the normal REPL
+     */
+    void exit() throws IOException {
+        out.write(new byte[]{'\r', CTRL_B});
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+        out.close();
+    }
+
+    private void send(byte[] code) throws IOException, InterruptedException {
+        if (rawPasteSupported) {
+            out.write(new byte[]{CTRL_E, 'A', CTRL_A});
+            out.flush();
+            byte[] response = readBytes(2, DEFAULT_TIMEOUT_MS);
+            if (response[0] == 'R' && response[1] == CTRL_A) {
+                sendRawPaste(code);
+                return;
+            }
+            rawPasteSupported = false;
+            if (response[0] != 'R') {
+                // old firmware doesn't understand the request and prints the raw REPL prompt again
+                readUntil("w REPL; CTRL-B to exit\r\n>", DEFAULT_TIMEOUT_MS);
+            }
+        }
+        for (int i=0; i<code.length; i+=FALLBACK_CHUNK_SIZE) {
+            out.write(code, i, Math.min(FALLBACK_CHUNK_SIZE, code.length - i));
+            out.flush();
+            Thread.sleep(FALLBACK_CHUNK_DELAY_MS);
+        }
+        out.write(CTRL_D);
+        out.flush();
+        String response = new String(readBytes(2, DEFAULT_TIMEOUT_MS), StandardCharsets.US_ASCII);
+        if (!response.equals("OK")) {
+            throw new IOException("Unexpected response from the board: " + response);
+        }
+    }
+
+    /* the board grants a window of bytes at the beginning and sends CTRL-A every time another window can be sent */
+    private void sendRawPaste(byte[] code) throws IOException {
+        byte[] windowSizeBytes = readBytes(2, DEFAULT_TIMEOUT_MS);
+        int windowSize = (windowSizeBytes[0] & 0xFF) | ((windowSizeBytes[1] & 0xFF) << 8);
+        int windowRemaining = windowSize;
+        int offset = 0;
+        while (offset < code.length) {
+            while (windowRemaining == 0 || in.available() > 0) {
+                int b = readByte(DEFAULT_TIMEOUT_MS);
+                if (b == CTRL_A) {
+                    windowRemaining += windowSize;
+                } else if (b == CTRL_D) {
+                    // the board has aborted the transfer
+                    out.write(CTRL_D);
+                    out.flush();
+                    throw new IOException("The board has aborted the transfer");
+                } else {
+                    throw new IOException("Unexpected byte from the board: " + b);
+                }
+            }
+            int length = Math.min(windowRemaining, code.length - offset);
+            out.write(code, offset, length);
+            out.flush();
+            offset += length;
+            windowRemaining -= length;
+        }
+        out.write(CTRL_D);
+        out.flush();
+        // the board acknowledges the end of the transfer with CTRL-D (additional flow control bytes may arrive before that)
+        int b;
+        while ((b = readByte(DEFAULT_TIMEOUT_MS)) != CTRL_D) {
+            if (b != CTRL_A) {
+                throw new IOException("Unexpected byte from the board: " + b);
+            }
+        }
+    }
+
+    private void discardInput() throws IOException {
+        while (in.available() > 0) {
+            if (in.read(new byte[in.available()]) <= 0) {
+                break;
+            }
+        }
+    }
+
+    private int readByte(long timeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            // the upload task is cancelled by interrupting its thread
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for the response from the board");
+            }
+            try {
+                int b = in.read();
+                if (b != -1) {
+                    return b;
+                }
+            } catch (InterruptedIOException e) {
+                // no data has been received yet
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Timeout waiting for the response from the board");
+            }
+        }
+    }
+
+    private byte[] readBytes(int length, long timeoutMs) throws IOException {
+        byte[] bytes = new byte[length];
+        for (int i=0; i<length; i++) {
+            bytes[i] = (byte) readByte(timeoutMs);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return every character received up to and including the terminator
+     */
+    private String readUntil(String terminator, long timeoutMs) throws IOException {
+        byte[] terminatorBytes = terminator.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < terminatorBytes.length) {
+            int b = readByte(timeoutMs);
+            buffer.write(b);
+            if (b == (terminatorBytes[matched] & 0xFF)) {
+                matched++;
+            } else if (matched > 0) {
+                // restart matching from the longest suffix of the received bytes that is a prefix of the terminator
+                byte[] received = buffer.toByteArray();
+                matched = 0;
+                for (int length=Math.min(terminatorBytes.length - 1, received.length); length>0; length--) {
+                    boolean match = true;
+                    for (int i=0; i<length; i++) {
+                        if (received[received.length - length + i] != terminatorBytes[i]) {
+                            match = false;
+                            break;
+                        }
+                    }
+                    if (match) {
+                        matched = length;
+                        break;
+                    }
+                }
+            }
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
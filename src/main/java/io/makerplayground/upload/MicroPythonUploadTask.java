@@ -26,19 +26,15 @@ import io.makerplayground.generator.source.MicroPythonUploadCode;
 import io.makerplayground.generator.source.SourceCodeResult;
 import io.makerplayground.project.Project;
 import io.makerplayground.project.ProjectDevice;
-import io.makerplayground.util.OSInfo;
+import io.makerplayground.util.ExtractedLibraryCache;
 import io.makerplayground.util.PathUtility;
-import io.makerplayground.util.ZipResourceExtractor;
-import javafx.application.Platform;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class MicroPythonUploadTask extends UploadTask {
@@ -77,15 +73,7 @@ public class MicroPythonUploadTask extends UploadTask {
         updateProgress(0.10, 1);
         updateMessage("Checking required dependencies");
 
-        Platform.runLater(() -> log.set("Workspace is at " + PathUtility.MP_WORKSPACE + "\n"));
-
-        // check ampy installation
-        Optional<List<String>> ampyCommand = PathUtility.getAmpyCommand();
-        if (ampyCommand.isEmpty()) {
-            updateMessage("Error: Can't find valid ampy installation see: https://learn.adafruit.com/micropython-basics-load-files-and-run-code/install-ampy");
-            return UploadResult.CANT_FIND_PIO;
-        }
-        Platform.runLater(() -> log.set("Execute ampy by " + ampyCommand.get() + "\n"));
+        log.append("Workspace is at " + PathUtility.MP_WORKSPACE + "\n");
 
         updateProgress(0.20, 1);
         updateMessage("Preparing to generate project");
@@ -94,9 +82,9 @@ public class MicroPythonUploadTask extends UploadTask {
         Set<ActualDevice> allActualDevices = projectDeviceList.stream()
                 .flatMap(projectDevice -> configuration.getActualDeviceOrActualDeviceOfIdenticalDevice(projectDevice).stream())
                 .collect(Collectors.toSet());
-        Platform.runLater(() -> log.set("List of actual device used \n"));
+        log.append("List of actual device used \n");
         for (ActualDevice actualDevice : allActualDevices) {
-            Platform.runLater(() -> log.set(" - " + actualDevice.getId() + "\n"));
+            log.append(" - " + actualDevice.getId() + "\n");
         }
 
         Set<String> mpLibraries = allActualDevices.stream()
@@ -121,17 +109,17 @@ public class MicroPythonUploadTask extends UploadTask {
             externalLibraries.addAll(project.getSelectedController().getCloudPlatformLibraryDependency(cloudPlatform));
         }
 
-        Platform.runLater(() -> log.set("List of library used \n"));
+        log.append("List of library used \n");
         for (String libName : mpLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
         for (String libName : externalLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
 
         updateMessage("Generating project");
         String projectPath = PathUtility.MP_WORKSPACE + File.separator + "upload";
-        Platform.runLater(() -> log.set("Generating project at " + projectPath + "\n"));
+        log.append("Generating project at " + projectPath + "\n");
         try {
             FileUtils.deleteQuietly(new File(projectPath));
             FileUtils.forceMkdir(new File(projectPath));
@@ -158,13 +146,13 @@ public class MicroPythonUploadTask extends UploadTask {
             updateMessage("Error: Missing library directory");
             return UploadResult.MISSING_LIBRARY_DIR;
         }
-        Platform.runLater(() -> log.set("Using libraries stored at " + libraryPath.get() + "\n"));
+        log.append("Using libraries stored at " + libraryPath.get() + "\n");
 
         // copy board specific files
         File codeDir = Paths.get(libraryPath.get(), "devices", project.getProjectConfiguration().getController().getId(), "code").toFile();
         if (codeDir.isDirectory()) {
             Collection<File> boardSpecificFiles = FileUtils.listFiles(codeDir, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
-            Platform.runLater(() -> log.set("Board specific files found : " + boardSpecificFiles + "\n"));
+            log.append("Board specific files found : " + boardSpecificFiles + "\n");
             try {
                 FileUtils.copyToDirectory(boardSpecificFiles, new File(projectPath));
             } catch (IOException e) {
@@ -180,7 +168,7 @@ public class MicroPythonUploadTask extends UploadTask {
             try {
                 FileUtils.copyToDirectory(FileUtils.listFiles(source, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE), destination);
             } catch (IOException e) {
-                Platform.runLater(() -> log.set("Error: Missing some libraries (" + libName + ")\n"));
+                log.append("Error: Missing some libraries (" + libName + ")\n");
                 updateMessage("Error: Missing some libraries");
                 return UploadResult.CANT_FIND_LIBRARY;
             }
@@ -189,10 +177,10 @@ public class MicroPythonUploadTask extends UploadTask {
         //copy and extract external Libraries
         for (String libName : externalLibraries) {
             Path sourcePath = Paths.get(libraryPath.get(),"lib_ext", libName + ".zip");
-            String destinationPath = projectPath;
-            ZipResourceExtractor.ExtractResult extractResult = ZipResourceExtractor.extract(sourcePath, destinationPath);
-            if (extractResult != ZipResourceExtractor.ExtractResult.SUCCESS) {
-                Platform.runLater(() -> log.set("Error: Failed to extract libraries (" + sourcePath + ")\n"));
+            try {
+                ExtractedLibraryCache.extract(sourcePath, Paths.get(projectPath));
+            } catch (IOException e) {
+                log.append("Error: Failed to extract libraries (" + sourcePath + ")\n");
                 updateMessage("Error: Failed to extract libraries");
                 return UploadResult.CANT_FIND_LIBRARY;
             }
@@ -202,115 +190,61 @@ public class MicroPythonUploadTask extends UploadTask {
         updateMessage("Uploading to board");
 
         SerialPort serialPort = uploadTarget.getSerialPort();
-        String serialPortName = OSInfo.getOs() == OSInfo.OS.WINDOWS ? serialPort.getSystemPortName() : "/dev/" + serialPort.getSystemPortName();
-
-        List<String> fileList;
-        UploadResult result;
-
-        // get flash directory prefix (None for ESP32, /flash for K210 etc.)
-        String prefix = "";
-        fileList = new ArrayList<>();
-        result = runAmpyCommand(ampyCommand.get(), projectPath, List.of("-p", serialPortName, "ls")
-                , false, "Error: Can't list file/directory on the board", UploadResult.CANT_FIND_BOARD, fileList);
-        if (result != UploadResult.OK) {
-            return result;
-        }
-        if (fileList.contains("/sd")) {
-            prefix = "/sd";
-        } else if (fileList.contains("/flash")) {
-            prefix = "/flash";
+        serialPort.setComPortParameters(115200, 8, SerialPort.ONE_STOP_BIT, SerialPort.NO_PARITY);
+        serialPort.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, 100, 0);
+        if (!serialPort.openPort()) {
+            updateMessage("Error: Can't open the serial port");
+            return UploadResult.CANT_FIND_BOARD;
         }
+        log.append("Connected to " + serialPort.getSystemPortName() + "\n");
 
-        try {
-            Path uploadingDir = Path.of(projectPath);
-            for (Path path : Files.list(uploadingDir).collect(Collectors.toList())) {
-                String sourcePath = uploadingDir.relativize(path).toString();
-                String destPath = prefix.isEmpty() ? sourcePath : prefix + "/" + sourcePath;
-                result = runAmpyCommand(ampyCommand.get(), projectPath, List.of("-p", serialPortName, "put", sourcePath, destPath)
-                        , false, "Error: Can't upload file/directory to the board", UploadResult.CANT_FIND_BOARD, null);
-                if (result != UploadResult.OK) {
-                    return result;
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        // keep a single raw REPL session open for the whole upload and only transfer files that have been changed
+        try (MicroPythonRawRepl repl = new MicroPythonRawRepl(serialPort.getInputStream(), serialPort.getOutputStream())) {
+            repl.enter();
 
-        updateProgress(0.9, 1);
-        updateMessage("Reset the board");
-        result = runAmpyCommand(ampyCommand.get(), projectPath, List.of("-p", serialPortName, "reset", "--hard")
-                , false, "Error: Can't reset the board", UploadResult.CANT_RESET_BOARD, null);
-        if (result != UploadResult.OK) {
-            return result;
-        }
+            // get flash directory prefix (None for ESP32, /flash for K210 etc.)
+            String prefix = repl.exec("import os\n_mp_r = os.listdir('/')\nprint('/sd' if 'sd' in _mp_r else '/flash' if 'flash' in _mp_r else '')").strip();
 
-        updateProgress(1, 1);
-        updateMessage("Done");
+            int fileCount = new MicroPythonFileSync(repl).sync(Path.of(projectPath), prefix, new MicroPythonFileSync.Listener() {
+                @Override
+                public void fileSkipped(String path) {
+                    log.append("Skipped " + path + " (unchanged)\n");
+                }
 
-        return UploadResult.OK;
-    }
+                @Override
+                public void fileUploaded(String path, long size, long elapsedMillis) {
+                    log.append(String.format("Uploaded %s (%d bytes, %.1f KB/s)%n", path, size, size / 1024.0 / Math.max(1, elapsedMillis) * 1000));
+                }
 
-    private UploadResult runAmpyCommand(List<String> ampyCommand, String projectPath, List<String> args, boolean allowError, String errorMessage, UploadResult error, List<String> commandOutput) {
-        Process p = null;
-        try {
-            // create argument list
-            List<String> arguments = new ArrayList<>(ampyCommand);
-            arguments.addAll(args);
-            Platform.runLater(() -> log.set("Executing " + arguments + "\n"));
-            // create process to invoke ampy
-            ProcessBuilder builder = new ProcessBuilder(arguments);
-            builder.directory(new File(projectPath).getAbsoluteFile()); // this is where you set the root folder for the executable to run with
-            builder.redirectErrorStream(true);
-            p = builder.start();
-            // wait for at most 30 seconds for the process to finish before returning error
-            if (!p.waitFor(30, TimeUnit.SECONDS)) {
-                killProcess(p);
-                updateMessage(errorMessage);
-                return error;
-            }
-            try (Scanner s = new Scanner(p.getInputStream())) {
-                while (s.hasNextLine()) {
-                    if (isCancelled()) {
-                        throw new InterruptedException();
-                    }
-                    String line = s.nextLine();
-                    if (commandOutput != null) {
-                        commandOutput.add(line);
-                    }
-                    Platform.runLater(() -> log.set(line + "\n"));
+                @Override
+                public void progress(long bytesSent, long totalBytes) {
+                    updateProgress(0.6 + 0.3 * bytesSent / totalBytes, 1);
                 }
-            }
-            int result = p.exitValue();
-            if (!allowError && result != 0) {
-                updateMessage(errorMessage);
-                return error;
-            }
+            });
+            log.append(fileCount + " file(s) uploaded\n");
+
+            updateProgress(0.9, 1);
+            updateMessage("Reset the board");
+            repl.execNoWait("import machine\nmachine.reset()");
         } catch (InterruptedException e) {
+            updateMessage("Upload has been canceled");
+            return UploadResult.USER_CANCEL;
+        } catch (IOException e) {
+            // the raw REPL throws InterruptedIOException when the task is cancelled while it is waiting for the board
             if (isCancelled()) {
-                updateMessage("Canceling upload...");
-                killProcess(p);
                 updateMessage("Upload has been canceled");
                 return UploadResult.USER_CANCEL;
             }
-            updateMessage("Unknown error has occurred. Please try again.");
-            return UploadResult.UNKNOWN_ERROR;
-        } catch (IOException e) {
-            updateMessage("Unknown error (I/O) has occurred. Please try again.");
-            return UploadResult.UNKNOWN_ERROR;
+            log.append("Error: " + e.getMessage() + "\n");
+            updateMessage("Error: Can't upload file/directory to the board");
+            return UploadResult.CANT_FIND_BOARD;
+        } finally {
+            serialPort.closePort();
         }
-        return UploadResult.OK;
-    }
 
-    private void killProcess(Process p) {
-        try {
-            if (OSInfo.getOs() == OSInfo.OS.WINDOWS) {
-                Runtime.getRuntime().exec("taskkill /f /t /pid " + p.pid());
-            } else {
-                p.destroy();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+        updateProgress(1, 1);
+        updateMessage("Done");
 
+        return UploadResult.OK;
+    }
 }
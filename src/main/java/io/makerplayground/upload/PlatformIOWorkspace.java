@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2019. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import io.makerplayground.project.Project;
+import io.makerplayground.util.ExtractedLibraryCache;
+import io.makerplayground.util.PathUtility;
+import org.apache.commons.io.FileUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A PlatformIO project directory that is kept between uploads of the same project and board so that PlatformIO can
+ * rebuild only the files that have been changed. The libraries in the lib directory are tracked by the content hash of
+ * their source in a manifest file and are only copied or removed when they have been changed or are no longer used.
+ * Workspaces that haven't been used for {@link #MAX_UNUSED_AGE} and the least recently used workspaces in excess of
+ * {@link #MAX_WORKSPACE_COUNT} are deleted whenever a workspace is opened.
+ */
+class PlatformIOWorkspace {
+
+    private static final String PROJECT_OPTIONS_FILE = ".mp_project_options";
+    private static final String LIBRARY_MANIFEST_FILE = ".mp_library_manifest";
+    private static final String STAGING_DIRECTORY = ".mp_staging";
+    private static final String LAST_USED_FILE = ".mp_last_used";
+
+    static final Duration MAX_UNUSED_AGE = Duration.ofDays(14);
+    static final int MAX_WORKSPACE_COUNT = 16;
+
+    private final Path path;
+
+    private PlatformIOWorkspace(Path path) {
+        this.path = path;
+    }
+
+    static PlatformIOWorkspace of(Project project, String boardId) {
+        // an unsaved project has its own workspace so that two untitled projects never overwrite each other's build
+        String projectKey = "untitled-" + project.getInstanceId();
+        if (!project.getFilePath().isEmpty()) {
+            String projectName = project.getProjectName().replaceAll("[^A-Za-z0-9_-]", "_");
+            projectKey = projectName + "-" + sha256(project.getFilePath().getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+        }
+        Path buildPath = Paths.get(PathUtility.MP_WORKSPACE, "build");
+        PlatformIOWorkspace workspace = new PlatformIOWorkspace(buildPath.resolve(projectKey).resolve(boardId));
+        try {
+            workspace.markUsed();
+            evictStaleWorkspaces(buildPath, workspace.path, Instant.now());
+        } catch (IOException e) {
+            // a stale workspace only wastes disk space so the upload can continue
+            e.printStackTrace();
+        }
+        return workspace;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    private void markUsed() throws IOException {
+        Files.createDirectories(path);
+        Path lastUsedFile = path.resolve(LAST_USED_FILE);
+        if (Files.notExists(lastUsedFile)) {
+            Files.createFile(lastUsedFile);
+        }
+        Files.setLastModifiedTime(lastUsedFile, FileTime.from(Instant.now()));
+    }
+
+    /**
+     * Delete the board workspaces under the build directory that haven't been used since {@link #MAX_UNUSED_AGE} before
+     * now and the least recently used workspaces when there are more than {@link #MAX_WORKSPACE_COUNT} workspaces left.
+     * The project directories that become empty are deleted as well.
+     * @param buildPath directory that contains a directory for each project which contains a workspace for each board
+     * @param currentWorkspace workspace that is going to be used and must not be deleted
+     * @param now current time
+     */
+    static void evictStaleWorkspaces(Path buildPath, Path currentWorkspace, Instant now) throws IOException {
+        if (!Files.isDirectory(buildPath)) {
+            return;
+        }
+        Map<Path, Instant> lastUsedTime = new HashMap<>();
+        List<Path> projectDirectories;
+        try (Stream<Path> children = Files.list(buildPath)) {
+            projectDirectories = children.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (Path projectDirectory : projectDirectories) {
+            try (Stream<Path> children = Files.list(projectDirectory)) {
+                for (Path workspace : children.filter(Files::isDirectory).collect(Collectors.toList())) {
+                    if (!workspace.equals(currentWorkspace)) {
+                        lastUsedTime.put(workspace, getLastUsedTime(workspace));
+                    }
+                }
+            }
+        }
+
+        // the current workspace always takes one of the slots
+        List<Path> leastRecentlyUsedFirst = lastUsedTime.keySet().stream()
+                .sorted(Comparator.comparing(lastUsedTime::get))
+                .collect(Collectors.toList());
+        int excessCount = leastRecentlyUsedFirst.size() + 1 - MAX_WORKSPACE_COUNT;
+        Instant expiredTime = now.minus(MAX_UNUSED_AGE);
+        for (int i = 0; i < leastRecentlyUsedFirst.size(); i++) {
+            Path workspace = leastRecentlyUsedFirst.get(i);
+            if (i < excessCount || lastUsedTime.get(workspace).isBefore(expiredTime)) {
+                FileUtils.deleteQuietly(workspace.toFile());
+            }
+        }
+
+        for (Path projectDirectory : projectDirectories) {
+            try (Stream<Path> children = Files.list(projectDirectory)) {
+                if (children.findAny().isEmpty()) {
+                    Files.deleteIfExists(projectDirectory);
+                }
+            }
+        }
+    }
+
+    private static Instant getLastUsedTime(Path workspace) throws IOException {
+        // workspaces created before the last used file was introduced fall back to the modification time of the directory
+        Path lastUsedFile = workspace.resolve(LAST_USED_FILE);
+        return Files.getLastModifiedTime(Files.exists(lastUsedFile) ? lastUsedFile : workspace).toInstant();
+    }
+
+    /**
+     * Check whether the platformio.ini needs to be regenerated i.e. it doesn't exist or it was generated with different options
+     */
+    boolean isProjectOutdated(List<String> initOptions) throws IOException {
+        Path optionsFile = path.resolve(PROJECT_OPTIONS_FILE);
+        if (!Files.exists(path.resolve("platformio.ini")) || !Files.exists(optionsFile)) {
+            return true;
+        }
+        return !Files.readString(optionsFile, StandardCharsets.UTF_8).equals(String.join("\n", initOptions));
+    }
+
+    void prepareProjectGeneration() throws IOException {
+        FileUtils.forceMkdir(path.toFile());
+        Files.deleteIfExists(path.resolve("platformio.ini"));
+        Files.deleteIfExists(path.resolve(PROJECT_OPTIONS_FILE));
+    }
+
+    void saveProjectOptions(List<String> initOptions) throws IOException {
+        Files.writeString(path.resolve(PROJECT_OPTIONS_FILE), String.join("\n", initOptions), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the source file only when its content has been changed to preserve the modification time used by PlatformIO
+     * @return true if the file has been written
+     */
+    boolean writeSourceFile(String fileName, String code) throws IOException {
+        Path sourceFile = path.resolve("src").resolve(fileName);
+        byte[] content = code.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(sourceFile) && Arrays.equals(Files.readAllBytes(sourceFile), content)) {
+            return false;
+        }
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, content);
+        return true;
+    }
+
+    /**
+     * Make the lib directory contain exactly the given libraries
+     * @param libraryDirectories name and source directory of the libraries that should be copied
+     * @param libraryZipFiles name and zip file of the libraries that should be extracted
+     * @return number of libraries that have been copied or extracted
+     * @throws MissingLibraryException when the source of any library can't be read
+     */
+    int syncLibraries(Map<String, Path> libraryDirectories, Map<String, Path> libraryZipFiles) throws IOException, MissingLibraryException {
+        Path libPath = path.resolve("lib");
+        Files.createDirectories(libPath);
+
+        Properties oldManifest = new Properties();
+        Path manifestFile = path.resolve(LIBRARY_MANIFEST_FILE);
+        if (Files.exists(manifestFile)) {
+            try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+                oldManifest.load(reader);
+            }
+        }
+
+        Properties newManifest = new Properties();
+        int updatedLibraryCount = 0;
+        for (Map.Entry<String, Path> entry : libraryDirectories.entrySet()) {
+            String key = "lib:" + entry.getKey();
+            Path source = entry.getValue();
+            if (!Files.isDirectory(source)) {
+                throw new MissingLibraryException(entry.getKey());
+            }
+            String hash = hashDirectory(source);
+            if (isLibraryUpToDate(oldManifest.getProperty(key), hash, libPath)) {
+                newManifest.setProperty(key, oldManifest.getProperty(key));
+                continue;
+            }
+            Path destination = libPath.resolve(entry.getKey());
+            FileUtils.deleteQuietly(destination.toFile());
+            FileUtils.copyDirectory(source.toFile(), destination.toFile());
+            newManifest.setProperty(key, hash + "|" + entry.getKey());
+            updatedLibraryCount++;
+        }
+        for (Map.Entry<String, Path> entry : libraryZipFiles.entrySet()) {
+            String key = "ext:" + entry.getKey();
+            Path source = entry.getValue();
+            if (!Files.isRegularFile(source)) {
+                throw new MissingLibraryException(entry.getKey());
+            }
+            String hash = ExtractedLibraryCache.getHash(source);
+            if (isLibraryUpToDate(oldManifest.getProperty(key), hash, libPath)) {
+                newManifest.setProperty(key, oldManifest.getProperty(key));
+                continue;
+            }
+            // extract to the staging directory first to find out the directories created by this zip file
+            Path staging = path.resolve(STAGING_DIRECTORY);
+            FileUtils.deleteQuietly(staging.toFile());
+            try {
+                ExtractedLibraryCache.extract(source, staging);
+            } catch (IOException e) {
+                throw new MissingLibraryException(entry.getKey());
+            }
+            List<String> entries;
+            try (Stream<Path> children = Files.list(staging)) {
+                entries = children.map(child -> child.getFileName().toString()).sorted().collect(Collectors.toList());
+            }
+            for (String name : entries) {
+                Path destination = libPath.resolve(name);
+                FileUtils.deleteQuietly(destination.toFile());
+                Files.move(staging.resolve(name), destination);
+            }
+            FileUtils.deleteQuietly(staging.toFile());
+            newManifest.setProperty(key, hash + "|" + String.join("|", entries));
+            updatedLibraryCount++;
+        }
+
+        // remove everything that isn't owned by the libraries in use
+        Set<String> usedEntries = new HashSet<>();
+        for (String key : newManifest.stringPropertyNames()) {
+            usedEntries.addAll(getManifestEntries(newManifest.getProperty(key)));
+        }
+        try (Stream<Path> children = Files.list(libPath)) {
+            for (Path child : children.collect(Collectors.toList())) {
+                if (!usedEntries.contains(child.getFileName().toString())) {
+                    FileUtils.deleteQuietly(child.toFile());
+                }
+            }
+        }
+
+        try (Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8)) {
+            newManifest.store(writer, null);
+        }
+        return updatedLibraryCount;
+    }
+
+    private static boolean isLibraryUpToDate(String manifestValue, String hash, Path libPath) {
+        if (manifestValue == null || !manifestValue.startsWith(hash + "|")) {
+            return false;
+        }
+        return getManifestEntries(manifestValue).stream().allMatch(name -> Files.exists(libPath.resolve(name)));
+    }
+
+    private static List<String> getManifestEntries(String manifestValue) {
+        String[] token = manifestValue.split("\\|");
+        return Arrays.asList(token).subList(1, token.length);
+    }
+
+    private static String hashDirectory(Path directory) throws IOException {
+        MessageDigest digest = createDigest();
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            digest.update(directory.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String sha256(byte[] content) {
+        return toHex(createDigest().digest(content));
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    static class MissingLibraryException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final String libraryName;
+
+        MissingLibraryException(String libraryName) {
+            super("Missing library " + libraryName);
+            this.libraryName = libraryName;
+        }
+
+        String getLibraryName() {
+            return libraryName;
+        }
+    }
+}
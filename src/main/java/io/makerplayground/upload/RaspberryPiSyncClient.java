@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.makerplayground.util.JacksonMappers;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Upload a project directory to the Raspberry Pi runtime by sending only the files that the runtime doesn't already have.
+ * The protocol consists of three requests:
+ * <ol>
+ *     <li>POST /sync/manifest with a json manifest ({"files": [{"path": ..., "hash": ..., "size": ...}]}) where the hash is
+ *     the SHA-256 of the file content. The runtime replies with the hashes it doesn't have ({"missing": [...]}).</li>
+ *     <li>POST /sync/blobs with a gzip compressed stream of blobs. Each blob is the 32 bytes hash followed by the content
+ *     length (8 bytes big endian) and the content.</li>
+ *     <li>POST /sync/commit with the same manifest. The runtime replaces the project directory with the files in the
+ *     manifest and restarts the program.</li>
+ * </ol>
+ * A runtime that doesn't support the protocol responds to the first request with a client error (e.g. 404) so the caller
+ * can fall back to uploading the whole project as a zip file.
+ */
+class RaspberryPiSyncClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 15000;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // fraction of the progress reported after the manifest and the blobs have been sent
+    private static final double MANIFEST_PROGRESS = 0.1;
+    private static final double BLOBS_PROGRESS = 0.9;
+
+    enum SyncResult {
+        OK,
+        UNSUPPORTED
+    }
+
+    private final String baseUrl;
+    private final ObjectMapper mapper = JacksonMappers.JSON;
+
+    RaspberryPiSyncClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @param log consumer of the progress messages
+     * @param progress consumer of the fraction of the sync that has been done (0 to 1). Most of the range is spent on
+     *                 uploading the missing files and is reported by the number of bytes sent.
+     * @return {@link SyncResult#UNSUPPORTED} if the runtime doesn't support the protocol and nothing has been uploaded
+     */
+    SyncResult sync(Path directory, Consumer<String> log, DoubleConsumer progress) throws IOException {
+        // create the manifest (hidden files are skipped the same way as the zip upload)
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                if (!Files.isHidden(path)) {
+                    files.put(directory.relativize(path).toString().replace('\\', '/'), path);
+                }
+            }
+        }
+        Map<String, Path> filesByHash = new HashMap<>();
+        ObjectNode manifest = mapper.createObjectNode();
+        ArrayNode fileArray = manifest.putArray("files");
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            String hash;
+            try (InputStream in = Files.newInputStream(entry.getValue())) {
+                hash = DigestUtils.sha256Hex(in);
+            }
+            filesByHash.put(hash, entry.getValue());
+            fileArray.addObject()
+                    .put("path", entry.getKey())
+                    .put("hash", hash)
+                    .put("size", Files.size(entry.getValue()));
+        }
+        byte[] manifestBytes = mapper.writeValueAsBytes(manifest);
+
+        HttpURLConnection connection = openConnection("/sync/manifest", "application/json");
+        connection.setFixedLengthStreamingMode(manifestBytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(manifestBytes);
+        }
+        int status = connection.getResponseCode();
+        if (status >= HttpURLConnection.HTTP_BAD_REQUEST && status < HttpURLConnection.HTTP_INTERNAL_ERROR) {
+            connection.disconnect();
+            return SyncResult.UNSUPPORTED;
+        }
+        JsonNode response;
+        try (InputStream in = getResponseStream(connection)) {
+            response = mapper.readTree(in);
+        }
+        List<String> missingHashes = new ArrayList<>();
+        for (JsonNode hash : response.path("missing")) {
+            if (!filesByHash.containsKey(hash.asText())) {
+                throw new IOException("The runtime requested an unknown file: " + hash.asText());
+            }
+            missingHashes.add(hash.asText());
+        }
+        log.accept(files.size() + " file(s) in the project, " + missingHashes.size() + " file(s) need to be uploaded\n");
+        progress.accept(MANIFEST_PROGRESS);
+
+        if (!missingHashes.isEmpty()) {
+            long startTime = System.currentTimeMillis();
+            connection = openConnection("/sync/blobs", "application/octet-stream");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+            long totalSize = 0;
+            for (String hash : missingHashes) {
+                totalSize += Files.size(filesByHash.get(hash));
+            }
+            long sentSize = 0;
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(connection.getOutputStream(), CHUNK_SIZE))) {
+                for (String hash : missingHashes) {
+                    Path path = filesByHash.get(hash);
+                    out.write(Hex.decodeHex(hash.toCharArray()));
+                    out.writeLong(Files.size(path));
+                    try (InputStream in = Files.newInputStream(path)) {
+                        int length;
+                        while ((length = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, length);
+                            sentSize += length;
+                            progress.accept(MANIFEST_PROGRESS + (BLOBS_PROGRESS - MANIFEST_PROGRESS) * sentSize / Math.max(1, totalSize));
+                        }
+                    }
+                }
+            } catch (org.apache.commons.codec.DecoderException e) {
+                throw new IOException(e);
+            }
+            getResponseStream(connection).close();
+            long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+            progress.accept(BLOBS_PROGRESS);
+            log.accept(String.format("Uploaded %d bytes in %d ms (%.1f KB/s)%n", totalSize, elapsedTime, totalSize / 1024.0 / elapsedTime * 1000));
+        }
+
+        connection = openConnection("/sync/commit", "application/json");
+        connection.setFixedLengthStreamingMode(manifestBytes.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(manifestBytes);
+        }
+        getResponseStream(connection).close();
+        progress.accept(1);
+        return SyncResult.OK;
+    }
+
+    private HttpURLConnection openConnection(String path, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", contentType);
+        return connection;
+    }
+
+    private static InputStream getResponseStream(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("Server returned non-OK status: " + status);
+        }
+        return connection.getInputStream();
+    }
+}
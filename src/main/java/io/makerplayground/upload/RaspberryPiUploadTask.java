@@ -79,7 +79,7 @@ public class RaspberryPiUploadTask extends UploadTask {
         String urlStr = "http://" + ip + ":" + RpiServiceChecker.PORT;
 
         // Test ping to device and check if it has makerplayground runtime.
-        Platform.runLater(() -> log.set("Workspace is at " + PathUtility.MP_WORKSPACE + "\n"));
+        log.append("Workspace is at " + PathUtility.MP_WORKSPACE + "\n");
         try {
             URL url = new URL(urlStr);
             HttpURLConnection con = (HttpURLConnection) url.openConnection();
@@ -116,9 +116,9 @@ public class RaspberryPiUploadTask extends UploadTask {
         Set<ActualDevice> allActualDevices = projectDeviceList.stream()
                 .flatMap(projectDevice -> configuration.getActualDeviceOrActualDeviceOfIdenticalDevice(projectDevice).stream())
                 .collect(Collectors.toSet());
-        Platform.runLater(() -> log.set("List of actual device used \n"));
+        log.append("List of actual device used \n");
         for (ActualDevice actualDevice : allActualDevices) {
-            Platform.runLater(() -> log.set(" - " + actualDevice.getId() + "\n"));
+            log.append(" - " + actualDevice.getId() + "\n");
         }
 
         Set<String> mpLibraries = allActualDevices.stream()
@@ -142,18 +142,18 @@ public class RaspberryPiUploadTask extends UploadTask {
             externalLibraries.addAll(project.getSelectedController().getCloudPlatformLibraryDependency(cloudPlatform));
         }
 
-        Platform.runLater(() -> log.set("List of library used \n"));
+        log.append("List of library used \n");
         for (String libName : mpLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
         for (String libName : externalLibraries) {
-            Platform.runLater(() -> log.set(" - " + libName + "\n"));
+            log.append(" - " + libName + "\n");
         }
 
         updateMessage("Generating project");
 
         String projectPath = PathUtility.MP_WORKSPACE + File.separator + "script";
-        Platform.runLater(() -> log.set("Generating project at " + projectPath + "\n"));
+        log.append("Generating project at " + projectPath + "\n");
         try {
             FileUtils.deleteDirectory(new File(projectPath));
             FileUtils.forceMkdir(new File(projectPath));
@@ -162,17 +162,6 @@ public class RaspberryPiUploadTask extends UploadTask {
             return UploadResult.CANT_CREATE_PROJECT;
         }
 
-        String projectZipPath = PathUtility.MP_WORKSPACE + File.separator + "script.zip";
-        File zipFile = new File(projectZipPath);
-        try {
-            if (zipFile.exists()) {
-                FileUtils.forceDelete(zipFile);
-            }
-        } catch (IOException e) {
-            updateMessage("Error: can't create project zip file (permission denied)");
-            return UploadResult.CANT_CREATE_PROJECT;
-        }
-
         updateProgress(0.4, 1);
         updateMessage("Generating source files and libraries");
 
@@ -182,7 +171,7 @@ public class RaspberryPiUploadTask extends UploadTask {
             Platform.runLater(()->updateMessage("Error: Missing library directory"));
             return UploadResult.MISSING_LIBRARY_DIR;
         }
-        Platform.runLater(() -> log.set("Using libraries stored at " + libraryPath.get() + "\n"));
+        log.append("Using libraries stored at " + libraryPath.get() + "\n");
 
         // generate source file
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(projectPath + File.separator + "main.py"))){
@@ -199,7 +188,7 @@ public class RaspberryPiUploadTask extends UploadTask {
             try {
                 FileUtils.copyDirectory(source, destination);
             } catch (IOException e) {
-                Platform.runLater(() -> log.set("Error: Missing some libraries (" + libName + ")\n"));
+                log.append("Error: Missing some libraries (" + libName + ")\n");
                 Platform.runLater(()->updateMessage("Error: Missing some libraries"));
                 return UploadResult.CANT_FIND_LIBRARY;
             }
@@ -208,31 +197,59 @@ public class RaspberryPiUploadTask extends UploadTask {
         //copy and extract external Libraries
         for (String libName : externalLibraries) {
             Path sourcePath = Paths.get(libraryPath.get(),"lib_ext", libName + ".zip");
-            ZipResourceExtractor.ExtractResult extractResult = ZipResourceExtractor.extract(sourcePath, projectPath);
-            if (extractResult != ZipResourceExtractor.ExtractResult.SUCCESS) {
-                Platform.runLater(() -> log.set("Error: Failed to extract libraries (" + sourcePath + ")\n"));
+            try {
+                ExtractedLibraryCache.extract(sourcePath, Paths.get(projectPath));
+            } catch (IOException e) {
+                log.append("Error: Failed to extract libraries (" + sourcePath + ")\n");
                 Platform.runLater(()->updateMessage("Error: Failed to extract libraries"));
                 return UploadResult.CANT_FIND_LIBRARY;
             }
         }
         updateProgress(0.6, 1);
-        updateMessage("Finalizing project");
-        ZipArchiver.archiveDirectory(projectPath, projectZipPath);
-
-        updateProgress(0.8, 1);
         updateMessage("Uploading to board");
 
-        // upload code
+        // send only the files that have been changed since the last upload
+        RaspberryPiSyncClient.SyncResult syncResult;
         try {
-            MultipartUtility multipart = new MultipartUtility(urlStr + "/upload");
-            multipart.addFilePart("script", zipFile);
-            multipart.finish();
+            syncResult = new RaspberryPiSyncClient(urlStr).sync(Paths.get(projectPath), log::append,
+                    progress -> updateProgress(0.6 + 0.4 * progress, 1));
         } catch (IOException e) {
             e.printStackTrace();
             Platform.runLater(()->updateMessage("Cannot upload project to Raspberry Pi. Please try again"));
             return UploadResult.CANT_WRITE_CODE;
         }
 
+        // fallback to upload the whole project as a zip file for the runtime that doesn't support incremental upload
+        if (syncResult == RaspberryPiSyncClient.SyncResult.UNSUPPORTED) {
+            log.append("The runtime doesn't support incremental upload. Uploading the whole project\n");
+            updateMessage("Finalizing project");
+            String projectZipPath = PathUtility.MP_WORKSPACE + File.separator + "script.zip";
+            File zipFile = new File(projectZipPath);
+            try {
+                if (zipFile.exists()) {
+                    FileUtils.forceDelete(zipFile);
+                }
+            } catch (IOException e) {
+                updateMessage("Error: can't create project zip file (permission denied)");
+                return UploadResult.CANT_CREATE_PROJECT;
+            }
+            ZipArchiver.archiveDirectory(projectPath, projectZipPath);
+
+            updateProgress(0.8, 1);
+            updateMessage("Uploading to board");
+
+            // upload code
+            try {
+                MultipartUtility multipart = new MultipartUtility(urlStr + "/upload");
+                multipart.addFilePart("script", zipFile);
+                multipart.finish();
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(()->updateMessage("Cannot upload project to Raspberry Pi. Please try again"));
+                return UploadResult.CANT_WRITE_CODE;
+            }
+        }
+
         updateProgress(1, 1);
         updateMessage("Done");
         return UploadResult.OK;
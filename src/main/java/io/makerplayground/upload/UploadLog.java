@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only log of an upload task. Lines can be appended from any thread and are handed to the JavaFX application
+ * thread in a single batch at most once per frame. Only the last {@link #MAX_LINES_IN_MEMORY} lines are kept in memory;
+ * older lines are moved to a temporary file a segment at a time and can still be retrieved with {@link #getText()}.
+ */
+public class UploadLog {
+
+    public static final int MAX_LINES_IN_MEMORY = 10000;
+    private static final int SEGMENT_SIZE = 1000;
+
+    private final Object lock = new Object();
+    private List<String> pendingLines = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private final ObservableList<String> lines = FXCollections.observableArrayList();
+    private final ObservableList<String> unmodifiableLines = FXCollections.unmodifiableObservableList(lines);
+    private Path spillFile;
+    private int spilledLineCount;
+
+    private final AnimationTimer flushTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            List<String> batch;
+            synchronized (lock) {
+                if (pendingLines.isEmpty()) {
+                    // nothing has been appended since the last frame so we stop the timer until the next append
+                    flushScheduled = false;
+                    stop();
+                    return;
+                }
+                batch = pendingLines;
+                pendingLines = new ArrayList<>();
+            }
+            lines.addAll(batch);
+            if (lines.size() > MAX_LINES_IN_MEMORY) {
+                spill();
+            }
+        }
+    };
+
+    /**
+     * Append the text to the log. The text may contain multiple lines and a trailing line separator is optional.
+     * This method can be called from any thread.
+     * @param text the text to be appended
+     */
+    public void append(String text) {
+        String[] token = text.split("\\R", -1);
+        int length = token[token.length - 1].isEmpty() ? token.length - 1 : token.length;
+        boolean startTimer = false;
+        synchronized (lock) {
+            for (int i=0; i<length; i++) {
+                pendingLines.add(token[i]);
+            }
+            if (!flushScheduled && length > 0) {
+                flushScheduled = true;
+                startTimer = true;
+            }
+        }
+        if (startTimer) {
+            Platform.runLater(flushTimer::start);
+        }
+    }
+
+    /**
+     * Get the lines that are kept in memory. Lines are added in one batch per frame so a {@link javafx.collections.ListChangeListener}
+     * receives only the lines appended since the last frame. This list should only be accessed from the JavaFX application thread.
+     * @return an unmodifiable view of the latest lines
+     */
+    public ObservableList<String> getLines() {
+        return unmodifiableLines;
+    }
+
+    /**
+     * @return number of lines that have been moved from memory to the temporary file
+     */
+    public int getSpilledLineCount() {
+        return spilledLineCount;
+    }
+
+    /**
+     * Get the full content of the log including the lines that have been moved to the temporary file. This method should
+     * only be called from the JavaFX application thread.
+     * @return the full log
+     */
+    public String getText() {
+        StringBuilder sb = new StringBuilder();
+        if (spillFile != null) {
+            try {
+                sb.append(Files.readString(spillFile, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                sb.append("... ").append(spilledLineCount).append(" lines are unavailable\n");
+            }
+        }
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void spill() {
+        // move whole segments so that the list is shrunk occasionally instead of on every frame
+        int count = ((lines.size() - MAX_LINES_IN_MEMORY + SEGMENT_SIZE - 1) / SEGMENT_SIZE) * SEGMENT_SIZE;
+        List<String> segment = lines.subList(0, count);
+        try {
+            if (spillFile == null) {
+                spillFile = Files.createTempFile("mp-upload-", ".log");
+                spillFile.toFile().deleteOnExit();
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                for (String line : segment) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        segment.clear();
+        spilledLineCount += count;
+    }
+}
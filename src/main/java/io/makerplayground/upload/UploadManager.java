@@ -12,7 +12,7 @@ public class UploadManager {
 
     private final ObjectProperty<Project> project;
     private final ReadOnlyObjectWrapper<UploadStatus> uploadStatus = new ReadOnlyObjectWrapper<>();
-    private final ReadOnlyStringWrapper uploadLog = new ReadOnlyStringWrapper();
+    private final ReadOnlyObjectWrapper<UploadLog> uploadLog = new ReadOnlyObjectWrapper<>();
     private final ReadOnlyDoubleWrapper uploadProgress = new ReadOnlyDoubleWrapper();
 
     private UploadTask uploadTask;
@@ -38,7 +38,7 @@ public class UploadManager {
     private void bindUploadTaskPropertyAndEvent() {
         uploadStatus.bind(uploadTask.uploadStatusProperty());
         uploadProgress.bind(uploadTask.progressProperty());
-        uploadLog.bind(uploadTask.fullLogProperty());
+        uploadLog.set(uploadTask.getLog());
         if (uploadTask.isInteractiveUpload()) {
             uploadTask.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, event1 -> {
                 // On platform with internal USB host such as ATSAMD21 and ATSAMD51, the serial port may disappear for
@@ -75,11 +75,11 @@ public class UploadManager {
         return uploadStatus.getReadOnlyProperty();
     }
 
-    public String getUploadLog() {
+    public UploadLog getUploadLog() {
         return uploadLog.get();
     }
 
-    public ReadOnlyStringProperty uploadLogProperty() {
+    public ReadOnlyObjectProperty<UploadLog> uploadLogProperty() {
         return uploadLog.getReadOnlyProperty();
     }
 
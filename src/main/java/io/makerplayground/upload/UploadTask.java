@@ -20,7 +20,6 @@ import io.makerplayground.project.Project;
 import io.makerplayground.project.ProjectConfiguration;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.concurrent.Task;
 
@@ -28,9 +27,7 @@ public abstract class UploadTask extends Task<UploadResult> {
 
     protected final Project project;
     protected final ProjectConfiguration configuration;
-    protected final ReadOnlyStringWrapper log;
-    protected final ReadOnlyStringWrapper fullLog;
-    protected final StringBuilder logBuilder;
+    protected final UploadLog log;
 
     protected final ObjectProperty<UploadStatus> uploadStatus;
 
@@ -40,13 +37,7 @@ public abstract class UploadTask extends Task<UploadResult> {
     protected UploadTask(Project project, UploadTarget uploadTarget, boolean isInteractiveUpload) {
         this.project = project;
         this.configuration = project.getProjectConfiguration();
-        this.log = new ReadOnlyStringWrapper();
-        this.fullLog = new ReadOnlyStringWrapper();
-        this.logBuilder = new StringBuilder();
-        this.log.getReadOnlyProperty().addListener((observable, oldValue, newValue) -> {
-            logBuilder.append(newValue);
-            fullLog.set(logBuilder.toString());
-        });
+        this.log = new UploadLog();
         this.uploadStatus = new SimpleObjectProperty<>(UploadStatus.IDLE);
         this.uploadTarget = uploadTarget;
         this.interactiveUpload = isInteractiveUpload;
@@ -83,8 +74,8 @@ public abstract class UploadTask extends Task<UploadResult> {
         Platform.runLater(() -> uploadStatus.set(UploadStatus.UPLOAD_FAILED));
     }
 
-    public ReadOnlyStringWrapper fullLogProperty() {
-        return fullLog;
+    public UploadLog getLog() {
+        return log;
     }
 
     public Project getProject() {
@@ -44,7 +44,7 @@ public class AzureManagement {
             try {
                 List<String> command = buildCommand("az", "login"/*, "--use-device-code"*/);
                 Process p = new ProcessBuilder(command).start();
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureSubscription> subscription = new ArrayList<>();
                 for (JsonNode node : root) {
@@ -115,7 +115,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> requiredParameters = new ArrayList<>();
@@ -152,7 +152,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureSubscription> subscription = new ArrayList<>();
                 for (JsonNode node : root) {
@@ -195,7 +195,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureResourceGroup> resourceGroups = new ArrayList<>();
                 for (JsonNode node : root) {
@@ -240,7 +240,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.get("properties").get("provisioningState").asText());
@@ -279,7 +279,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 System.out.println(node);
                 p.waitFor();
@@ -333,7 +333,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.get("provisioningState").asText());
@@ -374,7 +374,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureCognitiveServices> cognitiveName = new ArrayList<>();
                 for (JsonNode node : root) {
@@ -422,7 +422,7 @@ public class AzureManagement {
                         Platform.runLater(() -> error.set(line));
                     }
                 }
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return new AzureCognitiveServices(cognitive.getName(), cognitive.getLocation(), root.get("key1").asText(), root.get("key2").asText());
@@ -474,7 +474,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 System.out.println(node);
                 p.waitFor();
@@ -518,7 +518,7 @@ public class AzureManagement {
                     }
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureIoTHub> status = new ArrayList<>();
                 for (JsonNode node : root)
@@ -569,7 +569,7 @@ public class AzureManagement {
                     }
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode root = mapper.readTree(p.getInputStream());
                 List<AzureIoTHubDevice> status = new ArrayList<>();
                 for (JsonNode node : root)
@@ -622,7 +622,7 @@ public class AzureManagement {
                     }
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 System.out.println(node.get("cs").asText());
@@ -673,7 +673,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> databaseName = new ArrayList<>();
@@ -722,7 +722,7 @@ public class AzureManagement {
 //                    Platform.runLater(() -> error.set(String.valueOf(sb)));
 //                }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> databaseName = new ArrayList<>();
@@ -772,7 +772,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.asText());
@@ -811,7 +811,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> databaseName = new ArrayList<>();
@@ -867,7 +867,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.get("name").asText());
@@ -907,7 +907,7 @@ public class AzureManagement {
 //                    Platform.runLater(() -> error.set(String.valueOf(sb)));
 //                }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> storageName = new ArrayList<>();
@@ -957,7 +957,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.get("provisioningState").asText());
@@ -1003,7 +1003,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 return List.of(node.get("created").asText());
@@ -1047,7 +1047,7 @@ public class AzureManagement {
                     Platform.runLater(() -> error.set(String.valueOf(sb)));
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 JsonNode node = mapper.readTree(p.getInputStream());
                 p.waitFor();
                 List<String> containerName = new ArrayList<>();
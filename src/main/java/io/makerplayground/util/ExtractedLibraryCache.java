@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2019. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache of the extracted content of the external library zip files stored at MP_WORKSPACE/cache/lib_ext. Each zip file
+ * is extracted once into a directory named by the SHA-256 of the zip file and its content is hard linked into the upload
+ * workspace (or copied when the file system doesn't support hard link). The least recently used entries are evicted when
+ * the total size of the cache exceeds {@link #MAX_CACHE_SIZE}.
+ */
+public class ExtractedLibraryCache {
+
+    public static final long MAX_CACHE_SIZE = 512L * 1024 * 1024;
+
+    private static final Path CACHE_PATH = Paths.get(PathUtility.MP_WORKSPACE, "cache", "lib_ext");
+    private static final String LOCK_FILE = ".lock";
+    private static final String SIZE_FILE = ".size";
+    private static final String CONTENT_DIRECTORY = "content";
+
+    /* threads of this process are serialized by the lock while other processes are serialized by the file lock */
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Map<Path, ZipFileHash> hashCache = new ConcurrentHashMap<>();
+
+    private ExtractedLibraryCache() {
+    }
+
+    /**
+     * Extract the content of the zip file into the destination directory using the cached content when possible
+     * @param zipFilePath path to the zip file
+     * @param destinationPath the destination directory which will be created if it doesn't exist
+     * @throws IOException when the zip file can't be read or extracted
+     */
+    @SuppressWarnings("try")    // the file lock is only held for the duration of the block
+    public static void extract(Path zipFilePath, Path destinationPath) throws IOException {
+        String hash = getHash(zipFilePath);
+        Files.createDirectories(CACHE_PATH);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(CACHE_PATH.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            Path entry = CACHE_PATH.resolve(hash);
+            boolean newEntry = false;
+            if (!Files.isDirectory(entry)) {
+                createEntry(zipFilePath, entry);
+                newEntry = true;
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            linkOrCopyDirectory(entry.resolve(CONTENT_DIRECTORY), destinationPath);
+            if (newEntry) {
+                evict(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void createEntry(Path zipFilePath, Path entry) throws IOException {
+        // extract to a temporary directory and rename it so that an entry is either complete or doesn't exist at all
+        Path temp = Files.createTempDirectory(CACHE_PATH, "tmp-");
+        try {
+            Path content = temp.resolve(CONTENT_DIRECTORY);
+            if (ZipResourceExtractor.extract(zipFilePath, content.toString()) != ZipResourceExtractor.ExtractResult.SUCCESS) {
+                throw new IOException("Can't extract " + zipFilePath);
+            }
+            Files.writeString(temp.resolve(SIZE_FILE), String.valueOf(FileUtils.sizeOfDirectory(content.toFile())));
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temp.toFile());
+        }
+    }
+
+    private static void linkOrCopyDirectory(Path source, Path destination) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(source)) {
+            files = stream.collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Path target = destination.resolve(source.relativize(file).toString());
+            if (Files.isDirectory(file)) {
+                Files.createDirectories(target);
+                continue;
+            }
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, file);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void evict(Path currentEntry) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(CACHE_PATH)) {
+            entries = stream.filter(path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("tmp-"))
+                    .collect(Collectors.toList());
+        }
+        Map<Path, Long> size = new HashMap<>();
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        long totalSize = 0;
+        for (Path entry : entries) {
+            long entrySize;
+            try {
+                entrySize = Long.parseLong(Files.readString(entry.resolve(SIZE_FILE)).trim());
+            } catch (IOException | NumberFormatException e) {
+                entrySize = FileUtils.sizeOfDirectory(entry.toFile());
+            }
+            size.put(entry, entrySize);
+            lastUsed.put(entry, Files.getLastModifiedTime(entry));
+            totalSize += entrySize;
+        }
+        entries.sort(Comparator.comparing(lastUsed::get));
+        for (Path entry : entries) {
+            if (totalSize <= MAX_CACHE_SIZE) {
+                break;
+            }
+            if (entry.equals(currentEntry)) {
+                continue;
+            }
+            FileUtils.deleteQuietly(entry.toFile());
+            totalSize -= size.get(entry);
+        }
+    }
+
+    /**
+     * Get the SHA-256 of the zip file which is memorized until the size or the modification time of the file is changed
+     * @param zipFilePath path to the zip file
+     * @return the SHA-256 of the zip file as a hexadecimal string
+     * @throws IOException when the zip file can't be read
+     */
+    public static String getHash(Path zipFilePath) throws IOException {
+        Path path = zipFilePath.toAbsolutePath();
+        long size = Files.size(path);
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        ZipFileHash cached = hashCache.get(path);
+        if (cached != null && cached.size == size && cached.lastModified.equals(lastModified)) {
+            return cached.hash;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream is = Files.newInputStream(path)) {
+            byte[] buffer = new byte[65536];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        String hash = sb.toString();
+        hashCache.put(path, new ZipFileHash(size, lastModified, hash));
+        return hash;
+    }
+
+    private static class ZipFileHash {
+        private final long size;
+        private final FileTime lastModified;
+        private final String hash;
+
+        ZipFileHash(long size, FileTime lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
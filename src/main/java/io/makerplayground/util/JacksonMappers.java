@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.makerplayground.device.actual.ActualDevice;
+import io.makerplayground.device.actual.ActualDeviceDeserializer;
+import io.makerplayground.device.shared.DataType;
+import io.makerplayground.device.shared.constraint.Constraint;
+import io.makerplayground.device.shared.constraint.ConstraintDeserializer;
+import io.makerplayground.project.*;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Mappers shared by the whole program with every custom deserializer registered. A mapper caches the (de)serializers
+ * that it has looked up so it should be reused instead of being created for every file. The mappers must not be
+ * reconfigured after this class has been initialized as they are used from many threads at the same time. Use an
+ * {@link ObjectReader} or {@link ObjectWriter} (e.g. {@link ObjectReader#withAttribute(Object, Object)}) for a per call
+ * configuration instead.
+ *
+ * Deserializers registered here must not read the fields of this class in their static initializer.
+ */
+public final class JacksonMappers {
+
+    public static final ObjectMapper JSON = registerModule(new ObjectMapper());
+    public static final YAMLMapper YAML = registerModule(new YAMLMapper());
+
+    public static final ObjectReader PROJECT_READER = JSON.readerFor(Project.class);
+    public static final ObjectWriter PROJECT_WRITER = JSON.writerFor(Project.class);
+    public static final ObjectReader ACTUAL_DEVICE_READER = YAML.readerFor(ActualDevice.class);
+
+    private static final Map<DataType, ObjectReader> CONSTRAINT_READERS;
+    static {
+        Map<DataType, ObjectReader> readers = new EnumMap<>(DataType.class);
+        ObjectReader reader = JSON.readerFor(Constraint.class);
+        for (DataType dataType : DataType.values()) {
+            readers.put(dataType, reader.withAttribute(ConstraintDeserializer.DATA_TYPE_ATTRIBUTE, dataType));
+        }
+        CONSTRAINT_READERS = Collections.unmodifiableMap(readers);
+    }
+
+    private JacksonMappers() {
+    }
+
+    /**
+     * Get a reader for a {@link Constraint} of a parameter, property or value of the given data type. The reader can read
+     * a constraint from a json or yaml parser or from a tree.
+     */
+    public static ObjectReader constraintReader(DataType dataType) {
+        return CONSTRAINT_READERS.get(dataType);
+    }
+
+    private static <T extends ObjectMapper> T registerModule(T mapper) {
+        SimpleModule module = new SimpleModule("MakerPlaygroundModule");
+        module.addDeserializer(Constraint.class, new ConstraintDeserializer());
+        module.addDeserializer(ActualDevice.class, new ActualDeviceDeserializer());
+        // these deserializers need the project being loaded (see ProjectDeserializer)
+        module.addDeserializer(ProjectConfiguration.class, new ProjectConfigurationDeserializer());
+        module.addDeserializer(UserSetting.class, new UserSettingDeserializer());
+        module.addDeserializer(Scene.class, new SceneDeserializer());
+        module.addDeserializer(Condition.class, new ConditionDeserializer());
+        module.addDeserializer(Delay.class, new DelayDeserializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+}
@@ -17,7 +17,6 @@
 package io.makerplayground.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.makerplayground.device.DeviceLibrary;
 import io.makerplayground.device.actual.ActualDevice;
 import io.makerplayground.device.actual.CloudPlatform;
@@ -28,7 +27,6 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -58,32 +56,6 @@ public class PathUtility {
             "/Library/Application Support/MakerPlayground/python-portable-darwin_x86_64/bin/python3"
     );
 
-    private static Optional<List<String>> tryCommand(List<List<String>> command, List<String> args) {
-        for (List<String> c : command) {
-            try {
-                // append command with additional argument use to check for tool availability e.g. 'esptool' return 1 so we need to invoke 'esptool.py version' instead
-                List<String> fullCommand = new ArrayList<>(c);
-                fullCommand.addAll(args);
-
-                Process p = new ProcessBuilder(fullCommand).redirectErrorStream(true).start();
-                // read from an input stream to prevent the child process from stalling
-                try (BufferedReader processOutputReader = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
-                    String readLine;
-                    while ((readLine = processOutputReader.readLine()) != null) {
-//                        System.out.println(readLine);
-                    }
-                }
-                if (p.waitFor(5, TimeUnit.SECONDS) && (p.exitValue() == 0)) {
-                    return Optional.of(c);
-                }
-            } catch (IOException | InterruptedException e) {
-                // do nothing as we expected the code to throw exception
-            }
-        }
-
-        return Optional.empty();
-    }
-
     public static List<List<String>> getPythonModuleCommand(List<String> interpreterPath, String moduleName) {
         return interpreterPath.stream().map(s -> List.of(s, "-m", moduleName)).collect(Collectors.toUnmodifiableList());
     }
@@ -93,19 +65,11 @@ public class PathUtility {
      * @return command for executing platformio on the current platform or Optional.empty()
      */
     public static Optional<List<String>> getPlatformIOCommand() {
-        return tryCommand(getPythonModuleCommand(PYTHON_INTERPRETER, "platformio"), Collections.emptyList());
+        return ToolResolver.getResolvedTools().getPlatformIOCommand();
     }
 
     public static boolean isUsingIntegratedPlatformIO() {
-        return tryCommand(getPythonModuleCommand(INTEGRATED_PYTHON_INTERPRETER, "platformio"), Collections.emptyList()).isPresent();
-    }
-
-    /**
-     * Get command for executing Adafruit MicroPython Tool (ampy)
-     * @return command for executing ampy on the current platform or Optional.empty()
-     */
-    public static Optional<List<String>> getAmpyCommand() {
-        return tryCommand(getPythonModuleCommand(PYTHON_INTERPRETER, "ampy.cli"), Collections.emptyList());
+        return ToolResolver.getResolvedTools().isUsingIntegratedPlatformIO();
     }
 
     /**
@@ -113,7 +77,7 @@ public class PathUtility {
      * @return command for executing esptool on the current platform or Optional.empty()
      */
     public static Optional<List<String>> getEsptoolCommand() {
-        return tryCommand(getPythonModuleCommand(PYTHON_INTERPRETER, "esptool"), List.of("version"));
+        return ToolResolver.getResolvedTools().getEsptoolCommand();
     }
 
     /**
@@ -121,7 +85,7 @@ public class PathUtility {
      * @return command for executing kflash on the current platform or Optional.empty()
      */
     public static Optional<List<String>> getKflashCommand() {
-        return tryCommand(getPythonModuleCommand(PYTHON_INTERPRETER, "kflash"), List.of("-v"));
+        return ToolResolver.getResolvedTools().getKflashCommand();
     }
 
     /**
@@ -187,7 +151,7 @@ public class PathUtility {
         if (!modelPath.containsKey(actualDevice)) {
             Path modelDir = Path.of(PathUtility.getDeviceDirectoryPath(), actualDevice.getId(), "model");
             try (Stream<Path> paths = Files.list(modelDir)) {
-                ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+                ObjectMapper mapper = JacksonMappers.YAML;
                 List<T> modelList = new ArrayList<>();
                 paths.filter(path -> path.toString().endsWith(".yaml")).forEach(path -> {
                     try {
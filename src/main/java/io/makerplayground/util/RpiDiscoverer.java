@@ -1,68 +1,321 @@
 package io.makerplayground.util;
 
 import io.makerplayground.upload.UploadTarget;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import org.apache.commons.net.util.SubnetUtils;
 
-import java.net.InterfaceAddress;
-import java.net.NetworkInterface;
-import java.net.SocketException;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Discover Raspberry Pi running the Maker Playground service on every local IPv4 subnet. Every host is probed with a
+ * non-blocking connect to {@link RpiServiceChecker#PORT} from a single thread with at most
+ * {@link #MAX_CONCURRENT_CONNECTIONS} connections in flight. Hosts that accept the connection are verified over http
+ * while hosts that keep failing are probed less often (exponential back-off up to {@link #MAX_BACKOFF_MS}).
+ *
+ * A UDP datagram containing "makerplayground?" is also broadcast to {@link RpiServiceChecker#PORT} of every subnet at the
+ * beginning of each scan. A device that replies with "makerplayground" is verified immediately regardless of its back-off.
+ */
 public class RpiDiscoverer {
 
+    private static final int MAX_CONCURRENT_CONNECTIONS = 128;
+    private static final long SCAN_INTERVAL_MS = 10000;
+    private static final long CONNECT_TIMEOUT_MS = 2500;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    /* subnets larger than this are only scanned around the address of the interface */
+    private static final int MIN_PREFIX_LENGTH = 16;
+    private static final byte[] ANNOUNCE_REQUEST = "makerplayground?".getBytes(StandardCharsets.US_ASCII);
+    private static final String ANNOUNCE_RESPONSE = "makerplayground";
+
+    private static class HostState {
+        private int failureCount;
+        private long nextProbeTime;
+    }
+
+    private static class Probe {
+        private final String host;
+        private final long deadline;
+
+        private Probe(String host, long deadline) {
+            this.host = host;
+            this.deadline = deadline;
+        }
+    }
+
     final ObservableList<UploadTarget> hostList;
-    private ScheduledThreadPoolExecutor executor;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Selector selector;
+
+    /* accessed only by the scanner thread */
+    private final Map<String, HostState> hostStates = new HashMap<>();
+    private int connectionCount;
+    /* hosts that have been added to the host list by this discoverer */
+    private final Set<String> availableHosts = ConcurrentHashMap.newKeySet();
+
+    private volatile long lastScanDurationMillis;
+    private volatile int lastProbeCount;
+    private volatile int lastPeakConnectionCount;
 
     public RpiDiscoverer(ObservableList<UploadTarget> hostList) {
         this.hostList = hostList;
     }
 
     public void startScan() {
-        executor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(512);
-        try {
-            Enumeration<NetworkInterface> nets = NetworkInterface.getNetworkInterfaces();
+        running = true;
+        thread = new Thread(this::scanLoop, "RpiDiscoverer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isRunning() {
+        return thread != null && thread.isAlive();
+    }
+
+    public void stopScan() {
+        running = false;
+        Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
 
-            List<InterfaceAddress> addressList = new ArrayList<>();
-            for (NetworkInterface networkInterface : Collections.list(nets)) {
-                try {
-                    if (networkInterface.isUp() && !networkInterface.isLoopback()) {
-                        addressList.addAll(networkInterface.getInterfaceAddresses());
+    /**
+     * @return time taken to probe every host in the last scan in milliseconds
+     */
+    public long getLastScanDurationMillis() {
+        return lastScanDurationMillis;
+    }
+
+    /**
+     * @return number of hosts probed in the last scan (hosts being backed off are skipped)
+     */
+    public int getLastProbeCount() {
+        return lastProbeCount;
+    }
+
+    /**
+     * @return maximum number of connections in flight during the last scan
+     */
+    public int getLastPeakConnectionCount() {
+        return lastPeakConnectionCount;
+    }
+
+    private void scanLoop() {
+        try (Selector selector = Selector.open(); DatagramChannel announceChannel = DatagramChannel.open()) {
+            this.selector = selector;
+            announceChannel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+            announceChannel.configureBlocking(false);
+            announceChannel.bind(null);
+            announceChannel.register(selector, SelectionKey.OP_READ);
+
+            while (running) {
+                long scanStartTime = System.currentTimeMillis();
+                List<InetAddress> broadcastAddresses = new ArrayList<>();
+                List<String> hosts = getLocalHosts(broadcastAddresses);
+                for (InetAddress broadcastAddress : broadcastAddresses) {
+                    try {
+                        announceChannel.send(ByteBuffer.wrap(ANNOUNCE_REQUEST), new InetSocketAddress(broadcastAddress, RpiServiceChecker.PORT));
+                    } catch (IOException e) {
+                        // some interfaces don't allow broadcast so we rely on the tcp probe
+                    }
+                }
+
+                Deque<String> pendingHosts = new ArrayDeque<>();
+                for (String host : hosts) {
+                    HostState state = hostStates.get(host);
+                    if (state == null || state.nextProbeTime <= scanStartTime) {
+                        pendingHosts.add(host);
                     }
-                } catch (Exception e) {
-                    e.printStackTrace();
                 }
+
+                int probeCount = 0;
+                int peakConnectionCount = 0;
+                while (running && (!pendingHosts.isEmpty() || connectionCount > 0)) {
+                    while (connectionCount < MAX_CONCURRENT_CONNECTIONS && !pendingHosts.isEmpty()) {
+                        startProbe(selector, pendingHosts.poll());
+                        probeCount++;
+                    }
+                    peakConnectionCount = Math.max(peakConnectionCount, connectionCount);
+                    selector.select(100);
+                    processSelectedKeys(selector, announceChannel);
+                    expireProbes(selector);
+                }
+                lastScanDurationMillis = System.currentTimeMillis() - scanStartTime;
+                lastProbeCount = probeCount;
+                lastPeakConnectionCount = peakConnectionCount;
+
+                // keep listening for the announcement until the next scan
+                long nextScanTime = scanStartTime + SCAN_INTERVAL_MS;
+                long now;
+                while (running && (now = System.currentTimeMillis()) < nextScanTime) {
+                    selector.select(nextScanTime - now);
+                    processSelectedKeys(selector, announceChannel);
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
             }
-            addressList.sort(Comparator.comparingInt(InterfaceAddress::getNetworkPrefixLength).reversed());
+            connectionCount = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            selector = null;
+        }
+    }
 
-            List<String> allHosts = new ArrayList<>();
-            for (InterfaceAddress addr: addressList) {
-                if (addr.getBroadcast() == null) { // IPv6
-                    continue;
+    private List<String> getLocalHosts(List<InetAddress> broadcastAddresses) throws SocketException {
+        List<InterfaceAddress> addressList = new ArrayList<>();
+        for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            try {
+                if (networkInterface.isUp() && !networkInterface.isLoopback()) {
+                    addressList.addAll(networkInterface.getInterfaceAddresses());
                 }
-                SubnetUtils utils = new SubnetUtils(addr.getAddress().getHostAddress()+"/"+addr.getNetworkPrefixLength());
-                Collections.addAll(allHosts, utils.getInfo().getAllAddresses());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        addressList.sort(Comparator.comparingInt(InterfaceAddress::getNetworkPrefixLength).reversed());
+
+        Set<String> allHosts = new LinkedHashSet<>();
+        for (InterfaceAddress addr: addressList) {
+            if (addr.getBroadcast() == null) { // IPv6
+                continue;
+            }
+            broadcastAddresses.add(addr.getBroadcast());
+            int prefixLength = Math.max(MIN_PREFIX_LENGTH, addr.getNetworkPrefixLength());
+            if (prefixLength >= 31) {
+                continue;
+            }
+            SubnetUtils utils = new SubnetUtils(addr.getAddress().getHostAddress() + "/" + prefixLength);
+            Collections.addAll(allHosts, utils.getInfo().getAllAddresses());
+        }
+        return new ArrayList<>(allHosts);
+    }
+
+    private void startProbe(Selector selector, String host) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(new InetSocketAddress(host, RpiServiceChecker.PORT))) {
+                channel.close();
+                onHostReachable(host);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, new Probe(host, System.currentTimeMillis() + CONNECT_TIMEOUT_MS));
+                connectionCount++;
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            onHostUnreachable(host);
+        }
+    }
+
+    private void processSelectedKeys(Selector selector, DatagramChannel announceChannel) {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (key.channel() == announceChannel) {
+                receiveAnnouncement(announceChannel);
+                continue;
+            }
+            Probe probe = (Probe) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            boolean connected;
+            try {
+                connected = channel.finishConnect();
+            } catch (IOException e) {
+                connected = false;
+            }
+            key.cancel();
+            closeQuietly(channel);
+            connectionCount--;
+            if (connected) {
+                onHostReachable(probe.host);
+            } else {
+                onHostUnreachable(probe.host);
+            }
+        }
+    }
+
+    private void expireProbes(Selector selector) {
+        long now = System.currentTimeMillis();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Probe && ((Probe) key.attachment()).deadline < now) {
+                key.cancel();
+                closeQuietly(key.channel());
+                connectionCount--;
+                onHostUnreachable(((Probe) key.attachment()).host);
             }
+        }
+    }
 
-            double i = 0;
-            double timestep = 5000.0 / allHosts.size();
-            for (String host: allHosts) {
-                executor.scheduleAtFixedRate(new RpiServiceChecker(host, hostList), (long) i, 10000, TimeUnit.MILLISECONDS);
-                i += timestep;
+    private void receiveAnnouncement(DatagramChannel announceChannel) {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        try {
+            SocketAddress address;
+            while ((address = announceChannel.receive(buffer)) != null) {
+                buffer.flip();
+                String response = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+                buffer.clear();
+                if (ANNOUNCE_RESPONSE.equals(response) && address instanceof InetSocketAddress) {
+                    String host = ((InetSocketAddress) address).getAddress().getHostAddress();
+                    hostStates.remove(host);
+                    onHostReachable(host);
+                }
             }
-        } catch (SocketException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public boolean isRunning() {
-        return executor != null && !executor.isTerminated();
+    private void onHostReachable(String host) {
+        hostStates.remove(host);
+        RpiServiceChecker.checkService(host).thenAccept(available -> {
+            if (available) {
+                availableHosts.add(host);
+                Platform.runLater(() -> {
+                    if (hostList.stream().noneMatch(uploadConnection -> host.equals(uploadConnection.getRpiHostName()))) {
+                        hostList.add(new UploadTarget(host));
+                    }
+                });
+            } else {
+                removeHost(host);
+            }
+        });
     }
 
-    public void stopScan() {
-        executor.shutdownNow();
+    private void onHostUnreachable(String host) {
+        HostState state = hostStates.computeIfAbsent(host, k -> new HostState());
+        state.failureCount++;
+        // the first failure is probed again in the next scan and the interval is doubled on every subsequent failure
+        long backoff = Math.min(MAX_BACKOFF_MS, SCAN_INTERVAL_MS << Math.min(state.failureCount - 1, 10));
+        state.nextProbeTime = System.currentTimeMillis() + backoff - SCAN_INTERVAL_MS / 2;
+        removeHost(host);
+    }
+
+    private void removeHost(String host) {
+        // avoid flooding the FX thread with hosts that have never been found
+        if (availableHosts.remove(host)) {
+            Platform.runLater(() -> hostList.removeIf(uploadConnection -> host.equals(uploadConnection.getRpiHostName())));
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
     }
 }
@@ -12,20 +12,40 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public class RpiServiceChecker implements Runnable {
 
     public static final short PORT = 6212;
 
+    private static final String EXPECTED_RESPONSE = "makerplayground";
+    private static final Duration TIMEOUT = Duration.ofMillis(2500);
+    /* a single client is shared by every check so its connection pool and selector thread are reused */
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+
     private final ObservableList<UploadTarget> availableHostList;
     private final String host;
-    private static final String EXPECTED_RESPONSE = "makerplayground";
 
     public RpiServiceChecker(String host, ObservableList<UploadTarget> availableHostList) {
         this.host = host;
         this.availableHostList = availableHostList;
     }
 
+    /**
+     * Check whether the Maker Playground service is running on the host without blocking the caller
+     * @return a future which completes with true if the service responded correctly or false otherwise
+     */
+    public static CompletableFuture<Boolean> checkService(String host) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(String.format("http://%s:%d", host, PORT))) // example: "http://192.168.1.43:6212/"
+                .timeout(TIMEOUT)
+                .build();
+        return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> EXPECTED_RESPONSE.equals(response.body()))
+                .exceptionally(throwable -> false);
+    }
+
     @Override
     public void run() {
 //            System.out.println("Check : " + this.host);
@@ -43,22 +63,16 @@ public class RpiServiceChecker implements Runnable {
         }
 
         if (isConnected) {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(String.format("http://%s:%d", this.host, PORT))) // example: "http://192.168.1.43:6212/"
-                    .build();
-            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(HttpResponse::body)
-                    .thenAccept(s -> Platform.runLater(() -> {
-                        if (EXPECTED_RESPONSE.equals(s)) {
-                            if (this.availableHostList.stream().noneMatch(uploadConnection -> host.equals(uploadConnection.getRpiHostName()))) {
-                                this.availableHostList.add(new UploadTarget(this.host));
-                            }
-                        } else {
-                            this.availableHostList.removeIf(uploadConnection -> host.equals(uploadConnection.getRpiHostName()));
-                        }
-                    }))
-                    .join();
+            boolean available = checkService(host).join();
+            Platform.runLater(() -> {
+                if (available) {
+                    if (this.availableHostList.stream().noneMatch(uploadConnection -> host.equals(uploadConnection.getRpiHostName()))) {
+                        this.availableHostList.add(new UploadTarget(this.host));
+                    }
+                } else {
+                    this.availableHostList.removeIf(uploadConnection -> host.equals(uploadConnection.getRpiHostName()));
+                }
+            });
         }
     }
 }
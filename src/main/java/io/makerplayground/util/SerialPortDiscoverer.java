@@ -5,35 +5,123 @@ import io.makerplayground.upload.UploadTarget;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
+/**
+ * Enumerate the serial ports on a background thread and update the list on the FX thread only when a port has been
+ * added or removed. The polling interval is doubled (up to {@link #MAX_INTERVAL_MS}) every time nothing has changed.
+ * On Linux, /dev is also watched so a port that has been plugged in or unplugged is picked up without waiting.
+ */
 public class SerialPortDiscoverer {
+
+    private static final long MIN_INTERVAL_MS = 1000;
+    private static final long MAX_INTERVAL_MS = 8000;
+    /* without a watch service a newly plugged board is only noticed by polling so the interval must stay short */
+    private static final long MAX_POLLING_INTERVAL_MS = 2000;
+    /* time to wait after /dev has been changed for the device node to be ready */
+    private static final long SETTLE_TIME_MS = 200;
+
     final ObservableList<UploadTarget> resultSerialList;
-    private ScheduledThreadPoolExecutor executor;
+    private Thread thread;
+    private volatile boolean running;
 
     public SerialPortDiscoverer(ObservableList<UploadTarget> resultSerialList) {
         this.resultSerialList = resultSerialList;
     }
 
     public void startScan() {
-        executor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
-        executor.scheduleAtFixedRate(() -> Platform.runLater(() -> {
-            List<UploadTarget> newList = Arrays.stream(SerialPort.getCommPorts()).map(UploadTarget::new).collect(Collectors.toList());
-            resultSerialList.removeIf(uploadConnection -> newList.stream().noneMatch(uploadConnection1 -> uploadConnection1.equals(uploadConnection)));
-            resultSerialList.addAll(newList.stream().filter(uploadConnection -> !resultSerialList.contains(uploadConnection)).collect(Collectors.toList()));
-        }), 0, 2, TimeUnit.SECONDS);
+        running = true;
+        thread = new Thread(this::scanLoop, "SerialPortDiscoverer");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public boolean isRunning() {
-        return executor != null && !executor.isTerminated();
+        return thread != null && thread.isAlive();
     }
 
     public void stopScan() {
-        executor.shutdownNow();
+        running = false;
+        thread.interrupt();
+    }
+
+    private void scanLoop() {
+        WatchService watchService = createDevWatchService();
+        Set<String> currentPortNames = null;
+        long maxInterval = (watchService != null) ? MAX_INTERVAL_MS : MAX_POLLING_INTERVAL_MS;
+        long interval = MIN_INTERVAL_MS;
+        try {
+            while (running) {
+                Map<String, SerialPort> ports = new LinkedHashMap<>();
+                for (SerialPort port : SerialPort.getCommPorts()) {
+                    ports.put(port.getSystemPortName(), port);
+                }
+                if (!ports.keySet().equals(currentPortNames)) {
+                    currentPortNames = ports.keySet();
+                    publish(ports);
+                    interval = MIN_INTERVAL_MS;
+                } else {
+                    interval = Math.min(maxInterval, interval * 2);
+                }
+
+                if (watchService != null) {
+                    WatchKey key = watchService.poll(interval, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                        Thread.sleep(SETTLE_TIME_MS);
+                        interval = MIN_INTERVAL_MS;
+                    }
+                } else {
+                    Thread.sleep(interval);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the scan has been stopped
+        } finally {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /* Apply the difference between the ports and the list to the list on the FX thread */
+    private void publish(Map<String, SerialPort> ports) {
+        Platform.runLater(() -> {
+            resultSerialList.removeIf(uploadTarget -> !ports.containsKey(uploadTarget.getSerialPort().getSystemPortName()));
+            Set<String> existingPortNames = new HashSet<>();
+            for (UploadTarget uploadTarget : resultSerialList) {
+                existingPortNames.add(uploadTarget.getSerialPort().getSystemPortName());
+            }
+            List<UploadTarget> addedTargets = new ArrayList<>();
+            for (Map.Entry<String, SerialPort> entry : ports.entrySet()) {
+                if (!existingPortNames.contains(entry.getKey())) {
+                    addedTargets.add(new UploadTarget(entry.getValue()));
+                }
+            }
+            resultSerialList.addAll(addedTargets);
+        });
+    }
+
+    private static WatchService createDevWatchService() {
+        Path devPath = Paths.get("/dev");
+        if (!System.getProperty("os.name").toLowerCase().contains("linux") || !Files.isDirectory(devPath)) {
+            return null;
+        }
+        try {
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+            devPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            return watchService;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 }
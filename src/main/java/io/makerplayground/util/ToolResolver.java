@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2019. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Find the command used to invoke each external tool. The candidates of every tool are probed in parallel on the first
+ * use and the result is saved to MP_WORKSPACE/tools.json together with the path, modification time and version of the
+ * interpreter so that the next launch only needs to check that the interpreter hasn't been changed. The tools should be
+ * launched with {@link #start(ProcessBuilder)} so that every tool is probed again when the cached command doesn't work.
+ */
+public class ToolResolver {
+
+    private static final Path CACHE_FILE = Paths.get(PathUtility.MP_WORKSPACE, "tools.json");
+
+    private static final String PLATFORMIO = "platformio";
+    private static final String ESPTOOL = "esptool";
+    private static final String KFLASH = "kflash";
+
+    private static ResolvedTools resolvedTools;
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class ResolvedTools {
+        private final Optional<List<String>> platformIOCommand;
+        private final Optional<List<String>> esptoolCommand;
+        private final Optional<List<String>> kflashCommand;
+        private final boolean usingIntegratedPlatformIO;
+    }
+
+    @AllArgsConstructor
+    private static class Tool {
+        private final String name;
+        private final List<List<String>> candidates;
+        private final List<String> args;
+    }
+
+    @AllArgsConstructor
+    private static class ToolCommand {
+        private final List<String> command;
+        private final String interpreterPath;
+        private final long lastModified;
+        private final String version;
+    }
+
+    private ToolResolver() {
+    }
+
+    /**
+     * Get the commands of every external tool. The result is computed once and shared until {@link #invalidate()} is called.
+     * @return the resolved commands
+     */
+    public static synchronized ResolvedTools getResolvedTools() {
+        if (resolvedTools == null) {
+            resolvedTools = resolve();
+        }
+        return resolvedTools;
+    }
+
+    /**
+     * Discard the resolved commands e.g. after the user has installed a missing tool
+     */
+    public static synchronized void invalidate() {
+        resolvedTools = null;
+        try {
+            Files.deleteIfExists(CACHE_FILE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Start a process of a resolved tool. When it can't be launched (e.g. the interpreter has been uninstalled) the
+     * resolved commands are discarded, every tool is probed again and the process is started again with the new command.
+     * @param builder the process builder whose command starts with the command of a resolved tool
+     * @return the started process
+     * @throws IOException when the process can't be started even after the tools have been probed again
+     */
+    public static Process start(ProcessBuilder builder) throws IOException {
+        ResolvedTools previousTools;
+        synchronized (ToolResolver.class) {
+            previousTools = resolvedTools;
+        }
+        try {
+            return builder.start();
+        } catch (IOException e) {
+            if (previousTools == null) {
+                throw e;
+            }
+            invalidate();
+            ResolvedTools currentTools = getResolvedTools();
+            List<String> command = builder.command();
+            List<Function<ResolvedTools, Optional<List<String>>>> toolCommands = List.of(ResolvedTools::getPlatformIOCommand,
+                    ResolvedTools::getEsptoolCommand, ResolvedTools::getKflashCommand);
+            for (Function<ResolvedTools, Optional<List<String>>> toolCommand : toolCommands) {
+                Optional<List<String>> previousCommand = toolCommand.apply(previousTools);
+                Optional<List<String>> currentCommand = toolCommand.apply(currentTools);
+                if (previousCommand.isPresent() && command.size() >= previousCommand.get().size()
+                        && command.subList(0, previousCommand.get().size()).equals(previousCommand.get())
+                        && currentCommand.isPresent() && !currentCommand.get().equals(previousCommand.get())) {
+                    List<String> newCommand = new ArrayList<>(currentCommand.get());
+                    newCommand.addAll(command.subList(previousCommand.get().size(), command.size()));
+                    return builder.command(newCommand).start();
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static ResolvedTools resolve() {
+        List<Tool> tools = List.of(
+                new Tool(PLATFORMIO, PathUtility.getPythonModuleCommand(PathUtility.PYTHON_INTERPRETER, "platformio"), Collections.emptyList()),
+                // append command with additional argument use to check for tool availability e.g. 'esptool' return 1 so we need to invoke 'esptool.py version' instead
+                new Tool(ESPTOOL, PathUtility.getPythonModuleCommand(PathUtility.PYTHON_INTERPRETER, "esptool"), List.of("version")),
+                new Tool(KFLASH, PathUtility.getPythonModuleCommand(PathUtility.PYTHON_INTERPRETER, "kflash"), List.of("-v"))
+        );
+
+        Map<String, ToolCommand> cachedCommands = readCache();
+        Map<String, Optional<ToolCommand>> commands = new HashMap<>();
+        // every tool is usually run by the same interpreter so its version is only checked once
+        Map<String, Optional<String>> interpreterVersions = new HashMap<>();
+        List<Tool> toolsToProbe = new ArrayList<>();
+        for (Tool tool : tools) {
+            ToolCommand cachedCommand = cachedCommands.get(tool.name);
+            if (cachedCommand != null && isValid(cachedCommand, interpreterVersions)) {
+                commands.put(tool.name, Optional.of(cachedCommand));
+            } else {
+                toolsToProbe.add(tool);
+            }
+        }
+
+        if (!toolsToProbe.isEmpty()) {
+            int candidateCount = toolsToProbe.stream().mapToInt(tool -> tool.candidates.size()).sum();
+            ExecutorService executor = Executors.newFixedThreadPool(candidateCount, runnable -> {
+                Thread thread = new Thread(runnable, "tool-resolver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Map<String, List<Future<Optional<String>>>> futures = new HashMap<>();
+                for (Tool tool : toolsToProbe) {
+                    futures.put(tool.name, tool.candidates.stream()
+                            .map(candidate -> executor.submit(() -> probe(candidate, tool.args)))
+                            .collect(Collectors.toList()));
+                }
+                // the candidates are listed by priority so we select the first one that works
+                for (Tool tool : toolsToProbe) {
+                    Optional<ToolCommand> command = Optional.empty();
+                    for (int i=0; i<tool.candidates.size(); i++) {
+                        if (getQuietly(futures.get(tool.name).get(i)).isPresent()) {
+                            List<String> candidate = tool.candidates.get(i);
+                            Optional<Path> interpreterPath = findExecutable(candidate.get(0));
+                            String version = interpreterPath.flatMap(path -> getInterpreterVersion(path, interpreterVersions)).orElse(null);
+                            command = Optional.of(new ToolCommand(candidate, interpreterPath.map(Path::toString).orElse(null),
+                                    interpreterPath.map(ToolResolver::getLastModified).orElse(0L), version));
+                            break;
+                        }
+                    }
+                    commands.put(tool.name, command);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            writeCache(commands);
+        }
+
+        Optional<List<String>> platformIOCommand = commands.get(PLATFORMIO).map(command -> command.command);
+        // the integrated interpreters are listed before the others so they will be selected whenever they are available
+        boolean usingIntegratedPlatformIO = platformIOCommand.isPresent()
+                && PathUtility.INTEGRATED_PYTHON_INTERPRETER.contains(platformIOCommand.get().get(0));
+        return new ResolvedTools(platformIOCommand,
+                commands.get(ESPTOOL).map(command -> command.command),
+                commands.get(KFLASH).map(command -> command.command),
+                usingIntegratedPlatformIO);
+    }
+
+    private static Optional<String> getQuietly(Future<Optional<String>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Run the command and return the first line of its output when it exits successfully within 5 seconds
+     */
+    private static Optional<String> probe(List<String> command, List<String> args) {
+        try {
+            List<String> fullCommand = new ArrayList<>(command);
+            fullCommand.addAll(args);
+
+            Process p = new ProcessBuilder(fullCommand).redirectErrorStream(true).start();
+            String firstLine = null;
+            // read from an input stream to prevent the child process from stalling
+            try (BufferedReader processOutputReader = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String readLine;
+                while ((readLine = processOutputReader.readLine()) != null) {
+                    if (firstLine == null && !readLine.isBlank()) {
+                        firstLine = readLine.strip();
+                    }
+                }
+            }
+            if (p.waitFor(5, TimeUnit.SECONDS) && (p.exitValue() == 0)) {
+                return Optional.of(firstLine == null ? "" : firstLine);
+            }
+            p.destroy();
+        } catch (IOException | InterruptedException e) {
+            // do nothing as we expected the code to throw exception
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isValid(ToolCommand command, Map<String, Optional<String>> interpreterVersions) {
+        if (command.interpreterPath == null || command.version == null) {
+            return false;
+        }
+        Path interpreterPath = Paths.get(command.interpreterPath);
+        // the modification time doesn't change when the interpreter is a symbolic link e.g. /usr/bin/python which is
+        // switched to another version so its version is compared too
+        return Files.isRegularFile(interpreterPath) && getLastModified(interpreterPath) == command.lastModified
+                && findExecutable(command.command.get(0)).map(path -> path.equals(interpreterPath)).orElse(false)
+                && getInterpreterVersion(interpreterPath, interpreterVersions).map(command.version::equals).orElse(false);
+    }
+
+    private static Optional<String> getInterpreterVersion(Path interpreterPath, Map<String, Optional<String>> interpreterVersions) {
+        synchronized (interpreterVersions) {
+            return interpreterVersions.computeIfAbsent(interpreterPath.toString(),
+                    path -> probe(List.of(path), List.of("--version")));
+        }
+    }
+
+    private static Optional<Path> findExecutable(String name) {
+        List<String> fileNames = OSInfo.getOs() == OSInfo.OS.WINDOWS ? List.of(name + ".exe", name) : List.of(name);
+        if (name.contains(File.separator) || name.contains("/")) {
+            return fileNames.stream().map(Paths::get).filter(Files::isRegularFile).map(Path::toAbsolutePath).findFirst();
+        }
+        String systemPath = System.getenv("PATH");
+        if (systemPath == null) {
+            return Optional.empty();
+        }
+        for (String directory : systemPath.split(File.pathSeparator)) {
+            for (String fileName : fileNames) {
+                Path path = Paths.get(directory, fileName);
+                if (Files.isRegularFile(path) && Files.isExecutable(path)) {
+                    return Optional.of(path.toAbsolutePath());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static long getLastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static Map<String, ToolCommand> readCache() {
+        Map<String, ToolCommand> commands = new HashMap<>();
+        if (!Files.exists(CACHE_FILE)) {
+            return commands;
+        }
+        try {
+            JsonNode root = JacksonMappers.JSON.readTree(CACHE_FILE.toFile());
+            Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                JsonNode node = entry.getValue();
+                List<String> command = new ArrayList<>();
+                node.get("command").forEach(arg -> command.add(arg.asText()));
+                commands.put(entry.getKey(), new ToolCommand(command, node.get("interpreterPath").asText(),
+                        node.get("lastModified").asLong(), node.get("version").asText()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // ignore the corrupted cache file and probe every tool again
+            commands.clear();
+        }
+        return commands;
+    }
+
+    private static void writeCache(Map<String, Optional<ToolCommand>> commands) {
+        ObjectMapper mapper = JacksonMappers.JSON;
+        ObjectNode root = mapper.createObjectNode();
+        commands.forEach((name, command) -> {
+            // tools that can't be found and tools run by an interpreter that can't be located are probed again on the next launch
+            if (command.isEmpty() || command.get().interpreterPath == null || command.get().version == null) {
+                return;
+            }
+            ObjectNode node = root.putObject(name);
+            ArrayNode commandNode = node.putArray("command");
+            command.get().command.forEach(commandNode::add);
+            node.put("interpreterPath", command.get().interpreterPath);
+            node.put("lastModified", command.get().lastModified);
+            node.put("version", command.get().version);
+        });
+        try {
+            Files.createDirectories(CACHE_FILE.getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(CACHE_FILE.toFile(), root);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
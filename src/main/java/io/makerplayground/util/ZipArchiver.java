@@ -16,13 +16,29 @@
 
 package io.makerplayground.util;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
+/**
+ * Create a zip archive of a directory. Small files are compressed independently on a thread pool and the compressed
+ * entries are written to the archive in order so the time taken depends mostly on the number of cores rather than the
+ * number of files. Large files are streamed to the archive through fixed size buffers and their local header is updated
+ * once their size and CRC are known. Files that are already compressed (e.g. images and archives) or that don't get
+ * smaller are stored as is. Zip64 records are added when the archive has too many entries or is too large for the
+ * original format.
+ */
 public class ZipArchiver {
 
     public enum ArchiveResult {
@@ -30,55 +46,381 @@ public class ZipArchiver {
         FAIL,
     }
 
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    /* files up to this size are compressed in memory on the thread pool while larger files are streamed to the archive */
+    static final long IN_MEMORY_FILE_SIZE = BUFFER_SIZE;
+    private static final int ZIP64_ENTRY_COUNT = 0xFFFF;
+    private static final long ZIP64_SIZE = 0xFFFFFFFFL;
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("zip", "jar", "gz", "tgz", "bz2", "xz", "7z", "png"
+            , "jpg", "jpeg", "gif", "mp3", "mp4", "whl");
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final short VERSION = 20;
+    private static final short VERSION_ZIP64 = 45;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+    private static final short FLAG_UTF8 = 0x0800;
+    private static final short METHOD_STORED = 0;
+    private static final short METHOD_DEFLATED = 8;
+    /* offset of the CRC in the local header followed by the compressed size and the size */
+    private static final int LOCAL_HEADER_CRC_OFFSET = 14;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+
+    /* content of an entry ready to be written to the archive */
+    private static class Entry {
+        private final String name;
+        private short method;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private ByteBuffer data = ByteBuffer.allocate(0);
+        private Path source;            // file to be streamed to the archive instead of the data
+        private boolean compress;
+        private boolean zip64LocalHeader;
+        private int dosTime;
+        private long offset;
+
+        private Entry(String name) {
+            this.name = name;
+        }
+
+        private boolean isZip64() {
+            return zip64LocalHeader || size >= ZIP64_SIZE || compressedSize >= ZIP64_SIZE || offset >= ZIP64_SIZE;
+        }
+    }
+
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "ZipArchiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* per thread buffers reused across entries */
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private static final ThreadLocal<ByteBuffer> DEFLATE_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
     public static ArchiveResult archiveDirectory(String directory, String zipFilePath){
-        File fileToZip = new File(directory);
-        return archiveDirectory(directory, zipFilePath, fileToZip.getName());
+        return archiveDirectory(directory, zipFilePath, Paths.get(directory).getFileName().toString());
     }
 
     public static ArchiveResult archiveDirectory(String directory, String zipFilePath, String dirNameInZip) {
         try {
-            FileOutputStream fos = new FileOutputStream(zipFilePath);
-            ZipOutputStream zipOut = new ZipOutputStream(fos);
-            File fileToZip = new File(directory);
-
-            zipFile(fileToZip, dirNameInZip, zipOut);
-            zipOut.close();
-            fos.close();
-        } catch (IOException e) {
+            archive(Paths.get(directory), Paths.get(zipFilePath), dirNameInZip);
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return ArchiveResult.FAIL;
         }
         return ArchiveResult.SUCCESS;
     }
 
-    private static void zipFile(File fileToZip, String fileName, ZipOutputStream zipOut) throws IOException {
-        if (fileToZip.isHidden()) {
+    private static void archive(Path directory, Path zipFilePath, String dirNameInZip) throws IOException, InterruptedException {
+        // list every file and directory in the same order as the old recursive implementation (parent before children)
+        Map<String, Path> files = new LinkedHashMap<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(directory) && Files.isHidden(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                files.put(getEntryName(dir) + "/", dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!Files.isHidden(file)) {
+                    files.put(getEntryName(file), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String getEntryName(Path path) {
+                String relativePath = directory.relativize(path).toString().replace('\\', '/');
+                return relativePath.isEmpty() ? dirNameInZip : dirNameInZip + "/" + relativePath;
+            }
+        });
+
+        Deque<Future<Entry>> pendingEntries = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(zipFilePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+                , StandardOpenOption.WRITE)) {
+            // compress the entries in parallel but limit the number of entries kept in memory before being written
+            List<Entry> writtenEntries = new ArrayList<>(files.size());
+            Iterator<Map.Entry<String, Path>> iterator = files.entrySet().iterator();
+            while (iterator.hasNext() || !pendingEntries.isEmpty()) {
+                while (iterator.hasNext() && pendingEntries.size() < THREAD_COUNT * 2) {
+                    Map.Entry<String, Path> file = iterator.next();
+                    pendingEntries.add(EXECUTOR.submit(() -> createEntry(file.getKey(), file.getValue())));
+                }
+                Entry entry;
+                try {
+                    entry = pendingEntries.poll().get();
+                } catch (ExecutionException e) {
+                    throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+                writeEntry(channel, entry);
+                writtenEntries.add(entry);
+            }
+            writeCentralDirectory(channel, writtenEntries);
+        } finally {
+            for (Future<Entry> future : pendingEntries) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static Entry createEntry(String name, Path path) throws IOException {
+        Entry entry = new Entry(name);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        entry.dosTime = toDosTime(attributes.lastModifiedTime().toMillis());
+        entry.method = METHOD_STORED;
+        if (attributes.isDirectory()) {
+            return entry;
+        }
+
+        String fileName = path.getFileName().toString();
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        entry.compress = !COMPRESSED_EXTENSIONS.contains(extension);
+        if (attributes.size() > IN_MEMORY_FILE_SIZE) {
+            // the size is only used to decide the format of the local header and is updated after the file is streamed
+            entry.source = path;
+            entry.size = attributes.size();
+            entry.zip64LocalHeader = entry.size >= ZIP64_SIZE;
+            return entry;
+        }
+
+        byte[] content = Files.readAllBytes(path);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.crc = crc.getValue();
+        entry.size = content.length;
+        entry.data = ByteBuffer.wrap(content);
+        if (entry.compress && content.length > 0) {
+            // the deflated content is only kept when it is smaller so the output never needs to grow
+            Deflater deflater = DEFLATER.get();
+            deflater.reset();
+            deflater.setInput(content);
+            deflater.finish();
+            byte[] output = new byte[content.length];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (deflater.finished() && length < content.length) {
+                entry.method = METHOD_DEFLATED;
+                entry.data = ByteBuffer.wrap(output, 0, length);
+            }
+        }
+        return entry;
+    }
+
+    private static void writeEntry(FileChannel channel, Entry entry) throws IOException {
+        entry.offset = channel.position();
+        if (entry.source == null) {
+            entry.compressedSize = entry.data.remaining();
+            writeFully(channel, createLocalHeader(entry));
+            writeFully(channel, entry.data);
+            entry.data = null;  // release the content as soon as it has been written
             return;
         }
-        if (fileToZip.isDirectory()) {
-            if (fileName.endsWith("/")) {
-                zipOut.putNextEntry(new ZipEntry(fileName));
-                zipOut.closeEntry();
-            } else {
-                zipOut.putNextEntry(new ZipEntry(fileName + "/"));
-                zipOut.closeEntry();
+
+        writeFully(channel, createLocalHeader(entry));
+        long dataOffset = channel.position();
+        if (entry.compress) {
+            entry.method = METHOD_DEFLATED;
+            streamFile(channel, entry, DEFLATER.get());
+            // store the file instead when the compressed content isn't smaller
+            if (entry.compressedSize >= entry.size) {
+                channel.truncate(dataOffset);
+                channel.position(dataOffset);
+                entry.method = METHOD_STORED;
+                streamFile(channel, entry, null);
             }
-            File[] children = fileToZip.listFiles();
-            if (children != null) {
-                for (File childFile : children) {
-                    zipFile(childFile, fileName + "/" + childFile.getName(), zipOut);
+        } else {
+            streamFile(channel, entry, null);
+        }
+        if (entry.size >= ZIP64_SIZE && !entry.zip64LocalHeader) {
+            throw new IOException("File has been changed while it was being archived: " + entry.source);
+        }
+
+        // rewrite the local header now that the method, the CRC and the sizes are known
+        long endOffset = channel.position();
+        channel.position(entry.offset);
+        writeFully(channel, createLocalHeader(entry));
+        channel.position(endOffset);
+    }
+
+    /**
+     * Copy the source file of the entry to the channel and update the CRC and the sizes of the entry
+     * @param deflater deflater used to compress the file or null to store the file as is
+     */
+    private static void streamFile(FileChannel channel, Entry entry, Deflater deflater) throws IOException {
+        ByteBuffer readBuffer = READ_BUFFER.get();
+        ByteBuffer deflateBuffer = DEFLATE_BUFFER.get();
+        CRC32 crc = new CRC32();
+        long size = 0;
+        long startOffset = channel.position();
+        if (deflater != null) {
+            deflater.reset();
+        }
+        try (FileChannel source = FileChannel.open(entry.source, StandardOpenOption.READ)) {
+            readBuffer.clear();
+            while (source.read(readBuffer) != -1 || readBuffer.position() > 0) {
+                readBuffer.flip();
+                crc.update(readBuffer.duplicate());
+                size += readBuffer.remaining();
+                if (deflater != null) {
+                    deflater.setInput(readBuffer);
+                    while (!deflater.needsInput()) {
+                        deflateTo(channel, deflater, deflateBuffer);
+                    }
+                } else {
+                    writeFully(channel, readBuffer);
                 }
+                readBuffer.clear();
             }
-            return;
         }
-        FileInputStream fis = new FileInputStream(fileToZip);
-        ZipEntry zipEntry = new ZipEntry(fileName);
-        zipOut.putNextEntry(zipEntry);
-        byte[] bytes = new byte[1024];
-        int length;
-        while ((length = fis.read(bytes)) >= 0) {
-            zipOut.write(bytes, 0, length);
+        if (deflater != null) {
+            // detach the read buffer which has been cleared so its content isn't compressed again
+            deflater.setInput(new byte[0]);
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflateTo(channel, deflater, deflateBuffer);
+            }
+        }
+        entry.crc = crc.getValue();
+        entry.size = size;
+        entry.compressedSize = channel.position() - startOffset;
+    }
+
+    private static void deflateTo(FileChannel channel, Deflater deflater, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        deflater.deflate(buffer, Deflater.NO_FLUSH);
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    private static ByteBuffer createLocalHeader(Entry entry) {
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        int extraLength = entry.zip64LocalHeader ? 20 : 0;
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_LENGTH + name.length + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort(entry.zip64LocalHeader ? VERSION_ZIP64 : VERSION);
+        header.putShort(FLAG_UTF8);
+        header.putShort(entry.method);
+        header.putInt(entry.dosTime);
+        header.position(LOCAL_HEADER_CRC_OFFSET);
+        header.putInt((int) entry.crc);
+        header.putInt(entry.zip64LocalHeader ? (int) ZIP64_SIZE : (int) entry.compressedSize);
+        header.putInt(entry.zip64LocalHeader ? (int) ZIP64_SIZE : (int) entry.size);
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.put(name);
+        if (entry.zip64LocalHeader) {
+            header.putShort(ZIP64_EXTRA_ID);
+            header.putShort((short) 16);
+            header.putLong(entry.size);
+            header.putLong(entry.compressedSize);
+        }
+        header.flip();
+        return header;
+    }
+
+    private static void writeCentralDirectory(FileChannel channel, List<Entry> entries) throws IOException {
+        long centralDirectoryOffset = channel.position();
+        for (Entry entry : entries) {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            // the zip64 extra field contains only the values that don't fit in their field in this order
+            List<Long> zip64Values = new ArrayList<>();
+            if (entry.size >= ZIP64_SIZE) {
+                zip64Values.add(entry.size);
+            }
+            if (entry.compressedSize >= ZIP64_SIZE) {
+                zip64Values.add(entry.compressedSize);
+            }
+            if (entry.offset >= ZIP64_SIZE) {
+                zip64Values.add(entry.offset);
+            }
+            int extraLength = zip64Values.isEmpty() ? 0 : 4 + 8 * zip64Values.size();
+            short version = entry.isZip64() ? VERSION_ZIP64 : VERSION;
+            ByteBuffer header = ByteBuffer.allocate(46 + name.length + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(CENTRAL_HEADER_SIGNATURE);
+            header.putShort(version);
+            header.putShort(version);
+            header.putShort(FLAG_UTF8);
+            header.putShort(entry.method);
+            header.putInt(entry.dosTime);
+            header.putInt((int) entry.crc);
+            header.putInt((int) Math.min(entry.compressedSize, ZIP64_SIZE));
+            header.putInt((int) Math.min(entry.size, ZIP64_SIZE));
+            header.putShort((short) name.length);
+            header.putShort((short) extraLength);
+            header.putShort((short) 0);     // comment length
+            header.putShort((short) 0);     // disk number
+            header.putShort((short) 0);     // internal attributes
+            header.putInt(entry.name.endsWith("/") ? 0x10 : 0);    // MS-DOS directory attribute
+            header.putInt((int) Math.min(entry.offset, ZIP64_SIZE));
+            header.put(name);
+            if (!zip64Values.isEmpty()) {
+                header.putShort(ZIP64_EXTRA_ID);
+                header.putShort((short) (8 * zip64Values.size()));
+                zip64Values.forEach(header::putLong);
+            }
+            header.flip();
+            writeFully(channel, header);
+        }
+        long centralDirectorySize = channel.position() - centralDirectoryOffset;
+
+        if (entries.size() >= ZIP64_ENTRY_COUNT || centralDirectorySize >= ZIP64_SIZE || centralDirectoryOffset >= ZIP64_SIZE) {
+            long zip64EndOffset = channel.position();
+            ByteBuffer zip64End = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+            zip64End.putInt(ZIP64_END_SIGNATURE);
+            zip64End.putLong(44);           // size of the remaining record
+            zip64End.putShort(VERSION_ZIP64);
+            zip64End.putShort(VERSION_ZIP64);
+            zip64End.putInt(0);             // disk number
+            zip64End.putInt(0);             // disk with the central directory
+            zip64End.putLong(entries.size());
+            zip64End.putLong(entries.size());
+            zip64End.putLong(centralDirectorySize);
+            zip64End.putLong(centralDirectoryOffset);
+            zip64End.putInt(ZIP64_LOCATOR_SIGNATURE);
+            zip64End.putInt(0);             // disk with the zip64 end of central directory
+            zip64End.putLong(zip64EndOffset);
+            zip64End.putInt(1);             // total number of disks
+            zip64End.flip();
+            writeFully(channel, zip64End);
+        }
+
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) Math.min(entries.size(), ZIP64_ENTRY_COUNT));
+        end.putShort((short) Math.min(entries.size(), ZIP64_ENTRY_COUNT));
+        end.putInt((int) Math.min(centralDirectorySize, ZIP64_SIZE));
+        end.putInt((int) Math.min(centralDirectoryOffset, ZIP64_SIZE));
+        end.putShort((short) 0);
+        end.flip();
+        writeFully(channel, end);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int toDosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
         }
-        fis.close();
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
     }
 }
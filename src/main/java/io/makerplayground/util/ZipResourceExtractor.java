@@ -17,17 +17,25 @@
 package io.makerplayground.util;
 
 import javafx.concurrent.Task;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Enumeration;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
+/**
+ * Extract a zip file using a thread pool. Entries are independent so each of them is inflated and written on its own
+ * thread. Entries that would be written outside of the destination directory (zip slip) are rejected.
+ */
 public class ZipResourceExtractor {
 
     public enum ExtractResult {
@@ -35,31 +43,21 @@ public class ZipResourceExtractor {
         FAIL,
     }
 
-    public static ExtractResult extract(Path zipFilePath, String destinationPath){
-        // create output directory if it doesn't exist
-        File dir = new File(destinationPath);
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 100;
 
-        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipFilePath))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                File entryFile = new File(destinationPath, entry.getName());
-                if (entry.isDirectory()) {
-                    // create directories if it isn't existed
-                    if (!entryFile.exists()) {
-                        entryFile.mkdirs();
-                    }
-                } else {
-                    // copy content to a file
-                    FileUtils.forceMkdirParent(entryFile);
-                    try (OutputStream os = new FileOutputStream(entryFile)) {
-                        IOUtils.copy(zis, os);
-                    }
-                }
-            }
-        } catch (IOException e) {
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "ZipResourceExtractor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    public static ExtractResult extract(Path zipFilePath, String destinationPath){
+        try {
+            extract(zipFilePath, Paths.get(destinationPath), (current, total) -> {});
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return ExtractResult.FAIL;
         }
@@ -71,39 +69,14 @@ public class ZipResourceExtractor {
             @Override
             protected Void call() throws Exception {
                 updateMessage("Extracting...");
-
-                // create output directory if it doesn't exist
-                File dir = new File(destinationPath);
-                if (!dir.exists()) {
-                    dir.mkdirs();
-                }
-
-                try (ZipFile zipFile = new ZipFile(zipFilePath)) {
-                    int currentEntry = 0;
-                    int entryCount = zipFile.size();
-                    Enumeration<? extends ZipEntry> zipEntryEnumeration = zipFile.entries();
-                    while (zipEntryEnumeration.hasMoreElements()) {
-                        ZipEntry entry = zipEntryEnumeration.nextElement();
-                        File entryFile = new File(destinationPath, entry.getName());
-                        if (entry.isDirectory()) {
-                            // create directories if it isn't existed
-                            if (!entryFile.exists()) {
-                                entryFile.mkdirs();
-                            }
-                        } else {
-                            FileUtils.forceMkdirParent(entryFile);
-                            // copy content to a file
-                            try (OutputStream os = new FileOutputStream(entryFile)) {
-                                IOUtils.copy(zipFile.getInputStream(entry), os);
-                            }
-                        }
-                        currentEntry++;
-                        updateProgress(currentEntry, entryCount);
-                    }
+                try {
+                    extract(zipFilePath.toPath(), Paths.get(destinationPath), this::updateProgress);
                 } catch (IOException e) {
+                    // fail the task so that the caller doesn't treat a partially extracted file as installed
                     e.printStackTrace();
+                    updateMessage("Error: can't extract " + zipFilePath.getName());
+                    throw e;
                 }
-
                 updateMessage("Done");
                 return null;
             }
@@ -111,4 +84,98 @@ public class ZipResourceExtractor {
         new Thread(extractTask).start();
         return extractTask;
     }
+
+    /**
+     * @param progressConsumer called with the number of entries extracted and the total number of entries at most once
+     *                         every {@link #PROGRESS_INTERVAL_MS} and after the last entry has been extracted
+     */
+    private static void extract(Path zipFilePath, Path destination, BiConsumer<Long, Long> progressConsumer) throws IOException, InterruptedException {
+        Path destinationDirectory = Files.createDirectories(destination).toAbsolutePath().normalize();
+        try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            long entryCount = entries.size();
+
+            // create every directory first so the entries can be written in any order
+            List<ZipEntry> fileEntries = new ArrayList<>();
+            for (ZipEntry entry : entries) {
+                Path entryPath = resolveEntry(destinationDirectory, entry);
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                } else {
+                    Files.createDirectories(entryPath.getParent());
+                    fileEntries.add(entry);
+                }
+            }
+
+            AtomicInteger extractedCount = new AtomicInteger(entries.size() - fileEntries.size());
+            // a cancelled future doesn't wait for its task to return so every task counts down the latch instead and
+            // the remaining tasks skip their entry once the extraction has failed
+            AtomicBoolean stopped = new AtomicBoolean();
+            CountDownLatch finished = new CountDownLatch(fileEntries.size());
+            List<Future<?>> futures = new ArrayList<>(fileEntries.size());
+            for (ZipEntry entry : fileEntries) {
+                futures.add(EXECUTOR.submit(() -> {
+                    try {
+                        if (stopped.get()) {
+                            return null;
+                        }
+                        byte[] buffer = COPY_BUFFER.get();
+                        try (InputStream in = zipFile.getInputStream(entry);
+                             OutputStream out = Files.newOutputStream(resolveEntry(destinationDirectory, entry))) {
+                            int length;
+                            while ((length = in.read(buffer)) != -1) {
+                                out.write(buffer, 0, length);
+                            }
+                        }
+                        extractedCount.incrementAndGet();
+                        return null;
+                    } finally {
+                        finished.countDown();
+                    }
+                }));
+            }
+
+            long lastProgressTime = 0;
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgressTime >= PROGRESS_INTERVAL_MS) {
+                        progressConsumer.accept((long) extractedCount.get(), entryCount);
+                        lastProgressTime = now;
+                    }
+                }
+            } catch (ExecutionException e) {
+                throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                // the tasks read from the zip file so they must have returned before it is closed
+                stopped.set(true);
+                awaitUninterruptibly(finished);
+            }
+            progressConsumer.accept(entryCount, entryCount);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Path resolveEntry(Path destinationDirectory, ZipEntry entry) throws IOException {
+        Path entryPath = destinationDirectory.resolve(entry.getName()).normalize();
+        if (!entryPath.startsWith(destinationDirectory)) {
+            throw new IOException("Zip entry is outside of the destination directory: " + entry.getName());
+        }
+        return entryPath;
+    }
 }
@@ -16,8 +16,9 @@
 
 package io.makerplayground.version;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.File;
 import java.io.IOException;
@@ -26,6 +27,8 @@ public class ProjectVersionControl {
 
     public static final String CURRENT_VERSION = "0.9.0";
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     public static boolean canOpen(String projectVersion) {
         if (CURRENT_VERSION.equals(projectVersion)) {
             return true;
@@ -34,17 +37,39 @@ public class ProjectVersionControl {
     }
 
     public static String readProjectVersion(File selectedFile) {
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            JsonNode node = mapper.readTree(selectedFile);
-            if (node.has("projectVersion")) {
-                return node.get("projectVersion").asText("0.2");
-            } else {
-                return "0.2";
-            }
+        try (JsonParser parser = JSON_FACTORY.createParser(selectedFile)) {
+            return readProjectVersion(parser);
         } catch (IOException e) {
             e.printStackTrace();
         }
         return "";
     }
+
+    public static String readProjectVersion(byte[] content) {
+        try (JsonParser parser = JSON_FACTORY.createParser(content)) {
+            return readProjectVersion(parser);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return "";
+    }
+
+    /* read the top level fields until the projectVersion is found (it is written first) without parsing the whole file */
+    private static String readProjectVersion(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return "0.2";
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("projectVersion".equals(fieldName)) {
+                if (token == JsonToken.VALUE_NULL) {
+                    return "0.2";
+                }
+                return token.isScalarValue() ? parser.getText() : "";
+            }
+            parser.skipChildren();
+        }
+        return "0.2";
+    }
 }
@@ -19,6 +19,7 @@ package io.makerplayground.version;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.makerplayground.util.JacksonMappers;
 import io.makerplayground.util.OSInfo;
 import javafx.scene.control.Alert;
 
@@ -41,7 +42,7 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
     public static SoftwareVersion getCurrentVersion() {
         if (currentVersion == null) {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(SoftwareVersion.class.getResourceAsStream("/version.json")))) {
-                ObjectMapper mapper = new ObjectMapper();
+                ObjectMapper mapper = JacksonMappers.JSON;
                 try {
                     currentVersion = mapper.readValue(reader, SoftwareVersion.class);
                 } catch (IOException e) {
@@ -62,7 +63,7 @@ public class SoftwareVersion implements Comparable<SoftwareVersion> {
 
     public static Optional<SoftwareVersion> getLatestVersionInfo() {
         SoftwareVersion latestVersion = null;
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = JacksonMappers.JSON;
         try {
             latestVersion = mapper.readValue(new URL(URL + "/software_" + getCurrentVersion().getChannel() + ".json"), SoftwareVersion.class);
         } catch (UnknownHostException | SSLException | SocketException e) {
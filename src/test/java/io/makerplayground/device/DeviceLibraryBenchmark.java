@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.device;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.makerplayground.device.actual.ActualDevice;
+import io.makerplayground.device.actual.ActualDeviceDeserializer;
+import io.makerplayground.device.actual.PinTemplate;
+import io.makerplayground.util.JacksonMappers;
+import org.apache.commons.io.FilenameUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Time the first load of the device library in a new JVM, which also pays for the class loading, the Jackson
+ * deserializer caches and the JIT compilation, and the following loads e.g. after the library has been updated. The
+ * warm loads are compared with parsing the pin templates and the device definitions sequentially. The device library
+ * installed on this machine is used and the benchmark is skipped when there isn't any. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class DeviceLibraryBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    @Test
+    void loadDeviceLibrary() throws IOException {
+        // the benchmark task runs every benchmark class in a new JVM so this is the cold load
+        long start = System.nanoTime();
+        DeviceLibrary.INSTANCE.loadDeviceLibrary();
+        long coldTime = System.nanoTime() - start;
+        assumeTrue(DeviceLibrary.INSTANCE.getLibraryPath().isPresent(), "device library is not installed");
+        Path libraryPath = Path.of(DeviceLibrary.INSTANCE.getLibraryPath().get());
+        int deviceCount = DeviceLibrary.INSTANCE.getActualDevice().size();
+
+        long warmTime = 0, sequentialTime = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            DeviceLibrary.INSTANCE.loadDeviceLibrary();
+            long loaded = System.nanoTime();
+            List<ActualDevice> devices = parseSequentially(libraryPath);
+            long parsed = System.nanoTime();
+            assertEquals(deviceCount, devices.size());
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                warmTime += loaded - start;
+                sequentialTime += parsed - loaded;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("load %d devices: cold %.1f ms, warm %.1f ms, parse sequentially (warm) %.1f ms%n", deviceCount
+                , coldTime / 1e6, warmTime / 1e6 / measuredRounds, sequentialTime / 1e6 / measuredRounds);
+    }
+
+    /* parse the pin templates and the device definitions one file at a time as the library did before they were
+       parsed in parallel */
+    private static List<ActualDevice> parseSequentially(Path libraryPath) throws IOException {
+        Map<String, Map<String, PinTemplate>> pinTemplate = new HashMap<>();
+        for (Path pinTemplatePath : list(libraryPath.resolve("pin_templates"))) {
+            JsonNode rootNode = JacksonMappers.YAML.readValue(pinTemplatePath.toFile(), JsonNode.class);
+            List<PinTemplate> pinTemplateList = JacksonMappers.YAML.readValue(rootNode.get("pins").traverse(), new TypeReference<List<PinTemplate>>() {});
+            Map<String, PinTemplate> templateMap = new HashMap<>();
+            pinTemplateList.forEach(template -> templateMap.put(template.getName(), template));
+            pinTemplate.put(FilenameUtils.removeExtension(pinTemplatePath.getFileName().toString()), templateMap);
+        }
+
+        ObjectReader reader = JacksonMappers.ACTUAL_DEVICE_READER.withAttribute(ActualDeviceDeserializer.PIN_TEMPLATE_ATTRIBUTE, pinTemplate);
+        List<ActualDevice> devices = new ArrayList<>();
+        for (Path deviceDirectory : list(libraryPath.resolve("devices"))) {
+            Path deviceDefinitionPath = deviceDirectory.resolve("device.yaml");
+            if (Files.exists(deviceDefinitionPath)) {
+                try {
+                    devices.add(reader.readValue(deviceDefinitionPath.toFile()));
+                } catch (Exception e) {
+                    // the library skips the invalid devices too
+                }
+            }
+        }
+        return devices;
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+}
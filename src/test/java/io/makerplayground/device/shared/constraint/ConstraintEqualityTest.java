@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.device.shared.constraint;
+
+import io.makerplayground.device.shared.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ProjectConfiguration.updateCompatibility skips the recalculation when the constraints of every device are equal to
+ * the previous calculation so every type of constraint must implement a value based equals/hashCode.
+ */
+class ConstraintEqualityTest {
+
+    @Test
+    void numericConstraintIsComparedByValue() {
+        assertEqualConstraint(Constraint.createNumericConstraint(0, 100, Unit.PERCENT)
+                , Constraint.createNumericConstraint(0, 100, Unit.PERCENT));
+        assertNotEquals(Constraint.createNumericConstraint(0, 100, Unit.PERCENT)
+                , Constraint.createNumericConstraint(0, 50, Unit.PERCENT));
+    }
+
+    @Test
+    void categoricalConstraintIsComparedByValue() {
+        assertEqualConstraint(Constraint.createCategoricalConstraint(List.of("On", "Off"))
+                , Constraint.createCategoricalConstraint(List.of("On", "Off")));
+        assertNotEquals(Constraint.createCategoricalConstraint(List.of("On", "Off"))
+                , Constraint.createCategoricalConstraint("On"));
+    }
+
+    @Test
+    void integerCategoricalConstraintIsComparedByValue() {
+        assertEqualConstraint(Constraint.createIntegerCategoricalConstraint(List.of(1, 2, 3))
+                , Constraint.createIntegerCategoricalConstraint(List.of(1, 2, 3)));
+        assertNotEquals(Constraint.createIntegerCategoricalConstraint(List.of(1, 2, 3))
+                , Constraint.createIntegerCategoricalConstraint(1));
+    }
+
+    @Test
+    void stringIntegerCategoricalConstraintIsComparedByValue() {
+        LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
+        map.put("Low", 0);
+        map.put("High", 1);
+        assertEqualConstraint(Constraint.createStringIntegerCategoricalConstraint(map)
+                , Constraint.createStringIntegerCategoricalConstraint(new LinkedHashMap<>(map)));
+        assertNotEquals(Constraint.createStringIntegerCategoricalConstraint(map)
+                , Constraint.createStringIntegerCategoricalConstraint("Low", 0));
+        assertNotEquals(Constraint.createStringIntegerCategoricalConstraint("Low", 0)
+                , Constraint.createStringIntegerCategoricalConstraint("Low", 1));
+    }
+
+    private static void assertEqualConstraint(Constraint expected, Constraint actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+}
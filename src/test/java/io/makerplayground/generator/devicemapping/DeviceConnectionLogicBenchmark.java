@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.generator.devicemapping;
+
+import io.makerplayground.device.actual.Connection;
+import io.makerplayground.device.actual.VoltageLevel;
+import io.makerplayground.project.ProjectDevice;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Time the compiled pin matcher of {@link DeviceConnectionLogic} against {@link ReferenceConnectionMatcher} with a
+ * controller sized set of connections. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class DeviceConnectionLogicBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    void matchConnections() {
+        Random random = new Random(1);
+        List<Connection> provide = ReferenceConnectionMatcher.randomConnections(random, 120, ProjectDevice.CONTROLLER, false, false);
+        List<Connection> consume = ReferenceConnectionMatcher.randomConnections(random, 8, new ProjectDevice("Consumer", null), false, false);
+        Map<ProjectDevice, Set<String>> usedRefPin = Map.of(ProjectDevice.CONTROLLER, Set.of("P0", "P1", "P2"));
+
+        assertArrayEquals(ReferenceConnectionMatcher.getConnectionMatchingArray(consume, provide, usedRefPin, VoltageLevel.NOT_SPECIFIED)
+                , DeviceConnectionLogic.getConnectionMatchingArray(consume, provide, usedRefPin, VoltageLevel.NOT_SPECIFIED));
+
+        long reference = measure(() -> ReferenceConnectionMatcher.getConnectionMatchingArray(consume, provide, usedRefPin, VoltageLevel.NOT_SPECIFIED));
+        long compiled = measure(() -> DeviceConnectionLogic.getConnectionMatchingArray(consume, provide, usedRefPin, VoltageLevel.NOT_SPECIFIED));
+        System.out.printf("match %d x %d connections: reference %.1f us, compiled %.1f us (%.1fx)%n", consume.size(), provide.size()
+                , reference / 1000.0, compiled / 1000.0, (double) reference / compiled);
+    }
+
+    /* return the average time of an iteration in nanoseconds */
+    private static long measure(Runnable task) {
+        for (int i=0; i<WARMUP_ITERATIONS; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i=0; i<ITERATIONS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
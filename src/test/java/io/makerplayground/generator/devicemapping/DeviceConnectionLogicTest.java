@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.generator.devicemapping;
+
+import io.makerplayground.device.DeviceLibrary;
+import io.makerplayground.device.actual.*;
+import io.makerplayground.project.ProjectDevice;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Compare the compiled pin matcher of {@link DeviceConnectionLogic} with the original implementation kept in
+ * {@link ReferenceConnectionMatcher}
+ */
+class DeviceConnectionLogicTest {
+
+    private static final ProjectDevice CONSUMER = new ProjectDevice("Consumer", null);
+
+    @Test
+    void matchRandomConnectionsLikeTheReference() {
+        Random random = new Random(42);
+        int matched = 0;
+        for (int round=0; round<50; round++) {
+            List<Connection> provide = ReferenceConnectionMatcher.randomConnections(random, 40, ProjectDevice.CONTROLLER, false, false);
+            List<Connection> consume = ReferenceConnectionMatcher.randomConnections(random, 10, CONSUMER, false, false);
+            Map<ProjectDevice, Set<String>> usedRefPin = new HashMap<>();
+            if (random.nextBoolean()) {
+                usedRefPin.put(ProjectDevice.CONTROLLER, new HashSet<>(List.of("P" + random.nextInt(16), "P" + random.nextInt(16))));
+            }
+            for (VoltageLevel voltageLevel : VoltageLevel.values()) {
+                matched += assertSameMatching(consume, provide, usedRefPin, voltageLevel);
+            }
+        }
+        // make sure that the random connections exercise every check instead of failing at the connection type
+        assertTrue(matched > 100, "only " + matched + " connections matched");
+    }
+
+    @Test
+    void matchRandomConnectionsWithMissingVoltageLevelLikeTheReference() {
+        Random random = new Random(7);
+        for (int round=0; round<50; round++) {
+            List<Connection> provide = ReferenceConnectionMatcher.randomConnections(random, 10, ProjectDevice.CONTROLLER, true, false);
+            List<Connection> consume = ReferenceConnectionMatcher.randomConnections(random, 5, CONSUMER, false, false);
+            assertSameMatching(consume, provide, Collections.emptyMap(), VoltageLevel.NOT_SPECIFIED);
+        }
+    }
+
+    @Test
+    void missingVoltageLevelOfProviderIsAnError() {
+        Pin providerPin = new Pin("D1", "D1", null, 0, 0, List.of(PinFunction.DIGITAL_OUT), false, 0, 0);
+        Connection provide = new Connection("D1", ConnectionType.WIRE, List.of(providerPin), ProjectDevice.CONTROLLER);
+        Pin consumerPin = new Pin("IN", "IN", VoltageLevel.LEVEL_5, 0, 5.5, List.of(PinFunction.DIGITAL_IN), false, 0, 0);
+        Connection consume = new Connection("IN", ConnectionType.WIRE, List.of(consumerPin), CONSUMER);
+        assertThrows(NullPointerException.class, () -> DeviceConnectionLogic.getConnectionMatchingArray(
+                List.of(consume), List.of(provide), Collections.emptyMap(), VoltageLevel.NOT_SPECIFIED));
+
+        // the voltage level isn't needed to connect a ground pin
+        Pin groundProviderPin = new Pin("GND", "GND", null, 0, 0, List.of(PinFunction.GND), false, 0, 0);
+        Connection groundProvide = new Connection("GND", ConnectionType.WIRE, List.of(groundProviderPin), ProjectDevice.CONTROLLER);
+        Pin groundConsumerPin = new Pin("GND", "GND", VoltageLevel.LEVEL_5, 0, 0, List.of(PinFunction.GND), false, 0, 0);
+        Connection groundConsume = new Connection("GND", ConnectionType.WIRE, List.of(groundConsumerPin), CONSUMER);
+        assertTrue(DeviceConnectionLogic.getConnectionMatchingArray(List.of(groundConsume), List.of(groundProvide)
+                , Collections.emptyMap(), VoltageLevel.NOT_SPECIFIED)[0][0]);
+    }
+
+    @Test
+    void matchRandomConnectionsWithEveryPinFunctionLikeTheReference() {
+        Random random = new Random(11);
+        for (int round=0; round<50; round++) {
+            List<Connection> provide = ReferenceConnectionMatcher.randomConnections(random, 10, ProjectDevice.CONTROLLER, false, true);
+            List<Connection> consume = ReferenceConnectionMatcher.randomConnections(random, 5, CONSUMER, false, true);
+            assertSameMatching(consume, provide, Collections.emptyMap(), VoltageLevel.NOT_SPECIFIED);
+        }
+    }
+
+    @Test
+    void pinFunctionThatCannotBeConsumedIsAnError() {
+        Pin providerPin = new Pin("TX1", "TX1", VoltageLevel.LEVEL_5, 0, 0, List.of(PinFunction.HW_SERIAL_TX1), false, 0, 0);
+        Connection provide = new Connection("TX1", ConnectionType.WIRE, List.of(providerPin), ProjectDevice.CONTROLLER);
+        Pin consumerPin = new Pin("RX", "RX", VoltageLevel.LEVEL_5, 0, 5.5, List.of(PinFunction.HW_SERIAL_RX1), false, 0, 0);
+        Connection consume = new Connection("RX", ConnectionType.WIRE, List.of(consumerPin), CONSUMER);
+        assertThrows(IllegalStateException.class, () -> DeviceConnectionLogic.getConnectionMatchingArray(
+                List.of(consume), List.of(provide), Collections.emptyMap(), VoltageLevel.NOT_SPECIFIED));
+    }
+
+    @Test
+    void matchDeviceLibraryLikeTheReference() {
+        DeviceLibrary.INSTANCE.loadDeviceLibrary();
+        List<ActualDevice> controllers = DeviceLibrary.INSTANCE.getActualDevice(DeviceType.CONTROLLER);
+        assumeFalse(controllers.isEmpty(), "the device library is not installed");
+
+        List<ActualDevice> devices = DeviceLibrary.INSTANCE.getActualAndIntegratedDevice();
+        for (ActualDevice controller : controllers) {
+            List<Connection> provide = controller.getConnectionProvideByOwnerDevice(ProjectDevice.CONTROLLER);
+            // mark every other pin as used to exercise the used pin check
+            Set<String> refTo = new HashSet<>();
+            provide.stream().flatMap(connection -> connection.getPins().stream()).map(Pin::getRefTo).forEach(refTo::add);
+            Set<String> halfRefTo = new HashSet<>();
+            int index = 0;
+            for (String s : new TreeSet<>(refTo)) {
+                if (index++ % 2 == 0) {
+                    halfRefTo.add(s);
+                }
+            }
+            Map<ProjectDevice, Set<String>> usedRefPin = Map.of(ProjectDevice.CONTROLLER, halfRefTo);
+            for (ActualDevice device : devices) {
+                List<Connection> consume = device.getConnectionConsumeByOwnerDevice(CONSUMER);
+                for (VoltageLevel voltageLevel : VoltageLevel.values()) {
+                    assertSameMatching(consume, provide, Collections.emptyMap(), voltageLevel);
+                    assertSameMatching(consume, provide, usedRefPin, voltageLevel);
+                }
+            }
+        }
+    }
+
+    private static int assertSameMatching(List<Connection> consume, List<Connection> provide,
+                                           Map<ProjectDevice, Set<String>> usedRefPin, VoltageLevel voltageLevel) {
+        boolean[][] expected;
+        try {
+            expected = ReferenceConnectionMatcher.getConnectionMatchingArray(consume, provide, usedRefPin, voltageLevel);
+        } catch (RuntimeException e) {
+            // the reference fails on an invalid pin (e.g. missing voltage level) so the new matcher must fail in the same way
+            assertThrows(e.getClass(), () -> DeviceConnectionLogic.getConnectionMatchingArray(consume, provide, usedRefPin, voltageLevel));
+            return 0;
+        }
+        boolean[][] actual = DeviceConnectionLogic.getConnectionMatchingArray(consume, provide, usedRefPin, voltageLevel);
+        assertArrayEquals(expected, actual, () -> "connection matching differs from the reference for " + consume + " and " + provide);
+        int matched = 0;
+        for (boolean[] row : actual) {
+            for (boolean match : row) {
+                matched += match ? 1 : 0;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.generator.devicemapping;
+
+import io.makerplayground.device.actual.*;
+import io.makerplayground.project.ProjectDevice;
+
+import java.util.*;
+
+/**
+ * The pin matcher of {@link DeviceConnectionLogic} before the connections were compiled into bitmasks. It is kept
+ * unchanged as the reference for {@link DeviceConnectionLogicTest} and {@link DeviceConnectionLogicBenchmark}.
+ */
+final class ReferenceConnectionMatcher {
+
+    private ReferenceConnectionMatcher() {
+    }
+
+    static boolean[][] getConnectionMatchingArray(List<Connection> allConnectionConsume,
+                                                  List<Connection> remainingConnectionProvide,
+                                                  Map<ProjectDevice, Set<String>> usedRefPin,
+                                                  VoltageLevel operatingVoltageLevel) {
+        boolean[][] connectionMatching = new boolean[allConnectionConsume.size()][];
+        for (int i=0; i<connectionMatching.length; i++) {
+            connectionMatching[i] = new boolean[remainingConnectionProvide.size()];
+            for (int j = 0; j< remainingConnectionProvide.size(); j++) {
+                // Initially set to true
+                connectionMatching[i][j] = true;
+                Connection connectionConsumer = allConnectionConsume.get(i);
+                Connection connectionProvider = remainingConnectionProvide.get(j);
+
+                // Check Connection Type
+                if (!connectionConsumer.getType().canConsume(connectionProvider.getType())) {
+                    connectionMatching[i][j] = false;
+                    continue;
+                }
+                // Check name of the connection consume of the integrated device
+                if (connectionConsumer.getType() == ConnectionType.INTEGRATED) {
+                    if (!connectionConsumer.getName().equals(connectionProvider.getName())) {
+                        connectionMatching[i][j] = false;
+                        continue;
+                    }
+                }
+                // Check the number of pins of the connection.
+                if (connectionProvider.getPins().size() != connectionConsumer.getPins().size()) {
+                    connectionMatching[i][j] = false;
+                    continue;
+                }
+                ProjectDevice providerProjectDevice = connectionProvider.getOwnerProjectDevice();
+                for (int k = 0; k< connectionProvider.getPins().size(); k++) {
+                    Pin pin = connectionProvider.getPins().get(k);
+                    // Check whether the provider already used that pin refto
+                    if (usedRefPin.containsKey(providerProjectDevice)
+                            && usedRefPin.get(providerProjectDevice).contains(pin.getRefTo())
+                            && !connectionConsumer.getPins().get(k).getFunction().contains(PinFunction.NO_FUNCTION))
+                    {
+                        connectionMatching[i][j] = false;
+                        break;
+                    }
+                    if (connectionConsumer.getType() == ConnectionType.INTEGRATED) {
+                        continue;
+                    }
+                    // Check whether the provider can provide the function for consumer
+                    List<PinFunction> provideFunctions = pin.getFunction();
+                    boolean flag = false;
+                    for (PinFunction consumerFunction: connectionConsumer.getPins().get(k).getFunction()) {
+                        if (consumerFunction.getPossibleConsume().stream().noneMatch(provideFunctions::contains)) {
+                            connectionMatching[i][j] = false;
+                            flag = true;
+                            break;
+                        }
+                    }
+                    if (flag) break;
+
+                    Pin consumerPin = connectionConsumer.getPins().get(k);
+                    if (!consumerPin.getFunction().contains(PinFunction.GND)) {
+                        // Check whether the operating voltage of consumer is compatible to the voltage level of provider.
+                        VoltageLevel providerVoltageLevel = connectionProvider.getPins().get(k).getVoltageLevel();
+                        double providerPinVoltage = connectionProvider.getPins().get(k).getVoltageLevel().getVoltage();
+                        double minConsumerVoltage = consumerPin.getMinVoltage();
+                        double maxConsumerVoltage = consumerPin.getMaxVoltage();
+                        if (minConsumerVoltage > providerPinVoltage
+                                || maxConsumerVoltage < providerPinVoltage
+                                || (operatingVoltageLevel != VoltageLevel.NOT_SPECIFIED && providerVoltageLevel != operatingVoltageLevel)) {
+                            connectionMatching[i][j] = false;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return connectionMatching;
+    }
+
+    /**
+     * Generate random connections which share a small pool of pin names and functions so that a good part of them match
+     * each other. Only the pin functions that can be consumed are used unless allowEveryFunction is set.
+     */
+    static List<Connection> randomConnections(Random random, int count, ProjectDevice owner, boolean allowMissingVoltageLevel,
+                                              boolean allowEveryFunction) {
+        ConnectionType[] types = {ConnectionType.WIRE, ConnectionType.WIRE, ConnectionType.GROVE, ConnectionType.INTEGRATED};
+        PinFunction[] functions = Arrays.stream(PinFunction.values())
+                .filter(pinFunction -> allowEveryFunction || canBeConsumed(pinFunction))
+                .toArray(PinFunction[]::new);
+        VoltageLevel[] voltageLevels = {VoltageLevel.LEVEL_3v3, VoltageLevel.LEVEL_5, VoltageLevel.LEVEL_5, VoltageLevel.LEVEL_12};
+        double[][] voltageRanges = {{0, 13}, {3, 3.6}, {4.5, 5.5}, {2.7, 5.5}};
+        List<Connection> connections = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            int pinCount = 1 + random.nextInt(4);
+            List<Pin> pins = new ArrayList<>(pinCount);
+            for (int k=0; k<pinCount; k++) {
+                List<PinFunction> pinFunction = new ArrayList<>();
+                pinFunction.add(random.nextInt(4) == 0 ? PinFunction.GND : functions[random.nextInt(functions.length)]);
+                if (random.nextBoolean()) {
+                    pinFunction.add(functions[random.nextInt(functions.length)]);
+                }
+                VoltageLevel voltageLevel = (allowMissingVoltageLevel && random.nextInt(20) == 0) ? null : voltageLevels[random.nextInt(voltageLevels.length)];
+                double[] voltageRange = voltageRanges[random.nextInt(voltageRanges.length)];
+                pins.add(new Pin("P" + random.nextInt(16), "P" + k, voltageLevel, voltageRange[0], voltageRange[1], pinFunction, false, 0, 0));
+            }
+            connections.add(new Connection("C" + random.nextInt(8), types[random.nextInt(types.length)], pins, owner));
+        }
+        return connections;
+    }
+
+    private static boolean canBeConsumed(PinFunction pinFunction) {
+        try {
+            pinFunction.getPossibleConsume();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.DeviceLibrary;
+import io.makerplayground.device.actual.ActualDevice;
+import io.makerplayground.device.actual.Connection;
+import io.makerplayground.device.actual.PinFunction;
+import io.makerplayground.generator.devicemapping.DeviceMappingResult;
+import io.makerplayground.generator.devicemapping.ProjectMappingResult;
+import io.makerplayground.ui.devicetab.CompatibleDevice;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.makerplayground.device.actual.PinFunction.*;
+import static io.makerplayground.project.FakeDeviceLibrary.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceAssignmentSolverTest {
+
+    @TempDir
+    Path libraryDirectory;
+
+    @Test
+    void solveWhenFirstFitFails() throws IOException {
+        // the first compatible LED module takes the only PWM pin which is the only pin that the buzzer can use
+        new FakeDeviceLibrary(libraryDirectory)
+                .controller("MCU", pins(List.of(PWM_OUT), List.of(DIGITAL_OUT)))
+                .module("ALPHA_LED", LED, PWM_IN)
+                .module("BETA_LED", LED, DIGITAL_IN)
+                .module("BUZZER_MODULE", BUZZER, PWM_IN)
+                .load();
+        Project project = createProject();
+        ProjectDevice led = project.addDevice(getGenericDevice(LED));
+        ProjectDevice buzzer = project.addDevice(getGenericDevice(BUZZER));
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+
+        assertFalse(assignFirstFit(project));
+        configuration.unsetAllDevices();
+
+        DeviceAssignmentSolver solver = configuration.createDeviceAssignmentSolver(DeviceAssignmentSolver.DEFAULT_TIME_BUDGET);
+        assertEquals(ProjectMappingResult.OK, solver.solve());
+        assertTrue(solver.apply());
+        assertAssigned(configuration, led, "BETA_LED", "P1");
+        assertAssigned(configuration, buzzer, "BUZZER_MODULE", "P0");
+    }
+
+    @Test
+    void keepUserAssignment() throws IOException {
+        new FakeDeviceLibrary(libraryDirectory)
+                .controller("MCU", pins(List.of(PWM_OUT, DIGITAL_OUT), List.of(PWM_OUT), List.of(DIGITAL_OUT)))
+                .module("ALPHA_LED", LED, PWM_IN)
+                .module("BETA_LED", LED, DIGITAL_IN)
+                .module("BUZZER_MODULE", BUZZER, PWM_IN)
+                .load();
+        Project project = createProject();
+        ProjectDevice fixedLed = project.addDevice(getGenericDevice(LED));
+        ProjectDevice selectedLed = project.addDevice(getGenericDevice(LED));
+        ProjectDevice buzzer = project.addDevice(getGenericDevice(BUZZER));
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+
+        // the first LED is connected by the user to the pin that supports both functions and the second LED has a
+        // module selected by the user without any connection
+        connect(configuration, fixedLed, DeviceLibrary.INSTANCE.getActualDevice("BETA_LED"), "P0");
+        configuration.setActualDevice(selectedLed, DeviceLibrary.INSTANCE.getActualDevice("BETA_LED"));
+
+        DeviceAssignmentSolver solver = configuration.createDeviceAssignmentSolver(DeviceAssignmentSolver.DEFAULT_TIME_BUDGET);
+        assertEquals(ProjectMappingResult.OK, solver.solve());
+        assertTrue(solver.apply());
+        assertAssigned(configuration, fixedLed, "BETA_LED", "P0");
+        assertAssigned(configuration, selectedLed, "BETA_LED", "P2");
+        assertAssigned(configuration, buzzer, "BUZZER_MODULE", "P1");
+    }
+
+    @Test
+    void timeBudgetReturnsBestPartialAssignment() throws IOException {
+        Project project = createUnsolvableProject(10);
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+
+        Duration timeBudget = Duration.ofMillis(200);
+        DeviceAssignmentSolver solver = configuration.createDeviceAssignmentSolver(timeBudget);
+        long start = System.nanoTime();
+        ProjectMappingResult result = solver.solve();
+        long elapsed = System.nanoTime() - start;
+
+        // every permutation of the pins has to be tried before the search can prove that there is no solution
+        assertNotEquals(ProjectMappingResult.OK, result);
+        assertTrue(elapsed < timeBudget.plusSeconds(1).toNanos(), "the search took " + elapsed / 1_000_000 + " ms");
+        assertTrue(solver.apply());
+        assertEquals(10, countConnectedDevices(project));
+    }
+
+    @Test
+    void cancel() throws Exception {
+        Project project = createUnsolvableProject(10);
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+
+        DeviceAssignmentSolver solver = configuration.createDeviceAssignmentSolver(Duration.ofMinutes(1));
+        CompletableFuture<ProjectMappingResult> result = CompletableFuture.supplyAsync(solver::solve);
+        Thread.sleep(100);
+        solver.cancel();
+        result.get(5, TimeUnit.SECONDS);
+
+        assertTrue(solver.isCancelled());
+        assertFalse(solver.apply());
+        for (ProjectDevice projectDevice : project.getUnmodifiableProjectDevice()) {
+            assertTrue(configuration.getActualDevice(projectDevice).isEmpty());
+        }
+    }
+
+    /**
+     * Create a project with one more LED than the number of pins of the controller
+     */
+    private Project createUnsolvableProject(int pinCount) throws IOException {
+        List<List<PinFunction>> functions = new ArrayList<>();
+        for (int i = 0; i < pinCount; i++) {
+            functions.add(List.of(DIGITAL_OUT));
+        }
+        new FakeDeviceLibrary(libraryDirectory)
+                .controller("MCU", pins(functions.toArray(List[]::new)))
+                .module("BETA_LED", LED, DIGITAL_IN)
+                .load();
+        Project project = createProject();
+        for (int i = 0; i <= pinCount; i++) {
+            project.addDevice(getGenericDevice(LED));
+        }
+        return project;
+    }
+
+    private static Project createProject() {
+        Project project = new Project();
+        project.setController(DeviceLibrary.INSTANCE.getActualDevice("MCU"));
+        return project;
+    }
+
+    @SafeVarargs
+    private static Map<String, List<PinFunction>> pins(List<PinFunction>... functions) {
+        Map<String, List<PinFunction>> pins = new LinkedHashMap<>();
+        for (int i = 0; i < functions.length; i++) {
+            pins.put("P" + i, functions[i]);
+        }
+        return pins;
+    }
+
+    /**
+     * Assign each device in the order they were added to the project to the first compatible module and the first
+     * compatible pin the same way the user would do by hand
+     * @return false if some device can't be assigned
+     */
+    private static boolean assignFirstFit(Project project) {
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+        for (ProjectDevice projectDevice : project.getUnmodifiableProjectDevice()) {
+            Optional<ActualDevice> actualDevice = configuration.getCompatibleDevicesSelectableMap().get(projectDevice).entrySet().stream()
+                    .filter(entry -> entry.getValue() == DeviceMappingResult.OK)
+                    .map(Map.Entry::getKey)
+                    .map(CompatibleDevice::getActualDevice)
+                    .flatMap(Optional::stream)
+                    .findFirst();
+            if (actualDevice.isEmpty()) {
+                return false;
+            }
+            configuration.setActualDevice(projectDevice, actualDevice.get());
+            for (Map.Entry<Connection, List<Connection>> entry : getPossibleConnection(configuration, projectDevice).entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    return false;
+                }
+                configuration.setConnection(projectDevice, entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        return true;
+    }
+
+    private static void connect(ProjectConfiguration configuration, ProjectDevice projectDevice, ActualDevice actualDevice, String pinName) {
+        configuration.setActualDevice(projectDevice, actualDevice);
+        Map.Entry<Connection, List<Connection>> entry = getPossibleConnection(configuration, projectDevice).entrySet().iterator().next();
+        Connection provider = entry.getValue().stream().filter(connection -> connection.getName().equals(pinName)).findFirst().orElseThrow();
+        configuration.setConnection(projectDevice, entry.getKey(), provider);
+    }
+
+    private static SortedMap<Connection, List<Connection>> getPossibleConnection(ProjectConfiguration configuration, ProjectDevice projectDevice) {
+        return configuration.getCompatibleConnectionMap().get(projectDevice).get(configuration.getActualDevice(projectDevice).orElseThrow());
+    }
+
+    private static void assertAssigned(ProjectConfiguration configuration, ProjectDevice projectDevice, String actualDeviceId, String pinName) {
+        assertEquals(actualDeviceId, configuration.getActualDevice(projectDevice).map(ActualDevice::getId).orElse(null));
+        Collection<Connection> providers = configuration.getDeviceConnection(projectDevice).getConsumerProviderConnections().values();
+        assertEquals(1, providers.size());
+        assertEquals(pinName, providers.iterator().next().getName());
+    }
+
+    private static long countConnectedDevices(Project project) {
+        ProjectConfiguration configuration = project.getProjectConfiguration();
+        return project.getUnmodifiableProjectDevice().stream()
+                .map(configuration::getDeviceConnection)
+                .map(deviceConnection -> deviceConnection.getConsumerProviderConnections().values())
+                .filter(providers -> !providers.isEmpty() && providers.stream().allMatch(Objects::nonNull))
+                .count();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.DeviceLibrary;
+import io.makerplayground.device.actual.PinFunction;
+import io.makerplayground.device.generic.GenericDevice;
+import io.makerplayground.util.JacksonMappers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Write a minimal device library to a directory and load it to {@link DeviceLibrary#INSTANCE}. The library has two
+ * generic actuators, {@value #LED} and {@value #BUZZER}, which have a single action without any parameter. Every
+ * controller and module supports the Arduino AVR8 platform and every module consumes a single pin.
+ */
+class FakeDeviceLibrary {
+
+    static final String LED = "LED";
+    static final String BUZZER = "Buzzer";
+
+    private final Path directory;
+    private final Map<String, List<PinFunction>> pinTemplate = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> devices = new LinkedHashMap<>();
+
+    FakeDeviceLibrary(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Add a controller which provides a single pin port for each pin in the order given
+     * @param id id of the controller
+     * @param pins name of each pin and its functions
+     */
+    FakeDeviceLibrary controller(String id, Map<String, List<PinFunction>> pins) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        int x = 0;
+        for (Map.Entry<String, List<PinFunction>> entry : pins.entrySet()) {
+            pinTemplate.put(entry.getKey(), entry.getValue());
+            items.add(Map.of("name", entry.getKey(), "type", "WIRE", "pins", List.of(Map.of("ref_to", entry.getKey(), "x", x++, "y", 0))));
+        }
+        Map<String, Object> device = createDevice(id, "CONTROLLER");
+        device.put("pio_boardid", "test");
+        device.put("pin_template", "test");
+        device.put("connection_provide", Map.of("voltage_level", "LEVEL_5", "items", items));
+        devices.put(id, device);
+        return this;
+    }
+
+    /**
+     * Add a module compatible with the generic device which consumes a single pin
+     * @param id id and model name of the module which determines the order of the compatible devices
+     * @param genericDevice {@value #LED} or {@value #BUZZER}
+     * @param pinFunction the function of the consumed pin
+     */
+    FakeDeviceLibrary module(String id, String genericDevice, PinFunction pinFunction) {
+        Map<String, Object> device = createDevice(id, "MODULE");
+        device.put("connection_consume", Map.of("min_voltage", 3.3, "max_voltage", 5, "items"
+                , List.of(Map.of("name", "Signal", "type", "WIRE", "pins", List.of(Map.of("pin_function", List.of(pinFunction.name()), "x", 0, "y", 0))))));
+        device.put("compatibility", List.of(Map.of("name", genericDevice, "action", List.of(Map.of("name", "On")))));
+        devices.put(id, device);
+        return this;
+    }
+
+    void load() throws IOException {
+        for (String subdirectory : List.of("lib", "lib_ext", "schemas", "pin_templates", "devices")) {
+            Files.createDirectories(directory.resolve(subdirectory));
+        }
+        JacksonMappers.JSON.writeValue(directory.resolve("version.json").toFile()
+                , Map.of("version", "1.0.0", "min_mp_version", "0.0.0", "release-date", "2021-01-01", "sha256", ""));
+
+        List<Map<String, Object>> actuators = new ArrayList<>();
+        for (String name : List.of(LED, BUZZER)) {
+            actuators.add(Map.of("name", name, "description", "", "action", List.of(Map.of("name", "On", "funcname", "on", "parameter", List.of()))));
+        }
+        JacksonMappers.YAML.writeValue(directory.resolve("schemas").resolve("genericactuatordevice.yaml").toFile(), actuators);
+        for (String filename : List.of("genericsensordevice.yaml", "genericutilitydevice.yaml", "genericclouddevice.yaml", "genericinterfacedevice.yaml")) {
+            JacksonMappers.YAML.writeValue(directory.resolve("schemas").resolve(filename).toFile(), List.of());
+        }
+
+        List<Map<String, Object>> pins = new ArrayList<>();
+        pinTemplate.forEach((name, functions) -> pins.add(Map.of("pin_name", name, "coding_name", name, "pin_function", functions)));
+        JacksonMappers.YAML.writeValue(directory.resolve("pin_templates").resolve("test.yaml").toFile(), Map.of("pins", pins));
+
+        for (Map.Entry<String, Map<String, Object>> entry : devices.entrySet()) {
+            Path deviceDirectory = Files.createDirectories(directory.resolve("devices").resolve(entry.getKey()));
+            JacksonMappers.YAML.writeValue(deviceDirectory.resolve("device.yaml").toFile(), entry.getValue());
+        }
+
+        assertEquals(Collections.emptyMap(), DeviceLibrary.INSTANCE.loadDeviceLibrary(directory));
+    }
+
+    static GenericDevice getGenericDevice(String name) {
+        return DeviceLibrary.INSTANCE.getGenericDevice(name);
+    }
+
+    private static Map<String, Object> createDevice(String id, String type) {
+        Map<String, Object> device = new LinkedHashMap<>();
+        device.put("id", id);
+        device.put("type", type);
+        device.put("brand", "Test");
+        device.put("model", id);
+        device.put("url", "");
+        device.put("width", 10);
+        device.put("height", 10);
+        device.put("platforms", List.of(Map.of("platform", "ARDUINO_AVR8", "classname", id, "library_dependency", List.of())));
+        return device;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Time the encoding and decoding of the interactive mode frames. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class InteractiveBinaryProtocolBenchmark {
+
+    private static final int FRAME_COUNT = 100_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void encodeAndDecode() {
+        InteractiveBinaryProtocol.FrameEncoder encoder = new InteractiveBinaryProtocol.FrameEncoder();
+        long[] decodedFrame = new long[1];
+        InteractiveBinaryProtocol.FrameDecoder decoder = new InteractiveBinaryProtocol.FrameDecoder((payload, length) -> decodedFrame[0]++);
+
+        // a typical sensor frame: 2 condition results, a float value and an integer value
+        long encodeTime = 0;
+        long decodeTime = 0;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(FRAME_COUNT * 16);
+        for (int round=0; round<ROUNDS; round++) {
+            stream.reset();
+            long start = System.nanoTime();
+            for (int i=0; i<FRAME_COUNT; i++) {
+                int length = encoder.begin(1 + i % 10, 0).putByte(1).putByte(0).putFloat(i * 0.5f).putInt(i).finish();
+                stream.write(encoder.getFrame(), 0, length);
+            }
+            long encoded = System.nanoTime();
+            byte[] data = stream.toByteArray();
+            decoder.feed(data, data.length);
+            long decoded = System.nanoTime();
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                encodeTime += encoded - start;
+                decodeTime += decoded - encoded;
+            }
+        }
+        assertEquals((long) FRAME_COUNT * ROUNDS, decodedFrame[0]);
+
+        int measuredFrames = FRAME_COUNT * (ROUNDS - ROUNDS / 2);
+        System.out.printf("interactive frame: encode %.1f ns/frame, decode %.1f ns/frame%n"
+                , (double) encodeTime / measuredFrames, (double) decodeTime / measuredFrames);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractiveBinaryProtocolTest {
+
+    private final List<byte[]> payloads = new ArrayList<>();
+    private InteractiveBinaryProtocol.FrameDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        payloads.clear();
+        decoder = new InteractiveBinaryProtocol.FrameDecoder((payload, length) -> {
+            byte[] data = new byte[length];
+            payload.get(data);
+            payloads.add(data);
+        });
+    }
+
+    @Test
+    void crc8MatchesTheCheckValue() {
+        // CRC-8 with polynomial 0x07, initial value 0 and no reflection
+        int crc = 0;
+        for (byte b : "123456789".getBytes(StandardCharsets.US_ASCII)) {
+            crc = InteractiveBinaryProtocol.crc8(crc, b & 0xFF);
+        }
+        assertEquals(0xF4, crc);
+    }
+
+    @Test
+    void decodeEncodedFrame() {
+        InteractiveBinaryProtocol.FrameEncoder encoder = new InteractiveBinaryProtocol.FrameEncoder();
+        int length = encoder.begin(3, 5).putByte(1).putInt(-42).putFloat(1.5f).putString("héllo").finish();
+        decoder.feed(encoder.getFrame(), length);
+
+        assertEquals(1, decoder.getFrameCount());
+        assertEquals(0, decoder.getErrorCount());
+        assertEquals(1, payloads.size());
+        ByteBuffer payload = ByteBuffer.wrap(payloads.get(0)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, payload.get());
+        assertEquals(5, payload.get());
+        assertEquals(1, payload.get());
+        assertEquals(-42, payload.getInt());
+        assertEquals(1.5f, payload.getFloat());
+        byte[] string = new byte[payload.remaining() - 1];
+        payload.get(string);
+        assertEquals("héllo", new String(string, StandardCharsets.UTF_8));
+        assertEquals(0, payload.get());
+    }
+
+    @Test
+    void decodeFramesSplitAndSurroundedByText() {
+        InteractiveBinaryProtocol.FrameEncoder encoder = new InteractiveBinaryProtocol.FrameEncoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.writeBytes("boot message\r\n".getBytes(StandardCharsets.US_ASCII));
+        // a sync byte that isn't followed by the second sync byte must not hide the next frame
+        stream.write(InteractiveBinaryProtocol.SYNC_1);
+        for (int i=0; i<10; i++) {
+            int length = encoder.begin(i + 1, 0).putInt(i).finish();
+            stream.write(encoder.getFrame(), 0, length);
+            stream.writeBytes("log\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        byte[] data = stream.toByteArray();
+        // feed in small chunks as they are received from the serial port
+        for (int offset=0; offset<data.length; offset+=3) {
+            byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(offset + 3, data.length));
+            decoder.feed(chunk, chunk.length);
+        }
+
+        assertEquals(10, decoder.getFrameCount());
+        assertEquals(10, payloads.size());
+        for (int i=0; i<10; i++) {
+            ByteBuffer payload = ByteBuffer.wrap(payloads.get(i)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(i + 1, payload.get());
+            assertEquals(0, payload.get());
+            assertEquals(i, payload.getInt());
+        }
+    }
+
+    @Test
+    void skipFrameWithInvalidCrc() {
+        InteractiveBinaryProtocol.FrameEncoder encoder = new InteractiveBinaryProtocol.FrameEncoder();
+        int length = encoder.begin(1, 2).putInt(1234).finish();
+        byte[] corrupted = Arrays.copyOf(encoder.getFrame(), length);
+        corrupted[4] ^= 0x10;
+        decoder.feed(corrupted, corrupted.length);
+        assertEquals(0, decoder.getFrameCount());
+        assertEquals(1, decoder.getErrorCount());
+        assertTrue(payloads.isEmpty());
+
+        // the decoder recovers on the next frame
+        length = encoder.begin(1, 2).putInt(1234).finish();
+        decoder.feed(encoder.getFrame(), length);
+        assertEquals(1, decoder.getFrameCount());
+    }
+
+    @Test
+    void skipFrameWithInvalidLength() {
+        byte[] data = {(byte) InteractiveBinaryProtocol.SYNC_1, (byte) InteractiveBinaryProtocol.SYNC_2, 0};
+        decoder.feed(data, data.length);
+        data[2] = (byte) (InteractiveBinaryProtocol.MAX_PAYLOAD_SIZE + 1);
+        decoder.feed(data, data.length);
+        assertEquals(2, decoder.getErrorCount());
+        assertTrue(payloads.isEmpty());
+    }
+}
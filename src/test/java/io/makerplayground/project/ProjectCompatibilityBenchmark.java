@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.DeviceLibrary;
+import io.makerplayground.device.actual.Platform;
+import io.makerplayground.device.generic.GenericDevice;
+import io.makerplayground.device.shared.Action;
+import io.makerplayground.device.shared.DataType;
+import io.makerplayground.device.shared.NumberWithUnit;
+import io.makerplayground.device.shared.Parameter;
+import io.makerplayground.device.shared.Value;
+import io.makerplayground.device.shared.constraint.Constraint;
+import io.makerplayground.generator.devicemapping.ProjectLogic;
+import io.makerplayground.project.expression.NumberWithUnitExpression;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Time a single parameter edit in a diagram with {@value #NODE_COUNT} scenes using {@value #DEVICE_COUNT} devices. The
+ * cached compatibility calculation of {@link Project} is compared with the calculation before the cache was added which
+ * extracts every parameter constraint again and checks every device with a new {@link ProjectConfiguration}. The device
+ * library installed on this machine is used and the benchmark is skipped when there isn't any.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class ProjectCompatibilityBenchmark {
+
+    private static final int NODE_COUNT = 200;
+    private static final int DEVICE_COUNT = 80;
+    private static final int ROUNDS = 100;
+
+    private static Platform platform;
+    private static List<GenericDevice> genericDevices;
+
+    @BeforeAll
+    static void loadDeviceLibrary() {
+        DeviceLibrary.INSTANCE.loadDeviceLibrary();
+        assumeFalse(DeviceLibrary.INSTANCE.getLibraryPath().isEmpty(), "device library is not installed");
+
+        // use the platform supported by most devices and the generic devices whose first action, which is used by
+        // Scene.addDevice, has a numeric parameter for the user to edit
+        platform = Arrays.stream(Platform.values())
+                .max(Comparator.comparingInt(p -> DeviceLibrary.INSTANCE.getActualDevice(p).size()))
+                .orElseThrow();
+        genericDevices = new ArrayList<>();
+        for (GenericDevice genericDevice : DeviceLibrary.INSTANCE.getGenericDevice()) {
+            if (genericDevice.hasAction() && findNumericParameter(genericDevice.getAction().get(0)).isPresent()
+                    && !DeviceLibrary.INSTANCE.getActualDevice(platform, genericDevice).isEmpty()) {
+                genericDevices.add(genericDevice);
+            }
+        }
+        assumeFalse(genericDevices.isEmpty(), "device library doesn't have any device with a numeric parameter");
+    }
+
+    @Test
+    void editParameter() {
+        Project project = new Project();
+        List<UserSetting> settings = new ArrayList<>();
+        project.batch(() -> {
+            project.setPlatform(platform);
+            List<ProjectDevice> devices = new ArrayList<>();
+            for (int i=0; i<DEVICE_COUNT; i++) {
+                devices.add(project.addDevice(genericDevices.get(i % genericDevices.size())));
+            }
+            NodeElement previous = project.getBegin().get(0);
+            for (int i=0; i<NODE_COUNT; i++) {
+                Scene scene = project.newScene();
+                scene.addDevice(devices.get(i % DEVICE_COUNT));
+                settings.add(scene.getSetting().get(0));
+                project.addLine(previous, scene);
+                previous = scene;
+            }
+        });
+
+        long editTime = 0, cachedConstraintTime = 0, extractedConstraintTime = 0, uncachedTime = 0;
+        for (int i=0; i<ROUNDS; i++) {
+            UserSetting setting = settings.get(i % settings.size());
+            Parameter parameter = findNumericParameter(setting.getAction()).orElseThrow();
+            NumberWithUnit defaultValue = (NumberWithUnit) parameter.getDefaultValue();
+            NumberWithUnit newValue = new NumberWithUnit(defaultValue.getValue() + (i / settings.size() + 1) % 2, defaultValue.getUnit());
+
+            // the property window invalidates the diagram which recalculates the compatibility after the user has edited
+            // the parameters of a device
+            long start = System.nanoTime();
+            setting.getParameterMap().put(parameter, new NumberWithUnitExpression(newValue));
+            project.calculateCompatibility();
+            long edited = System.nanoTime();
+            for (UserSetting s : settings) {
+                s.getParameterConstraint();
+            }
+            long cached = System.nanoTime();
+            for (UserSetting s : settings) {
+                extractConstraint(s);
+            }
+            long extracted = System.nanoTime();
+            ProjectConfiguration configuration = calculateCompatibilityWithoutCache(project);
+            long uncached = System.nanoTime();
+
+            assertEquals(configuration.getCompatibleDevicesSelectableMap(), project.getProjectConfiguration().getCompatibleDevicesSelectableMap());
+            // the first rounds are the warm up
+            if (i >= ROUNDS / 2) {
+                editTime += edited - start;
+                cachedConstraintTime += cached - edited;
+                extractedConstraintTime += extracted - cached;
+                uncachedTime += uncached - extracted;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("%d nodes, %d devices on %s: edit and recalculate %.3f ms, without cache %.3f ms%n"
+                , NODE_COUNT, DEVICE_COUNT, platform, editTime / 1e6 / measuredRounds, uncachedTime / 1e6 / measuredRounds);
+        System.out.printf("parameter constraints of %d settings: cached %.3f ms, extracted %.3f ms%n"
+                , settings.size(), cachedConstraintTime / 1e6 / measuredRounds, extractedConstraintTime / 1e6 / measuredRounds);
+    }
+
+    private static Optional<Parameter> findNumericParameter(Action action) {
+        return action.getParameter().stream()
+                .filter(p -> p.getDataType() == DataType.DOUBLE || p.getDataType() == DataType.INTEGER)
+                .filter(p -> p.getDefaultValue() instanceof NumberWithUnit)
+                .findFirst();
+    }
+
+    private static Map<Parameter, Constraint> extractConstraint(UserSetting setting) {
+        Map<Parameter, Constraint> result = new HashMap<>();
+        setting.getParameterMap().forEach((parameter, expression) -> result.put(parameter, ProjectLogic.extractConstraint(parameter, expression)));
+        return result;
+    }
+
+    /* Project.calculateCompatibility before the parameter constraints and the per-device results were cached */
+    private static ProjectConfiguration calculateCompatibilityWithoutCache(Project project) {
+        Map<ProjectDevice, Map<Action, Map<Parameter, Constraint>>> actionCompatibility = new HashMap<>();
+        Map<ProjectDevice, Map<io.makerplayground.device.shared.Condition, Map<Parameter, Constraint>>> conditionCompatibility = new HashMap<>();
+        Map<ProjectDevice, Set<Value>> valueCompatibility = new HashMap<>();
+        Set<NodeElement> visited = new HashSet<>();
+        Deque<NodeElement> queue = new ArrayDeque<>(project.getBegin());
+        while (!queue.isEmpty()) {
+            NodeElement current = queue.remove();
+            if (!visited.add(current)) {
+                continue;
+            }
+            List<UserSetting> settings = Collections.emptyList();
+            if (current instanceof Scene) {
+                settings = ((Scene) current).getSetting();
+            } else if (current instanceof Condition) {
+                settings = ((Condition) current).getSetting();
+            }
+            for (UserSetting s : settings) {
+                Map<Parameter, Constraint> parameterMap;
+                if (s.getAction() != null) {
+                    parameterMap = actionCompatibility.computeIfAbsent(s.getDevice(), d -> new TreeMap<>(Comparator.comparing(Action::getName)))
+                            .computeIfAbsent(s.getAction(), a -> new TreeMap<>(Comparator.comparing(Parameter::getName)));
+                } else {
+                    parameterMap = conditionCompatibility.computeIfAbsent(s.getDevice(), d -> new TreeMap<>(Comparator.comparing(io.makerplayground.device.shared.Condition::getName)))
+                            .computeIfAbsent(s.getCondition(), c -> new TreeMap<>(Comparator.comparing(Parameter::getName)));
+                }
+                extractConstraint(s).forEach((parameter, constraint) -> parameterMap.merge(parameter, constraint, Constraint::union));
+                s.getNonVirtualProjectDevicesValueUsed().forEach((projectDevice, values) -> {
+                    if (valueCompatibility.containsKey(projectDevice)) {
+                        valueCompatibility.get(projectDevice).addAll(values);
+                    } else if (!VirtualProjectDevice.getDevices().contains(projectDevice)) {
+                        valueCompatibility.put(projectDevice, new HashSet<>(values));
+                    }
+                });
+            }
+            for (NodeElement next : project.getNextNodeElements(current)) {
+                if (!visited.contains(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        ProjectConfiguration configuration = new ProjectConfiguration(project.getSelectedPlatform());
+        configuration.updateCompatibility(actionCompatibility, conditionCompatibility, valueCompatibility, project.getUnmodifiableProjectDevice());
+        return configuration;
+    }
+}
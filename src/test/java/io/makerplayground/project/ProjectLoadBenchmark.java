@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.project;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.makerplayground.util.JacksonMappers;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Time loading a project with {@value #SCENE_COUNT} scenes and delays by {@link ProjectDeserializer} which binds each
+ * field while it is being parsed. The deserializer before it was changed, which reads the whole project as a tree before
+ * binding the subtrees, is used as the reference. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class ProjectLoadBenchmark {
+
+    private static final int SCENE_COUNT = 2000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void loadProject() throws IOException {
+        byte[] content = JacksonMappers.PROJECT_WRITER.writeValueAsBytes(createProject());
+
+        // the memory allocated while loading shows the cost of the tree which is garbage as soon as the project is loaded
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long streamingTime = 0, treeTime = 0, streamingAllocation = 0, treeAllocation = 0;
+        for (int i=0; i<ROUNDS; i++) {
+            long startAllocation = threadMXBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            Project project = JacksonMappers.PROJECT_READER.readValue(content);
+            long streamed = System.nanoTime();
+            long streamedAllocation = threadMXBean.getThreadAllocatedBytes(threadId);
+            Project reference = loadAsTree(content);
+            long tree = System.nanoTime();
+            long treeLoadedAllocation = threadMXBean.getThreadAllocatedBytes(threadId);
+
+            assertArrayEquals(JacksonMappers.PROJECT_WRITER.writeValueAsBytes(reference), JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+            // the first rounds are the warm up
+            if (i >= ROUNDS / 2) {
+                streamingTime += streamed - start;
+                treeTime += tree - streamed;
+                streamingAllocation += streamedAllocation - startAllocation;
+                treeAllocation += treeLoadedAllocation - streamedAllocation;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("load %d KB project: streaming %.3f ms (%d KB allocated), tree %.3f ms (%d KB allocated)%n"
+                , content.length / 1024, streamingTime / 1e6 / measuredRounds, streamingAllocation / 1024 / measuredRounds
+                , treeTime / 1e6 / measuredRounds, treeAllocation / 1024 / measuredRounds);
+    }
+
+    /* a chain of scenes with a delay after every other scene */
+    private static Project createProject() {
+        Project project = new Project();
+        project.addVariable("counter");
+        project.batch(() -> {
+            NodeElement previous = project.getBegin().get(0);
+            for (int i=0; i<SCENE_COUNT; i++) {
+                Scene scene = project.newScene();
+                project.addLine(previous, scene);
+                previous = scene;
+                if (i % 2 == 0) {
+                    Delay delay = project.newDelay();
+                    project.addLine(previous, delay);
+                    previous = delay;
+                }
+            }
+        });
+        return project;
+    }
+
+    /* ProjectDeserializer.deserialize before it was changed to bind the fields while parsing */
+    private static Project loadAsTree(byte[] content) throws IOException {
+        JsonNode node = JacksonMappers.JSON.readTree(content);
+
+        Project project = new Project();
+        Begin defaultBegin = project.getBegin().get(0);
+        ObjectReader reader = JacksonMappers.JSON.reader().withAttribute(ProjectDeserializer.PROJECT_ATTRIBUTE, project);
+
+        project.setProjectName(node.get("projectName").asText());
+
+        project.beginBatch();
+        try {
+            List<ProjectDevice> devices = reader.forType(new TypeReference<List<ProjectDevice>>() {}).readValue(node.get("devices"));
+            devices.forEach(project::addDevice);
+
+            for (JsonNode beginNode: node.get("begins")) {
+                Begin begin = new Begin(project);
+                begin.setName(beginNode.get("name").asText());
+                begin.setLeft(beginNode.get("left").asDouble());
+                begin.setTop(beginNode.get("top").asDouble());
+                project.addBegin(begin);
+            }
+            project.removeBegin(defaultBegin);
+
+            if (node.has("variables")) {
+                List<String> variableNames = reader.forType(new TypeReference<List<String>>() {}).readValue(node.get("variables"));
+                variableNames.forEach(project::addVariable);
+            }
+
+            List<Scene> scenes = reader.forType(new TypeReference<List<Scene>>() {}).readValue(node.get("scenes"));
+            scenes.forEach(project::addScene);
+            List<Condition> conditions = reader.forType(new TypeReference<List<Condition>>() {}).readValue(node.get("conditions"));
+            conditions.forEach(project::addCondition);
+            List<Delay> delays = reader.forType(new TypeReference<List<Delay>>() {}).readValue(node.get("delays"));
+            delays.forEach(project::addDelay);
+
+            Map<String, NodeElement> destinationMap = new HashMap<>();
+            scenes.forEach(scene -> destinationMap.putIfAbsent(scene.getName(), scene));
+            conditions.forEach(condition -> destinationMap.putIfAbsent(condition.getName(), condition));
+            delays.forEach(delay -> destinationMap.putIfAbsent(delay.getName(), delay));
+            Map<String, NodeElement> sourceMap = new HashMap<>(destinationMap);
+            project.getBegin().forEach(begin -> sourceMap.putIfAbsent(begin.getName(), begin));
+
+            for (JsonNode lineNode : node.get("lines")) {
+                project.addLine(sourceMap.get(lineNode.get("source").asText()), destinationMap.get(lineNode.get("destination").asText()));
+            }
+        } finally {
+            project.endBatch();
+        }
+
+        project.setProjectConfiguration(reader.forType(ProjectConfiguration.class).readValue(node.get("projectConfiguration")));
+        return project;
+    }
+}
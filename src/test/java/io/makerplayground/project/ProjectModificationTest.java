@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import io.makerplayground.device.actual.Platform;
+import io.makerplayground.device.shared.DelayUnit;
+import io.makerplayground.device.shared.NumberWithUnit;
+import io.makerplayground.device.shared.Parameter;
+import io.makerplayground.device.shared.Unit;
+import io.makerplayground.project.expression.Expression;
+import io.makerplayground.util.JacksonMappers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every change that is written to the project file must be reported by {@link Project#hasUnsavedModification()}.
+ * The check returns without comparing the content while the revision hasn't changed so a mutation that doesn't
+ * increase the revision would be lost silently.
+ */
+class ProjectModificationTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Project project;
+
+    @BeforeEach
+    void createProject() throws Exception {
+        project = new Project();
+        project.setFilePath(tempDir.resolve("project.mp").toString());
+        save();
+    }
+
+    @Test
+    void unmodifiedProjectHasNoUnsavedModification() {
+        assertFalse(project.hasUnsavedModification());
+    }
+
+    @Test
+    void projectChanges() throws Exception {
+        project.setProjectName("test");
+        assertModifiedAndSave();
+
+        project.setPlatform(Platform.ARDUINO_ESP32);
+        assertModifiedAndSave();
+
+        assertEquals(Project.VariableError.OK, project.addVariable("x").getError());
+        assertModifiedAndSave();
+        assertEquals(Project.VariableError.OK, project.renameVariable("x", "y"));
+        assertModifiedAndSave();
+        assertEquals(Project.VariableError.OK, project.removeVariable("y"));
+        assertModifiedAndSave();
+
+        project.newBegin();
+        assertModifiedAndSave();
+    }
+
+    @Test
+    void nodeChanges() throws Exception {
+        Scene scene = project.newScene();
+        assertModifiedAndSave();
+        Condition condition = project.newCondition();
+        assertModifiedAndSave();
+        Delay delay = project.newDelay();
+        assertModifiedAndSave();
+
+        scene.setName("renamed");
+        assertModifiedAndSave();
+        condition.setTop(condition.getTop() + 10);
+        assertModifiedAndSave();
+        delay.setLeft(delay.getLeft() + 10);
+        assertModifiedAndSave();
+        delay.setDelayValue(5);
+        assertModifiedAndSave();
+        delay.setDelayUnit(DelayUnit.SECOND);
+        assertModifiedAndSave();
+
+        project.addLine(project.getBegin().get(0), scene);
+        assertModifiedAndSave();
+        project.removeLine(project.getUnmodifiableLine().get(0));
+        assertModifiedAndSave();
+
+        project.removeDelay(delay);
+        assertModifiedAndSave();
+    }
+
+    @Test
+    void userSettingChanges() throws Exception {
+        Scene scene = project.newScene();
+        Condition condition = project.newCondition();
+        save();
+
+        scene.addVirtualDevice(VirtualProjectDevice.Memory.projectDevice);
+        assertModifiedAndSave();
+        condition.addVirtualDevice(VirtualProjectDevice.Memory.projectDevice);
+        assertModifiedAndSave();
+
+        // the expression controls set a modified copy of the expression to the parameter map
+        UserSetting userSetting = scene.getAllSettings().get(0);
+        Parameter parameter = VirtualProjectDevice.Memory.valueParameter;
+        Expression expression = userSetting.getParameterMap().get(parameter).deepCopy();
+        expression.setRefreshInterval(Expression.RefreshInterval.USER_DEFINED);
+        userSetting.getParameterMap().put(parameter, expression);
+        assertModifiedAndSave();
+        expression = userSetting.getParameterMap().get(parameter).deepCopy();
+        expression.setUserDefinedInterval(new NumberWithUnit(100, Unit.MILLISECOND));
+        userSetting.getParameterMap().put(parameter, expression);
+        assertModifiedAndSave();
+
+        scene.removeUserSetting(userSetting);
+        assertModifiedAndSave();
+    }
+
+    @Test
+    void changeThenRevertHasNoUnsavedModification() {
+        Scene scene = project.newScene();
+        assertTrue(project.hasUnsavedModification());
+        project.removeScene(scene);
+        assertFalse(project.hasUnsavedModification());
+    }
+
+    private void assertModifiedAndSave() throws Exception {
+        assertTrue(project.hasUnsavedModification());
+        save();
+    }
+
+    private void save() throws Exception {
+        byte[] content = JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project);
+        Files.write(Path.of(project.getFilePath()), content);
+        project.markSaved(content);
+        assertFalse(project.hasUnsavedModification());
+    }
+}
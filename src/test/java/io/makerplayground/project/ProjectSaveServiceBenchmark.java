@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.project;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Time saving a small and a large project. The time the FX thread is blocked by {@link ProjectSaveService#save} i.e.
+ * taking the snapshot is compared with serializing and writing the file on the FX thread as it was done before the
+ * service was added. The time taken by the background thread to serialize the snapshot and write it atomically is
+ * reported as well. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class ProjectSaveServiceBenchmark {
+
+    private static final int ROUNDS = 40;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void saveSmallProject() throws IOException {
+        measure("small", createProject(10));
+    }
+
+    @Test
+    void saveLargeProject() throws IOException {
+        measure("large", createProject(3000));
+    }
+
+    private void measure(String name, Project project) throws IOException {
+        Path file = tempDir.resolve(name + ".mp");
+        Path referenceFile = tempDir.resolve(name + "-reference.mp");
+        long snapshotTime = 0, writeTime = 0, referenceTime = 0;
+        int size = 0;
+        for (int i=0; i<ROUNDS; i++) {
+            long start = System.nanoTime();
+            TokenBuffer snapshot = ProjectSaveService.takeSnapshot(project);
+            long snapshotTaken = System.nanoTime();
+            byte[] content = ProjectSaveService.toBytes(snapshot);
+            ProjectSaveService.writeAtomically(file, content);
+            long written = System.nanoTime();
+            saveOnFxThread(project, referenceFile);
+            long referenceWritten = System.nanoTime();
+
+            assertArrayEquals(Files.readAllBytes(referenceFile), Files.readAllBytes(file));
+            size = content.length;
+            // the first rounds are the warm up
+            if (i >= ROUNDS / 2) {
+                snapshotTime += snapshotTaken - start;
+                writeTime += written - snapshotTaken;
+                referenceTime += referenceWritten - written;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("%s project (%d nodes, %d KB): FX thread blocked %.3f ms, background write %.3f ms, reference %.3f ms%n"
+                , name, project.getUnmodifiableScene().size() + project.getUnmodifiableDelay().size(), size / 1024
+                , snapshotTime / 1e6 / measuredRounds, writeTime / 1e6 / measuredRounds, referenceTime / 1e6 / measuredRounds);
+    }
+
+    /* a chain of scenes with a delay after every other scene */
+    private static Project createProject(int sceneCount) {
+        Project project = new Project();
+        project.batch(() -> {
+            NodeElement previous = project.getBegin().get(0);
+            for (int i=0; i<sceneCount; i++) {
+                Scene scene = project.newScene();
+                project.addLine(previous, scene);
+                previous = scene;
+                if (i % 2 == 0) {
+                    Delay delay = project.newDelay();
+                    project.addLine(previous, delay);
+                    previous = delay;
+                }
+            }
+        });
+        return project;
+    }
+
+    /* the implementation of Main.saveProject before ProjectSaveService was added */
+    private static void saveOnFxThread(Project project, Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] content = mapper.writeValueAsBytes(project);
+        Files.write(file, content);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.project;
+
+import io.makerplayground.util.JacksonMappers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectSaveServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recoveredProjectHasUnsavedModification() throws Exception {
+        Path originalFile = tempDir.resolve("project.mp");
+        Project project = new Project();
+        Files.write(originalFile, JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+        project.newScene();
+        Path journal = writeJournal(project);
+
+        Project recovered = recover(journal, originalFile.toString());
+        assertEquals(originalFile.toString(), recovered.getFilePath());
+        assertEquals(1, recovered.getUnmodifiableScene().size());
+        // the content is the same as the journal but not the original file
+        assertTrue(recovered.hasUnsavedModification());
+        assertTrue(recovered.hasUnsavedModification(), "the result must not change after the content has been compared");
+
+        byte[] content = JacksonMappers.PROJECT_WRITER.writeValueAsBytes(recovered);
+        Files.write(originalFile, content);
+        recovered.markSaved(content);
+        assertFalse(recovered.hasUnsavedModification());
+    }
+
+    @Test
+    void recoveredProjectWithMissingOriginalFileHasUnsavedModification() throws Exception {
+        Path journal = writeJournal(new Project());
+        Project recovered = recover(journal, tempDir.resolve("deleted.mp").toString());
+        assertTrue(recovered.hasUnsavedModification());
+    }
+
+    @Test
+    void recoveredUntitledProjectHasUnsavedModification() throws Exception {
+        Project project = new Project();
+        project.newScene();
+        Project recovered = recover(writeJournal(project), "");
+        assertTrue(recovered.hasUnsavedModification());
+    }
+
+    @Test
+    void findRecoverAndDiscardJournal() throws Exception {
+        Path autosaveDirectory = Files.createDirectories(tempDir.resolve("autosave"));
+        String originalFilePath = tempDir.resolve("project.mp").toString();
+
+        // the journal, the original path and the lock file left by an instance that was killed
+        Project project = new Project();
+        project.newScene();
+        project.newScene();
+        Path crashedJournal = autosaveDirectory.resolve("1000-1.mp");
+        Files.write(crashedJournal, JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+        Files.writeString(autosaveDirectory.resolve("1000-1.path"), originalFilePath);
+        Files.createFile(autosaveDirectory.resolve("1000-1.lock"));
+
+        // the journal of an instance that is still running holds the lock
+        ProjectSaveService service = new ProjectSaveService(Project::new, autosaveDirectory);
+        service.startAutosave();
+        Path runningJournal;
+        try {
+            String runningLock;
+            try (Stream<Path> stream = Files.list(autosaveDirectory)) {
+                runningLock = stream.map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(".lock") && !name.equals("1000-1.lock"))
+                        .findFirst()
+                        .orElseThrow();
+            }
+            runningJournal = autosaveDirectory.resolve(runningLock.replace(".lock", ".mp"));
+            Files.write(runningJournal, JacksonMappers.PROJECT_WRITER.writeValueAsBytes(new Project()));
+
+            List<ProjectSaveService.RecoverableProject> recoverableProjects = ProjectSaveService.findRecoverableProjects(autosaveDirectory);
+            assertEquals(List.of(crashedJournal), getJournalPaths(recoverableProjects));
+            ProjectSaveService.RecoverableProject recoverableProject = recoverableProjects.get(0);
+            assertEquals(originalFilePath, recoverableProject.getOriginalFilePath());
+
+            Project recovered = ProjectSaveService.recover(recoverableProject).orElseThrow();
+            assertEquals(originalFilePath, recovered.getFilePath());
+            assertEquals(2, recovered.getUnmodifiableScene().size());
+
+            ProjectSaveService.discard(recoverableProject);
+            assertFalse(Files.exists(crashedJournal));
+            assertFalse(Files.exists(autosaveDirectory.resolve("1000-1.path")));
+            assertFalse(Files.exists(autosaveDirectory.resolve("1000-1.lock")));
+            assertTrue(Files.exists(runningJournal));
+            assertTrue(ProjectSaveService.findRecoverableProjects(autosaveDirectory).isEmpty());
+        } finally {
+            service.shutdown(true);
+        }
+
+        // the journal kept by an instance that has been closed can be recovered
+        assertEquals(List.of(runningJournal), getJournalPaths(ProjectSaveService.findRecoverableProjects(autosaveDirectory)));
+    }
+
+    private static List<Path> getJournalPaths(List<ProjectSaveService.RecoverableProject> recoverableProjects) {
+        return recoverableProjects.stream().map(ProjectSaveService.RecoverableProject::getJournalPath).collect(Collectors.toList());
+    }
+
+    private Path writeJournal(Project project) throws Exception {
+        Path journal = tempDir.resolve("1234-1.mp");
+        Files.write(journal, JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+        return journal;
+    }
+
+    private static Project recover(Path journal, String originalFilePath) {
+        ProjectSaveService.RecoverableProject recoverableProject = new ProjectSaveService.RecoverableProject(journal
+                , originalFilePath, System.currentTimeMillis());
+        return ProjectSaveService.recover(recoverableProject).orElseThrow();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.ui.devicemonitortab;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceMonitorReplayerTest {
+
+    private static final int BLOCK_COUNT = 200;
+    private static final int ITEMS_PER_BLOCK = 500;
+    private static final int MAX_PENDING_ITEMS = 1000;
+
+    @Test
+    void replayAsFastAsPossibleKeepsQueueBounded(@TempDir Path directory) throws Exception {
+        try (RecordingWriter writer = new RecordingWriter(directory.resolve("part-0000" + DeviceMonitorRecording.FILE_EXTENSION), 64 * 1024 * 1024)) {
+            for (int block=0; block<BLOCK_COUNT; block++) {
+                List<LogItem> logItems = new ArrayList<>();
+                for (int i=0; i<ITEMS_PER_BLOCK; i++) {
+                    logItems.add(new LogItem((long) block * ITEMS_PER_BLOCK + i, LogLevel.VALUE, "Sensor", "Value=" + i));
+                }
+                assertTrue(writer.writeBlock(logItems));
+            }
+        }
+        DeviceMonitorRecording recording = DeviceMonitorRecording.open(directory);
+
+        BlockingQueue<LogItem> queue = new LinkedBlockingQueue<>();
+        DeviceMonitorReplayer replayer = new DeviceMonitorReplayer(recording, queue, MAX_PENDING_ITEMS);
+        replayer.setSpeed(0);
+        replayer.start();
+        replayer.play();
+
+        // drain the queue once per frame like the monitor does
+        int maxQueueSize = 0;
+        long expectedTimestamp = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        try {
+            while (expectedTimestamp < BLOCK_COUNT * ITEMS_PER_BLOCK) {
+                assertTrue(System.nanoTime() < deadline, "the replay didn't finish in time");
+                Thread.sleep(1);
+                maxQueueSize = Math.max(maxQueueSize, queue.size());
+                LogItem logItem;
+                while ((logItem = queue.poll()) != null) {
+                    assertEquals(expectedTimestamp, logItem.getTimestamp());
+                    expectedTimestamp++;
+                }
+            }
+        } finally {
+            replayer.stop();
+        }
+
+        assertTrue(maxQueueSize <= MAX_PENDING_ITEMS, "the queue grew to " + maxQueueSize + " items");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.ui.devicemonitortab;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogItemRingListTest {
+
+    @Test
+    void evictOldestItemsWhenFull() {
+        LogItemRingList list = new LogItemRingList(4);
+        list.appendAll(createItems(0, 3));
+        list.appendAll(createItems(3, 6));
+        assertMessages(list, 2, 3, 4, 5);
+    }
+
+    @Test
+    void accessByIndexAfterWrapAround() {
+        LogItemRingList list = new LogItemRingList(4);
+        for (int i = 0; i < 11; i++) {
+            list.appendAll(createItems(i, i + 1));
+        }
+        assertMessages(list, 7, 8, 9, 10);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+    }
+
+    @Test
+    void keepLastItemsOfBatchLargerThanCapacity() {
+        LogItemRingList list = new LogItemRingList(4);
+        list.appendAll(createItems(0, 2));
+        list.appendAll(createItems(2, 12));
+        assertMessages(list, 8, 9, 10, 11);
+    }
+
+    @Test
+    void notifyEvictionAndAdditionInOneChange() {
+        LogItemRingList list = new LogItemRingList(4);
+        list.appendAll(createItems(0, 4));
+        List<String> changes = new ArrayList<>();
+        list.addListener((ListChangeListener<LogItem>) change -> {
+            changes.add("change");
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    changes.add("removed " + change.getFrom() + " " + toMessages(change.getRemoved()));
+                }
+                if (change.wasAdded()) {
+                    changes.add("added " + change.getFrom() + " " + toMessages(change.getAddedSubList()));
+                }
+            }
+        });
+
+        list.appendAll(createItems(4, 6));
+
+        assertEquals(List.of("change", "removed 0 [0, 1]", "added 2 [4, 5]"), changes);
+    }
+
+    @Test
+    void clearAfterWrapAround() {
+        LogItemRingList list = new LogItemRingList(3);
+        list.appendAll(createItems(0, 5));
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.appendAll(createItems(5, 7));
+        assertMessages(list, 5, 6);
+    }
+
+    private static List<LogItem> createItems(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new LogItem(i, LogLevel.INFO, "Device", Integer.toString(i)))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> toMessages(List<? extends LogItem> items) {
+        return items.stream().map(LogItem::getMessage).collect(Collectors.toList());
+    }
+
+    private static void assertMessages(LogItemRingList list, int... messages) {
+        assertEquals(messages.length, list.size());
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals(Integer.toString(messages[i]), list.get(i).getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.ui.devicemonitortab;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordingWriterTest {
+
+    private static final long FILE_SIZE = 4 * 1024 * 1024;
+
+    @Test
+    void fileIsTruncatedToTheWrittenBlocks(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("part-0000" + DeviceMonitorRecording.FILE_EXTENSION);
+        List<LogItem> written = new ArrayList<>();
+        // write more blocks than INDEX_INTERVAL so that the file has both indexed and unindexed blocks before close
+        try (RecordingWriter writer = new RecordingWriter(path, FILE_SIZE)) {
+            for (int block=0; block<DeviceMonitorRecording.INDEX_INTERVAL + 10; block++) {
+                List<LogItem> logItems = new ArrayList<>();
+                for (int i=0; i<5; i++) {
+                    logItems.add(new LogItem(1000L * block + i, LogLevel.VALUE, "Sensor" + i, "Value=" + (block + i)));
+                }
+                assertTrue(writer.writeBlock(logItems));
+                written.addAll(logItems);
+            }
+        }
+
+        long fileSize = Files.size(path);
+        assertTrue(fileSize < FILE_SIZE, "the preallocated space hasn't been released");
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(fileSize, header.getLong(DeviceMonitorRecording.VALID_LENGTH_OFFSET));
+
+        DeviceMonitorRecording recording = DeviceMonitorRecording.open(directory);
+        assertEquals(written.size(), recording.getItemCount());
+        List<LogItem> read = new ArrayList<>();
+        for (int i=0; i<recording.getBlockCount(); i++) {
+            read.addAll(recording.readBlock(i));
+        }
+        assertEquals(written.size(), read.size());
+        for (int i=0; i<written.size(); i++) {
+            assertEquals(written.get(i).getTimestamp(), read.get(i).getTimestamp());
+            assertEquals(written.get(i).getDeviceName(), read.get(i).getDeviceName());
+            assertEquals(written.get(i).getMessage(), read.get(i).getMessage());
+        }
+    }
+}
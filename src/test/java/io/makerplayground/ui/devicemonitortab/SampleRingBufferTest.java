@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.ui.devicemonitortab;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleRingBufferTest {
+
+    @Test
+    void overwriteOldestSampleWhenFull() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i, i * 10);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(6, buffer.getFirstSampleNumber());
+        assertSamples(buffer, 6, 7, 8, 9);
+    }
+
+    @Test
+    void growUpToCapacity() {
+        // the arrays start smaller than the capacity and must keep the order of the samples when they grow
+        SampleRingBuffer buffer = new SampleRingBuffer(1000);
+        for (int i = 0; i < 1200; i++) {
+            buffer.add(i, i * 10);
+        }
+        assertEquals(1000, buffer.size());
+        assertEquals(200, buffer.getFirstSampleNumber());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(200 + i, buffer.getTime(i));
+            assertEquals((200 + i) * 10, buffer.getValue(i));
+        }
+    }
+
+    @Test
+    void shrinkCapacityAfterWrapAround() {
+        SampleRingBuffer buffer = new SampleRingBuffer(5);
+        for (int i = 0; i < 8; i++) {
+            buffer.add(i, i * 10);
+        }
+        buffer.setCapacity(3);
+        assertEquals(3, buffer.size());
+        assertEquals(5, buffer.getFirstSampleNumber());
+        assertSamples(buffer, 5, 6, 7);
+
+        // the buffer must wrap around at the new capacity
+        buffer.add(8, 80);
+        buffer.add(9, 90);
+        assertSamples(buffer, 7, 8, 9);
+    }
+
+    @Test
+    void growCapacityKeepsSamples() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, i * 10);
+        }
+        buffer.setCapacity(5);
+        buffer.add(5, 50);
+        buffer.add(6, 60);
+        assertSamples(buffer, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    void removeOlderThanAcrossWrapPoint() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        for (int i = 0; i < 7; i++) {
+            buffer.add(i, i * 10);
+        }
+        // the oldest sample is stored at the end of the array and the newer ones at the beginning
+        assertSamples(buffer, 3, 4, 5, 6);
+        assertTrue(buffer.removeOlderThan(5));
+        assertEquals(2, buffer.size());
+        assertEquals(5, buffer.getFirstSampleNumber());
+        assertSamples(buffer, 5, 6);
+
+        assertFalse(buffer.removeOlderThan(5));
+        buffer.add(7, 70);
+        buffer.add(8, 80);
+        buffer.add(9, 90);
+        assertSamples(buffer, 6, 7, 8, 9);
+
+        assertTrue(buffer.removeOlderThan(100));
+        assertEquals(0, buffer.size());
+        assertEquals(10, buffer.getFirstSampleNumber());
+    }
+
+    private static void assertSamples(SampleRingBuffer buffer, long... times) {
+        assertEquals(times.length, buffer.size());
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], buffer.getTime(i));
+            assertEquals(times[i] * 10, buffer.getValue(i));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for the raw REPL of a MicroPython board which understands the code sent by {@link MicroPythonFileSync}.
+ * The board replies synchronously i.e. the response to the bytes written to {@link #getOutputStream()} is available
+ * from {@link #getInputStream()} as soon as the write returns. Code can be sent using the raw-paste mode with the
+ * given window size (the board grants another window after each window has been consumed) or the original raw mode.
+ */
+class FakeMicroPythonBoard {
+
+    private static final byte CTRL_A = 0x01;
+    private static final byte CTRL_B = 0x02;
+    private static final byte CTRL_D = 0x04;
+    private static final byte CTRL_E = 0x05;
+
+    private static final Pattern STRING = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'");
+    private static final Pattern OPEN = Pattern.compile("_mp_f = open\\(" + STRING.pattern() + ", 'wb'\\)");
+    private static final Pattern WRITE = Pattern.compile("_mp_f\\.write\\(_mp_ba\\.a2b_base64\\('([A-Za-z0-9+/=]*)'\\)\\)");
+    private static final Pattern MKDIR = Pattern.compile("_mp_mkdir\\(" + STRING.pattern() + "\\)");
+
+    private enum State {NORMAL, RAW, RAW_PASTE_REQUEST_1, RAW_PASTE_REQUEST_2, RAW_PASTE}
+
+    private final int windowSize;
+    private final boolean rawPasteSupported;
+    private final Deque<Byte> response = new ArrayDeque<>();
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private State state = State.NORMAL;
+    private int windowRemaining;
+
+    /* state of the board */
+    private final Map<String, byte[]> files = new TreeMap<>();
+    private final Set<String> directories = new TreeSet<>();
+    private boolean helperDefined;
+    private String openedFile;
+    private ByteArrayOutputStream openedFileContent;
+    private boolean corruptWrite;
+
+    /* statistics */
+    private int windowCount;
+    private int writeCount;
+    private final List<String> executedCode = new ArrayList<>();
+
+    FakeMicroPythonBoard(int windowSize, boolean rawPasteSupported) {
+        this.windowSize = windowSize;
+        this.rawPasteSupported = rawPasteSupported;
+    }
+
+    InputStream getInputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                synchronized (FakeMicroPythonBoard.this) {
+                    if (response.isEmpty()) {
+                        // behave like a serial port with a read timeout
+                        throw new InterruptedIOException("no data");
+                    }
+                    return response.removeFirst() & 0xFF;
+                }
+            }
+
+            @Override
+            public int available() {
+                synchronized (FakeMicroPythonBoard.this) {
+                    return response.size();
+                }
+            }
+        };
+    }
+
+    OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+                synchronized (FakeMicroPythonBoard.this) {
+                    receive((byte) b);
+                }
+            }
+        };
+    }
+
+    private void receive(byte b) {
+        switch (state) {
+            case NORMAL:
+                if (b == CTRL_A) {
+                    code.reset();
+                    reply("raw REPL; CTRL-B to exit\r\n>");
+                    state = State.RAW;
+                }
+                break;
+            case RAW:
+                if (b == CTRL_E) {
+                    state = State.RAW_PASTE_REQUEST_1;
+                } else if (b == CTRL_B) {
+                    code.reset();
+                    state = State.NORMAL;
+                } else if (b == CTRL_D) {
+                    reply("OK");
+                    execute();
+                } else {
+                    code.write(b);
+                }
+                break;
+            case RAW_PASTE_REQUEST_1:
+                state = (b == 'A') ? State.RAW_PASTE_REQUEST_2 : State.RAW;
+                break;
+            case RAW_PASTE_REQUEST_2:
+                if (b == CTRL_A && rawPasteSupported) {
+                    reply("R\u0001");
+                    response.addLast((byte) (windowSize & 0xFF));
+                    response.addLast((byte) (windowSize >> 8));
+                    windowRemaining = windowSize;
+                    windowCount++;
+                    state = State.RAW_PASTE;
+                } else {
+                    // the firmware understands the request but doesn't support the raw-paste mode
+                    reply("R\u0000");
+                    state = State.RAW;
+                }
+                break;
+            case RAW_PASTE:
+                if (b == CTRL_D) {
+                    response.addLast(CTRL_D);
+                    execute();
+                    state = State.RAW;
+                    break;
+                }
+                if (windowRemaining == 0) {
+                    throw new IllegalStateException("The host has sent more data than the window granted by the board");
+                }
+                code.write(b);
+                windowRemaining--;
+                if (windowRemaining == 0) {
+                    // grant the next window once the current window has been consumed
+                    response.addLast(CTRL_A);
+                    windowRemaining = windowSize;
+                    windowCount++;
+                }
+                break;
+        }
+    }
+
+    private void reply(String s) {
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            response.addLast(b);
+        }
+    }
+
+    private void execute() {
+        String source = code.toString(StandardCharsets.UTF_8);
+        code.reset();
+        executedCode.add(source);
+        StringBuilder output = new StringBuilder();
+        String error = "";
+        try {
+            run(source, output);
+        } catch (IllegalStateException e) {
+            error = "Traceback (most recent call last):\r\n" + e.getMessage() + "\r\n";
+        }
+        reply(output + "\u0004" + error + "\u0004>");
+    }
+
+    private void run(String source, StringBuilder output) {
+        Matcher matcher;
+        if (source.startsWith("import os\ntry:")) {
+            helperDefined = true;
+        } else if (source.startsWith("for _mp_p in (")) {
+            requireHelper();
+            matcher = STRING.matcher(source.substring(0, source.indexOf(':')));
+            while (matcher.find()) {
+                byte[] content = files.get(unescape(matcher.group(1)));
+                output.append(content == null ? "-" : sha256(content)).append("\r\n");
+            }
+        } else if (source.startsWith("_mp_mkdir(")) {
+            requireHelper();
+            matcher = MKDIR.matcher(source);
+            while (matcher.find()) {
+                directories.add(unescape(matcher.group(1)));
+            }
+        } else if ((matcher = OPEN.matcher(source)).matches()) {
+            String path = unescape(matcher.group(1));
+            int separator = path.lastIndexOf('/');
+            if (separator > 0 && !directories.contains(path.substring(0, separator))) {
+                throw new IllegalStateException("OSError: [Errno 2] ENOENT");
+            }
+            openedFile = path;
+            openedFileContent = new ByteArrayOutputStream();
+        } else if ((matcher = WRITE.matcher(source)).matches()) {
+            requireHelper();
+            byte[] data = Base64.getDecoder().decode(matcher.group(1));
+            if (corruptWrite) {
+                data[0] ^= 0x01;
+            }
+            openedFileContent.writeBytes(data);
+            writeCount++;
+        } else if (source.equals("_mp_f.close()")) {
+            files.put(openedFile, openedFileContent.toByteArray());
+            openedFile = null;
+            openedFileContent = null;
+        } else {
+            throw new IllegalStateException("SyntaxError: can't run " + source);
+        }
+    }
+
+    private void requireHelper() {
+        if (!helperDefined) {
+            throw new IllegalStateException("NameError: name isn't defined");
+        }
+    }
+
+    private static String unescape(String s) {
+        return s.replace("\\'", "'").replace("\\\\", "\\");
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    synchronized Map<String, byte[]> getFiles() {
+        return files;
+    }
+
+    synchronized Set<String> getDirectories() {
+        return directories;
+    }
+
+    synchronized void setCorruptWrite(boolean corruptWrite) {
+        this.corruptWrite = corruptWrite;
+    }
+
+    synchronized int getWindowCount() {
+        return windowCount;
+    }
+
+    synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    synchronized List<String> getExecutedCode() {
+        return executedCode;
+    }
+}
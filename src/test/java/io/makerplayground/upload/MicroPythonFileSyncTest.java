@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroPythonFileSyncTest {
+
+    private static final int WINDOW_SIZE = 128;
+
+    @TempDir
+    Path source;
+
+    @Test
+    void uploadChangedFilesOnly() throws Exception {
+        byte[] main = "print('hello')\n".getBytes(StandardCharsets.UTF_8);
+        // larger than a chunk so that it is written by multiple execs and in multiple raw-paste windows
+        byte[] library = new byte[10000];
+        new Random(1).nextBytes(library);
+        Files.write(source.resolve("main.py"), main);
+        Files.createDirectories(source.resolve("lib"));
+        Files.write(source.resolve("lib").resolve("data.bin"), library);
+
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, true);
+        RecordingListener listener = new RecordingListener();
+        assertEquals(2, sync(board, listener));
+        assertArrayEquals(main, board.getFiles().get("main.py"));
+        assertArrayEquals(library, board.getFiles().get("lib/data.bin"));
+        assertTrue(board.getDirectories().contains("lib"));
+        assertEquals(List.of("lib/data.bin", "main.py"), listener.uploaded);
+        assertTrue(listener.skipped.isEmpty());
+        // 10000 bytes are sent in 3 chunks of at most 4096 bytes and main.py in a single chunk
+        assertEquals(4, board.getWriteCount());
+        assertEquals(main.length + library.length, listener.lastBytesSent);
+        assertEquals(main.length + library.length, listener.lastTotalBytes);
+        assertTrue(board.getWindowCount() > 100, "the code should be sent in many raw-paste windows");
+
+        // nothing is transferred when the files on the board are up to date
+        listener = new RecordingListener();
+        assertEquals(0, sync(board, listener));
+        assertEquals(List.of("lib/data.bin", "main.py"), listener.skipped);
+        assertTrue(listener.uploaded.isEmpty());
+        assertEquals(4, board.getWriteCount());
+
+        // only the modified file is transferred
+        byte[] newMain = "print('hello world')\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(source.resolve("main.py"), newMain);
+        listener = new RecordingListener();
+        assertEquals(1, sync(board, listener));
+        assertEquals(List.of("lib/data.bin"), listener.skipped);
+        assertEquals(List.of("main.py"), listener.uploaded);
+        assertArrayEquals(newMain, board.getFiles().get("main.py"));
+        assertEquals(5, board.getWriteCount());
+    }
+
+    @Test
+    void uploadToDestinationDirectory() throws Exception {
+        Files.writeString(source.resolve("main.py"), "print('hello')\n");
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, true);
+        try (MicroPythonRawRepl repl = new MicroPythonRawRepl(board.getInputStream(), board.getOutputStream())) {
+            repl.enter();
+            assertEquals(1, new MicroPythonFileSync(repl).sync(source, "/flash", new RecordingListener()));
+        }
+        assertTrue(board.getFiles().containsKey("/flash/main.py"));
+    }
+
+    @Test
+    void detectCorruptedUpload() throws Exception {
+        Files.writeString(source.resolve("main.py"), "print('hello')\n");
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, true);
+        board.setCorruptWrite(true);
+        IOException e = assertThrows(IOException.class, () -> sync(board, new RecordingListener()));
+        assertTrue(e.getMessage().contains("corrupted"), e.getMessage());
+    }
+
+    @Test
+    void uploadWithoutRawPasteMode() throws Exception {
+        Files.writeString(source.resolve("main.py"), "print('hello')\n");
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, false);
+        assertEquals(1, sync(board, new RecordingListener()));
+        assertEquals("print('hello')\n", new String(board.getFiles().get("main.py"), StandardCharsets.UTF_8));
+        assertEquals(0, board.getWindowCount());
+    }
+
+    @Test
+    void reportErrorOfTheBoard() throws Exception {
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, true);
+        try (MicroPythonRawRepl repl = new MicroPythonRawRepl(board.getInputStream(), board.getOutputStream())) {
+            repl.enter();
+            MicroPythonRawRepl.RemoteException e = assertThrows(MicroPythonRawRepl.RemoteException.class, () -> repl.exec("undefined()"));
+            assertTrue(e.getMessage().contains("SyntaxError"), e.getMessage());
+        }
+    }
+
+    @Test
+    void stopWaitingForTheBoardWhenInterrupted() throws Exception {
+        FakeMicroPythonBoard board = new FakeMicroPythonBoard(WINDOW_SIZE, true);
+        try (MicroPythonRawRepl repl = new MicroPythonRawRepl(board.getInputStream(), board.getOutputStream())) {
+            // the board is never put into the raw REPL so it doesn't answer the raw-paste request
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedIOException.class, () -> repl.exec("print(1)"));
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    private int sync(FakeMicroPythonBoard board, MicroPythonFileSync.Listener listener) throws IOException, InterruptedException {
+        try (MicroPythonRawRepl repl = new MicroPythonRawRepl(board.getInputStream(), board.getOutputStream())) {
+            repl.enter();
+            int count = new MicroPythonFileSync(repl).sync(source, "", listener);
+            repl.exit();
+            return count;
+        }
+    }
+
+    private static class RecordingListener implements MicroPythonFileSync.Listener {
+        private final List<String> skipped = new ArrayList<>();
+        private final List<String> uploaded = new ArrayList<>();
+        private long lastBytesSent;
+        private long lastTotalBytes;
+
+        @Override
+        public void fileSkipped(String path) {
+            skipped.add(path);
+        }
+
+        @Override
+        public void fileUploaded(String path, long size, long elapsedMillis) {
+            uploaded.add(path);
+        }
+
+        @Override
+        public void progress(long bytesSent, long totalBytes) {
+            lastBytesSent = bytesSent;
+            lastTotalBytes = totalBytes;
+        }
+    }
+}
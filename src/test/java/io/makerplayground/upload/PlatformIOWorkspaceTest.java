@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.makerplayground.upload;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlatformIOWorkspaceTest {
+
+    private static final Instant NOW = Instant.parse("2021-06-01T00:00:00Z");
+
+    @TempDir
+    Path buildPath;
+
+    @Test
+    void evictWorkspaceUnusedForTooLong() throws IOException {
+        Path current = createWorkspace("project-a", "uno", NOW);
+        Path recent = createWorkspace("project-a", "esp32", NOW.minus(Duration.ofDays(1)));
+        Path stale = createWorkspace("untitled-1", "uno", NOW.minus(PlatformIOWorkspace.MAX_UNUSED_AGE).minusSeconds(1));
+
+        PlatformIOWorkspace.evictStaleWorkspaces(buildPath, current, NOW);
+
+        assertTrue(Files.exists(current));
+        assertTrue(Files.exists(recent));
+        assertFalse(Files.exists(stale));
+        assertFalse(Files.exists(stale.getParent()));
+    }
+
+    @Test
+    void evictLeastRecentlyUsedWorkspaceWhenThereAreTooMany() throws IOException {
+        // the current workspace is the oldest one but it is about to be used so it must be kept
+        Path current = createWorkspace("current", "uno", NOW.minus(Duration.ofDays(2)));
+        Path[] workspaces = new Path[PlatformIOWorkspace.MAX_WORKSPACE_COUNT];
+        for (int i = 0; i < workspaces.length; i++) {
+            workspaces[i] = createWorkspace("project-" + i, "uno", NOW.minus(Duration.ofHours(workspaces.length - i)));
+        }
+
+        PlatformIOWorkspace.evictStaleWorkspaces(buildPath, current, NOW);
+
+        assertTrue(Files.exists(current));
+        assertFalse(Files.exists(workspaces[0]));
+        for (int i = 1; i < workspaces.length; i++) {
+            assertTrue(Files.exists(workspaces[i]));
+        }
+    }
+
+    private Path createWorkspace(String projectKey, String boardId, Instant lastUsedTime) throws IOException {
+        Path workspace = Files.createDirectories(buildPath.resolve(projectKey).resolve(boardId));
+        Files.writeString(workspace.resolve("platformio.ini"), "");
+        Files.setLastModifiedTime(Files.createFile(workspace.resolve(".mp_last_used")), FileTime.from(lastUsedTime));
+        return workspace;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.upload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test {@link RaspberryPiSyncClient} against an in-process http server that implements the sync endpoints of the runtime.
+ */
+class RaspberryPiSyncClientTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path source;
+
+    private HttpServer server;
+    private String baseUrl;
+    // state of the stand-in runtime (only accessed from the server thread while a request is in progress)
+    private final Map<String, byte[]> blobs = new HashMap<>();
+    private final Map<String, byte[]> project = new TreeMap<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private int manifestStatus = 200;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/sync/manifest", exchange -> handle(exchange, this::handleManifest));
+        server.createContext("/sync/blobs", exchange -> handle(exchange, this::handleBlobs));
+        server.createContext("/sync/commit", exchange -> handle(exchange, this::handleCommit));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void uploadMissingFilesOnly() throws Exception {
+        byte[] main = "print('hello')\n".getBytes(StandardCharsets.UTF_8);
+        // larger than a chunk of the client so that the progress is reported more than once while the blobs are sent
+        byte[] library = new byte[200 * 1024];
+        new Random(1).nextBytes(library);
+        Files.write(source.resolve("main.py"), main);
+        Files.createDirectories(source.resolve("lib"));
+        Files.write(source.resolve("lib").resolve("data.bin"), library);
+        Files.write(source.resolve(".hidden"), new byte[]{1, 2, 3});
+
+        List<Double> progress = new ArrayList<>();
+        assertEquals(RaspberryPiSyncClient.SyncResult.OK, sync(progress));
+        assertEquals(List.of("/sync/manifest", "/sync/blobs", "/sync/commit"), requests);
+        assertEquals(Set.of("lib/data.bin", "main.py"), project.keySet());
+        assertArrayEquals(main, project.get("main.py"));
+        assertArrayEquals(library, project.get("lib/data.bin"));
+        assertProgress(progress);
+        assertTrue(progress.size() > 4, "the progress should be reported while the blobs are being sent");
+
+        // only the manifest and the commit are sent when the runtime already has every file
+        requests.clear();
+        assertEquals(RaspberryPiSyncClient.SyncResult.OK, sync(progress));
+        assertEquals(List.of("/sync/manifest", "/sync/commit"), requests);
+
+        // only the content of the modified file is sent
+        byte[] newMain = "print('hello world')\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(source.resolve("main.py"), newMain);
+        int blobCount = blobs.size();
+        requests.clear();
+        progress.clear();
+        assertEquals(RaspberryPiSyncClient.SyncResult.OK, sync(progress));
+        assertEquals(List.of("/sync/manifest", "/sync/blobs", "/sync/commit"), requests);
+        assertEquals(blobCount + 1, blobs.size());
+        assertArrayEquals(newMain, project.get("main.py"));
+        assertArrayEquals(library, project.get("lib/data.bin"));
+        assertProgress(progress);
+    }
+
+    @Test
+    void fallbackWhenManifestIsNotFound() throws Exception {
+        Files.write(source.resolve("main.py"), "print('hello')\n".getBytes(StandardCharsets.UTF_8));
+        manifestStatus = 404;
+        assertEquals(RaspberryPiSyncClient.SyncResult.UNSUPPORTED, sync(new ArrayList<>()));
+        assertEquals(List.of("/sync/manifest"), requests);
+        assertTrue(project.isEmpty());
+    }
+
+    @Test
+    void fallbackOnAnyClientError() throws Exception {
+        Files.write(source.resolve("main.py"), "print('hello')\n".getBytes(StandardCharsets.UTF_8));
+        for (int status : new int[]{400, 405, 415}) {
+            manifestStatus = status;
+            requests.clear();
+            assertEquals(RaspberryPiSyncClient.SyncResult.UNSUPPORTED, sync(new ArrayList<>()), "status " + status);
+            assertEquals(List.of("/sync/manifest"), requests);
+        }
+    }
+
+    @Test
+    void failOnServerError() throws Exception {
+        Files.write(source.resolve("main.py"), "print('hello')\n".getBytes(StandardCharsets.UTF_8));
+        manifestStatus = 500;
+        assertThrows(IOException.class, () -> sync(new ArrayList<>()));
+        assertEquals(List.of("/sync/manifest"), requests);
+    }
+
+    private RaspberryPiSyncClient.SyncResult sync(List<Double> progress) throws IOException {
+        StringBuilder log = new StringBuilder();
+        return new RaspberryPiSyncClient(baseUrl).sync(source, log::append, progress::add);
+    }
+
+    private static void assertProgress(List<Double> progress) {
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i - 1) <= progress.get(i), "progress should never go backward: " + progress);
+        }
+        assertEquals(1.0, progress.get(progress.size() - 1));
+    }
+
+    private interface Handler {
+        byte[] handle(InputStream body) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        requests.add(exchange.getRequestURI().getPath());
+        try {
+            byte[] response;
+            try {
+                response = handler.handle(exchange.getRequestBody());
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            if (response == null) {
+                exchange.sendResponseHeaders(manifestStatus, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] handleManifest(InputStream body) throws IOException {
+        JsonNode manifest = mapper.readTree(body);
+        if (manifestStatus != 200) {
+            return null;
+        }
+        Set<String> missing = new LinkedHashSet<>();
+        for (JsonNode file : manifest.path("files")) {
+            if (!blobs.containsKey(file.path("hash").asText())) {
+                missing.add(file.path("hash").asText());
+            }
+        }
+        return mapper.writeValueAsBytes(Map.of("missing", missing));
+    }
+
+    private byte[] handleBlobs(InputStream body) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(body))) {
+            byte[] hash = new byte[32];
+            while (true) {
+                try {
+                    in.readFully(hash);
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] content = new byte[Math.toIntExact(in.readLong())];
+                in.readFully(content);
+                assertEquals(Hex.encodeHexString(hash), DigestUtils.sha256Hex(content));
+                blobs.put(Hex.encodeHexString(hash), content);
+            }
+        }
+        return new byte[0];
+    }
+
+    private byte[] handleCommit(InputStream body) throws IOException {
+        JsonNode manifest = mapper.readTree(body);
+        project.clear();
+        for (JsonNode file : manifest.path("files")) {
+            byte[] content = blobs.get(file.path("hash").asText());
+            if (content == null || content.length != file.path("size").asLong()) {
+                throw new IOException("Missing blob for " + file.path("path").asText());
+            }
+            project.put(file.path("path").asText(), content);
+        }
+        return new byte[0];
+    }
+}
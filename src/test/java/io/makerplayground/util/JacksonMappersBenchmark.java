@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import io.makerplayground.device.DeviceLibrary;
+import io.makerplayground.device.actual.ActualDevice;
+import io.makerplayground.device.actual.ActualDeviceDeserializer;
+import io.makerplayground.device.actual.PinTemplate;
+import io.makerplayground.device.shared.DataType;
+import io.makerplayground.device.shared.constraint.Constraint;
+import io.makerplayground.device.shared.constraint.ConstraintDeserializer;
+import io.makerplayground.project.*;
+import org.apache.commons.io.FilenameUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compare reading with the mappers in {@link JacksonMappers}, which keep their (de)serializer caches for the lifetime
+ * of the program, with creating a new mapper for every file as the program did before the mappers were shared. The new
+ * mapper is a {@link ObjectMapper#copy()} of the shared one so it has the same deserializers registered but empty
+ * caches. The old code also created new mappers for nested objects so the reference is a lower bound of its cost.
+ * Measured are the first project load and save in a new JVM, loading a small project, reading the constraints of the
+ * device parameters and reading every device definition of the device library installed on this machine (skipped when
+ * there isn't any). Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class JacksonMappersBenchmark {
+
+    private static final int SCENE_COUNT = 50;
+    private static final int CONSTRAINT_COUNT = 1000;
+    private static final int ROUNDS = 20;
+
+    private static long coldSharedTime;
+    private static long coldNewMapperTime;
+
+    @BeforeAll
+    static void measureStartup() throws IOException {
+        // the benchmark task runs every benchmark class in a new JVM so this pays for the class loading and the first
+        // lookups of the (de)serializers which are all cached by the shared mappers afterward
+        Project project = createProject();
+        long start = System.nanoTime();
+        JacksonMappers.PROJECT_READER.readValue(JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+        long shared = System.nanoTime();
+        ObjectMapper mapper = JacksonMappers.JSON.copy();
+        mapper.readValue(mapper.writeValueAsBytes(project), Project.class);
+        long newMapper = System.nanoTime();
+        coldSharedTime = shared - start;
+        coldNewMapperTime = newMapper - shared;
+    }
+
+    @Test
+    void startup() {
+        System.out.printf("first project load and save: shared mappers (cold JVM) %.1f ms, then a new mapper %.1f ms%n"
+                , coldSharedTime / 1e6, coldNewMapperTime / 1e6);
+    }
+
+    @Test
+    void loadProject() throws IOException {
+        byte[] content = JacksonMappers.PROJECT_WRITER.writeValueAsBytes(createProject());
+
+        long sharedTime = 0, newMapperTime = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            Project project = JacksonMappers.PROJECT_READER.readValue(content);
+            long shared = System.nanoTime();
+            Project reference = JacksonMappers.JSON.copy().readValue(content, Project.class);
+            long newMapper = System.nanoTime();
+            assertArrayEquals(JacksonMappers.PROJECT_WRITER.writeValueAsBytes(reference), JacksonMappers.PROJECT_WRITER.writeValueAsBytes(project));
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                sharedTime += shared - start;
+                newMapperTime += newMapper - shared;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("load %d KB project: shared mapper %.3f ms, new mapper %.3f ms%n", content.length / 1024
+                , sharedTime / 1e6 / measuredRounds, newMapperTime / 1e6 / measuredRounds);
+    }
+
+    @Test
+    void readConstraints() throws IOException {
+        JsonNode node = JacksonMappers.YAML.readTree("{min: 0, max: MAX_INTEGER, unit: MILLISECOND}");
+
+        long sharedTime = 0, newMapperTime = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Constraint> constraints = new ArrayList<>();
+            for (int i = 0; i < CONSTRAINT_COUNT; i++) {
+                constraints.add(JacksonMappers.constraintReader(DataType.INTEGER).readValue(node));
+            }
+            long shared = System.nanoTime();
+            // a YAMLMapper was created for every compatibility parameter of a device
+            List<Constraint> references = new ArrayList<>();
+            for (int i = 0; i < CONSTRAINT_COUNT; i++) {
+                YAMLMapper mapper = JacksonMappers.YAML.copy();
+                references.add(mapper.readerFor(Constraint.class).withAttribute(ConstraintDeserializer.DATA_TYPE_ATTRIBUTE, DataType.INTEGER).readValue(node));
+            }
+            long newMapper = System.nanoTime();
+            assertEquals(references, constraints);
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                sharedTime += shared - start;
+                newMapperTime += newMapper - shared;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("read %d constraints: shared mapper %.3f ms, new mapper per constraint %.3f ms%n", CONSTRAINT_COUNT
+                , sharedTime / 1e6 / measuredRounds, newMapperTime / 1e6 / measuredRounds);
+    }
+
+    @Test
+    void readDeviceDefinitions() throws IOException {
+        DeviceLibrary.INSTANCE.loadDeviceLibrary();
+        assumeTrue(DeviceLibrary.INSTANCE.getLibraryPath().isPresent(), "device library is not installed");
+        Path libraryPath = Path.of(DeviceLibrary.INSTANCE.getLibraryPath().get());
+        Map<String, Map<String, PinTemplate>> pinTemplate = loadPinTemplate(libraryPath);
+        List<Path> deviceDefinitionPaths;
+        try (Stream<Path> stream = Files.list(libraryPath.resolve("devices"))) {
+            deviceDefinitionPaths = stream.map(path -> path.resolve("device.yaml")).filter(Files::exists).collect(Collectors.toList());
+        }
+
+        long sharedTime = 0, newMapperTime = 0;
+        int deviceCount = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            ObjectReader reader = JacksonMappers.ACTUAL_DEVICE_READER.withAttribute(ActualDeviceDeserializer.PIN_TEMPLATE_ATTRIBUTE, pinTemplate);
+            int sharedCount = readAll(deviceDefinitionPaths, reader);
+            long shared = System.nanoTime();
+            int newMapperCount = 0;
+            for (Path path : deviceDefinitionPaths) {
+                ObjectReader newReader = JacksonMappers.YAML.copy().readerFor(ActualDevice.class)
+                        .withAttribute(ActualDeviceDeserializer.PIN_TEMPLATE_ATTRIBUTE, pinTemplate);
+                newMapperCount += readAll(List.of(path), newReader);
+            }
+            long newMapper = System.nanoTime();
+            assertEquals(sharedCount, newMapperCount);
+            deviceCount = sharedCount;
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                sharedTime += shared - start;
+                newMapperTime += newMapper - shared;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("read %d device definitions: shared mapper %.1f ms, new mapper per file %.1f ms%n", deviceCount
+                , sharedTime / 1e6 / measuredRounds, newMapperTime / 1e6 / measuredRounds);
+    }
+
+    private static Map<String, Map<String, PinTemplate>> loadPinTemplate(Path libraryPath) throws IOException {
+        List<Path> pinTemplatePaths;
+        try (Stream<Path> stream = Files.list(libraryPath.resolve("pin_templates"))) {
+            pinTemplatePaths = stream.collect(Collectors.toList());
+        }
+        Map<String, Map<String, PinTemplate>> pinTemplate = new HashMap<>();
+        for (Path pinTemplatePath : pinTemplatePaths) {
+            JsonNode rootNode = JacksonMappers.YAML.readTree(pinTemplatePath.toFile());
+            List<PinTemplate> pinTemplateList = JacksonMappers.YAML.readValue(rootNode.get("pins").traverse(), new TypeReference<List<PinTemplate>>() {});
+            Map<String, PinTemplate> templateMap = new HashMap<>();
+            pinTemplateList.forEach(template -> templateMap.put(template.getName(), template));
+            pinTemplate.put(FilenameUtils.removeExtension(pinTemplatePath.getFileName().toString()), templateMap);
+        }
+        return pinTemplate;
+    }
+
+    /* count the device definitions read successfully as the library skips the invalid devices */
+    private static int readAll(List<Path> paths, ObjectReader reader) {
+        int count = 0;
+        for (Path path : paths) {
+            try {
+                reader.readValue(path.toFile());
+                count++;
+            } catch (Exception e) {
+                // the library skips the invalid devices too
+            }
+        }
+        return count;
+    }
+
+    /* a chain of scenes with a delay after every other scene */
+    private static Project createProject() {
+        Project project = new Project();
+        project.addVariable("counter");
+        project.batch(() -> {
+            NodeElement previous = project.getBegin().get(0);
+            for (int i=0; i<SCENE_COUNT; i++) {
+                Scene scene = project.newScene();
+                project.addLine(previous, scene);
+                previous = scene;
+                if (i % 2 == 0) {
+                    Delay delay = project.newDelay();
+                    project.addLine(previous, delay);
+                    previous = delay;
+                }
+            }
+        });
+        return project;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compare the time to archive and extract a project directory with the sequential {@link ZipOutputStream} and
+ * {@link ZipInputStream} implementation that the parallel one replaced. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class ZipArchiverBenchmark {
+
+    private static final int DIRECTORY_COUNT = 20;
+    private static final int FILE_PER_DIRECTORY = 100;
+    private static final int ROUNDS = 6;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void archiveAndExtract() throws IOException {
+        // a mix of small source files and larger binaries similar to a project with its libraries
+        Path source = tempDir.resolve("project");
+        Random random = new Random(1);
+        for (int i = 0; i < DIRECTORY_COUNT; i++) {
+            Path directory = Files.createDirectories(source.resolve("lib" + i));
+            for (int j = 0; j < FILE_PER_DIRECTORY; j++) {
+                byte[] content;
+                if (j % 10 == 0) {
+                    content = new byte[256 * 1024];
+                    random.nextBytes(content);
+                } else {
+                    content = ("int value" + j + " = " + random.nextInt() + ";\n").repeat(200).getBytes(StandardCharsets.UTF_8);
+                }
+                Files.write(directory.resolve("file" + j + (j % 10 == 0 ? ".bin" : ".cpp")), content);
+            }
+        }
+        Path zipFile = tempDir.resolve("project.zip");
+        Path referenceZipFile = tempDir.resolve("reference.zip");
+
+        long archiveTime = 0, referenceArchiveTime = 0, extractTime = 0, referenceExtractTime = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            assertEquals(ZipArchiver.ArchiveResult.SUCCESS, ZipArchiver.archiveDirectory(source.toString(), zipFile.toString()));
+            long archived = System.nanoTime();
+            referenceArchive(source.toFile(), referenceZipFile.toFile());
+            long referenceArchived = System.nanoTime();
+            assertEquals(ZipResourceExtractor.ExtractResult.SUCCESS, ZipResourceExtractor.extract(zipFile, tempDir.resolve("out" + round).toString()));
+            long extracted = System.nanoTime();
+            referenceExtract(referenceZipFile, tempDir.resolve("reference" + round).toFile());
+            long referenceExtracted = System.nanoTime();
+            // the first rounds are the warm up
+            if (round >= ROUNDS / 2) {
+                archiveTime += archived - start;
+                referenceArchiveTime += referenceArchived - archived;
+                extractTime += extracted - referenceArchived;
+                referenceExtractTime += referenceExtracted - extracted;
+            }
+        }
+
+        int measuredRounds = ROUNDS - ROUNDS / 2;
+        System.out.printf("zip %d files (%d KB -> %d KB, reference %d KB)%n", DIRECTORY_COUNT * FILE_PER_DIRECTORY
+                , directorySize(source) / 1024, Files.size(zipFile) / 1024, Files.size(referenceZipFile) / 1024);
+        System.out.printf("archive: %.1f ms, reference %.1f ms%n", archiveTime / 1e6 / measuredRounds, referenceArchiveTime / 1e6 / measuredRounds);
+        System.out.printf("extract: %.1f ms, reference %.1f ms%n", extractTime / 1e6 / measuredRounds, referenceExtractTime / 1e6 / measuredRounds);
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (var stream = Files.walk(directory)) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    /* the sequential implementation that ZipArchiver replaced */
+    private static void referenceArchive(File directory, File zipFile) throws IOException {
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            referenceZipFile(directory, directory.getName(), zipOut);
+        }
+    }
+
+    private static void referenceZipFile(File fileToZip, String fileName, ZipOutputStream zipOut) throws IOException {
+        if (fileToZip.isHidden()) {
+            return;
+        }
+        if (fileToZip.isDirectory()) {
+            zipOut.putNextEntry(new ZipEntry(fileName + "/"));
+            zipOut.closeEntry();
+            File[] children = fileToZip.listFiles();
+            if (children != null) {
+                for (File childFile : children) {
+                    referenceZipFile(childFile, fileName + "/" + childFile.getName(), zipOut);
+                }
+            }
+            return;
+        }
+        try (FileInputStream fis = new FileInputStream(fileToZip)) {
+            zipOut.putNextEntry(new ZipEntry(fileName));
+            byte[] bytes = new byte[1024];
+            int length;
+            while ((length = fis.read(bytes)) >= 0) {
+                zipOut.write(bytes, 0, length);
+            }
+        }
+    }
+
+    /* the sequential implementation that ZipResourceExtractor replaced */
+    private static void referenceExtract(Path zipFile, File destination) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(zipFile))) {
+            ZipEntry entry;
+            byte[] buffer = new byte[4096];
+            while ((entry = zis.getNextEntry()) != null) {
+                File entryFile = new File(destination, entry.getName());
+                if (entry.isDirectory()) {
+                    entryFile.mkdirs();
+                } else {
+                    entryFile.getParentFile().mkdirs();
+                    try (OutputStream os = new FileOutputStream(entryFile)) {
+                        int length;
+                        while ((length = zis.read(buffer)) != -1) {
+                            os.write(buffer, 0, length);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020. The Maker Playground Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.makerplayground.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipArchiverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void archiveAndExtract() throws IOException {
+        Path source = tempDir.resolve("project");
+        Random random = new Random(1);
+        // compressible text, incompressible data, a file that is never compressed because of its extension, an empty
+        // file and files larger than the read buffer of the archiver which are streamed to the archive
+        write(source.resolve("main.py"), "print('hello')\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+        write(source.resolve("lib").resolve("random.bin"), randomBytes(random, 10000));
+        write(source.resolve("lib").resolve("image.png"), randomBytes(random, 5000));
+        write(source.resolve("lib").resolve("sub").resolve("empty.txt"), new byte[0]);
+        write(source.resolve("large.txt"), "0123456789abcdef".repeat(200_000).getBytes(StandardCharsets.UTF_8));
+        write(source.resolve("large.bin"), randomBytes(random, (int) ZipArchiver.IN_MEMORY_FILE_SIZE * 3 + 1));
+        write(source.resolve("large.jpg"), randomBytes(random, (int) ZipArchiver.IN_MEMORY_FILE_SIZE + 1));
+        write(source.resolve("file with space.txt"), "space in the name".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(source.resolve("emptyDir"));
+        write(source.resolve(".hidden"), new byte[]{1, 2, 3});
+        write(source.resolve(".git").resolve("config"), new byte[]{1, 2, 3});
+
+        Path zipFile = tempDir.resolve("project.zip");
+        assertEquals(ZipArchiver.ArchiveResult.SUCCESS, ZipArchiver.archiveDirectory(source.toString(), zipFile.toString()));
+
+        // the archive can be read by the jdk and every entry is under the directory name
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            List<String> names = Collections.list(zip.entries()).stream().map(ZipEntry::getName).collect(Collectors.toList());
+            assertTrue(names.contains("project/"));
+            assertTrue(names.contains("project/emptyDir/"));
+            assertTrue(names.stream().allMatch(name -> name.startsWith("project/")));
+            assertTrue(names.stream().noneMatch(name -> name.contains(".hidden") || name.contains(".git")));
+            assertEquals(ZipEntry.STORED, zip.getEntry("project/lib/image.png").getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry("project/lib/random.bin").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("project/main.py").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("project/large.txt").getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry("project/large.bin").getMethod());
+            assertEquals(ZipEntry.STORED, zip.getEntry("project/large.jpg").getMethod());
+        }
+
+        Path destination = tempDir.resolve("extracted");
+        assertEquals(ZipResourceExtractor.ExtractResult.SUCCESS, ZipResourceExtractor.extract(zipFile, destination.toString()));
+        Map<String, byte[]> expected = readTree(source);
+        expected.keySet().removeIf(name -> name.startsWith(".") || name.startsWith(".git/"));
+        Map<String, byte[]> actual = readTree(destination.resolve("project"));
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String name : expected.keySet()) {
+            assertArrayEquals(expected.get(name), actual.get(name), name);
+        }
+        assertTrue(Files.isDirectory(destination.resolve("project").resolve("emptyDir")));
+    }
+
+    @Test
+    void archiveMoreEntriesThanTheOriginalFormatAllows() throws IOException {
+        Path source = tempDir.resolve("project");
+        int fileCount = 0x10000 + 10;
+        for (int i = 0; i < fileCount; i++) {
+            // spread the files so that no directory becomes too large for the file system
+            write(source.resolve(Integer.toString(i / 1000)).resolve(i + ".txt"), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+        }
+        Path zipFile = tempDir.resolve("project.zip");
+        assertEquals(ZipArchiver.ArchiveResult.SUCCESS, ZipArchiver.archiveDirectory(source.toString(), zipFile.toString()));
+
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            // the files, their directories and the root directory
+            assertEquals(fileCount + (fileCount + 999) / 1000 + 1, zip.size());
+            ZipEntry entry = zip.getEntry("project/65/65545.txt");
+            assertArrayEquals("65545".getBytes(StandardCharsets.UTF_8), zip.getInputStream(entry).readAllBytes());
+        }
+    }
+
+    @Test
+    void archiveWithDirectoryName() throws IOException {
+        Path source = tempDir.resolve("project");
+        write(source.resolve("main.py"), "print('hello')\n".getBytes(StandardCharsets.UTF_8));
+        Path zipFile = tempDir.resolve("project.zip");
+        assertEquals(ZipArchiver.ArchiveResult.SUCCESS, ZipArchiver.archiveDirectory(source.toString(), zipFile.toString(), "script"));
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            assertNotNull(zip.getEntry("script/main.py"));
+        }
+    }
+
+    @Test
+    void rejectEntryOutsideOfDestination() throws IOException {
+        Path zipFile = tempDir.resolve("slip.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            out.putNextEntry(new ZipEntry("good.txt"));
+            out.write("good".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("../evil.txt"));
+            out.write("evil".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        Path destination = tempDir.resolve("extracted");
+        assertEquals(ZipResourceExtractor.ExtractResult.FAIL, ZipResourceExtractor.extract(zipFile, destination.toString()));
+        assertFalse(Files.exists(tempDir.resolve("evil.txt")));
+    }
+
+    @Test
+    void failWhenAnEntryCannotBeWritten() throws IOException {
+        Path zipFile = tempDir.resolve("project.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            for (int i = 0; i < 100; i++) {
+                out.putNextEntry(new ZipEntry("file" + i + ".txt"));
+                out.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        // a directory where a file should be written makes that entry fail while the others are being extracted
+        Path destination = tempDir.resolve("extracted");
+        Files.createDirectories(destination.resolve("file50.txt"));
+        assertEquals(ZipResourceExtractor.ExtractResult.FAIL, ZipResourceExtractor.extract(zipFile, destination.toString()));
+        // the zip file has been closed after every task has returned so it can be replaced right away
+        Files.delete(zipFile);
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void write(Path path, byte[] content) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(content);
+        }
+    }
+
+    private static Map<String, byte[]> readTree(Path directory) throws IOException {
+        Map<String, byte[]> files = new TreeMap<>();
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path path : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                files.put(directory.relativize(path).toString().replace('\\', '/'), Files.readAllBytes(path));
+            }
+        }
+        return files;
+    }
+}